@@ -0,0 +1,208 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Benchmarks launcher that runs JMH with the command line arguments and optionally
+ * compares the results with a baseline from an earlier run. Without any of the
+ * properties below it behaves exactly as the standard JMH launcher.
+ * <ul>
+ * <li>"cayenne.benchmark.save" - a file to save the results to, so that they can serve
+ * as a baseline later.</li>
+ * <li>"cayenne.benchmark.baseline" - a file with baseline results. If any benchmark
+ * turns out slower than its baseline by more than a threshold and outside of the error
+ * margins of both runs, the launcher exits with a non-zero status.</li>
+ * <li>"cayenne.benchmark.threshold" - a tolerated slowdown as a fraction of the baseline
+ * score. Default is 0.1 (i.e. 10%).</li>
+ * </ul>
+ * E.g.:
+ * 
+ * <pre>
+ * java -Dcayenne.benchmark.save=3.0M5.properties -jar target/benchmarks.jar
+ * java -Dcayenne.benchmark.baseline=3.0M5.properties -jar target/benchmarks.jar
+ * </pre>
+ * 
+ * @since 3.0
+ */
+public class BenchmarkRunner {
+
+    public static final String SAVE_PROPERTY = "cayenne.benchmark.save";
+    public static final String BASELINE_PROPERTY = "cayenne.benchmark.baseline";
+    public static final String THRESHOLD_PROPERTY = "cayenne.benchmark.threshold";
+
+    static final double DEFAULT_THRESHOLD = 0.1;
+
+    public static void main(String[] args) throws Exception {
+
+        String save = System.getProperty(SAVE_PROPERTY);
+        String baseline = System.getProperty(BASELINE_PROPERTY);
+
+        if (save == null && baseline == null) {
+            Main.main(args);
+            return;
+        }
+
+        Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+        Properties scores = toProperties(results);
+
+        if (save != null) {
+            OutputStream out = new FileOutputStream(save);
+            try {
+                scores.store(out, "Cayenne benchmark results");
+            }
+            finally {
+                out.close();
+            }
+        }
+
+        if (baseline != null) {
+            Properties baselineScores = new Properties();
+            InputStream in = new FileInputStream(new File(baseline));
+            try {
+                baselineScores.load(in);
+            }
+            finally {
+                in.close();
+            }
+
+            double threshold = Double.parseDouble(System.getProperty(
+                    THRESHOLD_PROPERTY,
+                    String.valueOf(DEFAULT_THRESHOLD)));
+
+            List<String> regressions = compare(baselineScores, scores, threshold);
+            if (!regressions.isEmpty()) {
+                System.out.println();
+                System.out.println("Performance regressions against " + baseline + ":");
+                for (String regression : regressions) {
+                    System.out.println("    " + regression);
+                }
+
+                System.exit(1);
+            }
+
+            System.out.println();
+            System.out.println("No performance regressions against " + baseline);
+        }
+    }
+
+    /**
+     * Converts JMH results to properties keyed by benchmark name and parameters, with
+     * "score error mode unit" values.
+     */
+    static Properties toProperties(Collection<RunResult> results) {
+        Properties properties = new Properties();
+
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            Result primary = result.getPrimaryResult();
+
+            properties.setProperty(key(params), primary.getScore()
+                    + " "
+                    + primary.getScoreError()
+                    + " "
+                    + params.getMode().shortLabel()
+                    + " "
+                    + primary.getScoreUnit());
+        }
+
+        return properties;
+    }
+
+    static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+
+        for (String param : new TreeSet<String>(params.getParamsKeys())) {
+            key.append(':').append(param).append('=').append(params.getParam(param));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Returns descriptions of benchmarks that regressed compared to the baseline.
+     * Benchmarks missing from either of the runs are ignored.
+     */
+    static List<String> compare(Properties baseline, Properties current, double threshold) {
+        List<String> regressions = new ArrayList<String>();
+
+        for (String key : new TreeSet<String>(current.stringPropertyNames())) {
+            String baselineValue = baseline.getProperty(key);
+            if (baselineValue == null) {
+                continue;
+            }
+
+            String[] base = baselineValue.split(" ");
+            String[] now = current.getProperty(key).split(" ");
+
+            double baseScore = Double.parseDouble(base[0]);
+            double baseError = error(base[1]);
+            double score = Double.parseDouble(now[0]);
+            double error = error(now[1]);
+
+            // throughput is the only mode where a larger score is better
+            boolean higherIsBetter = Mode.deepValueOf(now[2]) == Mode.Throughput;
+
+            double slowdown = higherIsBetter
+                    ? (baseScore - score) / baseScore
+                    : (score - baseScore) / baseScore;
+            boolean outsideError = Math.abs(score - baseScore) > error + baseError;
+
+            if (slowdown > threshold && outsideError) {
+                regressions.add(key
+                        + ": "
+                        + baseScore
+                        + " -> "
+                        + score
+                        + " "
+                        + now[3]
+                        + " ("
+                        + Math.round(slowdown * 100)
+                        + "% slower)");
+            }
+        }
+
+        return regressions;
+    }
+
+    private static double error(String error) {
+        double value = Double.parseDouble(error);
+
+        // single iteration runs have no error estimate
+        return Double.isNaN(value) ? 0 : value;
+    }
+}
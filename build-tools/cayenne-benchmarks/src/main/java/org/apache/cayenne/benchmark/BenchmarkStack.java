@@ -0,0 +1,182 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.io.File;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.access.DataContext;
+import org.apache.cayenne.access.DataDomain;
+import org.apache.cayenne.access.DataNode;
+import org.apache.cayenne.access.DbGenerator;
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.benchmark.entity.Entity2;
+import org.apache.cayenne.benchmark.entity.Entity3;
+import org.apache.cayenne.conn.PoolManager;
+import org.apache.cayenne.dba.DbAdapter;
+import org.apache.cayenne.dba.derby.DerbyAdapter;
+import org.apache.cayenne.dba.h2.H2Adapter;
+import org.apache.cayenne.dba.hsqldb.HSQLDBAdapter;
+import org.apache.cayenne.map.DataMap;
+import org.apache.cayenne.map.MapLoader;
+import org.apache.cayenne.query.SQLTemplate;
+
+/**
+ * A Cayenne stack over an embedded database shared by the benchmarks. The database is
+ * selected with "cayenne.benchmark.db" system property that can be one of "hsqldb"
+ * (default), "derby" or "h2". The schema is the one used by the regression profiler.
+ * 
+ * @since 3.0
+ */
+public class BenchmarkStack {
+
+    public static final String DATABASE_PROPERTY = "cayenne.benchmark.db";
+    public static final String POOL_SIZE_PROPERTY = "cayenne.benchmark.pool";
+
+    static final String MAP_LOCATION = "cayenne-benchmark.map.xml";
+    static final String DATABASE_NAME = "cayenne-benchmark";
+
+    protected DataDomain domain;
+    protected DataNode node;
+    protected PoolManager dataSource;
+
+    public BenchmarkStack() throws Exception {
+
+        String database = System.getProperty(DATABASE_PROPERTY, "hsqldb");
+
+        String driver;
+        String url;
+        DbAdapter adapter;
+
+        if ("hsqldb".equals(database)) {
+            driver = "org.hsqldb.jdbcDriver";
+            url = "jdbc:hsqldb:mem:" + DATABASE_NAME;
+            adapter = new HSQLDBAdapter();
+        }
+        else if ("derby".equals(database)) {
+            driver = "org.apache.derby.jdbc.EmbeddedDriver";
+            url = "jdbc:derby:"
+                    + new File("target/derby", DATABASE_NAME).getPath()
+                    + ";create=true";
+            adapter = new DerbyAdapter();
+        }
+        else if ("h2".equals(database)) {
+            driver = "org.h2.Driver";
+            url = "jdbc:h2:mem:" + DATABASE_NAME + ";DB_CLOSE_DELAY=-1";
+            adapter = new H2Adapter();
+        }
+        else {
+            throw new CayenneRuntimeException("Unsupported benchmark database: "
+                    + database);
+        }
+
+        int poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, 8);
+        this.dataSource = new PoolManager(driver, url, 1, poolSize, "sa", "");
+
+        DataMap map = new MapLoader().loadDataMap(MAP_LOCATION);
+
+        this.node = new DataNode(DATABASE_NAME);
+        node.setDataSource(dataSource);
+        node.setAdapter(adapter);
+        node.addDataMap(map);
+
+        this.domain = new DataDomain(DATABASE_NAME);
+        domain.addMap(map);
+        domain.addNode(node);
+
+        DbGenerator generator = new DbGenerator(adapter, map);
+        generator.setShouldDropTables(true);
+        generator.setShouldDropPKSupport(true);
+        generator.setShouldCreateTables(true);
+        generator.setShouldCreatePKSupport(true);
+        generator.setShouldCreateFKConstraints(true);
+        generator.runGenerator(dataSource);
+    }
+
+    public DataDomain getDomain() {
+        return domain;
+    }
+
+    public DataNode getNode() {
+        return node;
+    }
+
+    public PoolManager getDataSource() {
+        return dataSource;
+    }
+
+    public DataContext createDataContext() {
+        return domain.createDataContext();
+    }
+
+    /**
+     * Inserts a given number of Entity1 rows named "Name_0", "Name_1", etc.
+     */
+    public void insertEntity1(int count) {
+        DataContext context = createDataContext();
+
+        for (int i = 0; i < count; i++) {
+            Entity1 e = context.newObject(Entity1.class);
+            e.setName("Name_" + i);
+            e.setDescription("Desc_" + i);
+        }
+
+        context.commitChanges();
+    }
+
+    /**
+     * Inserts a given number of Entity3 rows, each pointing to one of the "count / 10"
+     * Entity2 rows.
+     */
+    public void insertEntity3(int count) {
+        DataContext context = createDataContext();
+
+        Entity2 e2 = null;
+        for (int i = 0; i < count; i++) {
+
+            if (i % 10 == 0) {
+                e2 = context.newObject(Entity2.class);
+                e2.setName("E2_" + i);
+            }
+
+            Entity3 e3 = context.newObject(Entity3.class);
+            e3.setName("E3_" + i);
+            e3.setEntity2(e2);
+        }
+
+        context.commitChanges();
+    }
+
+    /**
+     * Deletes all rows from the benchmark tables.
+     */
+    public void deleteAll() {
+        DataContext context = createDataContext();
+        context.performGenericQuery(new SQLTemplate(Entity3.class, "DELETE FROM ENTITY3"));
+        context.performGenericQuery(new SQLTemplate(Entity2.class, "DELETE FROM ENTITY2"));
+        context.performGenericQuery(new SQLTemplate(Entity1.class, "DELETE FROM ENTITY1"));
+    }
+
+    /**
+     * Shuts down the DataDomain, closing pooled connections.
+     */
+    public void shutdown() {
+        domain.shutdown();
+    }
+}
@@ -0,0 +1,134 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.access.DataContext;
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.query.SelectQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures DataDomainFlushAction commits of new and modified objects (the regression
+ * profiler "InsertCase", "UpdateAttributeCase" and "MixedCommitCase").
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommitBenchmark {
+
+    @Param( {
+            "1", "100"
+    })
+    int objects;
+
+    BenchmarkStack stack;
+    DataContext context;
+    List<Entity1> fetched;
+    int counter;
+
+    @Setup
+    public void setUp() throws Exception {
+        stack = new BenchmarkStack();
+    }
+
+    @TearDown
+    public void tearDown() {
+        stack.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        stack.deleteAll();
+        stack.insertEntity1(objects);
+
+        context = stack.createDataContext();
+        fetched = context.performQuery(new SelectQuery(Entity1.class));
+    }
+
+    @Benchmark
+    public void insert() {
+        DataContext context = stack.createDataContext();
+        for (int i = 0; i < objects; i++) {
+            Entity1 e = context.newObject(Entity1.class);
+            e.setName("Name_" + i);
+            e.setDescription("Desc_" + i);
+        }
+
+        context.commitChanges();
+    }
+
+    @Benchmark
+    public void update() {
+        String name = "Name_" + counter++;
+        for (Entity1 e : fetched) {
+            e.setName(name);
+        }
+
+        context.commitChanges();
+    }
+
+    @Benchmark
+    public void mixed(MixedState state) {
+        String name = "Name_" + counter++;
+        for (Entity1 e : state.fetched) {
+            e.setDescription(name);
+
+            Entity1 inserted = state.context.newObject(Entity1.class);
+            inserted.setName(name);
+        }
+
+        state.context.commitChanges();
+    }
+
+    /**
+     * A fresh context for each "mixed" invocation, so that the objects inserted by the
+     * previous invocations do not accumulate in the ObjectStore.
+     */
+    @State(Scope.Thread)
+    public static class MixedState {
+
+        DataContext context;
+        List<Entity1> fetched;
+
+        @Setup(Level.Invocation)
+        public void setUp(CommitBenchmark benchmark) {
+            context = benchmark.stack.createDataContext();
+
+            // the table grows with every invocation, so only fetch the initial number of
+            // objects
+            SelectQuery query = new SelectQuery(Entity1.class);
+            query.setFetchLimit(benchmark.objects);
+            fetched = context.performQuery(query);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.access.DataRowStore;
+import org.apache.cayenne.event.EventManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures concurrent snapshot reads from a shared DataRowStore, with and without
+ * concurrent snapshot updates.
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataRowStoreBenchmark {
+
+    static final int SNAPSHOTS = 10000;
+
+    EventManager eventManager;
+    DataRowStore store;
+    ObjectId[] ids;
+
+    @Setup
+    public void setUp() {
+        eventManager = new EventManager();
+        store = new DataRowStore("benchmark", Collections.EMPTY_MAP, eventManager);
+
+        ids = new ObjectId[SNAPSHOTS];
+        Map<ObjectId, DataRow> snapshots = new HashMap<ObjectId, DataRow>();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            ids[i] = new ObjectId("Entity1", "ID", i);
+            snapshots.put(ids[i], snapshot(i));
+        }
+
+        store.processSnapshotChanges(
+                this,
+                snapshots,
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST);
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+        eventManager.shutdown();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DataRow read() {
+        return store.getCachedSnapshot(ids[ThreadLocalRandom.current().nextInt(SNAPSHOTS)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public DataRow readWhileWriting() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write() {
+        int i = ThreadLocalRandom.current().nextInt(SNAPSHOTS);
+        store.processSnapshotChanges(
+                this,
+                Collections.singletonMap(ids[i], snapshot(i)),
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST);
+    }
+
+    static DataRow snapshot(int i) {
+        DataRow row = new DataRow(3);
+        row.put("ID", i);
+        row.put("NAME", "Name_" + i);
+        row.put("DESCRIPTION", "Desc_" + i);
+        return row;
+    }
+}
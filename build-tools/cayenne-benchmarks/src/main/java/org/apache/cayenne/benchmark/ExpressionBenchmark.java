@@ -0,0 +1,105 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.access.DataContext;
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.exp.CompiledExpression;
+import org.apache.cayenne.exp.Expression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures in-memory evaluation of expressions against persistent objects, interpreted
+ * and compiled, as well as parsing of expression strings.
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpressionBenchmark {
+
+    static final int OBJECTS = 1000;
+    static final String EXPRESSION = "name like 'Name_1%' and description != null";
+
+    BenchmarkStack stack;
+    List<Entity1> objects;
+    Expression expression;
+    CompiledExpression compiled;
+
+    @Setup
+    public void setUp() throws Exception {
+        stack = new BenchmarkStack();
+
+        DataContext context = stack.createDataContext();
+        objects = new ArrayList<Entity1>(OBJECTS);
+        for (int i = 0; i < OBJECTS; i++) {
+            Entity1 e = context.newObject(Entity1.class);
+            e.setName("Name_" + i);
+            e.setDescription(i % 2 == 0 ? "Desc_" + i : null);
+            objects.add(e);
+        }
+
+        expression = Expression.fromString(EXPRESSION);
+        compiled = expression.compile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        stack.shutdown();
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int matched = 0;
+        for (Entity1 e : objects) {
+            if (expression.match(e)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int evaluateCompiled() {
+        int matched = 0;
+        for (Entity1 e : objects) {
+            if (compiled.match(e)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public Expression fromString() {
+        return Expression.fromString(EXPRESSION);
+    }
+}
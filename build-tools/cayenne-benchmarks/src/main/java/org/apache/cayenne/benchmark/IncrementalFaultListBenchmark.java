@@ -0,0 +1,98 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.query.SelectQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures paginated selects, i.e. IncrementalFaultList creation and resolution of its
+ * pages.
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IncrementalFaultListBenchmark {
+
+    static final int ROWS = 2000;
+
+    @Param( {
+            "20", "100"
+    })
+    int pageSize;
+
+    BenchmarkStack stack;
+
+    @Setup
+    public void setUp() throws Exception {
+        stack = new BenchmarkStack();
+        stack.insertEntity1(ROWS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stack.shutdown();
+    }
+
+    @Benchmark
+    public List firstPage() {
+        List list = select();
+        list.get(0);
+        return list;
+    }
+
+    @Benchmark
+    public void allPages(Blackhole blackhole) {
+        for (Object object : select()) {
+            blackhole.consume(object);
+        }
+    }
+
+    @Benchmark
+    public void randomAccess(Blackhole blackhole) {
+        List list = select();
+        int size = list.size();
+
+        // jump over pages in a fixed non-sequential order
+        for (int i = 0; i < size; i += pageSize) {
+            blackhole.consume(list.get((i * 7) % size));
+        }
+    }
+
+    List select() {
+        SelectQuery query = new SelectQuery(Entity1.class);
+        query.setPageSize(pageSize);
+        return stack.createDataContext().performQuery(query);
+    }
+}
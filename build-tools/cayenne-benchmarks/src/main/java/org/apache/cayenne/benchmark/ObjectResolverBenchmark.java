@@ -0,0 +1,94 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.benchmark.entity.Entity3;
+import org.apache.cayenne.query.SelectQuery;
+import org.apache.cayenne.reflect.ClassDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures conversion of fetched DataRows to persistent objects, alone and as a part of
+ * a select (the regression profiler "SelectCase" and "ResolveToOneRelationshipCase").
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectResolverBenchmark {
+
+    @Param( {
+            "100", "1000"
+    })
+    int rows;
+
+    BenchmarkStack stack;
+    ClassDescriptor descriptor;
+    List<DataRow> dataRows;
+
+    @Setup
+    public void setUp() throws Exception {
+        stack = new BenchmarkStack();
+        stack.insertEntity1(rows);
+        stack.insertEntity3(rows);
+
+        descriptor = stack.getDomain().getEntityResolver().getClassDescriptor(
+                "Entity1");
+
+        SelectQuery query = new SelectQuery(Entity1.class);
+        query.setFetchingDataRows(true);
+        dataRows = stack.createDataContext().performQuery(query);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stack.shutdown();
+    }
+
+    @Benchmark
+    public List objectsFromDataRows() {
+        return stack.createDataContext().objectsFromDataRows(descriptor, dataRows);
+    }
+
+    @Benchmark
+    public List selectObjects() {
+        return stack.createDataContext().performQuery(new SelectQuery(Entity1.class));
+    }
+
+    @Benchmark
+    public List selectWithToOnePrefetch() {
+        SelectQuery query = new SelectQuery(Entity3.class);
+        query.addPrefetch(Entity3.ENTITY2_PROPERTY);
+        return stack.createDataContext().performQuery(query);
+    }
+}
@@ -0,0 +1,98 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cayenne.access.trans.SelectTranslationCache;
+import org.apache.cayenne.access.trans.SelectTranslator;
+import org.apache.cayenne.benchmark.entity.Entity1;
+import org.apache.cayenne.benchmark.entity.Entity2;
+import org.apache.cayenne.benchmark.entity.Entity3;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.query.SelectQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures translation of SelectQueries to SQL, with and without a translation cache.
+ * 
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectTranslatorBenchmark {
+
+    @Param( {
+            "false", "true"
+    })
+    boolean cached;
+
+    BenchmarkStack stack;
+    SelectTranslationCache translationCache;
+    SelectQuery qualifiedQuery;
+    SelectQuery joinQuery;
+
+    @Setup
+    public void setUp() throws Exception {
+        stack = new BenchmarkStack();
+        translationCache = cached ? new SelectTranslationCache() : null;
+
+        qualifiedQuery = new SelectQuery(Entity1.class, Expression
+                .fromString("name like 'Name_11%' and description != null"));
+        qualifiedQuery.addOrdering(Entity1.NAME_PROPERTY, true);
+
+        joinQuery = new SelectQuery(Entity3.class, ExpressionFactory.matchExp(
+                Entity3.ENTITY2_PROPERTY + "." + Entity2.NAME_PROPERTY,
+                "E2_10"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        stack.shutdown();
+    }
+
+    @Benchmark
+    public String translateQualifiedQuery() throws Exception {
+        return translate(qualifiedQuery);
+    }
+
+    @Benchmark
+    public String translateJoinQuery() throws Exception {
+        return translate(joinQuery);
+    }
+
+    String translate(SelectQuery query) throws Exception {
+        SelectTranslator translator = new SelectTranslator();
+        translator.setQuery(query);
+        translator.setAdapter(stack.getNode().getAdapter());
+        translator.setEntityResolver(stack.getDomain().getEntityResolver());
+        translator.setTranslationCache(translationCache);
+        return translator.createSqlString();
+    }
+}
@@ -69,6 +69,17 @@ public class DataRow extends HashMap<String, Object> {
         return replacesVersion;
     }
 
+    /**
+     * Sets the version of this DataRow. Normally the version is assigned on creation
+     * and is never changed. This method is used by the code that restores DataRows from
+     * a compact encoded form, preserving original version.
+     * 
+     * @since 3.0
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Sets the version of DataRow replaced by this one in the store.
      */
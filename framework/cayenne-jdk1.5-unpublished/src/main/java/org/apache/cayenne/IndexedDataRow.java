@@ -0,0 +1,725 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.cayenne.util.Util;
+
+/**
+ * A DataRow that stores its values in an array instead of a hash table. Column positions
+ * are taken from a {@link ColumnIndex} shared by all rows with the same columns (e.g.
+ * all rows read from the same ResultSet), so a row doesn't allocate hash entries or
+ * rehash its keys. Keys not present in the index can still be added to the row and are
+ * stored in a secondary map. The class fully implements the Map contract, however it
+ * ignores the hash table inherited from DataRow.
+ * <p>
+ * Comparison, diff creation and diff application between rows sharing the same index
+ * are performed position by position.
+ * </p>
+ * <p>
+ * Indexed rows are produced by the JDBC row readers and the compact snapshot encoder
+ * only if {@link #setEnabled(boolean) enabled}, which is off by default. The reason is
+ * that the Java 8 default methods of HashMap that take functional arguments (i.e.
+ * <code>forEach</code>, <code>compute*</code>, <code>merge</code> and
+ * <code>replaceAll</code>) read and write the inherited hash table directly, and can't
+ * be overridden in code compiled for Java 5. Such methods see an empty map when called
+ * on an indexed row. The other Java 8 methods (<code>getOrDefault</code>,
+ * <code>putIfAbsent</code>, <code>replace</code> and two-argument <code>remove</code>)
+ * are overridden.
+ * </p>
+ *
+ * @since 3.0
+ */
+public class IndexedDataRow extends DataRow {
+
+    // marks index positions with no value, as null is a valid column value
+    private static final Object ABSENT = new Object();
+
+    protected ColumnIndex index;
+    protected Object[] values;
+    protected Map<String, Object> extraValues;
+    protected int size;
+
+    private transient int modCount;
+
+    private static volatile boolean enabled;
+
+    /**
+     * Returns true if the row readers should produce indexed rows. False by default.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the row readers should produce indexed rows. The setting affects the
+     * readers created after the change.
+     */
+    public static void setEnabled(boolean enabled) {
+        IndexedDataRow.enabled = enabled;
+    }
+
+    /**
+     * Creates a row with no values.
+     */
+    public IndexedDataRow(ColumnIndex index) {
+        super(0);
+        this.index = index;
+        this.values = new Object[index.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ABSENT;
+        }
+    }
+
+    /**
+     * Creates a row with a full set of index values. The array is used by the row
+     * directly without copying.
+     */
+    public IndexedDataRow(ColumnIndex index, Object[] values) {
+        super(0);
+
+        if (values.length != index.size()) {
+            throw new IllegalArgumentException("Values count "
+                    + values.length
+                    + " doesn't match index size "
+                    + index.size());
+        }
+
+        this.index = index;
+        this.values = values;
+        this.size = values.length;
+    }
+
+    /**
+     * Returns the column index shared by this row.
+     */
+    public ColumnIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return extraValues != null ? size + extraValues.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = index.position(key);
+        if (i >= 0) {
+            Object value = values[i];
+            return value != ABSENT ? value : null;
+        }
+
+        return extraValues != null ? extraValues.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int i = index.position(key);
+        if (i >= 0) {
+            return values[i] != ABSENT;
+        }
+
+        return extraValues != null && extraValues.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Object v : values) {
+            if (v != ABSENT && Util.nullSafeEquals(v, value)) {
+                return true;
+            }
+        }
+
+        return extraValues != null && extraValues.containsValue(value);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int i = index.position(key);
+        if (i >= 0) {
+            Object old = values[i];
+            values[i] = value;
+
+            if (old == ABSENT) {
+                size++;
+                modCount++;
+                return null;
+            }
+
+            return old;
+        }
+
+        if (extraValues == null) {
+            extraValues = new LinkedHashMap<String, Object>();
+        }
+
+        modCount++;
+        return extraValues.put(key, value);
+    }
+
+    // the following methods override the Java 8 HashMap methods that would otherwise
+    // access the inherited hash table, and can't be annotated with @Override as long as
+    // the code is compiled for Java 5
+
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    public Object putIfAbsent(String key, Object value) {
+        Object old = get(key);
+        if (old == null) {
+            old = put(key, value);
+        }
+
+        return old;
+    }
+
+    public boolean remove(Object key, Object value) {
+        if (containsKey(key) && Util.nullSafeEquals(get(key), value)) {
+            remove(key);
+            return true;
+        }
+
+        return false;
+    }
+
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        if (containsKey(key) && Util.nullSafeEquals(get(key), oldValue)) {
+            put(key, newValue);
+            return true;
+        }
+
+        return false;
+    }
+
+    public Object replace(String key, Object value) {
+        return containsKey(key) ? put(key, value) : null;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> map) {
+        for (Map.Entry<? extends String, ? extends Object> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = index.position(key);
+        if (i >= 0) {
+            Object old = values[i];
+            if (old == ABSENT) {
+                return null;
+            }
+
+            values[i] = ABSENT;
+            size--;
+            modCount++;
+            return old;
+        }
+
+        if (extraValues != null) {
+            modCount++;
+            return extraValues.remove(key);
+        }
+
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ABSENT;
+        }
+
+        size = 0;
+        extraValues = null;
+        modCount++;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+
+            @Override
+            public Iterator<String> iterator() {
+                final Iterator<Map.Entry<String, Object>> it = new EntryIterator();
+                return new Iterator<String>() {
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public String next() {
+                        return it.next().getKey();
+                    }
+
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IndexedDataRow.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (containsKey(o)) {
+                    IndexedDataRow.this.remove(o);
+                    return true;
+                }
+
+                return false;
+            }
+
+            @Override
+            public void clear() {
+                IndexedDataRow.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<Object>() {
+
+            @Override
+            public Iterator<Object> iterator() {
+                final Iterator<Map.Entry<String, Object>> it = new EntryIterator();
+                return new Iterator<Object>() {
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public Object next() {
+                        return it.next().getValue();
+                    }
+
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IndexedDataRow.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                IndexedDataRow.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return IndexedDataRow.this.size();
+            }
+
+            @Override
+            public void clear() {
+                IndexedDataRow.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (object instanceof IndexedDataRow) {
+            IndexedDataRow row = (IndexedDataRow) object;
+            if (index.isCompatible(row.index)
+                    && extraValues == null
+                    && row.extraValues == null) {
+                if (row.size != size) {
+                    return false;
+                }
+
+                for (int i = 0; i < values.length; i++) {
+                    if (!Util.nullSafeEquals(values[i], row.values[i])) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+        }
+
+        return super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public Object clone() {
+        IndexedDataRow clone = new IndexedDataRow(index, values.clone());
+        clone.size = size;
+        clone.version = version;
+        clone.replacesVersion = replacesVersion;
+        clone.entityName = entityName;
+
+        if (extraValues != null) {
+            clone.extraValues = new LinkedHashMap<String, Object>(extraValues);
+        }
+
+        return clone;
+    }
+
+    @Override
+    public DataRow applyDiff(DataRow diff) {
+
+        // copy values array instead of rehashing
+        IndexedDataRow merged = new IndexedDataRow(index, values.clone());
+        merged.size = size;
+
+        if (extraValues != null) {
+            merged.extraValues = new LinkedHashMap<String, Object>(extraValues);
+        }
+
+        if (diff instanceof IndexedDataRow
+                && index.isCompatible(((IndexedDataRow) diff).index)) {
+            IndexedDataRow indexedDiff = (IndexedDataRow) diff;
+            for (int i = 0; i < values.length; i++) {
+                Object value = indexedDiff.values[i];
+                if (value != ABSENT) {
+                    if (merged.values[i] == ABSENT) {
+                        merged.size++;
+                    }
+
+                    merged.values[i] = value;
+                }
+            }
+
+            if (indexedDiff.extraValues != null) {
+                merged.putAll(indexedDiff.extraValues);
+            }
+        }
+        else {
+            merged.putAll(diff);
+        }
+
+        return merged;
+    }
+
+    @Override
+    public DataRow createDiff(DataRow row) {
+
+        if (!(row instanceof IndexedDataRow)
+                || !index.isCompatible(((IndexedDataRow) row).index)) {
+            return super.createDiff(row);
+        }
+
+        IndexedDataRow indexedRow = (IndexedDataRow) row;
+        IndexedDataRow diff = null;
+
+        for (int i = 0; i < values.length; i++) {
+            Object currentValue = values[i];
+            if (currentValue == ABSENT) {
+                continue;
+            }
+
+            Object rowValue = indexedRow.values[i];
+            if (rowValue == ABSENT) {
+                rowValue = null;
+            }
+
+            if (!Util.nullSafeEquals(currentValue, rowValue)) {
+                if (diff == null) {
+                    diff = new IndexedDataRow(index);
+                }
+
+                diff.values[i] = rowValue;
+                diff.size++;
+            }
+        }
+
+        if (extraValues != null) {
+            for (Map.Entry<String, Object> entry : extraValues.entrySet()) {
+                Object rowValue = indexedRow.get(entry.getKey());
+                if (!Util.nullSafeEquals(entry.getValue(), rowValue)) {
+                    if (diff == null) {
+                        diff = new IndexedDataRow(index);
+                    }
+
+                    diff.put(entry.getKey(), rowValue);
+                }
+            }
+        }
+
+        return diff;
+    }
+
+    /**
+     * Replaces this object with a regular DataRow on serialization, as the inherited
+     * HashMap serialization would only write an empty hash table.
+     */
+    protected Object writeReplace() {
+        DataRow row = new DataRow(this);
+        row.setVersion(version);
+        row.setReplacesVersion(replacesVersion);
+        row.setEntityName(entityName);
+        return row;
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int expectedModCount;
+        private int next;
+        private int current;
+        private Iterator<Map.Entry<String, Object>> extraIterator;
+        private boolean inExtras;
+
+        EntryIterator() {
+            this.expectedModCount = modCount;
+            this.current = -1;
+            this.next = advance(0);
+        }
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == ABSENT) {
+                from++;
+            }
+            return from;
+        }
+
+        public boolean hasNext() {
+            if (next < values.length) {
+                return true;
+            }
+
+            if (extraValues == null) {
+                return false;
+            }
+
+            if (extraIterator == null) {
+                extraIterator = extraValues.entrySet().iterator();
+            }
+
+            return extraIterator.hasNext();
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            if (next < values.length) {
+                current = next;
+                next = advance(next + 1);
+                inExtras = false;
+                return new IndexedEntry(current);
+            }
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            inExtras = true;
+            return extraIterator.next();
+        }
+
+        public void remove() {
+            if (inExtras) {
+                extraIterator.remove();
+                return;
+            }
+
+            if (current < 0 || values[current] == ABSENT) {
+                throw new IllegalStateException();
+            }
+
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            values[current] = ABSENT;
+            size--;
+            modCount++;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class IndexedEntry implements Map.Entry<String, Object> {
+
+        private int position;
+
+        IndexedEntry(int position) {
+            this.position = position;
+        }
+
+        public String getKey() {
+            return index.getKey(position);
+        }
+
+        public Object getValue() {
+            Object value = values[position];
+            return value != ABSENT ? value : null;
+        }
+
+        public Object setValue(Object value) {
+            Object old = getValue();
+            values[position] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+            return Util.nullSafeEquals(getKey(), entry.getKey())
+                    && Util.nullSafeEquals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode())
+                    ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * An immutable mapping of column names to positions in the values array of
+     * IndexedDataRow. Normally a single index is shared by all rows with the same
+     * columns.
+     *
+     * @since 3.0
+     */
+    public static class ColumnIndex implements Serializable {
+
+        protected String[] keys;
+        protected Map<String, Integer> positions;
+
+        /**
+         * Creates an index for an array of unique column names.
+         *
+         * @throws IllegalArgumentException if column names are not unique.
+         */
+        public ColumnIndex(String[] keys) {
+            this.keys = keys;
+            this.positions = new HashMap<String, Integer>((int) Math
+                    .ceil(keys.length / 0.75));
+
+            for (int i = 0; i < keys.length; i++) {
+                if (positions.put(keys[i], Integer.valueOf(i)) != null) {
+                    throw new IllegalArgumentException("Duplicate column: " + keys[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns true if all the keys in the array are unique and hence can be used to
+         * create an index.
+         */
+        public static boolean isIndexable(String[] keys) {
+            Set<String> unique = new java.util.HashSet<String>();
+            for (String key : keys) {
+                if (!unique.add(key)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        public int size() {
+            return keys.length;
+        }
+
+        public String getKey(int position) {
+            return keys[position];
+        }
+
+        /**
+         * Returns true if the other index has the same keys in the same order as this
+         * one.
+         */
+        public boolean isCompatible(ColumnIndex index) {
+            return index == this || Arrays.equals(keys, index.keys);
+        }
+
+        /**
+         * Returns a position of the key in the index or -1 if the key is not indexed.
+         */
+        public int position(Object key) {
+            Integer position = positions.get(key);
+            return position != null ? position.intValue() : -1;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.IndexedDataRow;
+import org.apache.cayenne.util.BinaryValueCodec;
+
+/**
+ * Encodes DataRow snapshots into a compact byte array and decodes them back. Column
+ * names are not stored with each row. Instead each distinct set of columns (normally
+ * one per entity) is registered once in a shared column index, and encoded rows only
+ * reference the index position, followed by type-tagged column values in index order.
+ * Common JDBC value types are written as primitives; any other value is written using
+ * Java serialization. Rows containing values that are not serializable can not be
+ * encoded. If {@link IndexedDataRow#isEnabled() enabled}, decoded rows are
+ * {@link IndexedDataRow IndexedDataRows} sharing a column index per column set.
+ *
+ * @since 3.0
+ */
+public class CompactSnapshotEncoder implements Serializable {
+
+    // column sets are looked up without locking on every encode and decode; the
+    // array is copied on write, and only registration of a new column set is locked
+    protected ConcurrentMap<List<String>, Integer> columnIndex;
+    protected volatile IndexedDataRow.ColumnIndex[] columnSets;
+
+    public CompactSnapshotEncoder() {
+        this.columnIndex = new ConcurrentHashMap<List<String>, Integer>();
+        this.columnSets = new IndexedDataRow.ColumnIndex[0];
+    }
+
+    /**
+     * Encodes a DataRow into a byte array. Returns null if the row contains values that
+     * can not be encoded.
+     */
+    public byte[] encode(DataRow row) {
+
+        String[] columns = row.keySet().toArray(new String[row.size()]);
+        Arrays.sort(columns);
+        int columnSet = columnSetIndex(columns);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + columns.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(columnSet);
+            out.writeLong(row.getVersion());
+            out.writeLong(row.getReplacesVersion());
+
+            String entityName = row.getEntityName();
+            out.writeBoolean(entityName != null);
+            if (entityName != null) {
+                out.writeUTF(entityName);
+            }
+
+            for (String column : columns) {
+                Object value = row.get(column);
+                if (!isEncodable(value)) {
+                    return null;
+                }
+
+                writeValue(out, value);
+            }
+
+            out.flush();
+        }
+        catch (NotSerializableException e) {
+            // a serializable value referencing non-serializable objects
+            return null;
+        }
+        catch (IOException e) {
+            throw new CayenneRuntimeException("Error encoding snapshot", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a DataRow previously encoded by this encoder.
+     */
+    public DataRow decode(byte[] encoded) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+
+        try {
+            IndexedDataRow.ColumnIndex columns = columnSet(in.readInt());
+            long version = in.readLong();
+            long replacesVersion = in.readLong();
+            String entityName = in.readBoolean() ? in.readUTF() : null;
+
+            DataRow row;
+            if (IndexedDataRow.isEnabled()) {
+                Object[] values = new Object[columns.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readValue(in);
+                }
+
+                row = new IndexedDataRow(columns, values);
+            }
+            else {
+                int len = columns.size();
+                row = new DataRow((int) Math.ceil(len / 0.75));
+                for (int i = 0; i < len; i++) {
+                    row.put(columns.getKey(i), readValue(in));
+                }
+            }
+
+            row.setVersion(version);
+            row.setReplacesVersion(replacesVersion);
+            row.setEntityName(entityName);
+            return row;
+        }
+        catch (IOException e) {
+            throw new CayenneRuntimeException("Error decoding snapshot", e);
+        }
+        catch (ClassNotFoundException e) {
+            throw new CayenneRuntimeException("Error decoding snapshot", e);
+        }
+    }
+
+    /**
+     * Returns a number of distinct column sets registered with this encoder.
+     */
+    public int getColumnSetCount() {
+        return columnSets.length;
+    }
+
+    boolean isEncodable(Object value) {
+        return value == null || value instanceof Serializable;
+    }
+
+    int columnSetIndex(String[] columns) {
+        List<String> key = Arrays.asList(columns);
+        Integer index = columnIndex.get(key);
+        if (index != null) {
+            return index.intValue();
+        }
+
+        synchronized (this) {
+            index = columnIndex.get(key);
+            if (index == null) {
+                IndexedDataRow.ColumnIndex[] sets = columnSets;
+                IndexedDataRow.ColumnIndex[] newSets = new IndexedDataRow.ColumnIndex[sets.length
+                        + 1];
+                System.arraycopy(sets, 0, newSets, 0, sets.length);
+                newSets[sets.length] = new IndexedDataRow.ColumnIndex(columns);
+
+                // publish the column set before its index, so that it can be decoded as
+                // soon as it is used for encoding
+                columnSets = newSets;
+                index = Integer.valueOf(sets.length);
+                columnIndex.put(key, index);
+            }
+
+            return index.intValue();
+        }
+    }
+
+    IndexedDataRow.ColumnIndex columnSet(int index) {
+        return columnSets[index];
+    }
+
+    void writeValue(DataOutputStream out, Object value) throws IOException {
+        BinaryValueCodec.writeValue(out, value);
+    }
+
+    Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        return BinaryValueCodec.readValue(in);
+    }
+}
@@ -63,6 +63,7 @@ import org.apache.cayenne.query.NamedQuery;
 import org.apache.cayenne.query.ObjectIdQuery;
 import org.apache.cayenne.query.Query;
 import org.apache.cayenne.query.QueryMetadata;
+import org.apache.cayenne.query.SelectQuery;
 import org.apache.cayenne.reflect.AttributeProperty;
 import org.apache.cayenne.reflect.ClassDescriptor;
 import org.apache.cayenne.reflect.PropertyVisitor;
@@ -1078,19 +1079,31 @@ public class DataContext extends BaseContext implements DataChannel {
         ObjectStore objectStore = getObjectStore();
         GraphDiff parentChanges = null;
 
-        // prevent multiple commits occurring simultaneously
-        synchronized (objectStore) {
+        // prevent multiple commits occurring simultaneously, and modifications of the
+        // objects by other threads while the commit is in progress. ObjectStore lock
+        // itself is only held while the change set is captured and while the results of
+        // the commit are applied, so reading threads are not blocked by the database
+        // operations of the commit.
+        objectStore.commitStarted();
 
-            ObjectStoreGraphDiff changes = objectStore.getChanges();
-            boolean noop = isValidatingObjectsOnCommit()
-                    ? changes.validateAndCheckNoop()
-                    : changes.isNoop();
+        try {
+
+            ObjectStoreGraphDiff changes;
+            boolean noop;
+
+            synchronized (objectStore) {
+                changes = objectStore.getChanges();
+                noop = isValidatingObjectsOnCommit()
+                        ? changes.validateAndCheckNoop()
+                        : changes.isNoop();
 
-            if (noop) {
-                // need to clear phantom changes
-                objectStore.postprocessAfterPhantomCommit();
+                if (noop) {
+                    // need to clear phantom changes
+                    objectStore.postprocessAfterPhantomCommit();
+                }
             }
-            else {
+
+            if (!noop) {
 
                 try {
                     parentChanges = getChannel().onSync(this, changes, syncType);
@@ -1105,8 +1118,10 @@ public class DataContext extends BaseContext implements DataChannel {
                     // temp
                     // ObjectIds in nested contexts and perm ones in flat contexts.
                     // Pending better callback design .....
-                    if (objectStore.hasChanges()) {
-                        objectStore.postprocessAfterCommit(parentChanges);
+                    synchronized (objectStore) {
+                        if (objectStore.hasChanges()) {
+                            objectStore.postprocessAfterCommit(parentChanges);
+                        }
                     }
 
                     // this event is caught by peer nested DataContexts to synchronize the
@@ -1131,7 +1146,10 @@ public class DataContext extends BaseContext implements DataChannel {
 
             CompoundDiff diff = new CompoundDiff();
 
-            diff.addAll(objectStore.getLifecycleEventInducedChanges());
+            synchronized (objectStore) {
+                diff.addAll(objectStore.getLifecycleEventInducedChanges());
+            }
+
             if (parentChanges != null) {
                 diff.add(parentChanges);
             }
@@ -1144,7 +1162,9 @@ public class DataContext extends BaseContext implements DataChannel {
 
             return diff;
         }
-
+        finally {
+            objectStore.commitStopped();
+        }
     }
 
     /**
@@ -1193,6 +1213,21 @@ public class DataContext extends BaseContext implements DataChannel {
         }
     }
 
+    /**
+     * Performs a select query returning a ResultIterator over persistent objects, that
+     * are resolved from the underlying rows cursor in batches of the specified size. As
+     * with {@link #performIteratedQuery(Query)}, it is caller's responsibility to
+     * explicitly close the iterator.
+     * 
+     * @see ObjectResultIterator
+     * @since 3.0
+     */
+    public ObjectResultIterator performIteratedObjectQuery(
+            SelectQuery query,
+            int batchSize) throws CayenneException {
+        return new ObjectResultIterator(this, query, batchSize);
+    }
+
     /**
      * Runs an iterated query in transactional context provided by the caller.
      *
@@ -25,11 +25,18 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.DataChannel;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.QueryResponse;
+import org.apache.cayenne.access.event.SnapshotEventSerializer;
 import org.apache.cayenne.cache.MapQueryCacheFactory;
 import org.apache.cayenne.cache.QueryCache;
 import org.apache.cayenne.cache.QueryCacheFactory;
@@ -78,6 +85,33 @@ public class DataDomain implements QueryEngine, DataChannel {
      */
     public static final String QUERY_CACHE_FACTORY_PROPERTY = "cayenne.DataDomain.queryCacheFactory";
 
+    /**
+     * Defines a property name for enabling concurrent flush of changes to multiple
+     * DataNodes.
+     * 
+     * @since 3.0
+     */
+    public static final String PARALLEL_FLUSH_PROPERTY = "cayenne.DataDomain.parallelFlush";
+    public static final boolean PARALLEL_FLUSH_DEFAULT = false;
+
+    /**
+     * Defines a property name for the maximum number of threads used to flush changes
+     * to multiple DataNodes concurrently.
+     * 
+     * @since 3.0
+     */
+    public static final String PARALLEL_FLUSH_THREADS_PROPERTY = "cayenne.DataDomain.parallelFlush.threads";
+    public static final int PARALLEL_FLUSH_THREADS_DEFAULT = 4;
+
+    /**
+     * Defines a property name for switching domain EntityResolver to a frozen mode once
+     * the configuration is loaded. See {@link EntityResolver#freeze()}.
+     * 
+     * @since 3.0
+     */
+    public static final String FROZEN_ENTITY_RESOLVER_PROPERTY = "cayenne.DataDomain.frozenEntityResolver";
+    public static final boolean FROZEN_ENTITY_RESOLVER_DEFAULT = false;
+
     /** Stores mapping of data nodes to DataNode name keys. */
     protected Map<String, DataNode> nodes = Collections
             .synchronizedMap(new TreeMap<String, DataNode>());
@@ -102,6 +136,26 @@ public class DataDomain implements QueryEngine, DataChannel {
     protected boolean validatingObjectsOnCommit;
     protected boolean usingExternalTransactions;
 
+    /**
+     * @since 3.0
+     */
+    protected boolean parallelFlush;
+
+    /**
+     * @since 3.0
+     */
+    protected int parallelFlushThreads;
+
+    /**
+     * @since 3.0
+     */
+    protected boolean frozenEntityResolver;
+
+    /**
+     * @since 3.0
+     */
+    protected ExecutorService flushExecutor;
+
     /**
      * @since 1.2
      */
@@ -204,6 +258,9 @@ public class DataDomain implements QueryEngine, DataChannel {
         sharedCacheEnabled = SHARED_CACHE_ENABLED_DEFAULT;
         validatingObjectsOnCommit = VALIDATING_OBJECTS_ON_COMMIT_DEFAULT;
         usingExternalTransactions = USING_EXTERNAL_TRANSACTIONS_DEFAULT;
+        parallelFlush = PARALLEL_FLUSH_DEFAULT;
+        parallelFlushThreads = PARALLEL_FLUSH_THREADS_DEFAULT;
+        frozenEntityResolver = FROZEN_ENTITY_RESOLVER_DEFAULT;
         dataContextFactory = null;
     }
 
@@ -227,6 +284,10 @@ public class DataDomain implements QueryEngine, DataChannel {
         Object usingExternalTransactions = localMap
                 .get(USING_EXTERNAL_TRANSACTIONS_PROPERTY);
 
+        Object parallelFlush = localMap.get(PARALLEL_FLUSH_PROPERTY);
+        Object parallelFlushThreads = localMap.get(PARALLEL_FLUSH_THREADS_PROPERTY);
+        Object frozenEntityResolver = localMap.get(FROZEN_ENTITY_RESOLVER_PROPERTY);
+
         Object dataContextFactory = localMap.get(DATA_CONTEXT_FACTORY_PROPERTY);
         Object queryCacheFactory = localMap.get(QUERY_CACHE_FACTORY_PROPERTY);
 
@@ -240,6 +301,24 @@ public class DataDomain implements QueryEngine, DataChannel {
         this.usingExternalTransactions = (usingExternalTransactions != null)
                 ? "true".equalsIgnoreCase(usingExternalTransactions.toString())
                 : USING_EXTERNAL_TRANSACTIONS_DEFAULT;
+        this.parallelFlush = (parallelFlush != null)
+                ? "true".equalsIgnoreCase(parallelFlush.toString())
+                : PARALLEL_FLUSH_DEFAULT;
+        this.frozenEntityResolver = (frozenEntityResolver != null)
+                ? "true".equalsIgnoreCase(frozenEntityResolver.toString())
+                : FROZEN_ENTITY_RESOLVER_DEFAULT;
+
+        try {
+            this.parallelFlushThreads = (parallelFlushThreads != null) ? Integer
+                    .parseInt(parallelFlushThreads.toString().trim())
+                    : PARALLEL_FLUSH_THREADS_DEFAULT;
+        }
+        catch (NumberFormatException e) {
+            throw new CayenneRuntimeException("Invalid "
+                    + PARALLEL_FLUSH_THREADS_PROPERTY
+                    + ": "
+                    + parallelFlushThreads, e);
+        }
 
         if (dataContextFactory != null
                 && !Util.isEmptyString(dataContextFactory.toString())) {
@@ -382,6 +461,100 @@ public class DataDomain implements QueryEngine, DataChannel {
         this.usingExternalTransactions = flag;
     }
 
+    /**
+     * Returns true if changes spanning multiple DataNodes are flushed to each node
+     * concurrently. Default is false.
+     * 
+     * @since 3.0
+     */
+    public boolean isParallelFlush() {
+        return parallelFlush;
+    }
+
+    /**
+     * Sets whether changes spanning multiple DataNodes should be flushed to each node
+     * concurrently. Each node still receives its queries in the order defined by the
+     * EntitySorter, and all nodes participate in the same transaction.
+     * 
+     * @since 3.0
+     */
+    public void setParallelFlush(boolean parallelFlush) {
+        this.parallelFlush = parallelFlush;
+    }
+
+    /**
+     * Returns the maximum number of threads used for parallel flush.
+     * 
+     * @since 3.0
+     */
+    public int getParallelFlushThreads() {
+        return parallelFlushThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads used for parallel flush. Must be called before
+     * the first parallel flush to have any effect.
+     * 
+     * @since 3.0
+     */
+    public void setParallelFlushThreads(int parallelFlushThreads) {
+        this.parallelFlushThreads = parallelFlushThreads;
+    }
+
+    /**
+     * Returns true if domain EntityResolver should be frozen once the configuration is
+     * loaded. Default is false.
+     * 
+     * @since 3.0
+     */
+    public boolean isFrozenEntityResolver() {
+        return frozenEntityResolver;
+    }
+
+    /**
+     * Sets whether domain EntityResolver should be frozen once the configuration is
+     * loaded. Freezing is performed by the configuration loader; when assembling a
+     * domain manually, call {@link EntityResolver#freeze()} directly.
+     * 
+     * @since 3.0
+     */
+    public void setFrozenEntityResolver(boolean frozenEntityResolver) {
+        this.frozenEntityResolver = frozenEntityResolver;
+    }
+
+    /**
+     * Returns a lazily created bounded executor used to flush changes to multiple
+     * DataNodes concurrently.
+     */
+    synchronized ExecutorService getFlushExecutor() {
+        if (flushExecutor == null) {
+            final String threadPrefix = "cayenne-flush-" + getName() + "-";
+            int threads = Math.max(parallelFlushThreads, 1);
+
+            // threads are started on demand and are daemons, so they don't prevent JVM
+            // shutdown if the domain is not shut down explicitly
+            flushExecutor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+
+                        final AtomicInteger counter = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, threadPrefix
+                                    + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+
+        return flushExecutor;
+    }
+
     /**
      * @since 1.1
      * @return a Map of properties for this DataDomain. There is no guarantees of specific
@@ -416,7 +589,7 @@ public class DataDomain implements QueryEngine, DataChannel {
      */
     public synchronized DataRowStore getSharedSnapshotCache() {
         if (sharedSnapshotCache == null && sharedCacheEnabled) {
-            this.sharedSnapshotCache = new DataRowStore(name, properties, eventManager);
+            this.sharedSnapshotCache = createSharedSnapshotCache();
         }
 
         return sharedSnapshotCache;
@@ -431,12 +604,36 @@ public class DataDomain implements QueryEngine, DataChannel {
      */
     synchronized DataRowStore nonNullSharedSnapshotCache() {
         if (sharedSnapshotCache == null) {
-            this.sharedSnapshotCache = new DataRowStore(name, properties, eventManager);
+            this.sharedSnapshotCache = createSharedSnapshotCache();
         }
 
         return sharedSnapshotCache;
     }
 
+    /**
+     * Creates a snapshot cache, configuring the compact format of remote events if it is
+     * enabled in the domain properties, as the format relies on the domain mapping.
+     */
+    private DataRowStore createSharedSnapshotCache() {
+        DataRowStore cache = new DataRowStore(name, properties, eventManager);
+
+        if (cache.remoteNotificationsHandler != null) {
+            Object compactFormat = properties
+                    .get(DataRowStore.REMOTE_NOTIFICATION_COMPACT_FORMAT_PROPERTY);
+            boolean compact = (compactFormat != null)
+                    ? "true".equalsIgnoreCase(compactFormat.toString())
+                    : DataRowStore.REMOTE_NOTIFICATION_COMPACT_FORMAT_DEFAULT;
+
+            if (compact) {
+                cache.remoteNotificationsHandler
+                        .setEventSerializer(new SnapshotEventSerializer(
+                                getEntityResolver()));
+            }
+        }
+
+        return cache;
+    }
+
     /**
      * Shuts down the previous cache instance, sets cache to the new DataSowStore instance
      * and updates two properties of the new DataSowStore: name and eventManager.
@@ -691,6 +888,13 @@ public class DataDomain implements QueryEngine, DataChannel {
                 this.sharedSnapshotCache.shutdown();
             }
 
+            synchronized (this) {
+                if (flushExecutor != null) {
+                    flushExecutor.shutdown();
+                    flushExecutor = null;
+                }
+            }
+
             for (DataNode node : getDataNodes()) {
                 try {
                     node.shutdown();
@@ -26,8 +26,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.DataRow;
@@ -143,12 +147,19 @@ class DataDomainFlushAction {
 
         runQueries();
 
-        // note that there is no syncing on the object store itself. This is caller's
-        // responsibility.
         synchronized (context.getObjectStore().getDataRowCache()) {
             postprocess(context);
-            return resultDiff;
         }
+
+        // the caller is not holding ObjectStore lock during the flush, so lock it to
+        // update the state of committed objects. Note that this is done outside of the
+        // DataRowStore lock to preserve the lock order used elsewhere.
+        ObjectStore objectStore = context.getObjectStore();
+        synchronized (objectStore) {
+            objectStore.postprocessAfterCommit(resultDiff);
+        }
+
+        return resultDiff;
     }
 
     private void preprocess(DataContext context, GraphDiff changes) {
@@ -189,6 +200,14 @@ class DataDomainFlushAction {
     private void runQueries() {
         DataDomainFlushObserver observer = new DataDomainFlushObserver();
 
+        if (domain.isParallelFlush()) {
+            Map<DataNode, List<Query>> queriesByNode = groupQueriesByNode();
+            if (queriesByNode.size() > 1) {
+                runQueriesInParallel(queriesByNode, observer);
+                return;
+            }
+        }
+
         // split query list by spanned nodes and run each single node range individually.
         // Since connections are reused per node within an open transaction, there should
         // not be much overhead in accessing the same node multiple times (may happen due
@@ -231,6 +250,112 @@ class DataDomainFlushAction {
         }
     }
 
+    /**
+     * Splits the sorted query list into per-node lists, preserving the order of queries
+     * within each node.
+     */
+    private Map<DataNode, List<Query>> groupQueriesByNode() {
+        Map<DataNode, List<Query>> queriesByNode = new LinkedHashMap<DataNode, List<Query>>();
+
+        DataNode lastNode = null;
+        DbEntity lastEntity = null;
+        List<Query> nodeQueries = null;
+
+        for (Query query : queries) {
+
+            DbEntity entity = ((BatchQuery) query).getDbEntity();
+            if (entity != lastEntity) {
+                lastEntity = entity;
+
+                DataNode node = domain.lookupDataNode(entity.getDataMap());
+                if (node != lastNode) {
+                    lastNode = node;
+
+                    nodeQueries = queriesByNode.get(node);
+                    if (nodeQueries == null) {
+                        nodeQueries = new ArrayList<Query>();
+                        queriesByNode.put(node, nodeQueries);
+                    }
+                }
+            }
+
+            nodeQueries.add(query);
+        }
+
+        return queriesByNode;
+    }
+
+    /**
+     * Runs each node's queries on a separate thread, all within the calling thread
+     * transaction. Waits for all nodes to finish before reporting a failure, so that the
+     * transaction is rolled back only after all nodes are done.
+     */
+    private void runQueriesInParallel(
+            Map<DataNode, List<Query>> queriesByNode,
+            final DataDomainFlushObserver observer) {
+
+        final Transaction transaction = Transaction.getThreadTransaction();
+        List<Future<?>> futures = new ArrayList<Future<?>>(queriesByNode.size() - 1);
+        Throwable failure = null;
+
+        Iterator<Map.Entry<DataNode, List<Query>>> it = queriesByNode
+                .entrySet()
+                .iterator();
+
+        // the first node is processed on the calling thread
+        Map.Entry<DataNode, List<Query>> first = it.next();
+
+        try {
+            while (it.hasNext()) {
+                final Map.Entry<DataNode, List<Query>> entry = it.next();
+                futures.add(domain.getFlushExecutor().submit(new Callable<Object>() {
+
+                    public Object call() throws Exception {
+                        Transaction.bindThreadTransaction(transaction);
+                        try {
+                            entry.getKey().performQueries(entry.getValue(), observer);
+                        }
+                        finally {
+                            Transaction.bindThreadTransaction(null);
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            first.getKey().performQueries(first.getValue(), observer);
+        }
+        catch (Throwable th) {
+            failure = th;
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            if (transaction != null) {
+                transaction.setRollbackOnly();
+            }
+
+            throw new CayenneRuntimeException("Transaction was rolledback.", failure);
+        }
+    }
+
     /*
      * Sends notification of changes to the DataRowStore, returns GraphDiff with replaced
      * ObjectIds.
@@ -253,7 +378,5 @@ class DataDomainFlushAction {
                     Collections.EMPTY_LIST,
                     resultIndirectlyModifiedIds);
         }
-        
-        context.getObjectStore().postprocessAfterCommit(resultDiff);
     }
 }
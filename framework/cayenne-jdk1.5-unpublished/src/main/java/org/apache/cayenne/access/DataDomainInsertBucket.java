@@ -19,7 +19,9 @@
 
 package org.apache.cayenne.access;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +29,7 @@ import java.util.Map;
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.ObjectId;
 import org.apache.cayenne.Persistent;
+import org.apache.cayenne.dba.JdbcPkGenerator;
 import org.apache.cayenne.dba.PkGenerator;
 import org.apache.cayenne.map.DbAttribute;
 import org.apache.cayenne.map.DbEntity;
@@ -101,6 +104,10 @@ class DataDomainInsertBucket extends DataDomainSyncBucket {
 
         PkGenerator pkGenerator = node.getAdapter().getPkGenerator();
 
+        // id maps waiting for a generated key, keyed by PK attribute, so that the keys
+        // are generated for the whole batch at once
+        Map<DbAttribute, List<Map<String, Object>>> pendingIds = null;
+
         for (Persistent object : objects) {
             ObjectId id = object.getObjectId();
             if (id == null || !id.isTemporary()) {
@@ -160,10 +167,46 @@ class DataDomainInsertBucket extends DataDomainSyncBucket {
                 }
 
                 // finally, use database generation mechanism
+                if (pendingIds == null) {
+                    pendingIds = new HashMap<DbAttribute, List<Map<String, Object>>>();
+                }
+
+                List<Map<String, Object>> idMaps = pendingIds.get(dbAttr);
+                if (idMaps == null) {
+                    idMaps = new ArrayList<Map<String, Object>>();
+                    pendingIds.put(dbAttr, idMaps);
+                }
+
+                idMaps.add(idMap);
+                autoPkDone = true;
+            }
+        }
+
+        if (pendingIds != null) {
+            for (Map.Entry<DbAttribute, List<Map<String, Object>>> entry : pendingIds
+                    .entrySet()) {
+
+                DbAttribute dbAttr = entry.getKey();
+                List<Map<String, Object>> idMaps = entry.getValue();
+
                 try {
-                    Object pkValue = pkGenerator.generatePk(node, dbAttr);
-                    idMap.put(dbAttrName, pkValue);
-                    autoPkDone = true;
+                    // JdbcPkGenerator can reserve keys for the whole batch, other
+                    // generators are asked for one key at a time
+                    if (pkGenerator instanceof JdbcPkGenerator) {
+                        List<Object> pkValues = ((JdbcPkGenerator) pkGenerator)
+                                .generatePks(node, dbAttr, idMaps.size());
+
+                        for (int i = 0; i < idMaps.size(); i++) {
+                            idMaps.get(i).put(dbAttr.getName(), pkValues.get(i));
+                        }
+                    }
+                    else {
+                        for (Map<String, Object> idMap : idMaps) {
+                            idMap.put(dbAttr.getName(), pkGenerator.generatePk(
+                                    node,
+                                    dbAttr));
+                        }
+                    }
                 }
                 catch (Exception ex) {
                     throw new CayenneRuntimeException("Error generating PK: "
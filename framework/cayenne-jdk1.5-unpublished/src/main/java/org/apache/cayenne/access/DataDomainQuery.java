@@ -124,6 +124,13 @@ class DataDomainQuery implements Query, QueryMetadata {
         return 0;
     }
 
+    /**
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return 0;
+    }
+
     public PrefetchTreeNode getPrefetchTree() {
         return null;
     }
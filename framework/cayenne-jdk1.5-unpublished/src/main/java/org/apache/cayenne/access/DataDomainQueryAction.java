@@ -35,6 +35,7 @@ import org.apache.cayenne.Persistent;
 import org.apache.cayenne.QueryResponse;
 import org.apache.cayenne.cache.QueryCache;
 import org.apache.cayenne.cache.QueryCacheEntryFactory;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.map.DataMap;
 import org.apache.cayenne.map.DbRelationship;
 import org.apache.cayenne.map.LifecycleEvent;
@@ -342,6 +343,10 @@ class DataDomainQueryAction implements QueryRouter, OperationObserver {
         if (cache) {
             List cachedResults = queryCache.get(metadata, factory);
 
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.cacheAccessed(Instrumentation.SHARED_QUERY_CACHE, response == null);
+            }
+
             // response may already be initialized by the factory above ... it is null if
             // there was a preexisting cache entry
             if (response == null) {
@@ -414,6 +419,16 @@ class DataDomainQueryAction implements QueryRouter, OperationObserver {
         query.route(this, domain.getEntityResolver(), null);
 
         // run categorized queries
+        runRoutedQueries();
+
+        // "disjoint by id" prefetches can only be built once the parent rows are
+        // fetched
+        if (prefetchResultsByPath != null) {
+            runDisjointByIdPrefetches();
+        }
+    }
+
+    private void runRoutedQueries() {
         if (queriesByNode != null) {
             for (Map.Entry<QueryEngine, Collection<Query>> entry : queriesByNode
                     .entrySet()) {
@@ -424,6 +439,52 @@ class DataDomainQueryAction implements QueryRouter, OperationObserver {
         }
     }
 
+    /**
+     * Fetches prefetches with "disjoint by id" semantics, one node at a time, so that
+     * the rows of the parent nodes are fetched before the keys are collected from them.
+     */
+    private void runDisjointByIdPrefetches() {
+
+        PrefetchTreeNode prefetchTree = metadata.getPrefetchTree();
+        if (metadata.getObjEntity() == null) {
+            return;
+        }
+
+        DisjointByIdPrefetchAction action = null;
+
+        for (PrefetchTreeNode node : prefetchTree.disjointNodes()) {
+
+            // skip nodes fetched as regular disjoint prefetches
+            if (!node.isDisjointByIdPrefetch()
+                    || prefetchResultsByPath.containsKey(node.getPath())) {
+                continue;
+            }
+
+            PrefetchTreeNode parent = node.getParent();
+            List<?> parentRows = (parent == prefetchTree)
+                    ? fullResponse.firstList()
+                    : (List<?>) prefetchResultsByPath.get(parent.getPath());
+
+            if (parentRows == null) {
+                continue;
+            }
+
+            if (action == null) {
+                action = new DisjointByIdPrefetchAction(metadata.getObjEntity(), query);
+            }
+
+            // rows of multiple queries for the same node are appended to this list
+            prefetchResultsByPath.put(node.getPath(), new ArrayList<Object>());
+
+            this.queriesByNode = null;
+            for (Query prefetchQuery : action.createQueries(node, parentRows)) {
+                prefetchQuery.route(this, domain.getEntityResolver(), null);
+            }
+
+            runRoutedQueries();
+        }
+    }
+
     private void interceptObjectConversion() {
 
         if (context != null && !metadata.isFetchingDataRows()) {
@@ -513,7 +574,16 @@ class DataDomainQueryAction implements QueryRouter, OperationObserver {
         // exclude prefetched rows in the main result
         if (prefetchResultsByPath != null && query instanceof PrefetchSelectQuery) {
             PrefetchSelectQuery prefetchQuery = (PrefetchSelectQuery) query;
-            prefetchResultsByPath.put(prefetchQuery.getPrefetchPath(), dataRows);
+
+            // "disjoint by id" prefetch may be split between multiple queries
+            List<Object> rows = (List<Object>) prefetchResultsByPath.get(prefetchQuery
+                    .getPrefetchPath());
+            if (rows != null) {
+                rows.addAll(dataRows);
+            }
+            else {
+                prefetchResultsByPath.put(prefetchQuery.getPrefetchPath(), dataRows);
+            }
         }
         else {
             fullResponse.addResultList(dataRows);
@@ -32,8 +32,10 @@ import javax.sql.DataSource;
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.access.dbsync.SchemaUpdateStrategy;
 import org.apache.cayenne.access.dbsync.SkipSchemaUpdateStrategy;
+import org.apache.cayenne.conn.ConcurrentPoolManager;
 import org.apache.cayenne.conn.PoolManager;
 import org.apache.cayenne.dba.DbAdapter;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.map.AshwoodEntitySorter;
 import org.apache.cayenne.map.DataMap;
 import org.apache.cayenne.map.EntityResolver;
@@ -250,7 +252,17 @@ public class DataNode implements QueryEngine {
                 schemaUpdateStrategy.updateSchema(this);
             }
             
-            connection = this.getDataSource().getConnection();
+            // Cayenne pools report their own checkout waits
+            if (Instrumentation.isEnabled()
+                    && !(dataSource instanceof PoolManager)
+                    && !(dataSource instanceof ConcurrentPoolManager)) {
+                long t0 = System.nanoTime();
+                connection = this.getDataSource().getConnection();
+                Instrumentation.connectionCheckedOut(getName(), System.nanoTime() - t0);
+            }
+            else {
+                connection = this.getDataSource().getConnection();
+            }
         }
         catch (Exception globalEx) {
             QueryLogger.logQueryError(globalEx);
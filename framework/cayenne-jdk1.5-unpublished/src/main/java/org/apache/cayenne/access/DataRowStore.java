@@ -36,20 +36,23 @@ import org.apache.cayenne.ObjectId;
 import org.apache.cayenne.PersistenceState;
 import org.apache.cayenne.Persistent;
 import org.apache.cayenne.access.event.SnapshotEvent;
+import org.apache.cayenne.access.event.SnapshotEventCoalescer;
+import org.apache.cayenne.event.BatchingEventBridge;
 import org.apache.cayenne.event.EventBridge;
 import org.apache.cayenne.event.EventBridgeFactory;
 import org.apache.cayenne.event.EventManager;
 import org.apache.cayenne.event.EventSubject;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.commons.collections.ExtendedProperties;
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
  * A fixed size cache of DataRows keyed by ObjectId.
  * <p>
- * <strong>Synchronization Note: </strong> DataRowStore synchronizes most operations on
- * its own instance.
+ * <strong>Synchronization Note: </strong> DataRowStore synchronizes snapshot change
+ * processing on its own instance. Snapshot lookups and evictions are delegated to a
+ * {@link SegmentedSnapshotCache} and do not acquire the instance lock.
  * </p>
  * 
  * @since 1.1
@@ -64,6 +67,41 @@ public class DataRowStore implements Serializable {
     public static final String REMOTE_NOTIFICATION_PROPERTY = "cayenne.DataRowStore.remote.notify";
     public static final String EVENT_BRIDGE_FACTORY_PROPERTY = "cayenne.DataRowStore.EventBridge.factory";
 
+    /**
+     * @since 3.0
+     */
+    public static final String SNAPSHOT_CACHE_CONCURRENCY_PROPERTY = "cayenne.DataRowStore.snapshot.concurrency";
+
+    /**
+     * @since 3.0
+     */
+    public static final String SNAPSHOT_COMPACT_STORAGE_PROPERTY = "cayenne.DataRowStore.snapshot.compact";
+
+    /**
+     * A property defining a time window in milliseconds during which outgoing remote
+     * SnapshotEvents are collected and merged into a single message. Zero (the default)
+     * disables batching.
+     * 
+     * @since 3.0
+     */
+    public static final String REMOTE_NOTIFICATION_BATCH_INTERVAL_PROPERTY = "cayenne.DataRowStore.remote.batch.interval";
+
+    /**
+     * A property defining a maximum number of outgoing remote SnapshotEvents merged
+     * into a single message.
+     * 
+     * @since 3.0
+     */
+    public static final String REMOTE_NOTIFICATION_BATCH_SIZE_PROPERTY = "cayenne.DataRowStore.remote.batch.size";
+
+    /**
+     * A property that enables a compact binary format of remote SnapshotEvents, based on
+     * the DataDomain mapping. All peers must use the same setting and the same mapping.
+     * 
+     * @since 3.0
+     */
+    public static final String REMOTE_NOTIFICATION_COMPACT_FORMAT_PROPERTY = "cayenne.DataRowStore.remote.compact";
+
     // default property values
 
     // default expiration time is 2 hours
@@ -71,12 +109,37 @@ public class DataRowStore implements Serializable {
     public static final int SNAPSHOT_CACHE_SIZE_DEFAULT = 10000;
     public static final boolean REMOTE_NOTIFICATION_DEFAULT = false;
 
+    /**
+     * @since 3.0
+     */
+    public static final int SNAPSHOT_CACHE_CONCURRENCY_DEFAULT = 16;
+
+    /**
+     * @since 3.0
+     */
+    public static final boolean SNAPSHOT_COMPACT_STORAGE_DEFAULT = false;
+
+    /**
+     * @since 3.0
+     */
+    public static final long REMOTE_NOTIFICATION_BATCH_INTERVAL_DEFAULT = 0;
+
+    /**
+     * @since 3.0
+     */
+    public static final int REMOTE_NOTIFICATION_BATCH_SIZE_DEFAULT = BatchingEventBridge.DEFAULT_BATCH_SIZE;
+
+    /**
+     * @since 3.0
+     */
+    public static final boolean REMOTE_NOTIFICATION_COMPACT_FORMAT_DEFAULT = false;
+
     // use String for class name, since JavaGroups may not be around,
     // causing CNF exceptions
     public static final String EVENT_BRIDGE_FACTORY_DEFAULT = "org.apache.cayenne.event.JavaGroupsBridgeFactory";
 
     protected String name;
-    protected LRUMap snapshots;
+    protected SegmentedSnapshotCache snapshots;
     protected boolean notifyingRemoteListeners;
 
     protected transient EventManager eventManager;
@@ -153,6 +216,14 @@ public class DataRowStore implements Serializable {
                 SNAPSHOT_CACHE_SIZE_PROPERTY,
                 SNAPSHOT_CACHE_SIZE_DEFAULT);
 
+        int snapshotsConcurrency = propertiesWrapper.getInt(
+                SNAPSHOT_CACHE_CONCURRENCY_PROPERTY,
+                SNAPSHOT_CACHE_CONCURRENCY_DEFAULT);
+
+        boolean compactStorage = propertiesWrapper.getBoolean(
+                SNAPSHOT_COMPACT_STORAGE_PROPERTY,
+                SNAPSHOT_COMPACT_STORAGE_DEFAULT);
+
         boolean notifyRemote = propertiesWrapper.getBoolean(
                 REMOTE_NOTIFICATION_PROPERTY,
                 REMOTE_NOTIFICATION_DEFAULT);
@@ -161,6 +232,14 @@ public class DataRowStore implements Serializable {
                 EVENT_BRIDGE_FACTORY_PROPERTY,
                 EVENT_BRIDGE_FACTORY_DEFAULT);
 
+        long batchInterval = propertiesWrapper.getLong(
+                REMOTE_NOTIFICATION_BATCH_INTERVAL_PROPERTY,
+                REMOTE_NOTIFICATION_BATCH_INTERVAL_DEFAULT);
+
+        int batchSize = propertiesWrapper.getInt(
+                REMOTE_NOTIFICATION_BATCH_SIZE_PROPERTY,
+                REMOTE_NOTIFICATION_BATCH_SIZE_DEFAULT);
+
         if (logger.isDebugEnabled()) {
             logger.debug("DataRowStore property "
                     + SNAPSHOT_EXPIRATION_PROPERTY
@@ -170,6 +249,14 @@ public class DataRowStore implements Serializable {
                     + SNAPSHOT_CACHE_SIZE_PROPERTY
                     + " = "
                     + snapshotsCacheSize);
+            logger.debug("DataRowStore property "
+                    + SNAPSHOT_CACHE_CONCURRENCY_PROPERTY
+                    + " = "
+                    + snapshotsConcurrency);
+            logger.debug("DataRowStore property "
+                    + SNAPSHOT_COMPACT_STORAGE_PROPERTY
+                    + " = "
+                    + compactStorage);
             logger.debug("DataRowStore property "
                     + REMOTE_NOTIFICATION_PROPERTY
                     + " = "
@@ -178,13 +265,25 @@ public class DataRowStore implements Serializable {
                     + EVENT_BRIDGE_FACTORY_PROPERTY
                     + " = "
                     + eventBridgeFactory);
+            logger.debug("DataRowStore property "
+                    + REMOTE_NOTIFICATION_BATCH_INTERVAL_PROPERTY
+                    + " = "
+                    + batchInterval);
+            logger.debug("DataRowStore property "
+                    + REMOTE_NOTIFICATION_BATCH_SIZE_PROPERTY
+                    + " = "
+                    + batchSize);
         }
 
         // init ivars from properties
         this.notifyingRemoteListeners = notifyRemote;
 
-        // TODO: ENTRY EXPIRATION is not supported by commons LRU Map
-        this.snapshots = new LRUMap(snapshotsCacheSize);
+        // expiration is configured in seconds
+        this.snapshots = new SegmentedSnapshotCache(
+                snapshotsCacheSize,
+                snapshotsExpiration * 1000,
+                snapshotsConcurrency,
+                compactStorage ? new CompactSnapshotEncoder() : null);
 
         // init event bridge only if we are notifying remote listeners
         if (notifyingRemoteListeners) {
@@ -195,10 +294,21 @@ public class DataRowStore implements Serializable {
                 Collection<EventSubject> subjects = Collections.singleton(getSnapshotEventSubject());
                 String externalSubject = EventBridge
                         .convertToExternalSubject(getSnapshotEventSubject());
-                this.remoteNotificationsHandler = factory.createEventBridge(
+                EventBridge bridge = factory.createEventBridge(
                         subjects,
                         externalSubject,
                         properties);
+
+                // merge events posted within a batch window into a single message
+                if (batchInterval > 0) {
+                    bridge = new BatchingEventBridge(
+                            bridge,
+                            new SnapshotEventCoalescer(),
+                            batchInterval,
+                            batchSize);
+                }
+
+                this.remoteNotificationsHandler = bridge;
             }
             catch (Exception ex) {
                 throw new CayenneRuntimeException("Error initializing DataRowStore.", ex);
@@ -244,7 +354,7 @@ public class DataRowStore implements Serializable {
                 // add snapshots if refresh is forced, or if a snapshot is
                 // missing
 
-                DataRow cachedSnapshot = (DataRow) this.snapshots.get(oid);
+                DataRow cachedSnapshot = this.snapshots.get(oid);
                 if (refresh || cachedSnapshot == null) {
 
                     DataRow newSnapshot = (DataRow) snapshots.get(i);
@@ -346,8 +456,14 @@ public class DataRowStore implements Serializable {
      * Returns cached snapshot or null if no snapshot is currently cached for the given
      * ObjectId.
      */
-    public synchronized DataRow getCachedSnapshot(ObjectId oid) {
-        return (DataRow) snapshots.get(oid);
+    public DataRow getCachedSnapshot(ObjectId oid) {
+        DataRow snapshot = snapshots.get(oid);
+
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.cacheAccessed(name, snapshot != null);
+        }
+
+        return snapshot;
     }
 
     /**
@@ -360,20 +476,22 @@ public class DataRowStore implements Serializable {
     /**
      * Expires and removes all stored snapshots without sending any notification events.
      */
-    public synchronized void clear() {
+    public void clear() {
         snapshots.clear();
     }
 
     /**
      * Evicts a snapshot from cache without generating any SnapshotEvents.
      */
-    public synchronized void forgetSnapshot(ObjectId id) {
+    public void forgetSnapshot(ObjectId id) {
         snapshots.remove(id);
     }
 
     /**
      * Handles remote events received via EventBridge. Performs needed snapshot updates,
-     * and then resends the event to local listeners.
+     * and then resends the event to local listeners. Events merged by a
+     * {@link BatchingEventBridge} on the sending side are applied in a single pass under
+     * the store lock.
      */
     public void processRemoteEvent(SnapshotEvent event) {
         if (event.getSource() != remoteNotificationsHandler) {
@@ -399,7 +517,7 @@ public class DataRowStore implements Serializable {
 
         synchronized (this) {
             processDeletedIDs(deletedSnapshotIds);
-            processInvalidatedIDs(deletedSnapshotIds);
+            processInvalidatedIDs(invalidatedSnapshotIds);
             processUpdateDiffs(diffs);
             sendUpdateNotification(
                     event.getPostedBy(),
@@ -449,7 +567,7 @@ public class DataRowStore implements Serializable {
         if (!deletedSnapshotIDs.isEmpty()) {
             Iterator it = deletedSnapshotIDs.iterator();
             while (it.hasNext()) {
-                snapshots.remove(it.next());
+                snapshots.remove((ObjectId) it.next());
             }
         }
     }
@@ -459,7 +577,7 @@ public class DataRowStore implements Serializable {
         if (!invalidatedSnapshotIds.isEmpty()) {
             Iterator it = invalidatedSnapshotIds.iterator();
             while (it.hasNext()) {
-                snapshots.remove(it.next());
+                snapshots.remove((ObjectId) it.next());
             }
         }
     }
@@ -475,7 +593,7 @@ public class DataRowStore implements Serializable {
 
                 ObjectId key = (ObjectId) entry.getKey();
                 DataRow newSnapshot = (DataRow) entry.getValue();
-                DataRow oldSnapshot = (DataRow) snapshots.put(key, newSnapshot);
+                DataRow oldSnapshot = snapshots.put(key, newSnapshot);
 
                 // generate diff for the updated event, if this not a new
                 // snapshot
@@ -531,7 +649,7 @@ public class DataRowStore implements Serializable {
             while (it.hasNext()) {
                 Map.Entry entry = (Map.Entry) it.next();
                 ObjectId key = (ObjectId) entry.getKey();
-                DataRow oldSnapshot = (DataRow) snapshots.remove(key);
+                DataRow oldSnapshot = snapshots.remove(key);
 
                 if (oldSnapshot == null) {
                     continue;
@@ -0,0 +1,244 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.access;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.map.DbJoin;
+import org.apache.cayenne.map.DbRelationship;
+import org.apache.cayenne.map.Entity;
+import org.apache.cayenne.map.ObjEntity;
+import org.apache.cayenne.map.ObjRelationship;
+import org.apache.cayenne.query.PrefetchSelectQuery;
+import org.apache.cayenne.query.PrefetchTreeNode;
+import org.apache.cayenne.query.Query;
+import org.apache.cayenne.query.SelectQuery;
+
+/**
+ * Builds queries for prefetch nodes with "disjoint by id" semantics. Instead of
+ * translating the parent query qualifier to the prefetched entity, such queries are
+ * qualified with the join keys collected from the already fetched parent rows. Large key
+ * sets are split between multiple queries, each taking no more than
+ * {@link #getMaxKeysPerQuery()} keys. Result rows of the queries have the same
+ * structure as the rows of a regular disjoint prefetch query, so they are resolved to
+ * objects and connected with the parents the same way.
+ * 
+ * @since 3.0
+ */
+class DisjointByIdPrefetchAction {
+
+    /**
+     * Default number of keys in a single query. Chosen to fit into the IN list size
+     * limits of all supported databases.
+     */
+    static final int DEFAULT_MAX_KEYS_PER_QUERY = 1000;
+
+    ObjEntity rootEntity;
+    SelectQuery parentQuery;
+    int maxKeysPerQuery;
+
+    DisjointByIdPrefetchAction(ObjEntity rootEntity, Query parentQuery) {
+        this.rootEntity = rootEntity;
+        this.parentQuery = parentQuery instanceof SelectQuery
+                ? (SelectQuery) parentQuery
+                : null;
+        this.maxKeysPerQuery = DEFAULT_MAX_KEYS_PER_QUERY;
+    }
+
+    int getMaxKeysPerQuery() {
+        return maxKeysPerQuery;
+    }
+
+    void setMaxKeysPerQuery(int maxKeysPerQuery) {
+        if (maxKeysPerQuery <= 0) {
+            throw new IllegalArgumentException("Invalid max keys per query: "
+                    + maxKeysPerQuery);
+        }
+
+        this.maxKeysPerQuery = maxKeysPerQuery;
+    }
+
+    /**
+     * Creates prefetch queries for the node, using the parent rows as a source of keys.
+     * Returns an empty list if there are no keys to fetch.
+     */
+    List<PrefetchSelectQuery> createQueries(PrefetchTreeNode node, List<?> parentRows) {
+
+        String prefetchPath = node.getPath();
+        ObjRelationship relationship = lastRelationship(prefetchPath);
+
+        // determine which parent row columns match which target entity paths
+        List<String> sourceColumns = new ArrayList<String>(2);
+        List<String> targetPaths = new ArrayList<String>(2);
+
+        // parent row values are matched against the columns joined by the first DB
+        // relationship in the path, reached from the target entity via the reverse
+        // path of the remaining relationships
+        String joinPrefix = "";
+        if (relationship.isFlattened()) {
+            String reversePath = relationship.getReverseDbRelationshipPath();
+            joinPrefix = reversePath.substring(0, reversePath
+                    .lastIndexOf(Entity.PATH_SEPARATOR) + 1);
+        }
+
+        DbRelationship dbRelationship = relationship.getDbRelationships().get(0);
+        for (DbJoin join : dbRelationship.getJoins()) {
+            sourceColumns.add(join.getSourceName());
+            targetPaths.add(joinPrefix + join.getTargetName());
+        }
+
+        Collection<List<Object>> keys = collectKeys(parentRows, sourceColumns);
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<PrefetchSelectQuery> queries = new ArrayList<PrefetchSelectQuery>(1
+                + keys.size()
+                / maxKeysPerQuery);
+
+        Iterator<List<Object>> it = keys.iterator();
+        while (it.hasNext()) {
+
+            List<List<Object>> chunk = new ArrayList<List<Object>>(Math.min(
+                    maxKeysPerQuery,
+                    keys.size()));
+
+            for (int i = 0; i < maxKeysPerQuery && it.hasNext(); i++) {
+                chunk.add(it.next());
+            }
+
+            PrefetchSelectQuery prefetchQuery = new PrefetchSelectQuery(
+                    parentQuery,
+                    prefetchPath,
+                    relationship);
+            prefetchQuery.setQualifier(keysQualifier(targetPaths, chunk));
+
+            // setup extra result columns to be able to relate result rows to the parent
+            // result objects. Same as regular disjoint prefetch.
+            if (relationship.isFlattened()
+                    || (relationship.isToMany() && relationship
+                            .getReverseRelationship() == null)) {
+
+                prefetchQuery.addResultPath("db:"
+                        + relationship.getReverseDbRelationshipPath());
+            }
+
+            // pass prefetch subtree to enable joint prefetches...
+            prefetchQuery.setPrefetchTree(node);
+            queries.add(prefetchQuery);
+        }
+
+        return queries;
+    }
+
+    ObjRelationship lastRelationship(String prefetchPath) {
+        Iterator<?> it = rootEntity.resolvePathComponents(prefetchPath);
+
+        ObjRelationship relationship = null;
+        while (it.hasNext()) {
+            relationship = (ObjRelationship) it.next();
+        }
+
+        if (relationship == null) {
+            throw new CayenneRuntimeException("Invalid prefetch '"
+                    + prefetchPath
+                    + "' for entity: "
+                    + rootEntity.getName());
+        }
+
+        return relationship;
+    }
+
+    /**
+     * Returns distinct non-null keys found in the parent rows, preserving the order of
+     * the rows.
+     */
+    Collection<List<Object>> collectKeys(List<?> parentRows, List<String> columns) {
+
+        Set<List<Object>> keys = new LinkedHashSet<List<Object>>();
+        int width = columns.size();
+
+        for (Object row : parentRows) {
+
+            // skip rows that are not snapshots, such as scalar results
+            if (!(row instanceof Map)) {
+                continue;
+            }
+
+            Map<?, ?> snapshot = (Map<?, ?>) row;
+            List<Object> key = new ArrayList<Object>(width);
+            for (String column : columns) {
+                Object value = snapshot.get(column);
+
+                // null FK means there's nothing to fetch
+                if (value == null) {
+                    key = null;
+                    break;
+                }
+
+                key.add(value);
+            }
+
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    Expression keysQualifier(List<String> paths, List<List<Object>> keys) {
+
+        // single column keys translate to IN
+        if (paths.size() == 1) {
+            List<Object> values = new ArrayList<Object>(keys.size());
+            for (List<Object> key : keys) {
+                values.add(key.get(0));
+            }
+
+            return ExpressionFactory.inDbExp(paths.get(0), values);
+        }
+
+        // compound keys translate to OR'ed ANDs
+        List<Expression> keyQualifiers = new ArrayList<Expression>(keys.size());
+        for (List<Object> key : keys) {
+            List<Expression> columnQualifiers = new ArrayList<Expression>(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                columnQualifiers.add(ExpressionFactory.matchDbExp(paths.get(i), key
+                        .get(i)));
+            }
+
+            keyQualifiers.add(ExpressionFactory.joinExp(
+                    Expression.AND,
+                    columnQualifiers));
+        }
+
+        return ExpressionFactory.joinExp(Expression.OR, keyQualifiers);
+    }
+}
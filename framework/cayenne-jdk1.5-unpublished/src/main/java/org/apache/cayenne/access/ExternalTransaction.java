@@ -24,6 +24,7 @@ import java.sql.SQLException;
 import java.util.Iterator;
 
 import org.apache.cayenne.CayenneException;
+import org.apache.cayenne.instrument.Instrumentation;
 
 /**
  * Represents a container-managed transaction.
@@ -32,6 +33,13 @@ import org.apache.cayenne.CayenneException;
  */
 class ExternalTransaction extends Transaction {
 
+    /**
+     * Transaction start time used for instrumentation. Only meaningful if "timed" is
+     * true, as System.nanoTime() values can be zero or negative.
+     */
+    long startNanos;
+    boolean timed;
+
     ExternalTransaction() {
     }
 
@@ -49,11 +57,28 @@ class ExternalTransaction extends Transaction {
         }
 
         status = Transaction.STATUS_ACTIVE;
+
+        timed = Instrumentation.isEnabled();
+        if (timed) {
+            startNanos = System.nanoTime();
+        }
+    }
+
+    private void transactionFinished(boolean committed) {
+        if (timed && Instrumentation.isEnabled()) {
+            Instrumentation.transactionFinished(committed, System.nanoTime() - startNanos);
+        }
     }
 
     @Override
     public boolean addConnection(String name, Connection connection) throws SQLException {
-        if (super.addConnection(name, connection)) {
+
+        // connections may be added concurrently by the parallel flush workers, so the
+        // implicit begin must be atomic with the status check
+        synchronized (this) {
+            if (!super.addConnection(name, connection)) {
+                return false;
+            }
 
             // implicitly begin transaction
             if (status == Transaction.STATUS_NO_TRANSACTION) {
@@ -66,14 +91,10 @@ class ExternalTransaction extends Transaction {
                                 + "Current status: "
                                 + Transaction.decodeStatus(status));
             }
-
-            fixConnectionState(connection);
-            return true;
-        }
-        else {
-            return false;
         }
 
+        fixConnectionState(connection);
+        return true;
     }
 
     @Override
@@ -97,6 +118,7 @@ class ExternalTransaction extends Transaction {
         processCommit();
 
         status = Transaction.STATUS_COMMITTED;
+        transactionFinished(true);
 
         if (delegate != null) {
             delegate.didCommit(this);
@@ -130,6 +152,7 @@ class ExternalTransaction extends Transaction {
             processRollback();
 
             status = Transaction.STATUS_ROLLEDBACK;
+            transactionFinished(false);
             if (delegate != null) {
                 delegate.didRollback(this);
             }
@@ -27,6 +27,11 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.cayenne.CayenneException;
 import org.apache.cayenne.CayenneRuntimeException;
@@ -37,6 +42,7 @@ import org.apache.cayenne.map.ObjEntity;
 import org.apache.cayenne.query.Query;
 import org.apache.cayenne.query.QueryMetadata;
 import org.apache.cayenne.query.SelectQuery;
+import org.apache.cayenne.reflect.ClassDescriptor;
 import org.apache.cayenne.util.Util;
 
 /**
@@ -78,6 +84,13 @@ public class IncrementalFaultList<E> implements List<E> {
      */
     protected int maxFetchSize = 10000;
 
+    /**
+     * An optional executor used to load the page following the last resolved page in the
+     * background.
+     */
+    protected Executor pageLoadingExecutor;
+    private PageLoad pendingPageLoad;
+
     // Don't confuse this with the JDBC ResultSet fetch size setting - this controls
     // the where clause generation that is necessary to fetch specific records a page
     // at a time. Some JDBC Drivers/Databases may have limits on statement length
@@ -137,7 +150,17 @@ public class IncrementalFaultList<E> implements List<E> {
 
         List<Object> elementsUnsynced = new ArrayList<Object>();
         fillIn(query, elementsUnsynced);
-        this.elements = Collections.synchronizedList(elementsUnsynced);
+        this.elements = Collections.synchronizedList(compactElements(elementsUnsynced));
+    }
+
+    /**
+     * Returns a list to use as the element storage after the list was filled in. This
+     * implementation returns the argument.
+     * 
+     * @since 3.0
+     */
+    List<Object> compactElements(List<Object> elements) {
+        return elements;
     }
 
     /**
@@ -262,39 +285,14 @@ public class IncrementalFaultList<E> implements List<E> {
                 toIndex = elements.size();
             }
 
-            List<Expression> quals = new ArrayList<Expression>(pageSize);
-            List<Object> ids = new ArrayList<Object>(pageSize);
-            for (int i = fromIndex; i < toIndex; i++) {
-                Object object = elements.get(i);
-                if (helper.unresolvedSuspect(object)) {
-                    quals.add(buildIdQualifier(object));
-                    ids.add(object);
-                }
-            }
-
-            int qualsSize = quals.size();
-            if (qualsSize == 0) {
+            List<Object> ids = unresolvedIds(fromIndex, toIndex);
+            if (ids.isEmpty()) {
                 return;
             }
 
-            // fetch the range of objects in fetchSize chunks
-            boolean fetchesDataRows = internalQuery.isFetchingDataRows();
-            List objects = new ArrayList(qualsSize);
-            int fetchEnd = Math.min(qualsSize, maxFetchSize);
-            int fetchBegin = 0;
-            while (fetchBegin < qualsSize) {
-                SelectQuery query = new SelectQuery(rootEntity, ExpressionFactory
-                        .joinExp(Expression.OR, quals.subList(fetchBegin, fetchEnd)));
-
-                query.setFetchingDataRows(fetchesDataRows);
-
-                if (!query.isFetchingDataRows()) {
-                    query.setPrefetchTree(internalQuery.getPrefetchTree());
-                }
-
-                objects.addAll(dataContext.performQuery(query));
-                fetchBegin = fetchEnd;
-                fetchEnd += Math.min(maxFetchSize, qualsSize - fetchEnd);
+            List objects = takePendingPage(fromIndex, toIndex, ids);
+            if (objects == null) {
+                objects = fetchObjects(ids, internalQuery.isFetchingDataRows());
             }
 
             // sanity check - database data may have changed
@@ -307,7 +305,173 @@ public class IncrementalFaultList<E> implements List<E> {
             }
 
             unfetchedObjects -= objects.size();
+
+            if (pageLoadingExecutor != null) {
+                loadPageInBackground(toIndex, toIndex + pageSize);
+            }
+        }
+    }
+
+    /**
+     * Returns unresolved ids in the range of indexes. Must be called within a block
+     * synchronized on elements.
+     */
+    private List<Object> unresolvedIds(int fromIndex, int toIndex) {
+        List<Object> ids = new ArrayList<Object>(toIndex - fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            Object object = elements.get(i);
+            if (helper.unresolvedSuspect(object)) {
+                ids.add(object);
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Fetches objects or data rows for ids, in chunks no bigger than maxFetchSize.
+     */
+    List fetchObjects(List<Object> ids, boolean fetchesDataRows) {
+        return fetchObjects(null, ids, fetchesDataRows);
+    }
+
+    /**
+     * Fetches objects or data rows for ids, in chunks no bigger than maxFetchSize. If
+     * the domain is not null, data rows are fetched from the domain directly, bypassing
+     * the DataContext, so that this method can be called from a thread other than the
+     * one using the DataContext.
+     */
+    private List fetchObjects(DataDomain domain, List<Object> ids, boolean fetchesDataRows) {
+        int size = ids.size();
+        List objects = new ArrayList(size);
+
+        for (int fetchBegin = 0; fetchBegin < size; fetchBegin += maxFetchSize) {
+            int fetchEnd = Math.min(size, fetchBegin + maxFetchSize);
+            SelectQuery query = new SelectQuery(rootEntity, buildIdsQualifier(ids
+                    .subList(fetchBegin, fetchEnd)));
+
+            query.setFetchingDataRows(fetchesDataRows);
+
+            if (!query.isFetchingDataRows()) {
+                query.setPrefetchTree(internalQuery.getPrefetchTree());
+            }
+
+            if (domain != null) {
+                List rows = domain.onQuery(null, query).firstList();
+                if (rows != null) {
+                    objects.addAll(rows);
+                }
+            }
+            else {
+                objects.addAll(dataContext.performQuery(query));
+            }
+        }
+
+        return objects;
+    }
+
+    /**
+     * Starts loading of unresolved ids in the range of indexes in the background. Must be
+     * called within a block synchronized on elements. As DataContext is not thread-safe,
+     * the background task only fetches data rows from the DataDomain, and the objects are
+     * created in the calling thread when the page is taken.
+     */
+    private void loadPageInBackground(int fromIndex, int toIndex) {
+        pendingPageLoad = null;
+
+        // nested contexts fetch through the parent DataContext that can't be used from
+        // another thread, so their pages are loaded on demand
+        if (!(dataContext.getChannel() instanceof DataDomain)) {
+            return;
+        }
+
+        final DataDomain domain = (DataDomain) dataContext.getChannel();
+
+        // objects with prefetches can't be restored from data rows, so such pages
+        // are loaded on demand
+        if (!internalQuery.isFetchingDataRows()
+                && internalQuery.getPrefetchTree() != null
+                && internalQuery.getPrefetchTree().hasChildren()) {
+            return;
+        }
+
+        toIndex = Math.min(toIndex, elements.size());
+        if (fromIndex >= toIndex) {
+            return;
+        }
+
+        final List<Object> ids = unresolvedIds(fromIndex, toIndex);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        FutureTask<List> task = new FutureTask<List>(new Callable<List>() {
+
+            public List call() throws Exception {
+                return fetchObjects(domain, ids, true);
+            }
+        });
+
+        pendingPageLoad = new PageLoad(fromIndex, toIndex, ids, task);
+
+        try {
+            pageLoadingExecutor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            pendingPageLoad = null;
+        }
+    }
+
+    /**
+     * Returns objects for the range of indexes loaded in the background, or null if such
+     * objects were not loaded. Must be called within a block synchronized on elements.
+     */
+    private List takePendingPage(int fromIndex, int toIndex, List<Object> ids) {
+        PageLoad pageLoad = pendingPageLoad;
+        if (pageLoad == null
+                || pageLoad.fromIndex != fromIndex
+                || pageLoad.toIndex != Math.min(toIndex, elements.size())
+                || !pageLoad.ids.equals(ids)) {
+            return null;
+        }
+
+        pendingPageLoad = null;
+
+        List rows;
+        try {
+            rows = pageLoad.task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e) {
+            // fall back to loading the page in the caller thread
+            return null;
+        }
+
+        if (internalQuery.isFetchingDataRows()) {
+            return rows;
+        }
+
+        ClassDescriptor descriptor = dataContext.getEntityResolver().getClassDescriptor(
+                rootEntity.getName());
+        return dataContext.objectsFromDataRows(descriptor, rows);
+    }
+
+    /**
+     * Returns a qualifier matching all ids in the list. This implementation joins id
+     * qualifiers with OR.
+     * 
+     * @since 3.0
+     */
+    Expression buildIdsQualifier(List<Object> ids) {
+        List<Expression> quals = new ArrayList<Expression>(ids.size());
+        for (Object id : ids) {
+            quals.add(buildIdQualifier(id));
         }
+
+        return ExpressionFactory.joinExp(Expression.OR, quals);
     }
 
     /**
@@ -402,6 +566,36 @@ public class IncrementalFaultList<E> implements List<E> {
         this.maxFetchSize = fetchSize;
     }
 
+    /**
+     * Returns an executor used to load the page following the most recently resolved
+     * page in the background, or null if pages are only loaded on demand.
+     * 
+     * @since 3.0
+     */
+    public Executor getPageLoadingExecutor() {
+        return pageLoadingExecutor;
+    }
+
+    /**
+     * Sets an executor used to load the page following the most recently resolved page
+     * in the background, so that sequential iteration over the list does not wait for the
+     * database on every page boundary. Null (default) disables background loading.
+     * <p>
+     * The background task doesn't access the DataContext, as it is not thread-safe.
+     * Instead it fetches data rows directly from the DataDomain, bypassing the
+     * DataContextDelegate, and the rows are converted to objects in the thread that
+     * reads the page. Therefore background loading is only performed for lists of
+     * DataRows and for lists of objects without prefetches, and only for DataContexts
+     * attached directly to a DataDomain. The list itself must still be accessed from a
+     * single thread at a time, same as its DataContext.
+     * </p>
+     * 
+     * @since 3.0
+     */
+    public void setPageLoadingExecutor(Executor pageLoadingExecutor) {
+        this.pageLoadingExecutor = pageLoadingExecutor;
+    }
+
     /**
      * Returns the dataContext.
      * 
@@ -650,6 +844,24 @@ public class IncrementalFaultList<E> implements List<E> {
         return unfetchedObjects;
     }
 
+    /**
+     * A page of ids being loaded in the background.
+     */
+    static final class PageLoad {
+
+        final int fromIndex;
+        final int toIndex;
+        final List<Object> ids;
+        final FutureTask<List> task;
+
+        PageLoad(int fromIndex, int toIndex, List<Object> ids, FutureTask<List> task) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.ids = ids;
+            this.task = task;
+        }
+    }
+
     abstract class IncrementalListHelper {
 
         int indexOfObject(Object object) {
@@ -0,0 +1,375 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.access;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cayenne.CayenneException;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.Persistent;
+import org.apache.cayenne.map.LifecycleEvent;
+import org.apache.cayenne.query.PrefetchSelectQuery;
+import org.apache.cayenne.query.PrefetchTreeNode;
+import org.apache.cayenne.query.QueryMetadata;
+import org.apache.cayenne.query.SelectQuery;
+import org.apache.cayenne.reflect.LifecycleCallbackRegistry;
+
+/**
+ * A ResultIterator over persistent objects fetched by a SelectQuery. Reads the
+ * underlying rows cursor in batches, resolving each batch of rows to objects registered
+ * in the DataContext. Query prefetches are fetched per batch: joint prefetches are
+ * fetched together with the main rows, while all other prefetches are fetched using the
+ * keys of the batch rows, the same way as
+ * {@link PrefetchTreeNode#DISJOINT_BY_ID_PREFETCH_SEMANTICS "disjoint by id"}
+ * prefetches are. Prefetches nested in joint prefetches are not resolved.
+ * <p>
+ * If "evictingObjects" is set to true, objects registered in the DataContext while
+ * resolving a batch are evicted from the ObjectStore before the next batch is read and
+ * when the iterator is closed, provided they are not modified by then. Evicted objects
+ * become TRANSIENT and must not be used afterwards. This allows to iterate over very
+ * large results using the same DataContext without accumulating objects.
+ * </p>
+ * <p>
+ * Prefetch queries are run outside of the transaction that holds the main cursor, each
+ * in its own Cayenne-managed transaction with a separate connection. This way the
+ * prefetches work with drivers that can't run other statements on a connection while a
+ * result is open on it, such as MySQL with
+ * {@link org.apache.cayenne.dba.mysql.MySQLAdapter#setStreamingResults(boolean) streaming
+ * results}. As a consequence prefetched rows do not see uncommitted changes made in the
+ * transaction of the main cursor. The iterator should be used from the thread that
+ * created it.
+ * </p>
+ * 
+ * @since 3.0
+ */
+public class ObjectResultIterator implements ResultIterator {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    protected DataContext context;
+    protected QueryMetadata metadata;
+    protected PrefetchTreeNode prefetchTree;
+    protected ResultIterator rows;
+    protected int batchSize;
+    protected boolean evictingObjects;
+
+    protected List<Persistent> batch;
+    protected int batchIndex;
+    protected Collection<Object> batchIds;
+
+    /**
+     * Creates a new iterator, running an iterated query for the query rows.
+     */
+    public ObjectResultIterator(DataContext context, SelectQuery query, int batchSize)
+            throws CayenneException {
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        if (query.isFetchingDataRows()) {
+            throw new IllegalArgumentException(
+                    "Query must fetch objects, not data rows: " + query);
+        }
+
+        SelectQuery rowsQuery = rowsQuery(query);
+
+        // read rows from the cursor in batch-sized chunks unless told otherwise
+        if (rowsQuery.getStatementFetchSize() <= 0) {
+            rowsQuery.setStatementFetchSize(batchSize);
+        }
+
+        this.context = context;
+        this.batchSize = batchSize;
+        this.metadata = rowsQuery.getMetaData(context.getEntityResolver());
+        this.prefetchTree = batchPrefetchTree(query.getPrefetchTree());
+        this.batch = Collections.emptyList();
+        this.batchIds = Collections.emptyList();
+        this.rows = context.performIteratedQuery(rowsQuery);
+    }
+
+    /**
+     * Creates a copy of the query that only includes joint prefetches adjacent to the
+     * root, as other prefetches are fetched per batch. The query is not paginated.
+     */
+    static SelectQuery rowsQuery(SelectQuery query) {
+        SelectQuery rowsQuery = new SelectQuery();
+        rowsQuery.setRoot(query.getRoot());
+        rowsQuery.setQualifier(query.getQualifier());
+        rowsQuery.addOrderings(query.getOrderings());
+        rowsQuery.setDistinct(query.isDistinct());
+        rowsQuery.setFetchOffset(query.getFetchOffset());
+        rowsQuery.setFetchLimit(query.getFetchLimit());
+        rowsQuery.setStatementFetchSize(query.getStatementFetchSize());
+        rowsQuery.setCacheStrategy(query.getCacheStrategy());
+        rowsQuery.setCacheGroups(query.getCacheGroups());
+
+        PrefetchTreeNode prefetchTree = query.getPrefetchTree();
+        if (prefetchTree != null) {
+            for (PrefetchTreeNode node : prefetchTree.adjacentJointNodes()) {
+                rowsQuery.addPrefetch(node.getPath()).setSemantics(
+                        PrefetchTreeNode.JOINT_PREFETCH_SEMANTICS);
+            }
+        }
+
+        return rowsQuery;
+    }
+
+    /**
+     * Creates a copy of the query prefetch tree where all non-joint nodes, including
+     * phantom nodes, are fetched by id.
+     */
+    static PrefetchTreeNode batchPrefetchTree(PrefetchTreeNode prefetchTree) {
+        if (prefetchTree == null) {
+            return null;
+        }
+
+        PrefetchTreeNode batchTree = new PrefetchTreeNode();
+        for (PrefetchTreeNode node : prefetchTree.nonPhantomNodes()) {
+            if (node == prefetchTree) {
+                continue;
+            }
+
+            // adding a path creates phantom parents, so add all segments explicitly
+            PrefetchTreeNode parent = node.getParent();
+            while (parent != prefetchTree && parent.isPhantom()) {
+                PrefetchTreeNode batchParent = batchTree.addPath(parent.getPath());
+                if (batchParent.isPhantom()) {
+                    batchParent.setPhantom(false);
+                    batchParent
+                            .setSemantics(PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+                }
+                parent = parent.getParent();
+            }
+
+            PrefetchTreeNode batchNode = batchTree.addPath(node.getPath());
+            batchNode.setPhantom(false);
+            batchNode.setSemantics(node.isJointPrefetch()
+                    ? PrefetchTreeNode.JOINT_PREFETCH_SEMANTICS
+                    : PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+        }
+
+        return batchTree.hasChildren() ? batchTree : null;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isEvictingObjects() {
+        return evictingObjects;
+    }
+
+    /**
+     * Sets whether unmodified objects registered while resolving a batch should be
+     * evicted from the ObjectStore when the next batch is read.
+     */
+    public void setEvictingObjects(boolean evictingObjects) {
+        this.evictingObjects = evictingObjects;
+    }
+
+    public boolean hasNextRow() throws CayenneException {
+        return batchIndex < batch.size() || readBatch();
+    }
+
+    /**
+     * Returns the next Persistent object.
+     */
+    public Object nextRow() throws CayenneException {
+        if (!hasNextRow()) {
+            throw new CayenneException("An attempt to read uninitialized row or past the "
+                    + "end of the iterator.");
+        }
+
+        return batch.get(batchIndex++);
+    }
+
+    public void skipRow() throws CayenneException {
+        nextRow();
+    }
+
+    /**
+     * Returns the objects of the current batch not yet returned from 'nextRow', reading
+     * the next batch if all current batch objects were returned. Returns an empty list
+     * if the end of the results is reached.
+     */
+    public List<Persistent> nextBatch() throws CayenneException {
+        if (!hasNextRow()) {
+            return Collections.emptyList();
+        }
+
+        List<Persistent> objects = new ArrayList<Persistent>(batch.subList(
+                batchIndex,
+                batch.size()));
+        batchIndex = batch.size();
+        return objects;
+    }
+
+    /**
+     * Returns all remaining objects. Objects returned from this method are not evicted
+     * even if "evictingObjects" is true.
+     */
+    public List<?> allRows() throws CayenneException {
+        List<Persistent> objects = new ArrayList<Persistent>();
+
+        boolean evicting = this.evictingObjects;
+        this.evictingObjects = false;
+        try {
+            while (hasNextRow()) {
+                objects.addAll(nextBatch());
+            }
+        }
+        finally {
+            this.evictingObjects = evicting;
+        }
+
+        return objects;
+    }
+
+    /**
+     * Closes the underlying cursor, evicting the last batch objects if needed.
+     */
+    public void close() throws CayenneException {
+        try {
+            evictBatch();
+        }
+        finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * Reads the next batch of rows, resolving it to objects. Returns false if there are
+     * no more rows.
+     */
+    boolean readBatch() throws CayenneException {
+
+        List<DataRow> batchRows = new ArrayList<DataRow>(batchSize);
+        while (batchRows.size() < batchSize && rows.hasNextRow()) {
+            batchRows.add((DataRow) rows.nextRow());
+        }
+
+        evictBatch();
+
+        this.batchIndex = 0;
+        if (batchRows.isEmpty()) {
+            this.batch = Collections.emptyList();
+            return false;
+        }
+
+        Map<String, List<?>> prefetchRows = prefetchRows(batchRows);
+
+        ObjectStore objectStore = context.getObjectStore();
+        if (evictingObjects) {
+            objectStore.startTrackingRegisteredIds();
+        }
+
+        try {
+            if (prefetchTree == null) {
+                this.batch = new ObjectResolver(context, metadata.getClassDescriptor(),
+                        metadata.isRefreshingObjects())
+                        .synchronizedObjectsFromDataRows(batchRows);
+            }
+            else {
+                this.batch = new ObjectTreeResolver(context, metadata)
+                        .synchronizedObjectsFromDataRows(
+                                prefetchTree,
+                                batchRows,
+                                prefetchRows);
+            }
+        }
+        finally {
+            if (evictingObjects) {
+                this.batchIds = objectStore.stopTrackingRegisteredIds();
+            }
+        }
+
+        // apply POST_LOAD callback
+        LifecycleCallbackRegistry callbackRegistry = context
+                .getEntityResolver()
+                .getCallbackRegistry();
+
+        if (!callbackRegistry.isEmpty(LifecycleEvent.POST_LOAD)) {
+            callbackRegistry.performCallbacks(LifecycleEvent.POST_LOAD, batch);
+        }
+
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Fetches data rows of the batch prefetches, keyed by prefetch path. The thread
+     * transaction holding the main cursor is unbound while the prefetches run, so that
+     * each prefetch query runs on its own connection.
+     */
+    Map<String, List<?>> prefetchRows(List<DataRow> batchRows) {
+        if (prefetchTree == null) {
+            return Collections.emptyMap();
+        }
+
+        Transaction transaction = Transaction.getThreadTransaction();
+        Transaction.bindThreadTransaction(null);
+        try {
+            return prefetchRowsOutsideTransaction(batchRows);
+        }
+        finally {
+            Transaction.bindThreadTransaction(transaction);
+        }
+    }
+
+    private Map<String, List<?>> prefetchRowsOutsideTransaction(List<DataRow> batchRows) {
+
+        Map<String, List<?>> prefetchRows = new HashMap<String, List<?>>();
+        DisjointByIdPrefetchAction action = new DisjointByIdPrefetchAction(metadata
+                .getObjEntity(), null);
+
+        for (PrefetchTreeNode node : prefetchTree.disjointNodes()) {
+
+            PrefetchTreeNode parent = node.getParent();
+            List<?> parentRows = (parent == prefetchTree) ? batchRows : prefetchRows
+                    .get(parent.getPath());
+
+            // parent is a joint node, so its rows are not available
+            if (parentRows == null) {
+                continue;
+            }
+
+            List<Object> nodeRows = new ArrayList<Object>();
+            for (PrefetchSelectQuery query : action.createQueries(node, parentRows)) {
+                query.setFetchingDataRows(true);
+                nodeRows.addAll(context.performQuery(query));
+            }
+
+            prefetchRows.put(node.getPath(), nodeRows);
+        }
+
+        return prefetchRows;
+    }
+
+    void evictBatch() {
+        if (!batchIds.isEmpty()) {
+            context.getObjectStore().objectsEvicted(batchIds);
+            this.batchIds = Collections.emptyList();
+        }
+    }
+}
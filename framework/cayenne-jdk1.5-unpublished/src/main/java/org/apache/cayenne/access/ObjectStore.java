@@ -110,6 +110,14 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
 
     private Collection<GraphDiff> lifecycleEventInducedChanges;
 
+    // ids of objects registered while tracking is on
+    private transient Collection<Object> trackedIds;
+
+    // a thread committing the changes of this ObjectStore. While it is set, other
+    // threads can read from the ObjectStore, but can't modify its objects.
+    private transient volatile Thread committingThread;
+    private transient int commitDepth;
+
     /**
      * The DataContext that owns this ObjectStore.
      */
@@ -136,6 +144,66 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
         this.changes = new HashMap<Object, ObjectDiff>();
     }
 
+    /**
+     * Marks the start of a commit of this ObjectStore changes by the current thread.
+     * Waits for a commit started by another thread to finish first. Until
+     * {@link #commitStopped()} is called, other threads attempting to modify the objects
+     * will be blocked, so that the change set being committed stays unchanged, while
+     * the reading threads can proceed. Unlike the ObjectStore lock, the commit gate is
+     * held during the database operations of the commit.
+     * 
+     * @since 3.0
+     */
+    synchronized void commitStarted() {
+        waitForCommit();
+        committingThread = Thread.currentThread();
+        commitDepth++;
+    }
+
+    /**
+     * Marks the end of a commit started with {@link #commitStarted()}, unblocking the
+     * threads waiting for it.
+     * 
+     * @since 3.0
+     */
+    synchronized void commitStopped() {
+        if (--commitDepth == 0) {
+            committingThread = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until a commit started by another thread is finished. Returns immediately
+     * if there's no commit in progress or if it is the current thread that is
+     * committing.
+     * 
+     * @since 3.0
+     */
+    void waitForCommit() {
+
+        // avoid locking in the common case of no commit in progress
+        if (committingThread == null) {
+            return;
+        }
+
+        Thread currentThread = Thread.currentThread();
+
+        synchronized (this) {
+            while (committingThread != null && committingThread != currentThread) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    currentThread.interrupt();
+                    throw new CayenneRuntimeException(
+                            "Interrupted while waiting for commit to finish",
+                            e);
+                }
+            }
+        }
+    }
+
     /**
      * @since 3.0
      */
@@ -339,6 +407,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
             return;
         }
 
+        waitForCommit();
+
         Collection<ObjectId> ids = new ArrayList<ObjectId>(objects.size());
 
         Iterator it = objects.iterator();
@@ -377,6 +447,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      * @since 1.1
      */
     public synchronized void objectsRolledBack() {
+        waitForCommit();
+
         Iterator it = getObjectIterator();
 
         // collect candidates
@@ -472,23 +544,20 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
     }
 
     /**
-     * Internal unsynchronized method to process objects state after commit.
+     * Internal unsynchronized method to process objects state after commit. Only the
+     * objects from the committed change set are processed.
      * 
      * @since 1.2
      */
     void postprocessAfterCommit(GraphDiff parentChanges) {
 
-        Iterator<Map.Entry<Object, Persistent>> entries = objectMap.entrySet().iterator();
-
-        // have to scan through all entries
-        while (entries.hasNext()) {
-            Map.Entry<Object, Persistent> entry = entries.next();
+        for (Map.Entry<Object, ObjectDiff> entry : changes.entrySet()) {
 
-            Persistent object = entry.getValue();
+            Persistent object = (Persistent) entry.getValue().getObject();
 
             switch (object.getPersistenceState()) {
                 case PersistenceState.DELETED:
-                    entries.remove();
+                    objectMap.remove(entry.getKey());
                     object.setObjectContext(null);
                     object.setPersistenceState(PersistenceState.TRANSIENT);
                     break;
@@ -678,6 +747,9 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      */
     synchronized void processSnapshotEvent(SnapshotEvent event) {
 
+        // external changes must not be merged into the objects being committed
+        waitForCommit();
+
         Map modifiedDiffs = event.getModifiedDiffs();
         if (modifiedDiffs != null && !modifiedDiffs.isEmpty()) {
             Iterator oids = modifiedDiffs.entrySet().iterator();
@@ -1013,7 +1085,59 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      * @since 1.2
      */
     public synchronized void registerNode(Object nodeId, Object nodeObject) {
-        objectMap.put(nodeId, (Persistent) nodeObject);
+        if (objectMap.put(nodeId, (Persistent) nodeObject) == null && trackedIds != null) {
+            trackedIds.add(nodeId);
+        }
+    }
+
+    /**
+     * Starts recording ids of the objects registered from now on, until
+     * {@link #stopTrackingRegisteredIds()} is called.
+     * 
+     * @since 3.0
+     */
+    synchronized void startTrackingRegisteredIds() {
+        this.trackedIds = new ArrayList<Object>();
+    }
+
+    /**
+     * Stops recording ids of the registered objects, returning ids recorded since the
+     * last call to {@link #startTrackingRegisteredIds()}.
+     * 
+     * @since 3.0
+     */
+    synchronized Collection<Object> stopTrackingRegisteredIds() {
+        Collection<Object> ids = trackedIds != null
+                ? trackedIds
+                : Collections.<Object> emptyList();
+        this.trackedIds = null;
+        return ids;
+    }
+
+    /**
+     * Evicts unmodified objects with the given ids from the ObjectStore, changing their
+     * state to TRANSIENT. Unlike {@link #objectsUnregistered(Collection)}, leaves the
+     * cached snapshots intact. Objects that are new, modified or deleted are not evicted.
+     * 
+     * @since 3.0
+     */
+    synchronized void objectsEvicted(Collection<?> ids) {
+        for (Object id : ids) {
+            Persistent object = objectMap.get(id);
+            if (object == null || changes.containsKey(id)) {
+                continue;
+            }
+
+            int state = object.getPersistenceState();
+            if (state != PersistenceState.COMMITTED && state != PersistenceState.HOLLOW) {
+                continue;
+            }
+
+            objectMap.remove(id);
+            object.setObjectContext(null);
+            object.setObjectId(null);
+            object.setPersistenceState(PersistenceState.TRANSIENT);
+        }
     }
 
     /**
@@ -1041,6 +1165,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      * @since 1.2
      */
     public void nodeCreated(Object nodeId) {
+        waitForCommit();
+
         NodeDiff diff = new NodeCreateOperation(nodeId);
 
         if (lifecycleEventInducedChanges != null) {
@@ -1055,6 +1181,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      */
     public void nodeRemoved(Object nodeId) {
 
+        waitForCommit();
+
         NodeDiff diff = new NodeDeleteOperation(nodeId);
 
         if (lifecycleEventInducedChanges != null) {
@@ -1075,6 +1203,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
             Object oldValue,
             Object newValue) {
 
+        waitForCommit();
+
         if (lifecycleEventInducedChanges != null) {
             registerLifecycleEventInducedChange(new NodePropertyChangeOperation(
                     nodeId,
@@ -1090,6 +1220,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      * @since 1.2
      */
     public void arcCreated(Object nodeId, Object targetNodeId, Object arcId) {
+        waitForCommit();
+
         NodeDiff diff = new ArcOperation(nodeId, targetNodeId, arcId.toString(), false);
 
         if (lifecycleEventInducedChanges != null) {
@@ -1103,6 +1235,8 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
      * @since 1.2
      */
     public void arcDeleted(Object nodeId, Object targetNodeId, Object arcId) {
+        waitForCommit();
+
         NodeDiff diff = new ArcOperation(nodeId, targetNodeId, arcId.toString(), true);
 
         if (lifecycleEventInducedChanges != null) {
@@ -1222,6 +1356,10 @@ public class ObjectStore implements Serializable, SnapshotEventListener, GraphMa
             return 0;
         }
 
+        public int getStatementFetchSize() {
+            return 0;
+        }
+
         public PrefetchTreeNode getPrefetchTree() {
             return null;
         }
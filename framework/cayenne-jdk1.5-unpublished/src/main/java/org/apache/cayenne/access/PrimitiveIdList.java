@@ -0,0 +1,190 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list used by {@link SimpleIdIncrementalFaultList} to store unresolved integer or
+ * long ids in a primitive array instead of keeping a boxed object per id. Resolved
+ * objects are stored in a parallel object array. Ids are boxed on access, so the list
+ * behaves as a regular list of mixed ids and objects.
+ * 
+ * @since 3.0
+ */
+final class PrimitiveIdList extends AbstractList<Object> implements RandomAccess {
+
+    // marks list elements that are nulls, as opposed to unresolved ids
+    private static final Object NULL = new Object();
+
+    private final boolean integerIds;
+    private long[] ids;
+    private Object[] objects;
+    private int size;
+
+    /**
+     * Creates a PrimitiveIdList with the contents of the source list. Returns the source
+     * list if it contains ids that are neither all Integers nor all Longs.
+     */
+    static List<Object> compact(List<Object> source) {
+
+        // resolved objects are either Persistent or Maps, so any number is an id
+        Class<?> idType = null;
+        for (Object element : source) {
+            if (element instanceof Number) {
+                Class<?> type = element.getClass();
+                if (idType == null) {
+                    if (type != Integer.class && type != Long.class) {
+                        return source;
+                    }
+
+                    idType = type;
+                }
+                else if (idType != type) {
+                    return source;
+                }
+            }
+        }
+
+        if (idType == null) {
+            return source;
+        }
+
+        PrimitiveIdList list = new PrimitiveIdList(idType == Integer.class, source
+                .size());
+        for (Object element : source) {
+            list.add(element);
+        }
+
+        return list;
+    }
+
+    PrimitiveIdList(boolean integerIds, int capacity) {
+        this.integerIds = integerIds;
+        this.ids = new long[Math.max(capacity, 10)];
+        this.objects = new Object[ids.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        checkIndex(index);
+        return valueAt(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        checkIndex(index);
+        Object old = valueAt(index);
+        store(index, element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        modCount++;
+        ensureCapacity(size + 1);
+
+        if (index < size) {
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(objects, index, objects, index + 1, size - index);
+        }
+
+        size++;
+        store(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        checkIndex(index);
+
+        modCount++;
+        Object old = valueAt(index);
+
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(objects, index + 1, objects, index, moved);
+        }
+
+        size--;
+        objects[size] = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            objects[i] = null;
+        }
+        size = 0;
+    }
+
+    private Object valueAt(int index) {
+        Object object = objects[index];
+        if (object == null) {
+            return integerIds ? (Object) Integer.valueOf((int) ids[index]) : Long
+                    .valueOf(ids[index]);
+        }
+
+        return object != NULL ? object : null;
+    }
+
+    private void store(int index, Object element) {
+        if (integerIds ? element instanceof Integer : element instanceof Long) {
+            ids[index] = ((Number) element).longValue();
+            objects[index] = null;
+        }
+        else {
+            objects[index] = element != null ? element : NULL;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length * 3 / 2 + 1);
+
+            long[] newIds = new long[newCapacity];
+            System.arraycopy(ids, 0, newIds, 0, size);
+            ids = newIds;
+
+            Object[] newObjects = new Object[newCapacity];
+            System.arraycopy(objects, 0, newObjects, 0, size);
+            objects = newObjects;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+
+/**
+ * A size-bound cache of DataRow snapshots keyed by ObjectId, used internally by
+ * {@link DataRowStore}. The cache is split into a number of independently locked
+ * segments, each maintaining its own LRU order, so concurrent readers only contend when
+ * they hit the same segment. As a result eviction order is approximate LRU across the
+ * whole cache. Small caches are kept in a single segment to preserve exact LRU behavior.
+ * <p>
+ * Each entry records its creation time, and entries older than the configured
+ * expiration time are treated as missing and removed on access.
+ * </p>
+ * <p>
+ * If a {@link CompactSnapshotEncoder} is provided, snapshots are stored encoded as byte
+ * arrays and are decoded into new DataRow instances on every read, trading some CPU for
+ * a much smaller memory footprint.
+ * </p>
+ *
+ * @since 3.0
+ */
+public class SegmentedSnapshotCache implements Serializable {
+
+    /**
+     * Minimal number of entries per segment. Caches smaller than two segments of this
+     * size are not segmented.
+     */
+    static final int MIN_SEGMENT_CAPACITY = 64;
+
+    protected int maxSize;
+    protected long expirationMillis;
+    protected Segment[] segments;
+    protected CompactSnapshotEncoder encoder;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize maximum number of snapshots stored in the cache.
+     * @param expirationMillis snapshot time to live in milliseconds. Zero or negative
+     *            value means that snapshots never expire.
+     * @param concurrencyLevel maximum number of independently locked segments.
+     */
+    public SegmentedSnapshotCache(int maxSize, long expirationMillis, int concurrencyLevel) {
+        this(maxSize, expirationMillis, concurrencyLevel, null);
+    }
+
+    /**
+     * Creates a new cache that stores snapshots in a compact encoded form.
+     * 
+     * @param maxSize maximum number of snapshots stored in the cache.
+     * @param expirationMillis snapshot time to live in milliseconds. Zero or negative
+     *            value means that snapshots never expire.
+     * @param concurrencyLevel maximum number of independently locked segments.
+     * @param encoder an encoder used to store snapshots. If null, snapshots are stored
+     *            as is.
+     */
+    public SegmentedSnapshotCache(int maxSize, long expirationMillis,
+            int concurrencyLevel, CompactSnapshotEncoder encoder) {
+
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.expirationMillis = expirationMillis;
+        this.encoder = encoder;
+
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel
+                && (segmentCount << 1) * MIN_SEGMENT_CAPACITY <= maxSize) {
+            segmentCount <<= 1;
+        }
+
+        // distribute capacity so that segment sizes add up to the max size
+        this.segments = new Segment[segmentCount];
+        int base = maxSize / segmentCount;
+        int remainder = maxSize % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(i < remainder ? base + 1 : base);
+        }
+    }
+
+    /**
+     * Returns a cached snapshot or null if it is not cached or has expired.
+     */
+    public DataRow get(ObjectId id) {
+        return segmentFor(id).get(id, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a snapshot in the cache, returning a previously stored snapshot if it has
+     * not expired.
+     */
+    public DataRow put(ObjectId id, DataRow snapshot) {
+        return segmentFor(id).put(id, snapshot, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes a snapshot from the cache, returning it if it has not expired.
+     */
+    public DataRow remove(ObjectId id) {
+        return segmentFor(id).remove(id, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes all snapshots from the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns a current number of cached snapshots. Expired snapshots that were not
+     * accessed since expiration are included in the count.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns maximum allowed cache size.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns snapshot time to live in milliseconds.
+     */
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    /**
+     * Returns an encoder used to store snapshots or null if snapshots are stored as is.
+     */
+    public CompactSnapshotEncoder getEncoder() {
+        return encoder;
+    }
+
+    /**
+     * Returns the number of independently locked segments in this cache.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    Segment segmentFor(ObjectId id) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+
+        // spread the bits of the hash code, as ObjectId hashes for sequential keys
+        // differ mostly in the lower bits
+        int h = id.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & (segments.length - 1)];
+    }
+
+    boolean isExpired(CacheEntry entry, long now) {
+        return expirationMillis > 0 && now - entry.createdAt > expirationMillis;
+    }
+
+    CacheEntry createEntry(DataRow snapshot, long now) {
+        Object value = null;
+
+        if (encoder != null) {
+            value = encoder.encode(snapshot);
+        }
+
+        // store snapshots that can't be encoded as is
+        return new CacheEntry(value != null ? value : snapshot, now);
+    }
+
+    DataRow snapshot(CacheEntry entry) {
+        return entry.value instanceof byte[]
+                ? encoder.decode((byte[]) entry.value)
+                : (DataRow) entry.value;
+    }
+
+    static final class CacheEntry implements Serializable {
+
+        // either a DataRow or an encoded byte array
+        final Object value;
+        final long createdAt;
+
+        CacheEntry(Object value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+
+    final class Segment implements Serializable {
+
+        final ReentrantLock lock;
+        final LinkedHashMap<ObjectId, CacheEntry> entries;
+
+        Segment(final int capacity) {
+            this.lock = new ReentrantLock();
+            this.entries = new LinkedHashMap<ObjectId, CacheEntry>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ObjectId, CacheEntry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        DataRow get(ObjectId id, long now) {
+            CacheEntry entry;
+
+            lock.lock();
+            try {
+                entry = entries.get(id);
+                if (entry == null) {
+                    return null;
+                }
+
+                if (isExpired(entry, now)) {
+                    entries.remove(id);
+                    return null;
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+
+            // decode outside of the lock
+            return snapshot(entry);
+        }
+
+        DataRow put(ObjectId id, DataRow snapshot, long now) {
+
+            // encode outside of the lock
+            CacheEntry entry = createEntry(snapshot, now);
+            CacheEntry old;
+
+            lock.lock();
+            try {
+                old = entries.put(id, entry);
+            }
+            finally {
+                lock.unlock();
+            }
+
+            return old != null && !isExpired(old, now) ? snapshot(old) : null;
+        }
+
+        DataRow remove(ObjectId id, long now) {
+            CacheEntry old;
+
+            lock.lock();
+            try {
+                old = entries.remove(id);
+            }
+            finally {
+                lock.unlock();
+            }
+
+            return old != null && !isExpired(old, now) ? snapshot(old) : null;
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                entries.clear();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+}
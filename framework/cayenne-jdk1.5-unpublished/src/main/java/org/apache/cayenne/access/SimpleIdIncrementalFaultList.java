@@ -19,6 +19,7 @@
 package org.apache.cayenne.access;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.cayenne.Persistent;
@@ -68,6 +69,45 @@ class SimpleIdIncrementalFaultList<E> extends IncrementalFaultList<E> {
         return ExpressionFactory.matchDbExp(pk.getName(), id);
     }
 
+    /**
+     * Builds an IN qualifier for ids. To allow the database and the statement caches to
+     * reuse the same SQL for different pages, the list of ids is padded to the next
+     * power of two (but no more than maxFetchSize) by repeating the last id.
+     */
+    @Override
+    Expression buildIdsQualifier(List<Object> ids) {
+        int size = ids.size();
+        int bucketSize = bucketSize(size, maxFetchSize);
+
+        Object[] values = ids.toArray(new Object[bucketSize]);
+        for (int i = size; i < bucketSize; i++) {
+            values[i] = values[size - 1];
+        }
+
+        return ExpressionFactory.inDbExp(pk.getName(), values);
+    }
+
+    /**
+     * Returns the smallest power of two that is not less than size, capped at
+     * maxSize, but never less than size.
+     */
+    static int bucketSize(int size, int maxSize) {
+        int bucket = 1;
+        while (bucket < size) {
+            bucket <<= 1;
+        }
+
+        return Math.max(size, Math.min(bucket, maxSize));
+    }
+
+    /**
+     * Stores integer and long ids in a primitive array.
+     */
+    @Override
+    List<Object> compactElements(List<Object> elements) {
+        return PrimitiveIdList.compact(elements);
+    }
+
     class SingleIdPersistentListHelper extends
             IncrementalFaultList<E>.PersistentListHelper {
 
@@ -0,0 +1,133 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.event;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.event.CayenneEvent;
+import org.apache.cayenne.event.EventCoalescer;
+
+/**
+ * Merges a sequence of SnapshotEvents into a single event, collapsing repeated changes
+ * of the same ObjectId. Diffs of an object modified more than once are combined, with
+ * the later values taking precedence. Deletion of an object overrides any other change
+ * of that object, and invalidation overrides modifications, as an invalidated snapshot
+ * is evicted by the receiver regardless of the diffs.
+ * 
+ * @since 3.0
+ */
+public class SnapshotEventCoalescer implements EventCoalescer {
+
+    public boolean canCoalesce(CayenneEvent event) {
+        return event instanceof SnapshotEvent;
+    }
+
+    public CayenneEvent coalesce(List<CayenneEvent> events) {
+
+        if (events.isEmpty()) {
+            return null;
+        }
+
+        if (events.size() == 1) {
+            return events.get(0);
+        }
+
+        Map<Object, Map> diffs = new HashMap<Object, Map>();
+        Collection<Object> deleted = new LinkedHashSet<Object>();
+        Collection<Object> invalidated = new LinkedHashSet<Object>();
+        Collection<Object> indirectlyModified = new LinkedHashSet<Object>();
+
+        // ids whose diffs were copied and can be modified in place
+        Collection<Object> mergedDiffs = new LinkedHashSet<Object>();
+
+        for (CayenneEvent e : events) {
+            SnapshotEvent event = (SnapshotEvent) e;
+
+            for (Object id : event.getDeletedIds()) {
+                deleted.add(id);
+                invalidated.remove(id);
+                indirectlyModified.remove(id);
+                diffs.remove(id);
+            }
+
+            for (Object id : event.getInvalidatedIds()) {
+                if (!deleted.contains(id)) {
+                    invalidated.add(id);
+                    diffs.remove(id);
+                }
+            }
+
+            for (Object o : event.getModifiedDiffs().entrySet()) {
+                Map.Entry entry = (Map.Entry) o;
+                Object id = entry.getKey();
+
+                if (deleted.contains(id) || invalidated.contains(id)) {
+                    continue;
+                }
+
+                Map diff = (Map) entry.getValue();
+                Map existing = diffs.get(id);
+                if (existing == null) {
+                    diffs.put(id, diff);
+                    mergedDiffs.remove(id);
+                }
+                else if (mergedDiffs.contains(id)) {
+                    existing.putAll(diff);
+                }
+                else {
+                    // never modify diffs of the original events, as they are shared
+                    // with local listeners
+                    DataRow merged = new DataRow(existing.size() + diff.size());
+                    merged.putAll(existing);
+                    merged.putAll(diff);
+                    diffs.put(id, merged);
+                    mergedDiffs.add(id);
+                }
+            }
+
+            for (Object id : event.getIndirectlyModifiedIds()) {
+                if (!deleted.contains(id)) {
+                    indirectlyModified.add(id);
+                }
+            }
+        }
+
+        if (diffs.isEmpty()
+                && deleted.isEmpty()
+                && invalidated.isEmpty()
+                && indirectlyModified.isEmpty()) {
+            return null;
+        }
+
+        SnapshotEvent first = (SnapshotEvent) events.get(0);
+        return new SnapshotEvent(
+                first.getSource(),
+                first.getPostedBy(),
+                diffs,
+                deleted,
+                invalidated,
+                indirectlyModified);
+    }
+}
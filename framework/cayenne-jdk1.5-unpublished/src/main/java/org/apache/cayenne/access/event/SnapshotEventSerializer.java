@@ -0,0 +1,445 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.event.CayenneEvent;
+import org.apache.cayenne.event.EventSerializer;
+import org.apache.cayenne.event.EventSubject;
+import org.apache.cayenne.event.JavaEventSerializer;
+import org.apache.cayenne.map.DbAttribute;
+import org.apache.cayenne.map.DbEntity;
+import org.apache.cayenne.map.EntityResolver;
+import org.apache.cayenne.map.ObjEntity;
+import org.apache.cayenne.util.BinaryValueCodec;
+
+/**
+ * An EventSerializer that writes SnapshotEvents in a compact binary format. Entity and
+ * column names are written as integer references to a dictionary built from the mapping
+ * in the EntityResolver, and values are written as typed primitives. Names missing from
+ * the dictionary are written inline. Events other than SnapshotEvents are written using
+ * Java serialization.
+ * <p>
+ * The dictionary is derived from the sorted entity and attribute names, so peers
+ * exchanging events must have the same mapping. A dictionary checksum is sent with each
+ * event, and events produced with a different mapping are rejected.
+ * </p>
+ * 
+ * @since 3.0
+ */
+public class SnapshotEventSerializer implements EventSerializer {
+
+    static final byte SNAPSHOT_EVENT = 1;
+    static final byte SERIALIZED_EVENT = 2;
+
+    static final byte MIXED_GROUP = 0;
+    static final byte SINGLE_KEY_GROUP = 1;
+
+    protected EntityResolver entityResolver;
+    protected EventSerializer fallbackSerializer;
+
+    private volatile Dictionary dictionary;
+
+    public SnapshotEventSerializer(EntityResolver entityResolver) {
+        if (entityResolver == null) {
+            throw new IllegalArgumentException("Null entityResolver");
+        }
+
+        this.entityResolver = entityResolver;
+        this.fallbackSerializer = new JavaEventSerializer();
+    }
+
+    public EntityResolver getEntityResolver() {
+        return entityResolver;
+    }
+
+    public byte[] serialize(CayenneEvent event) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        if (event instanceof SnapshotEvent) {
+            out.writeByte(SNAPSHOT_EVENT);
+            writeSnapshotEvent(out, (SnapshotEvent) event);
+        }
+        else {
+            out.writeByte(SERIALIZED_EVENT);
+            out.write(fallbackSerializer.serialize(event));
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public CayenneEvent deserialize(byte[] bytes) throws IOException {
+        if (bytes.length == 0) {
+            return null;
+        }
+
+        switch (bytes[0]) {
+            case SNAPSHOT_EVENT:
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                        bytes,
+                        1,
+                        bytes.length - 1));
+                try {
+                    return readSnapshotEvent(in);
+                }
+                catch (ClassNotFoundException e) {
+                    IOException ioException = new IOException(
+                            "Error deserializing event: " + e.getMessage());
+                    ioException.initCause(e);
+                    throw ioException;
+                }
+            case SERIALIZED_EVENT:
+                byte[] serialized = new byte[bytes.length - 1];
+                System.arraycopy(bytes, 1, serialized, 0, serialized.length);
+                return fallbackSerializer.deserialize(serialized);
+            default:
+                return null;
+        }
+    }
+
+    void writeSnapshotEvent(DataOutputStream out, SnapshotEvent event)
+            throws IOException {
+
+        Dictionary dictionary = getDictionary();
+        out.writeInt(dictionary.checksum);
+
+        EventSubject subject = event.getSubject();
+        out.writeBoolean(subject != null);
+        if (subject != null) {
+            out.writeUTF(subject.getSubjectName());
+        }
+
+        out.writeLong(event.getTimestamp());
+
+        Map diffs = event.getModifiedDiffs();
+        writeIds(out, dictionary, diffs.keySet(), diffs);
+        writeIds(out, dictionary, event.getDeletedIds(), null);
+        writeIds(out, dictionary, event.getInvalidatedIds(), null);
+        writeIds(out, dictionary, event.getIndirectlyModifiedIds(), null);
+    }
+
+    SnapshotEvent readSnapshotEvent(DataInputStream in) throws IOException,
+            ClassNotFoundException {
+
+        Dictionary dictionary = getDictionary();
+        int checksum = in.readInt();
+        if (checksum != dictionary.checksum) {
+            throw new IOException("Event was serialized with a different mapping");
+        }
+
+        EventSubject subject = in.readBoolean()
+                ? EventSubject.getSubject(in.readUTF())
+                : null;
+        long timestamp = in.readLong();
+
+        Map<ObjectId, DataRow> diffs = new HashMap<ObjectId, DataRow>();
+        readIds(in, dictionary, null, diffs);
+
+        Collection<ObjectId> deleted = new ArrayList<ObjectId>();
+        readIds(in, dictionary, deleted, null);
+
+        Collection<ObjectId> invalidated = new ArrayList<ObjectId>();
+        readIds(in, dictionary, invalidated, null);
+
+        Collection<ObjectId> indirectlyModified = new ArrayList<ObjectId>();
+        readIds(in, dictionary, indirectlyModified, null);
+
+        // source is transient and will be reset by the receiving EventBridge
+        SnapshotEvent event = new SnapshotEvent(
+                this,
+                null,
+                diffs,
+                deleted,
+                invalidated,
+                indirectlyModified);
+        event.timestamp = timestamp;
+        event.setSubject(subject);
+        return event;
+    }
+
+    /**
+     * Writes ObjectIds grouped by entity, so that entity names, as well as key names of
+     * single column ids, are written once per group. If diffs are provided, each id is
+     * followed by its diff.
+     */
+    private void writeIds(
+            DataOutputStream out,
+            Dictionary dictionary,
+            Collection ids,
+            Map diffs) throws IOException {
+
+        Map<String, List<ObjectId>> groups = new LinkedHashMap<String, List<ObjectId>>();
+        for (Object o : ids) {
+            ObjectId id = (ObjectId) o;
+            List<ObjectId> group = groups.get(id.getEntityName());
+            if (group == null) {
+                group = new ArrayList<ObjectId>();
+                groups.put(id.getEntityName(), group);
+            }
+            group.add(id);
+        }
+
+        BinaryValueCodec.writeVarInt(out, groups.size());
+        for (Map.Entry<String, List<ObjectId>> entry : groups.entrySet()) {
+            List<ObjectId> group = entry.getValue();
+
+            writeName(out, dictionary, entry.getKey());
+            BinaryValueCodec.writeVarInt(out, group.size());
+
+            String singleKey = getSingleKey(group);
+            if (singleKey != null) {
+                out.writeByte(SINGLE_KEY_GROUP);
+                writeName(out, dictionary, singleKey);
+
+                for (ObjectId id : group) {
+                    BinaryValueCodec.writeValue(out, id.getIdSnapshot().get(singleKey));
+                    if (diffs != null) {
+                        writeRow(out, dictionary, (Map) diffs.get(id));
+                    }
+                }
+            }
+            else {
+                out.writeByte(MIXED_GROUP);
+
+                for (ObjectId id : group) {
+                    writeObjectId(out, dictionary, id);
+                    if (diffs != null) {
+                        writeRow(out, dictionary, (Map) diffs.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    private void readIds(
+            DataInputStream in,
+            Dictionary dictionary,
+            Collection<ObjectId> ids,
+            Map<ObjectId, DataRow> diffs) throws IOException, ClassNotFoundException {
+
+        int groups = BinaryValueCodec.readVarInt(in);
+        for (int i = 0; i < groups; i++) {
+            String entityName = readName(in, dictionary);
+            int size = BinaryValueCodec.readVarInt(in);
+
+            String singleKey = null;
+            if (in.readByte() == SINGLE_KEY_GROUP) {
+                singleKey = readName(in, dictionary);
+            }
+
+            for (int j = 0; j < size; j++) {
+                ObjectId id;
+                if (singleKey != null) {
+                    id = new ObjectId(entityName, singleKey, BinaryValueCodec.readValue(in));
+                }
+                else {
+                    id = readObjectId(in, dictionary, entityName);
+                }
+
+                if (diffs != null) {
+                    diffs.put(id, readRow(in, dictionary));
+                }
+                else {
+                    ids.add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a name of the id column if all ids in the group are permanent ids with the
+     * same single column, or null otherwise.
+     */
+    private String getSingleKey(List<ObjectId> group) {
+        String singleKey = null;
+
+        for (ObjectId id : group) {
+            if (id.isTemporary()) {
+                return null;
+            }
+
+            Map<String, Object> snapshot = id.getIdSnapshot();
+            if (snapshot.size() != 1) {
+                return null;
+            }
+
+            String key = snapshot.keySet().iterator().next();
+            if (singleKey == null) {
+                singleKey = key;
+            }
+            else if (!singleKey.equals(key)) {
+                return null;
+            }
+        }
+
+        return singleKey;
+    }
+
+    private void writeObjectId(DataOutputStream out, Dictionary dictionary, ObjectId id)
+            throws IOException {
+
+        if (id.isTemporary()) {
+            byte[] key = id.getKey();
+            out.writeBoolean(true);
+            BinaryValueCodec.writeVarInt(out, key.length);
+            out.write(key);
+        }
+        else {
+            out.writeBoolean(false);
+            writeRow(out, dictionary, id.getIdSnapshot());
+        }
+    }
+
+    private ObjectId readObjectId(
+            DataInputStream in,
+            Dictionary dictionary,
+            String entityName) throws IOException, ClassNotFoundException {
+
+        if (in.readBoolean()) {
+            byte[] key = new byte[BinaryValueCodec.readVarInt(in)];
+            in.readFully(key);
+            return new ObjectId(entityName, key);
+        }
+
+        return new ObjectId(entityName, readRow(in, dictionary));
+    }
+
+    private void writeRow(DataOutputStream out, Dictionary dictionary, Map row)
+            throws IOException {
+        BinaryValueCodec.writeVarInt(out, row.size());
+        for (Object o : row.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            writeName(out, dictionary, (String) entry.getKey());
+            BinaryValueCodec.writeValue(out, entry.getValue());
+        }
+    }
+
+    private DataRow readRow(DataInputStream in, Dictionary dictionary)
+            throws IOException, ClassNotFoundException {
+        int size = BinaryValueCodec.readVarInt(in);
+        DataRow row = new DataRow(size);
+        for (int i = 0; i < size; i++) {
+            String name = readName(in, dictionary);
+            row.put(name, BinaryValueCodec.readValue(in));
+        }
+        return row;
+    }
+
+    /**
+     * Writes a name as a dictionary reference, or inline if it is not in the dictionary.
+     */
+    private void writeName(DataOutputStream out, Dictionary dictionary, String name)
+            throws IOException {
+        Integer index = dictionary.indexes.get(name);
+        if (index != null) {
+            BinaryValueCodec.writeVarInt(out, index.intValue() + 1);
+        }
+        else {
+            BinaryValueCodec.writeVarInt(out, 0);
+            out.writeUTF(name);
+        }
+    }
+
+    private String readName(DataInputStream in, Dictionary dictionary)
+            throws IOException {
+        int reference = BinaryValueCodec.readVarInt(in);
+        if (reference == 0) {
+            return in.readUTF();
+        }
+
+        if (reference > dictionary.names.length) {
+            throw new IOException("Invalid name reference: " + reference);
+        }
+
+        return dictionary.names[reference - 1];
+    }
+
+    /**
+     * Returns a dictionary of names, lazily building it on the first call, as the
+     * EntityResolver may not be fully configured when the serializer is created.
+     */
+    Dictionary getDictionary() {
+        Dictionary dictionary = this.dictionary;
+        if (dictionary == null) {
+            dictionary = new Dictionary(entityResolver);
+            this.dictionary = dictionary;
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * Resets the name dictionary, so that it is rebuilt on the next serialization. Must
+     * be called if the mapping changes.
+     */
+    public void clearDictionary() {
+        this.dictionary = null;
+    }
+
+    static final class Dictionary {
+
+        final String[] names;
+        final Map<String, Integer> indexes;
+        final int checksum;
+
+        Dictionary(EntityResolver resolver) {
+            SortedSet<String> sorted = new TreeSet<String>();
+
+            for (ObjEntity entity : resolver.getObjEntities()) {
+                sorted.add(entity.getName());
+            }
+
+            for (DbEntity entity : resolver.getDbEntities()) {
+                for (DbAttribute attribute : entity.getAttributes()) {
+                    sorted.add(attribute.getName());
+                }
+            }
+
+            this.names = sorted.toArray(new String[sorted.size()]);
+            this.indexes = new HashMap<String, Integer>((int) (names.length / 0.75) + 1);
+
+            int checksum = names.length;
+            for (int i = 0; i < names.length; i++) {
+                indexes.put(names[i], Integer.valueOf(i));
+                checksum = 31 * checksum + names[i].hashCode();
+            }
+
+            this.checksum = checksum;
+        }
+    }
+}
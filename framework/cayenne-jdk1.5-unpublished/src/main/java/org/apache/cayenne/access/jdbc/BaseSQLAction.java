@@ -19,8 +19,10 @@
 
 package org.apache.cayenne.access.jdbc;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 import org.apache.cayenne.CayenneException;
@@ -28,6 +30,7 @@ import org.apache.cayenne.DataRow;
 import org.apache.cayenne.access.OperationObserver;
 import org.apache.cayenne.access.QueryLogger;
 import org.apache.cayenne.dba.DbAdapter;
+import org.apache.cayenne.dba.JdbcAdapter;
 import org.apache.cayenne.map.EntityResolver;
 import org.apache.cayenne.query.Query;
 import org.apache.cayenne.query.QueryMetadata;
@@ -56,6 +59,26 @@ public abstract class BaseSQLAction implements SQLAction {
         return entityResolver;
     }
 
+    /**
+     * Sets a JDBC fetch size of a select statement, using query fetch size if specified
+     * or adapter default fetch size otherwise.
+     * 
+     * @since 3.0
+     */
+    protected void configureFetchSize(
+            Connection connection,
+            Statement statement,
+            QueryMetadata metadata) throws SQLException {
+
+        int fetchSize = metadata.getStatementFetchSize();
+        if (adapter instanceof JdbcAdapter) {
+            ((JdbcAdapter) adapter).configureFetchSize(connection, statement, fetchSize);
+        }
+        else if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
     /**
      * Helper method to process a ResultSet.
      */
@@ -39,6 +39,7 @@ import org.apache.cayenne.access.trans.InsertBatchQueryBuilder;
 import org.apache.cayenne.access.trans.UpdateBatchQueryBuilder;
 import org.apache.cayenne.dba.DbAdapter;
 import org.apache.cayenne.dba.TypesMapping;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.map.DbAttribute;
 import org.apache.cayenne.map.EntityResolver;
 import org.apache.cayenne.query.BatchQuery;
@@ -51,7 +52,24 @@ import org.apache.cayenne.query.UpdateBatchQuery;
  */
 public class BatchAction extends BaseSQLAction {
 
+    /**
+     * Number of rows inserted by a single multi-row INSERT statement when no maximum
+     * batch size is set.
+     * 
+     * @since 3.0
+     */
+    public static final int DEFAULT_MULTI_ROW_INSERT_SIZE = 100;
+
+    /**
+     * Maximum number of parameters bound to a single multi-row INSERT statement.
+     * 
+     * @since 3.0
+     */
+    public static final int MAX_MULTI_ROW_INSERT_PARAMETERS = 2000;
+
     protected boolean batch;
+    protected int maxBatchSize;
+    protected boolean multiRowInsert;
     protected BatchQuery query;
     protected RowDescriptor keyRowDescriptor;
 
@@ -69,13 +87,55 @@ public class BatchAction extends BaseSQLAction {
         this.batch = runningAsBatch;
     }
 
+    /**
+     * Returns a maximum number of rows sent to the database in one JDBC batch or one
+     * multi-row INSERT. Zero or negative value means that the whole query is sent as one
+     * batch.
+     * 
+     * @since 3.0
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns true if InsertBatchQuery rows should be inserted using multi-row
+     * <code>INSERT ... VALUES (...), (...)</code> statements.
+     * 
+     * @since 3.0
+     */
+    public boolean isMultiRowInsert() {
+        return multiRowInsert;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setMultiRowInsert(boolean multiRowInsert) {
+        this.multiRowInsert = multiRowInsert;
+    }
+
     public void performAction(Connection connection, OperationObserver observer)
             throws SQLException, Exception {
 
         BatchQueryBuilder queryBuilder = createBuilder();
         boolean generatesKeys = hasGeneratedKeys();
 
-        if (batch && !generatesKeys) {
+        if (multiRowInsert && !generatesKeys
+                && queryBuilder instanceof InsertBatchQueryBuilder) {
+            runAsMultiRowInserts(
+                    connection,
+                    (InsertBatchQueryBuilder) queryBuilder,
+                    observer);
+        }
+        else if (batch && !generatesKeys) {
             runAsBatch(connection, queryBuilder, observer);
         }
         else {
@@ -112,8 +172,14 @@ public class BatchAction extends BaseSQLAction {
         // run batch
         query.reset();
 
+        long t0 = Instrumentation.isEnabled() ? System.nanoTime() : 0;
+
         PreparedStatement statement = con.prepareStatement(queryStr);
         try {
+            int[] results = new int[query.size()];
+            int resultsLength = 0;
+            int chunkSize = 0;
+
             while (query.next()) {
 
                 if (isLoggable) {
@@ -126,10 +192,36 @@ public class BatchAction extends BaseSQLAction {
 
                 queryBuilder.bindParameters(statement, query);
                 statement.addBatch();
+
+                // flush large batches in chunks
+                if (maxBatchSize > 0 && ++chunkSize >= maxBatchSize) {
+                    int[] chunkResults = statement.executeBatch();
+                    results = appendResults(results, resultsLength, chunkResults);
+                    resultsLength += chunkResults.length;
+                    chunkSize = 0;
+                }
+            }
+
+            // execute the remaining batch
+            if (chunkSize > 0 || maxBatchSize <= 0) {
+                int[] chunkResults = statement.executeBatch();
+                results = appendResults(results, resultsLength, chunkResults);
+                resultsLength += chunkResults.length;
+            }
+
+            if (resultsLength != results.length) {
+                int[] trimmed = new int[resultsLength];
+                System.arraycopy(results, 0, trimmed, 0, resultsLength);
+                results = trimmed;
+            }
+
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.batchExecuted(
+                        queryStr,
+                        results.length,
+                        System.nanoTime() - t0);
             }
 
-            // execute the whole batch
-            int[] results = statement.executeBatch();
             delegate.nextBatchCount(query, results);
 
             if (isLoggable) {
@@ -157,6 +249,125 @@ public class BatchAction extends BaseSQLAction {
         }
     }
 
+    private int[] appendResults(int[] results, int offset, int[] chunkResults) {
+        if (offset + chunkResults.length > results.length) {
+            int[] expanded = new int[Math.max(
+                    results.length * 2,
+                    offset + chunkResults.length)];
+            System.arraycopy(results, 0, expanded, 0, offset);
+            results = expanded;
+        }
+
+        System.arraycopy(chunkResults, 0, results, offset, chunkResults.length);
+        return results;
+    }
+
+    /**
+     * Executes InsertBatchQuery as a series of multi-row INSERT statements, each
+     * inserting up to "maxBatchSize" rows.
+     * 
+     * @since 3.0
+     */
+    protected void runAsMultiRowInserts(
+            Connection con,
+            InsertBatchQueryBuilder queryBuilder,
+            OperationObserver delegate) throws SQLException, Exception {
+
+        boolean isLoggable = QueryLogger.isLoggable();
+
+        int size = query.size();
+        int rowsPerStatement = getMultiRowInsertSize(queryBuilder.getColumnCount(query));
+        int[] results = new int[size];
+        int totalUpdateCount = 0;
+
+        query.reset();
+
+        PreparedStatement statement = null;
+        String queryStr = null;
+        int statementRows = 0;
+        try {
+            for (int row = 0; row < size; row += statementRows) {
+
+                int rows = Math.min(rowsPerStatement, size - row);
+
+                // statement is reused for all full chunks
+                if (statement == null || rows != statementRows) {
+                    if (statement != null) {
+                        statement.close();
+                    }
+
+                    queryStr = queryBuilder.createSqlString(query, rows);
+                    QueryLogger.logQuery(queryStr, Collections.EMPTY_LIST);
+
+                    statement = con.prepareStatement(queryStr);
+                    statementRows = rows;
+                }
+
+                long t0 = Instrumentation.isEnabled() ? System.nanoTime() : 0;
+
+                int parameterIndex = 0;
+                for (int i = 0; i < rows; i++) {
+                    query.next();
+
+                    if (isLoggable) {
+                        QueryLogger.logQueryParameters(
+                                "bind",
+                                query.getDbAttributes(),
+                                queryBuilder.getParameterValues(query),
+                                true);
+                    }
+
+                    parameterIndex = queryBuilder.bindParameters(
+                            statement,
+                            query,
+                            parameterIndex);
+                }
+
+                int updated = statement.executeUpdate();
+
+                if (Instrumentation.isEnabled()) {
+                    Instrumentation.batchExecuted(queryStr, rows, System.nanoTime() - t0);
+                }
+
+                int rowCount = updated == rows ? 1 : Statement.SUCCESS_NO_INFO;
+                for (int i = 0; i < rows; i++) {
+                    results[row + i] = rowCount;
+                }
+
+                totalUpdateCount += updated;
+            }
+
+            delegate.nextBatchCount(query, results);
+
+            if (isLoggable) {
+                QueryLogger.logUpdateCount(totalUpdateCount);
+            }
+        }
+        finally {
+            if (statement != null) {
+                try {
+                    statement.close();
+                }
+                catch (Exception e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows inserted by a single multi-row INSERT statement.
+     */
+    int getMultiRowInsertSize(int columnCount) {
+        int rows = maxBatchSize > 0 ? maxBatchSize : DEFAULT_MULTI_ROW_INSERT_SIZE;
+
+        // stay below the driver limits on the number of parameters
+        if (columnCount > 0) {
+            rows = Math.min(rows, MAX_MULTI_ROW_INSERT_PARAMETERS / columnCount);
+        }
+
+        return Math.max(rows, 1);
+    }
+
     /**
      * Executes batch as individual queries over the same prepared statement.
      */
@@ -177,6 +388,9 @@ public class BatchAction extends BaseSQLAction {
         // run batch queries one by one
         query.reset();
 
+        long t0 = Instrumentation.isEnabled() ? System.nanoTime() : 0;
+        int executed = 0;
+
         PreparedStatement statement = (generatesKeys) ? connection.prepareStatement(
                 queryStr,
                 Statement.RETURN_GENERATED_KEYS) : connection.prepareStatement(queryStr);
@@ -193,6 +407,8 @@ public class BatchAction extends BaseSQLAction {
                 queryBuilder.bindParameters(statement, query);
 
                 int updated = statement.executeUpdate();
+                executed++;
+
                 if (useOptimisticLock && updated != 1) {
 
                     Map snapshot = Collections.EMPTY_MAP;
@@ -219,6 +435,10 @@ public class BatchAction extends BaseSQLAction {
                     QueryLogger.logUpdateCount(updated);
                 }
             }
+
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.batchExecuted(queryStr, executed, System.nanoTime() - t0);
+            }
         }
         finally {
             try {
@@ -22,6 +22,7 @@ import java.sql.ResultSet;
 
 import org.apache.cayenne.CayenneException;
 import org.apache.cayenne.DataRow;
+import org.apache.cayenne.IndexedDataRow;
 import org.apache.cayenne.access.types.ExtendedType;
 import org.apache.cayenne.query.EntityResultSegment;
 import org.apache.cayenne.reflect.ClassDescriptor;
@@ -40,6 +41,10 @@ class EntityRowReader implements RowReader<DataRow> {
     private int mapCapacity;
     private int startIndex;
 
+    // shared by all rows read by this reader; null if indexed rows are disabled or
+    // labels are not unique
+    private IndexedDataRow.ColumnIndex columnIndex;
+
     DataRowPostProcessor postProcessor;
 
     EntityRowReader(RowDescriptor descriptor, EntityResultSegment segmentMetadata) {
@@ -67,6 +72,11 @@ class EntityRowReader implements RowReader<DataRow> {
             // RowDescriptor labels...
             labels[i] = segmentMetadata.getColumnPath(columns[startIndex + i].getDataRowKey());
         }
+
+        if (IndexedDataRow.isEnabled()
+                && IndexedDataRow.ColumnIndex.isIndexable(labels)) {
+            this.columnIndex = new IndexedDataRow.ColumnIndex(labels);
+        }
     }
 
     public void setPostProcessor(DataRowPostProcessor postProcessor) {
@@ -76,16 +86,33 @@ class EntityRowReader implements RowReader<DataRow> {
     public DataRow readRow(ResultSet resultSet) throws CayenneException {
 
         try {
-            DataRow row = new DataRow(mapCapacity);
+            DataRow row;
             int len = converters.length;
 
-            for (int i = 0; i < len; i++) {
+            if (columnIndex != null) {
+                Object[] values = new Object[len];
+
+                for (int i = 0; i < len; i++) {
+
+                    // note: jdbc column indexes start from 1, not 0 as in arrays
+                    values[i] = converters[i].materializeObject(resultSet, startIndex
+                            + i
+                            + 1, types[i]);
+                }
+
+                row = new IndexedDataRow(columnIndex, values);
+            }
+            else {
+                row = new DataRow(mapCapacity);
+
+                for (int i = 0; i < len; i++) {
 
-                // note: jdbc column indexes start from 1, not 0 as in arrays
-                Object val = converters[i].materializeObject(resultSet, startIndex
-                        + i
-                        + 1, types[i]);
-                row.put(labels[i], val);
+                    // note: jdbc column indexes start from 1, not 0 as in arrays
+                    Object val = converters[i].materializeObject(resultSet, startIndex
+                            + i
+                            + 1, types[i]);
+                    row.put(labels[i], val);
+                }
             }
 
             postprocessRow(resultSet, row);
@@ -22,6 +22,7 @@ import java.sql.ResultSet;
 
 import org.apache.cayenne.CayenneException;
 import org.apache.cayenne.DataRow;
+import org.apache.cayenne.IndexedDataRow;
 import org.apache.cayenne.query.QueryMetadata;
 import org.apache.cayenne.util.Util;
 
@@ -32,23 +33,55 @@ class FullRowReader extends BaseRowReader<DataRow> {
 
     int mapCapacity;
 
+    // shared by all rows read by this reader; null if indexed rows are disabled or
+    // labels are not unique
+    IndexedDataRow.ColumnIndex columnIndex;
+
     FullRowReader(RowDescriptor descriptor, QueryMetadata queryMetadata) {
         super(descriptor, queryMetadata);
         this.mapCapacity = (int) Math.ceil((descriptor.getWidth()) / 0.75);
+
+        if (IndexedDataRow.isEnabled()
+                && IndexedDataRow.ColumnIndex.isIndexable(labels)) {
+            this.columnIndex = new IndexedDataRow.ColumnIndex(labels);
+        }
     }
 
     @Override
     public DataRow readRow(ResultSet resultSet) throws CayenneException {
         try {
-            DataRow dataRow = new DataRow(mapCapacity);
+            DataRow dataRow;
 
             int resultWidth = labels.length;
 
-            // process result row columns,
-            for (int i = 0; i < resultWidth; i++) {
-                // note: jdbc column indexes start from 1, not 0 unlike everywhere else
-                Object val = converters[i].materializeObject(resultSet, i + 1, types[i]);
-                dataRow.put(labels[i], val);
+            if (columnIndex != null) {
+                Object[] values = new Object[resultWidth];
+
+                // process result row columns,
+                for (int i = 0; i < resultWidth; i++) {
+                    // note: jdbc column indexes start from 1, not 0 unlike everywhere
+                    // else
+                    values[i] = converters[i].materializeObject(
+                            resultSet,
+                            i + 1,
+                            types[i]);
+                }
+
+                dataRow = new IndexedDataRow(columnIndex, values);
+            }
+            else {
+                dataRow = new DataRow(mapCapacity);
+
+                // process result row columns,
+                for (int i = 0; i < resultWidth; i++) {
+                    // note: jdbc column indexes start from 1, not 0 unlike everywhere
+                    // else
+                    Object val = converters[i].materializeObject(
+                            resultSet,
+                            i + 1,
+                            types[i]);
+                    dataRow.put(labels[i], val);
+                }
             }
 
             postprocessRow(resultSet, dataRow);
@@ -148,6 +148,7 @@ public class SQLTemplateAction implements SQLAction {
         PreparedStatement statement = connection.prepareStatement(compiled.getSql());
         try {
             bind(statement, compiled.getBindings());
+            configureFetchSize(connection, statement, queryMetadata);
 
             // process a mix of results
             boolean isResultSet = statement.execute();
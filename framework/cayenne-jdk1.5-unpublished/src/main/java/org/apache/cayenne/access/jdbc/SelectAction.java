@@ -31,6 +31,8 @@ import org.apache.cayenne.access.QueryLogger;
 import org.apache.cayenne.access.ResultIterator;
 import org.apache.cayenne.access.trans.SelectTranslator;
 import org.apache.cayenne.dba.DbAdapter;
+import org.apache.cayenne.dba.JdbcAdapter;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.map.EntityResolver;
 import org.apache.cayenne.query.PrefetchProcessor;
 import org.apache.cayenne.query.PrefetchTreeNode;
@@ -65,11 +67,19 @@ public class SelectAction extends BaseSQLAction {
             throws SQLException, Exception {
 
         long t1 = System.currentTimeMillis();
+        long t0 = Instrumentation.isEnabled() ? System.nanoTime() : 0;
 
         SelectTranslator translator = createTranslator(connection);
+        if (adapter instanceof JdbcAdapter) {
+            translator.setTranslationCache(((JdbcAdapter) adapter)
+                    .getSelectTranslationCache());
+        }
+
+        QueryMetadata md = query.getMetaData(getEntityResolver());
         PreparedStatement prepStmt = translator.createStatement();
+        configureFetchSize(connection, prepStmt, md);
+
         ResultSet rs = prepStmt.executeQuery();
-        QueryMetadata md = query.getMetaData(getEntityResolver());
         RowDescriptor descriptor = new RowDescriptorBuilder().setColumns(
                 translator.getResultColumns()).getDescriptor(
                 getAdapter().getExtendedTypes());
@@ -161,6 +171,13 @@ public class SelectAction extends BaseSQLAction {
             QueryLogger
                     .logSelectCount(resultRows.size(), System.currentTimeMillis() - t1);
 
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.queryExecuted(
+                        translator.getSqlString(),
+                        resultRows.size(),
+                        System.nanoTime() - t0);
+            }
+
             observer.nextRows(query, resultRows);
         }
         else {
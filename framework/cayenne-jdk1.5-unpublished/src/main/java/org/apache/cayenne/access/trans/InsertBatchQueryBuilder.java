@@ -48,12 +48,25 @@ public class InsertBatchQueryBuilder extends BatchQueryBuilder {
     @Override
     public void bindParameters(PreparedStatement statement, BatchQuery query)
             throws SQLException, Exception {
+        bindParameters(statement, query, 0);
+    }
+
+    /**
+     * Binds parameters for the current batch iteration to the PreparedStatement,
+     * starting after the specified parameter index. Used to bind multiple rows to a
+     * single multi-row INSERT statement. Returns the index of the last bound parameter.
+     * 
+     * @since 3.0
+     */
+    public int bindParameters(PreparedStatement statement, BatchQuery query, int offset)
+            throws SQLException, Exception {
 
         List<DbAttribute> dbAttributes = query.getDbAttributes();
         int attributeCount = dbAttributes.size();
 
         // must use an independent counter "j" for prepared statement index
-        for (int i = 0, j = 0; i < attributeCount; i++) {
+        int j = offset;
+        for (int i = 0; i < attributeCount; i++) {
             DbAttribute attribute = dbAttributes.get(i);
             if (includeInBatch(attribute)) {
                 j++;
@@ -62,6 +75,8 @@ public class InsertBatchQueryBuilder extends BatchQueryBuilder {
                         .getScale());
             }
         }
+
+        return j;
     }
 
     /**
@@ -86,6 +101,16 @@ public class InsertBatchQueryBuilder extends BatchQueryBuilder {
 
     @Override
     public String createSqlString(BatchQuery batch) throws IOException {
+        return createSqlString(batch, 1);
+    }
+
+    /**
+     * Creates a multi-row INSERT statement with the specified number of VALUES rows, each
+     * containing a parameter placeholder per inserted column.
+     * 
+     * @since 3.0
+     */
+    public String createSqlString(BatchQuery batch, int rowCount) throws IOException {
 
         List<DbAttribute> dbAttributes = batch.getDbAttributes();
         boolean status;
@@ -118,19 +143,42 @@ public class InsertBatchQueryBuilder extends BatchQueryBuilder {
             }
         }
 
-        query.append(") VALUES (");
+        query.append(") VALUES ");
 
-        for (int i = 0; i < columnCount; i++) {
-            if (i > 0) {
+        for (int row = 0; row < rowCount; row++) {
+            if (row > 0) {
                 query.append(", ");
             }
 
-            query.append('?');
+            query.append('(');
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    query.append(", ");
+                }
+
+                query.append('?');
+            }
+            query.append(')');
         }
-        query.append(')');
+
         return query.toString();
     }
 
+    /**
+     * Returns the number of columns inserted for each row of the batch.
+     * 
+     * @since 3.0
+     */
+    public int getColumnCount(BatchQuery batch) {
+        int columnCount = 0;
+        for (DbAttribute attribute : batch.getDbAttributes()) {
+            if (includeInBatch(attribute)) {
+                columnCount++;
+            }
+        }
+        return columnCount;
+    }
+
     /**
      * Returns true if an attribute should be included in the batch.
      * 
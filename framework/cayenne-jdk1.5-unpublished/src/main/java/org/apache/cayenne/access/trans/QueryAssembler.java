@@ -58,6 +58,13 @@ public abstract class QueryAssembler {
      */
     protected List<DbAttribute> attributes = new ArrayList<DbAttribute>();
 
+    /**
+     * SQL string created by the last call to {@link #createStatement()}.
+     * 
+     * @since 3.0
+     */
+    protected String sqlString;
+
     /**
      * Returns aliases for the path splits defined in the query.
      * 
@@ -181,12 +188,23 @@ public abstract class QueryAssembler {
         values.add(anObject);
     }
 
+    /**
+     * Returns SQL string of the last statement created by this assembler, or null if no
+     * statement was created yet.
+     * 
+     * @since 3.0
+     */
+    public String getSqlString() {
+        return sqlString;
+    }
+
     /**
      * Translates internal query into PreparedStatement.
      */
     public PreparedStatement createStatement() throws Exception {
         long t1 = System.currentTimeMillis();
         String sqlStr = createSqlString();
+        this.sqlString = sqlStr;
         QueryLogger.logQuery(sqlStr, attributes, values, System.currentTimeMillis() - t1);
         PreparedStatement stmt = connection.prepareStatement(sqlStr);
         initStatement(stmt);
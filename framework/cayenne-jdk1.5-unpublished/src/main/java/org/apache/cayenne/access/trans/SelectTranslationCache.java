@@ -0,0 +1,398 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.trans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cayenne.access.jdbc.ColumnDescriptor;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.map.DataMap;
+import org.apache.cayenne.map.DbAttribute;
+import org.apache.cayenne.map.ObjAttribute;
+import org.apache.cayenne.query.Ordering;
+import org.apache.cayenne.query.PrefetchSelectQuery;
+import org.apache.cayenne.query.PrefetchTreeNode;
+import org.apache.cayenne.query.QueryMetadata;
+import org.apache.cayenne.query.SelectQuery;
+
+/**
+ * A cache of SelectQuery translations shared by SelectTranslators of a single DbAdapter.
+ * Translations are keyed by a structural fingerprint of the query that includes root
+ * entity, qualifier with parameter values erased, orderings, prefetches, fetch limit and
+ * offset and the translator class. When a query with the same fingerprint is translated
+ * again, SQL string, result columns and parameter bindings are reused, and only
+ * parameter values are taken from the new query qualifier.
+ * <p>
+ * A translation is only cached if the parameters collected by the translator are exactly
+ * the literal values found in the qualifier, in the order of qualifier traversal.
+ * Queries whose parameters are derived from qualifier values (e.g. matching against
+ * persistent objects or adapter-specific value rewriting) are always translated from
+ * scratch.
+ * </p>
+ * <p>
+ * Translations are stored in a ConcurrentHashMap, so lookups done on every query
+ * execution do not acquire any locks. The cache is bounded with approximate eviction
+ * instead of LRU ordering: when it grows over its maximum size, arbitrary entries are
+ * evicted.
+ * </p>
+ * <p>
+ * The cache assumes that mapping does not change after queries are run. If mapping is
+ * changed, the cache must be cleared.
+ * </p>
+ * 
+ * @since 3.0
+ */
+public class SelectTranslationCache {
+
+    public static final int DEFAULT_MAX_SIZE = 500;
+
+    static final Translation NOT_CACHEABLE = new Translation(
+            null,
+            null,
+            null,
+            null,
+            false);
+
+    protected ConcurrentMap<TranslationKey, Translation> translations;
+    protected int maxSize;
+
+    protected AtomicLong hitCount;
+    protected AtomicLong missCount;
+
+    public SelectTranslationCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SelectTranslationCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.translations = new ConcurrentHashMap<TranslationKey, Translation>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns a number of cached translations.
+     */
+    public int size() {
+        return translations.size();
+    }
+
+    /**
+     * Removes all cached translations.
+     */
+    public void clear() {
+        translations.clear();
+    }
+
+    /**
+     * Returns a number of times a cached translation was reused.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns a number of times a query had to be translated from scratch.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    Translation get(TranslationKey key) {
+        Translation translation = translations.get(key);
+
+        if (translation != null && translation != NOT_CACHEABLE) {
+            hitCount.incrementAndGet();
+        }
+        else {
+            missCount.incrementAndGet();
+        }
+
+        return translation;
+    }
+
+    void put(TranslationKey key, Translation translation) {
+        if (maxSize > 0) {
+            translations.put(key, translation);
+            evict();
+        }
+    }
+
+    private void evict() {
+        int overflow = translations.size() - maxSize;
+        if (overflow > 0) {
+            Iterator<TranslationKey> it = translations.keySet().iterator();
+            while (overflow-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Creates a cache key for the translator query, collecting qualifier literal values
+     * into the provided list.
+     */
+    TranslationKey createKey(
+            SelectTranslator translator,
+            Expression qualifier,
+            List<Object> literals) {
+
+        QueryMetadata md = translator.getQueryMetadata();
+        SelectQuery query = (SelectQuery) translator.getQuery();
+
+        StringBuilder fingerprint = new StringBuilder(128);
+
+        if (qualifier != null) {
+            appendShape(fingerprint, qualifier, literals);
+        }
+
+        fingerprint.append('|');
+        for (Ordering ordering : query.getOrderings()) {
+            fingerprint
+                    .append(ordering.getSortSpecString())
+                    .append(ordering.isAscending() ? ":a" : ":d")
+                    .append(ordering.isCaseInsensitive() ? "i," : ",");
+        }
+
+        fingerprint.append('|');
+        PrefetchTreeNode prefetchTree = query.getPrefetchTree();
+        if (prefetchTree != null) {
+            for (PrefetchTreeNode node : prefetchTree.adjacentJointNodes()) {
+                fingerprint.append(node.getPath()).append(',');
+            }
+        }
+
+        fingerprint.append('|');
+        if (query instanceof PrefetchSelectQuery) {
+            for (String path : ((PrefetchSelectQuery) query).getResultPaths()) {
+                fingerprint.append(path).append(',');
+            }
+        }
+
+        fingerprint.append('|');
+        if (query.isFetchingCustomAttributes()) {
+            for (String attribute : query.getCustomDbAttributes()) {
+                fingerprint.append(attribute).append(',');
+            }
+        }
+
+        fingerprint.append('|');
+        Map<String, String> aliases = md.getPathSplitAliases();
+        if (!aliases.isEmpty()) {
+            fingerprint.append(new TreeMap<String, String>(aliases));
+        }
+
+        DataMap map = md.getDataMap();
+        fingerprint
+                .append('|')
+                .append(query.isDistinct() ? 'd' : '-')
+                .append(md.getPageSize() > 0 ? 'p' : '-')
+                .append(map != null && map.isQuotingSQLIdentifiers() ? 'q' : '-')
+                .append(md.getFetchLimit())
+                .append(',')
+                .append(md.getFetchOffset());
+
+        return new TranslationKey(translator.getClass(), md.getObjEntity(), md
+                .getDbEntity(), fingerprint.toString());
+    }
+
+    /**
+     * Creates a cacheable translation from the translator state, or returns
+     * NOT_CACHEABLE if translator parameters can't be matched with the qualifier
+     * literals.
+     */
+    Translation createTranslation(
+            SelectTranslator translator,
+            String sql,
+            List<Object> literals) {
+
+        List<Object> values = translator.values;
+        if (values.size() != literals.size()) {
+            return NOT_CACHEABLE;
+        }
+
+        for (int i = 0; i < literals.size(); i++) {
+            if (values.get(i) != literals.get(i)) {
+                return NOT_CACHEABLE;
+            }
+        }
+
+        List<DbAttribute> bindings = translator.attributes;
+        return new Translation(sql, translator.getResultColumns(), bindings
+                .toArray(new DbAttribute[bindings.size()]), translator
+                .getAttributeOverrides(), translator.isSuppressingDistinct());
+    }
+
+    /**
+     * Appends qualifier structure to the fingerprint, collecting literals in the order
+     * QualifierTranslator turns them into PreparedStatement parameters.
+     */
+    static void appendShape(StringBuilder out, Expression node, List<Object> literals) {
+        int type = node.getType();
+        out.append('(').append(type);
+
+        int count = node.getOperandCount();
+        for (int i = 0; i < count; i++) {
+            Object operand = node.getOperand(i);
+            out.append(' ');
+
+            if (operand instanceof Expression) {
+                appendShape(out, (Expression) operand, literals);
+            }
+            else if (type == Expression.OBJ_PATH || type == Expression.DB_PATH) {
+                out.append(operand);
+            }
+            else if (type == Expression.LIST) {
+                Collection<?> list;
+                if (operand instanceof Object[]) {
+                    list = Arrays.asList((Object[]) operand);
+                }
+                else if (operand instanceof Collection) {
+                    list = (Collection<?>) operand;
+                }
+                else {
+                    list = Collections.singleton(operand);
+                }
+
+                out.append('[');
+                for (Object value : list) {
+                    appendLiteral(out, value, literals);
+                }
+                out.append(']');
+            }
+            else {
+                appendLiteral(out, operand, literals);
+            }
+        }
+
+        out.append(')');
+    }
+
+    private static void appendLiteral(StringBuilder out, Object value, List<Object> literals) {
+        if (value == null) {
+            out.append("null,");
+        }
+        else {
+            out.append(value.getClass().getName()).append(',');
+            literals.add(value);
+        }
+    }
+
+    /**
+     * A structural query fingerprint.
+     */
+    static final class TranslationKey {
+
+        final Class<?> translatorType;
+        final Object objEntity;
+        final Object dbEntity;
+        final String fingerprint;
+        final int hashCode;
+
+        TranslationKey(Class<?> translatorType, Object objEntity, Object dbEntity,
+                String fingerprint) {
+            this.translatorType = translatorType;
+            this.objEntity = objEntity;
+            this.dbEntity = dbEntity;
+            this.fingerprint = fingerprint;
+
+            int hash = fingerprint.hashCode();
+            hash = 31 * hash + translatorType.hashCode();
+            hash = 31 * hash + System.identityHashCode(objEntity);
+            this.hashCode = 31 * hash + System.identityHashCode(dbEntity);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (!(object instanceof TranslationKey)) {
+                return false;
+            }
+
+            TranslationKey key = (TranslationKey) object;
+            return translatorType == key.translatorType
+                    && objEntity == key.objEntity
+                    && dbEntity == key.dbEntity
+                    && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A reusable result of a SelectQuery translation.
+     */
+    static final class Translation {
+
+        final String sql;
+        final ColumnDescriptor[] resultColumns;
+        final DbAttribute[] bindings;
+        final Map<ObjAttribute, ColumnDescriptor> attributeOverrides;
+        final boolean suppressingDistinct;
+
+        Translation(String sql, ColumnDescriptor[] resultColumns, DbAttribute[] bindings,
+                Map<ObjAttribute, ColumnDescriptor> attributeOverrides,
+                boolean suppressingDistinct) {
+            this.sql = sql;
+            this.resultColumns = resultColumns;
+            this.bindings = bindings;
+            this.attributeOverrides = attributeOverrides;
+            this.suppressingDistinct = suppressingDistinct;
+        }
+
+        /**
+         * Initializes translator state from this translation and new parameter values.
+         */
+        void apply(SelectTranslator translator, List<Object> literals) {
+            translator.resultColumns = new ArrayList<ColumnDescriptor>(resultColumns.length);
+            Collections.addAll(translator.resultColumns, resultColumns);
+            translator.attributeOverrides = attributeOverrides.isEmpty()
+                    ? null
+                    : attributeOverrides;
+            translator.suppressingDistinct = suppressingDistinct;
+
+            translator.values.clear();
+            translator.values.addAll(literals);
+            translator.attributes.clear();
+            Collections.addAll(translator.attributes, bindings);
+        }
+    }
+}
@@ -96,16 +96,70 @@ public class SelectTranslator extends QueryAssembler {
      */
     boolean forcingDistinct;
 
+    SelectTranslationCache translationCache;
+
     protected JoinStack createJoinStack() {
         return new JoinStack(getAdapter(), queryMetadata.getDataMap());
     }
 
+    /**
+     * Returns a cache of translations used by this translator, or null if queries are
+     * always translated from scratch.
+     * 
+     * @since 3.0
+     */
+    public SelectTranslationCache getTranslationCache() {
+        return translationCache;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setTranslationCache(SelectTranslationCache translationCache) {
+        this.translationCache = translationCache;
+    }
+
     /**
      * Returns query translated to SQL. This is a main work method of the
-     * SelectTranslator.
+     * SelectTranslator. If a translation cache is set, a cached translation of a
+     * structurally identical query is reused if available.
      */
     @Override
     public String createSqlString() throws Exception {
+        if (translationCache == null) {
+            return translateSqlString();
+        }
+
+        Expression qualifier = adapter.getQualifierTranslator(this).extractQualifier();
+        List<Object> literals = new ArrayList<Object>();
+        SelectTranslationCache.TranslationKey key = translationCache.createKey(
+                this,
+                qualifier,
+                literals);
+
+        SelectTranslationCache.Translation translation = translationCache.get(key);
+        if (translation == SelectTranslationCache.NOT_CACHEABLE) {
+            return translateSqlString();
+        }
+        else if (translation != null) {
+            translation.apply(this, literals);
+            return translation.sql;
+        }
+
+        String sql = translateSqlString();
+        translationCache.put(key, translationCache.createTranslation(
+                this,
+                sql,
+                literals));
+        return sql;
+    }
+
+    /**
+     * Translates query to SQL, ignoring the translation cache.
+     * 
+     * @since 3.0
+     */
+    protected String translateSqlString() throws Exception {
 
         JoinStack joins = getJoinStack();
         boolean status;
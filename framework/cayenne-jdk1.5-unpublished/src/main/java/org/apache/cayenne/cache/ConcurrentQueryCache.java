@@ -0,0 +1,609 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.query.QueryMetadata;
+
+/**
+ * A {@link QueryCache} designed for highly concurrent access. Lookups of live entries do
+ * not acquire any locks. Entries are indexed by cache group, so that {@link #removeGroup(String)} only
+ * touches the entries of the group.
+ * <p>
+ * When a missing entry is requested via {@link #get(QueryMetadata, QueryCacheEntryFactory)}
+ * by multiple threads at once, only one of them runs the factory, while the others wait
+ * for its result. If the entry key or one of its groups is invalidated while the entry
+ * is being loaded, the loaded result is returned to the waiting threads, but is not
+ * stored in the cache. Invalidations are tracked with version counters striped by key
+ * and by group, so invalidating one key or group only rarely discards the loads of
+ * unrelated entries.
+ * </p>
+ * <p>
+ * Writes of a given key are serialized with a lock striped by key, so that an entry is
+ * indexed by group and published atomically with respect to other writes of the same
+ * key. An entry is indexed by group before it is published, and the versions are
+ * checked again after publishing, so that an entry stored concurrently with the
+ * invalidation of its key or group is either found by the invalidation or removed by
+ * the writer.
+ * </p>
+ * <p>
+ * Entries are evicted when they expire, or when the number of entries exceeds the
+ * maximum size. Size and expiration can be configured separately for each cache group.
+ * An entry is governed by the policy of its main cache group (i.e. the group specified
+ * first), or by the default policy, if its main group has no policy of its own. Size
+ * eviction uses a "second chance" algorithm approximating LRU order.
+ * </p>
+ * 
+ * @since 3.0
+ */
+public class ConcurrentQueryCache implements QueryCache, Serializable {
+
+    public static final int DEFAULT_CACHE_SIZE = 2000;
+
+    static final int STRIPES = 64;
+
+    protected ConcurrentMap<String, CacheEntry> entries;
+    protected ConcurrentMap<String, ConcurrentMap<String, CacheEntry>> groupIndex;
+    protected ConcurrentMap<String, Policy> groupPolicies;
+    protected Policy defaultPolicy;
+
+    // incremented on clear to detect stale loads of all entries
+    protected AtomicLong generation;
+
+    // incremented when a key or a group is invalidated, striped by key or group hash
+    protected transient AtomicLongArray keyVersions;
+    protected transient AtomicLongArray groupVersions;
+
+    // serializes writes of the keys of each stripe
+    protected transient Object[] locks;
+
+    protected transient ConcurrentMap<String, Future<List<?>>> loading;
+
+    private AtomicLong hitCount;
+    private AtomicLong missCount;
+    private AtomicLong loadCount;
+
+    public ConcurrentQueryCache() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public ConcurrentQueryCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * Creates a cache with a default policy.
+     * 
+     * @param maxSize max number of entries governed by the default policy.
+     * @param expiration entry expiration time in milliseconds. Zero or a negative number
+     *            means that entries never expire.
+     */
+    public ConcurrentQueryCache(int maxSize, long expiration) {
+        this.entries = new ConcurrentHashMap<String, CacheEntry>();
+        this.groupIndex = new ConcurrentHashMap<String, ConcurrentMap<String, CacheEntry>>();
+        this.groupPolicies = new ConcurrentHashMap<String, Policy>();
+        this.defaultPolicy = new Policy(maxSize, expiration);
+        this.generation = new AtomicLong();
+        initTransientState();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.loadCount = new AtomicLong();
+    }
+
+    /**
+     * Configures size and expiration of the entries whose main cache group is the
+     * specified group. Existing entries are not affected, so normally the policies are
+     * configured before the cache is used.
+     */
+    public void setGroupPolicy(String group, int maxSize, long expiration) {
+        if (group == null) {
+            throw new IllegalArgumentException("Null group");
+        }
+
+        groupPolicies.put(group, new Policy(maxSize, expiration));
+    }
+
+    /**
+     * Returns max number of entries governed by a policy of the cache group, or by the
+     * default policy if the group is null or has no policy of its own.
+     */
+    public int getMaxSize(String group) {
+        return getPolicy(group).maxSize;
+    }
+
+    /**
+     * Returns entry expiration time in milliseconds for the cache group, or for the
+     * default policy if the group is null or has no policy of its own.
+     */
+    public long getExpiration(String group) {
+        return getPolicy(group).expiration;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List get(QueryMetadata metadata) {
+        String key = metadata.getCacheKey();
+        if (key == null) {
+            return null;
+        }
+
+        CacheEntry entry = getEntry(key);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.list;
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns a non-null cached value. If it is not present in the cache, it is obtained
+     * by calling {@link QueryCacheEntryFactory#createObject()}. Only one thread at a time
+     * would call the factory for a given key, and other threads requesting the same key
+     * would block until the value is loaded.
+     */
+    @SuppressWarnings("unchecked")
+    public List get(final QueryMetadata metadata, final QueryCacheEntryFactory factory) {
+        final String key = metadata.getCacheKey();
+        if (key == null) {
+            return null;
+        }
+
+        List result = get(metadata);
+        if (result != null) {
+            return result;
+        }
+
+        FutureTask<List<?>> task = new FutureTask<List<?>>(new Callable<List<?>>() {
+
+            public List<?> call() throws Exception {
+
+                // recheck the cache, as another thread might have just finished loading
+                CacheEntry entry = getEntry(key);
+                if (entry != null) {
+                    return entry.list;
+                }
+
+                String[] groups = metadata.getCacheGroups();
+                long version = version(key, groups);
+
+                List<?> list = createList(metadata, factory);
+                loadCount.incrementAndGet();
+
+                // only cache results that were not invalidated while loading
+                put(key, list, groups, version);
+                return list;
+            }
+        });
+
+        Future<List<?>> existing = loading.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+                return waitFor(task);
+            }
+            finally {
+                loading.remove(key, task);
+            }
+        }
+
+        return waitFor(existing);
+    }
+
+    List<?> createList(QueryMetadata metadata, QueryCacheEntryFactory factory) {
+        Object result = factory.createObject();
+
+        if (!(result instanceof List)) {
+            if (result == null) {
+                throw new CayenneRuntimeException("Null on cache rebuilding: "
+                        + metadata.getCacheKey());
+            }
+            else {
+                throw new CayenneRuntimeException(
+                        "Invalid query result, expected List, got "
+                                + result.getClass().getName());
+            }
+        }
+
+        return (List<?>) result;
+    }
+
+    private List waitFor(Future<List<?>> future) {
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                }
+                catch (InterruptedException e) {
+                    // keep waiting, as abandoning the load would break the caller
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new CayenneRuntimeException("Error loading cache entry", cause);
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void put(QueryMetadata metadata, List results) {
+        String key = metadata.getCacheKey();
+        if (key == null) {
+            return;
+        }
+
+        String[] groups = metadata.getCacheGroups();
+        put(key, results, groups, version(key, groups));
+    }
+
+    /**
+     * Stores an entry, unless its key or one of its groups was invalidated since the
+     * specified version was read.
+     */
+    private void put(String key, List<?> results, String[] groups, long version) {
+
+        Policy policy = getPolicy(groups != null && groups.length > 0 ? groups[0] : null);
+        CacheEntry entry = new CacheEntry(key, results, groups, policy);
+
+        synchronized (lockFor(key)) {
+            if (version(key, groups) != version) {
+                return;
+            }
+
+            // index the entry before publishing it, so that a concurrent removeGroup
+            // either finds the entry, or is detected by the version check below
+            index(entry);
+
+            CacheEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                previous.removed = true;
+                unindex(previous);
+                previous.policy.size.decrementAndGet();
+            }
+
+            policy.add(entry);
+            policy.size.incrementAndGet();
+
+            // an invalidation that started after the version was read may have missed
+            // the entry
+            if (version(key, groups) != version) {
+                removeEntry(entry);
+                return;
+            }
+        }
+
+        if (policy.size.get() > policy.maxSize) {
+            evict(policy);
+        }
+    }
+
+    public void remove(String key) {
+        if (key != null) {
+            keyVersions.incrementAndGet(stripe(key));
+
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of the cache group. This operation only touches the entries
+     * of the group, regardless of the total cache size.
+     */
+    public void removeGroup(String groupKey) {
+        if (groupKey != null) {
+            groupVersions.incrementAndGet(stripe(groupKey));
+
+            Map<String, CacheEntry> keys = groupIndex.get(groupKey);
+            if (keys != null) {
+                for (CacheEntry entry : keys.values()) {
+                    removeEntry(entry);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+
+        for (CacheEntry entry : entries.values()) {
+            removeEntry(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached entry.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no cached entry.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of entries that were created by a QueryCacheEntryFactory.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Returns a live entry for the key, removing it if it is expired.
+     */
+    CacheEntry getEntry(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            removeEntry(entry);
+            return null;
+        }
+
+        entry.accessed = true;
+        return entry;
+    }
+
+    Policy getPolicy(String group) {
+        Policy policy = group != null ? groupPolicies.get(group) : null;
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /**
+     * Returns a sum of the versions of the key and groups. As versions only grow, the
+     * sum changes whenever any of them is incremented.
+     */
+    private long version(String key, String[] groups) {
+        long version = generation.get() + keyVersions.get(stripe(key));
+
+        if (groups != null) {
+            for (String group : groups) {
+                version += groupVersions.get(stripe(group));
+            }
+        }
+
+        return version;
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private Object lockFor(String key) {
+        return locks[stripe(key)];
+    }
+
+    private boolean removeEntry(CacheEntry entry) {
+        synchronized (lockFor(entry.key)) {
+            if (entries.remove(entry.key, entry)) {
+                entry.removed = true;
+                unindex(entry);
+                entry.policy.size.decrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    private void index(CacheEntry entry) {
+        if (entry.groups != null) {
+            for (String group : entry.groups) {
+                ConcurrentMap<String, CacheEntry> keys = groupIndex.get(group);
+                if (keys == null) {
+                    keys = new ConcurrentHashMap<String, CacheEntry>();
+                    ConcurrentMap<String, CacheEntry> existing = groupIndex.putIfAbsent(
+                            group,
+                            keys);
+                    if (existing != null) {
+                        keys = existing;
+                    }
+                }
+
+                keys.put(entry.key, entry);
+            }
+        }
+    }
+
+    private void unindex(CacheEntry entry) {
+        if (entry.groups != null) {
+            for (String group : entry.groups) {
+                ConcurrentMap<String, CacheEntry> keys = groupIndex.get(group);
+                if (keys != null) {
+                    keys.remove(entry.key, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes entries from the policy eviction queue until the policy size is within
+     * limits. Entries that were accessed since they were queued get a second chance and
+     * are queued again.
+     */
+    private void evict(Policy policy) {
+        long now = System.currentTimeMillis();
+
+        // each entry can get at most one second chance per call
+        int attempts = policy.queueLength.get() * 2;
+
+        while (policy.size.get() > policy.maxSize && attempts-- > 0) {
+            CacheEntry entry = policy.poll();
+            if (entry == null) {
+                break;
+            }
+
+            // skip entries that were already removed or replaced
+            if (entry.removed) {
+                continue;
+            }
+
+            if (entry.accessed && !entry.isExpired(now)) {
+                entry.accessed = false;
+                policy.add(entry);
+            }
+            else {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        initTransientState();
+    }
+
+    private void initTransientState() {
+        this.keyVersions = new AtomicLongArray(STRIPES);
+        this.groupVersions = new AtomicLongArray(STRIPES);
+        this.locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        this.loading = new ConcurrentHashMap<String, Future<List<?>>>();
+    }
+
+    /**
+     * Size and expiration settings shared by a group of entries, together with the
+     * entries eviction queue.
+     */
+    static final class Policy implements Serializable {
+
+        final int maxSize;
+        final long expiration;
+
+        final AtomicInteger size;
+        final ConcurrentLinkedQueue<CacheEntry> queue;
+        final AtomicInteger queueLength;
+
+        Policy(int maxSize, long expiration) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("Max size must be positive: "
+                        + maxSize);
+            }
+
+            this.maxSize = maxSize;
+            this.expiration = expiration;
+            this.size = new AtomicInteger();
+            this.queue = new ConcurrentLinkedQueue<CacheEntry>();
+            this.queueLength = new AtomicInteger();
+        }
+
+        void add(CacheEntry entry) {
+            queue.offer(entry);
+
+            // removed entries stay in the queue until polled; purge them if the queue
+            // grows well beyond the max size without overflowing
+            if (queueLength.incrementAndGet() > maxSize * 2 + 16) {
+                purge();
+            }
+        }
+
+        CacheEntry poll() {
+            CacheEntry entry = queue.poll();
+            if (entry != null) {
+                queueLength.decrementAndGet();
+            }
+
+            return entry;
+        }
+
+        private void purge() {
+            Iterator<CacheEntry> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().removed) {
+                    it.remove();
+                    queueLength.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    static final class CacheEntry implements Serializable {
+
+        final String key;
+        final List<?> list;
+        final String[] groups;
+        final Policy policy;
+        final long expiresAt;
+
+        volatile boolean accessed;
+        volatile boolean removed;
+
+        CacheEntry(String key, List<?> list, String[] groups, Policy policy) {
+            this.key = key;
+            this.list = list;
+            this.groups = groups;
+            this.policy = policy;
+            this.expiresAt = policy.expiration > 0 ? System.currentTimeMillis()
+                    + policy.expiration : Long.MAX_VALUE;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
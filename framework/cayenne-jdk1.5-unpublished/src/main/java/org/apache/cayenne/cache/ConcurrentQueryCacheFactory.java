@@ -0,0 +1,110 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.cache;
+
+import java.util.Map;
+
+/**
+ * A factory of {@link ConcurrentQueryCache} instances. The default cache policy and
+ * policies of individual cache groups are configured via properties:
+ * 
+ * <pre>
+ * # max number of entries not governed by group policies
+ * cayenne.ConcurrentQueryCacheFactory.cacheSize = 2000
+ * # default expiration time in seconds, zero means no expiration
+ * cayenne.ConcurrentQueryCacheFactory.expiration = 0
+ *                        
+ * # same parameters can be specified per main cache group
+ * cayenne.ConcurrentQueryCacheFactory.group.xyz.cacheSize = 100
+ * cayenne.ConcurrentQueryCacheFactory.group.xyz.expiration = 60
+ * </pre>
+ * 
+ * @since 3.0
+ */
+public class ConcurrentQueryCacheFactory implements QueryCacheFactory {
+
+    public static final String CACHE_SIZE_PROPERTY = "cayenne.ConcurrentQueryCacheFactory.cacheSize";
+    public static final String EXPIRATION_PROPERTY = "cayenne.ConcurrentQueryCacheFactory.expiration";
+
+    static final String GROUP_PREFIX = "cayenne.ConcurrentQueryCacheFactory.group.";
+    static final String CACHE_SIZE_SUFFIX = ".cacheSize";
+    static final String EXPIRATION_SUFFIX = ".expiration";
+
+    public QueryCache getQueryCache(Map<String, String> properties) {
+
+        if (properties == null) {
+            return new ConcurrentQueryCache();
+        }
+
+        int defaultSize = parseInt(
+                properties.get(CACHE_SIZE_PROPERTY),
+                ConcurrentQueryCache.DEFAULT_CACHE_SIZE);
+        int defaultExpiration = parseInt(properties.get(EXPIRATION_PROPERTY), 0);
+
+        ConcurrentQueryCache cache = new ConcurrentQueryCache(
+                defaultSize,
+                defaultExpiration * 1000L);
+
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String key = entry.getKey();
+            if (key == null || !key.startsWith(GROUP_PREFIX)) {
+                continue;
+            }
+
+            String group;
+            if (key.endsWith(CACHE_SIZE_SUFFIX)) {
+                group = key.substring(GROUP_PREFIX.length(), key.length()
+                        - CACHE_SIZE_SUFFIX.length());
+            }
+            else if (key.endsWith(EXPIRATION_SUFFIX)) {
+                group = key.substring(GROUP_PREFIX.length(), key.length()
+                        - EXPIRATION_SUFFIX.length());
+            }
+            else {
+                continue;
+            }
+
+            // configure both parameters at once, falling back to defaults
+            int size = parseInt(
+                    properties.get(GROUP_PREFIX + group + CACHE_SIZE_SUFFIX),
+                    defaultSize);
+            int expiration = parseInt(
+                    properties.get(GROUP_PREFIX + group + EXPIRATION_SUFFIX),
+                    defaultExpiration);
+
+            cache.setGroupPolicy(group, size, expiration * 1000L);
+        }
+
+        return cache;
+    }
+
+    private int parseInt(Object value, int defaultValue) {
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            }
+            catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+
+        return defaultValue;
+    }
+}
@@ -183,6 +183,10 @@ public class NestedQueryCache implements QueryCache {
             return mdDelegate.getPageSize();
         }
 
+        public int getStatementFetchSize() {
+            return mdDelegate.getStatementFetchSize();
+        }
+
         public PrefetchTreeNode getPrefetchTree() {
             return mdDelegate.getPrefetchTree();
         }
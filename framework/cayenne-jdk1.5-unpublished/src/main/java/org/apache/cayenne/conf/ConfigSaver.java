@@ -192,10 +192,32 @@ public class ConfigSaver {
         if (info.getDataSourceUrl() != null)
             pw.println("\t<url" + attribute("value", info.getDataSourceUrl()) + "/>");
 
-        pw.println("\t<connectionPool"
+        pw.print("\t<connectionPool"
                 + attribute("min", String.valueOf(info.getMinConnections()))
-                + attribute("max", String.valueOf(info.getMaxConnections()))
-                + "/>");
+                + attribute("max", String.valueOf(info.getMaxConnections())));
+
+        // only store concurrent pool settings if the concurrent pool is used
+        if (info.isConcurrentPool()) {
+            pw.print(attribute("concurrent", "true"));
+
+            if (info.getValidationQuery() != null) {
+                pw.print(attribute("validationQuery", info.getValidationQuery()));
+            }
+
+            if (info.getMaxIdleTime() > 0) {
+                pw.print(attribute("maxIdleTime", String.valueOf(info.getMaxIdleTime())));
+            }
+
+            pw.print(attribute("maxQueueWait", String.valueOf(info
+                    .getMaxQueueWaitTime())));
+        }
+
+        if (info.getStatementCacheSize() > 0) {
+            pw.print(attribute("statementCacheSize", String.valueOf(info
+                    .getStatementCacheSize())));
+        }
+
+        pw.println("/>");
 
         pw.print("\t<login");
 
@@ -31,6 +31,7 @@ import javax.sql.DataSource;
 import org.apache.cayenne.ConfigurationException;
 import org.apache.cayenne.access.ConnectionLogger;
 import org.apache.cayenne.access.QueryLogger;
+import org.apache.cayenne.conn.ConcurrentPoolManager;
 import org.apache.cayenne.conn.DataSourceInfo;
 import org.apache.cayenne.conn.PoolManager;
 import org.apache.cayenne.util.Util;
@@ -79,10 +80,11 @@ public class DriverDataSourceFactory implements DataSourceFactory {
         ConnectionLogger logger = new ConnectionLogger();
 
         try {
-            return new PoolManager(driverInfo.getJdbcDriver(), driverInfo
-                    .getDataSourceUrl(), driverInfo.getMinConnections(), driverInfo
-                    .getMaxConnections(), driverInfo.getUserName(), driverInfo
-                    .getPassword(), logger);
+            if (driverInfo.isConcurrentPool()) {
+                return new ConcurrentPoolManager(driverInfo, logger);
+            }
+
+            return new PoolManager(driverInfo, logger);
         }
         catch (Exception ex) {
             QueryLogger.logConnectFailure(ex);
@@ -398,6 +400,27 @@ public class DriverDataSourceFactory implements DataSourceFactory {
                 String max = atts.getValue("max");
                 if (max != null)
                     driverInfo.setMaxConnections(Integer.parseInt(max));
+
+                String concurrent = atts.getValue("concurrent");
+                if (concurrent != null)
+                    driverInfo.setConcurrentPool("true".equalsIgnoreCase(concurrent));
+
+                String validationQuery = atts.getValue("validationQuery");
+                if (validationQuery != null)
+                    driverInfo.setValidationQuery(validationQuery);
+
+                String maxIdleTime = atts.getValue("maxIdleTime");
+                if (maxIdleTime != null)
+                    driverInfo.setMaxIdleTime(Long.parseLong(maxIdleTime));
+
+                String maxQueueWait = atts.getValue("maxQueueWait");
+                if (maxQueueWait != null)
+                    driverInfo.setMaxQueueWaitTime(Long.parseLong(maxQueueWait));
+
+                String statementCacheSize = atts.getValue("statementCacheSize");
+                if (statementCacheSize != null)
+                    driverInfo.setStatementCacheSize(Integer
+                            .parseInt(statementCacheSize));
             }
             catch (NumberFormatException nfex) {
                 logger.info("Error loading numeric attribute", nfex);
@@ -492,6 +492,11 @@ public class RuntimeLoadDelegate implements ConfigLoaderDelegate {
         for (DataDomain domain : getDomains().values()) {
             domain.getEntityResolver().applyDBLayerDefaults();
             domain.getEntityResolver().applyObjectLayerDefaults();
+
+            if (domain.isFrozenEntityResolver()) {
+                domain.getEntityResolver().freeze();
+            }
+
             config.addDomain(domain);
         }
 
@@ -0,0 +1,766 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.conn;
+
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+
+import org.apache.cayenne.instrument.Instrumentation;
+
+/**
+ * A pooling DataSource that doesn't use a global lock to check connections in and out.
+ * Pooled connections are kept in a concurrent "bag" and are claimed by atomically
+ * changing their state. A connection returned to the pool is handed off directly to the
+ * longest waiting thread, if any, so threads waiting for a connection are served in FIFO
+ * order and are not woken up all at once. Each thread remembers the last connection it
+ * used and tries to reuse it first.
+ * <p>
+ * Optionally the pool validates connections that were idle for some time with a
+ * validation query before handing them to the caller, and closes connections that were
+ * idle for longer than the max idle time, never shrinking below the minimum number of
+ * connections. The pool also collects simple wait time and usage statistics.
+ * </p>
+ *
+ * @since 3.0
+ */
+public class ConcurrentPoolManager implements DataSource, ConnectionEventListener {
+
+    /**
+     * Connections that were idle for less than this number of milliseconds are not
+     * validated on checkout.
+     */
+    public static final long VALIDATION_BYPASS_INTERVAL = 500;
+
+    /**
+     * Default interval in milliseconds between the idle connection eviction runs.
+     */
+    public static final long MAINTENANCE_INTERVAL = 30000;
+
+    static final int STATE_IDLE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = 2;
+
+    protected ConnectionPoolDataSource poolDataSource;
+    protected int minConnections;
+    protected int maxConnections;
+    protected String userName;
+    protected String password;
+    protected String dataSourceUrl;
+    protected String jdbcDriver;
+
+    protected long maxQueueWaitTime;
+    protected long maxIdleTime;
+    protected String validationQuery;
+
+    protected CopyOnWriteArrayList<PoolEntry> entries;
+    protected Map<PooledConnection, PoolEntry> entriesByConnection;
+    protected SynchronousQueue<PoolEntry> handoffQueue;
+    protected ThreadLocal<WeakReference<PoolEntry>> lastUsedEntry;
+
+    protected AtomicInteger size;
+    protected AtomicInteger inUse;
+    protected AtomicInteger waiting;
+    protected AtomicLong checkouts;
+    protected AtomicLong totalWaitNanos;
+    protected AtomicLong maxWaitNanos;
+
+    private volatile boolean disposed;
+    private MaintenanceThread maintenanceThread;
+
+    /**
+     * Creates a new pool over a JDBC driver, configured from DataSourceInfo.
+     */
+    public ConcurrentPoolManager(DataSourceInfo info, ConnectionEventLoggingDelegate logger)
+            throws SQLException {
+
+        if (logger != null) {
+            logger.logPoolCreated(info);
+        }
+
+        this.jdbcDriver = info.getJdbcDriver();
+        this.dataSourceUrl = info.getDataSourceUrl();
+        this.maxQueueWaitTime = info.getMaxQueueWaitTime();
+        this.maxIdleTime = info.getMaxIdleTime();
+        this.validationQuery = info.getValidationQuery();
+
+        DriverDataSource driverDS = new DriverDataSource(jdbcDriver, dataSourceUrl);
+        driverDS.setLogger(logger);
+        PoolDataSource poolDS = new PoolDataSource(driverDS);
+        poolDS.setStatementCacheSize(info.getStatementCacheSize());
+
+        init(
+                poolDS,
+                info.getMinConnections(),
+                info.getMaxConnections(),
+                info.getUserName(),
+                info.getPassword());
+    }
+
+    /**
+     * Creates a new pool over a ConnectionPoolDataSource, with default wait time and no
+     * validation or idle connection eviction.
+     */
+    public ConcurrentPoolManager(ConnectionPoolDataSource poolDataSource, int minCons,
+            int maxCons, String userName, String password) throws SQLException {
+        this.maxQueueWaitTime = PoolManager.MAX_QUEUE_WAIT;
+        init(poolDataSource, minCons, maxCons, userName, password);
+    }
+
+    /** Initializes pool. Normally called from constructor. */
+    protected void init(
+            ConnectionPoolDataSource poolDataSource,
+            int minCons,
+            int maxCons,
+            String userName,
+            String password) throws SQLException {
+
+        if (maxCons < 0) {
+            throw new SQLException("Maximum number of connections can not be negative ("
+                    + maxCons
+                    + ").");
+        }
+
+        if (minCons < 0) {
+            throw new SQLException("Minimum number of connections can not be negative ("
+                    + minCons
+                    + ").");
+        }
+
+        if (minCons > maxCons) {
+            throw new SQLException(
+                    "Minimum number of connections can not be bigger then maximum.");
+        }
+
+        this.poolDataSource = poolDataSource;
+        this.minConnections = minCons;
+        this.maxConnections = maxCons;
+        this.userName = userName;
+        this.password = password;
+
+        this.entries = new CopyOnWriteArrayList<PoolEntry>();
+        this.entriesByConnection = new ConcurrentHashMap<PooledConnection, PoolEntry>();
+
+        // fair queue hands off returned connections to the waiters in FIFO order
+        this.handoffQueue = new SynchronousQueue<PoolEntry>(true);
+        this.lastUsedEntry = new ThreadLocal<WeakReference<PoolEntry>>();
+
+        this.size = new AtomicInteger();
+        this.inUse = new AtomicInteger();
+        this.waiting = new AtomicInteger();
+        this.checkouts = new AtomicLong();
+        this.totalWaitNanos = new AtomicLong();
+        this.maxWaitNanos = new AtomicLong();
+
+        for (int i = 0; i < minConnections; i++) {
+            PoolEntry entry = createEntry();
+            if (entry == null) {
+                break;
+            }
+
+            entry.state.set(STATE_IDLE);
+        }
+
+        startMaintenanceThread();
+    }
+
+    protected void startMaintenanceThread() {
+        disposeOfMaintenanceThread();
+
+        if (maxIdleTime > 0) {
+            this.maintenanceThread = new MaintenanceThread(this);
+            this.maintenanceThread.start();
+        }
+    }
+
+    protected void disposeOfMaintenanceThread() {
+        if (maintenanceThread != null) {
+            maintenanceThread.dispose();
+            maintenanceThread = null;
+        }
+    }
+
+    /**
+     * Creates and returns new PooledConnection object, adding itself as a listener for
+     * connection events.
+     */
+    protected PooledConnection newPooledConnection(String userName, String password)
+            throws SQLException {
+        PooledConnection connection = (userName != null) ? poolDataSource
+                .getPooledConnection(userName, password) : poolDataSource
+                .getPooledConnection();
+        connection.addConnectionEventListener(this);
+        return connection;
+    }
+
+    /**
+     * Reserves a slot in the pool and opens a new connection in the "in use" state.
+     * Returns null if the pool is already at its maximum size.
+     */
+    PoolEntry createEntry() throws SQLException {
+        while (true) {
+            int current = size.get();
+            if (current >= maxConnections) {
+                return null;
+            }
+
+            if (size.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        PooledConnection connection;
+        try {
+            connection = newPooledConnection(userName, password);
+        }
+        catch (SQLException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+
+        PoolEntry entry = new PoolEntry(connection);
+        entriesByConnection.put(connection, entry);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Removes the entry from the pool. Returns false if it was already removed.
+     */
+    boolean removeEntry(PoolEntry entry) {
+        int previous = entry.state.getAndSet(STATE_REMOVED);
+        if (previous == STATE_REMOVED) {
+            return false;
+        }
+
+        if (previous == STATE_IN_USE) {
+            inUse.decrementAndGet();
+        }
+
+        entries.remove(entry);
+        entriesByConnection.remove(entry.connection);
+        size.decrementAndGet();
+        return true;
+    }
+
+    /** Closes all existing connections, removes them from the pool. */
+    public void dispose() throws SQLException {
+        disposed = true;
+        disposeOfMaintenanceThread();
+
+        for (PoolEntry entry : entries) {
+            if (removeEntry(entry)) {
+                entry.connection.removeConnectionEventListener(this);
+                entry.connection.close();
+            }
+        }
+    }
+
+    /**
+     * Returns connection from the pool using internal values of user name and password.
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(userName, password);
+    }
+
+    /**
+     * Returns connection from the pool. User name and password are ignored, as all the
+     * pooled connections are opened with the pool credentials. If instrumentation is
+     * enabled, reports the time spent obtaining the connection under the pool URL.
+     */
+    public Connection getConnection(String userName, String password)
+            throws SQLException {
+
+        if (!Instrumentation.isEnabled()) {
+            return checkoutConnection();
+        }
+
+        long t0 = System.nanoTime();
+        Connection connection = checkoutConnection();
+        Instrumentation.connectionCheckedOut(dataSourceUrl, System.nanoTime() - t0);
+        return connection;
+    }
+
+    private Connection checkoutConnection() throws SQLException {
+
+        if (disposed) {
+            throw new SQLException("Pool is disposed.");
+        }
+
+        PoolEntry entry = checkout();
+        try {
+            return openConnection(entry);
+        }
+        catch (SQLException ex) {
+            discard(entry);
+
+            // do one reconnect attempt...
+            entry = checkout();
+            try {
+                return openConnection(entry);
+            }
+            catch (SQLException reconnectEx) {
+                discard(entry);
+                throw reconnectEx;
+            }
+        }
+    }
+
+    private Connection openConnection(PoolEntry entry) throws SQLException {
+        Connection c = entry.connection.getConnection();
+
+        if (validationQuery != null
+                && System.currentTimeMillis() - entry.lastReturned > VALIDATION_BYPASS_INTERVAL) {
+            Statement st = c.createStatement();
+            try {
+                st.executeQuery(validationQuery).close();
+            }
+            finally {
+                st.close();
+            }
+        }
+
+        lastUsedEntry.set(entry.reference);
+        return c;
+    }
+
+    private void discard(PoolEntry entry) {
+        if (removeEntry(entry)) {
+            try {
+                entry.connection.close();
+            }
+            catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Claims an idle connection, opens a new one, or waits for a connection to be
+     * returned to the pool.
+     */
+    PoolEntry checkout() throws SQLException {
+
+        // 1. try the connection last used by this thread
+        WeakReference<PoolEntry> lastUsed = lastUsedEntry.get();
+        if (lastUsed != null) {
+            PoolEntry entry = lastUsed.get();
+            if (entry != null && entry.pool == this && entry.claim()) {
+                return checkedOut(entry, 0);
+            }
+        }
+
+        // 2. scan the pool for idle connections
+        PoolEntry entry = claimIdle();
+        if (entry != null) {
+            return checkedOut(entry, 0);
+        }
+
+        // 3. open a new connection if the pool can grow
+        entry = createEntry();
+        if (entry != null) {
+            return checkedOut(entry, 0);
+        }
+
+        // 4. wait for a returned connection
+        long start = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitTime);
+
+        waiting.incrementAndGet();
+        try {
+            long remaining = timeout;
+            while (remaining > 0) {
+
+                try {
+                    entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException(
+                            "Interrupted while waiting for a connection.");
+                }
+
+                // the handed off connection might have been claimed by another thread
+                // scanning the pool
+                if (entry != null && entry.claim()) {
+                    return checkedOut(entry, System.nanoTime() - start);
+                }
+
+                // check again, as connections may have been released or removed
+                // before this thread started waiting
+                entry = claimIdle();
+                if (entry == null) {
+                    entry = createEntry();
+                }
+
+                if (entry != null) {
+                    return checkedOut(entry, System.nanoTime() - start);
+                }
+
+                remaining = timeout - (System.nanoTime() - start);
+            }
+        }
+        finally {
+            waiting.decrementAndGet();
+        }
+
+        throw new SQLException(
+                "Can't obtain connection. Request timed out. Total used connections: "
+                        + inUse.get());
+    }
+
+    private PoolEntry claimIdle() {
+        for (PoolEntry entry : entries) {
+            if (entry.claim()) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private PoolEntry checkedOut(PoolEntry entry, long waitNanos) {
+        inUse.incrementAndGet();
+        checkouts.incrementAndGet();
+
+        if (waitNanos > 0) {
+            totalWaitNanos.addAndGet(waitNanos);
+
+            long max;
+            while ((max = maxWaitNanos.get()) < waitNanos) {
+                if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                    break;
+                }
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns closed connection to the pool.
+     */
+    public void connectionClosed(ConnectionEvent event) {
+        PoolEntry entry = entriesByConnection.get(event.getSource());
+        if (entry == null || !entry.release()) {
+            return;
+        }
+
+        inUse.decrementAndGet();
+
+        // hand the connection directly to a waiting thread if there's one
+        while (waiting.get() > 0) {
+            if (entry.state.get() != STATE_IDLE) {
+                // claimed by someone else already
+                return;
+            }
+
+            if (handoffQueue.offer(entry)) {
+                return;
+            }
+
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Removes connection with an error from the pool. The connection is not closed,
+     * leaving it up to the code that catches the exception to handle it.
+     */
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        PoolEntry entry = entriesByConnection.get(event.getSource());
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    /**
+     * Closes connections that were idle longer than max idle time, keeping at least the
+     * minimum number of connections.
+     *
+     * @return the number of closed connections.
+     */
+    public int evictIdleConnections() {
+        if (maxIdleTime <= 0) {
+            return 0;
+        }
+
+        int evicted = 0;
+        long now = System.currentTimeMillis();
+        for (PoolEntry entry : entries) {
+            if (size.get() <= minConnections) {
+                break;
+            }
+
+            if (now - entry.lastReturned > maxIdleTime
+                    && entry.state.compareAndSet(STATE_IDLE, STATE_REMOVED)) {
+
+                // can't use "removeEntry" as the state is already changed
+                entries.remove(entry);
+                entriesByConnection.remove(entry.connection);
+                size.decrementAndGet();
+
+                try {
+                    entry.connection.close();
+                }
+                catch (SQLException ignored) {
+                }
+
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Returns maximum number of connections this pool can keep.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the minimum number of connections kept in the pool.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    /**
+     * Returns a database URL used to initialize this pool. Will return null if the pool
+     * was initialized with ConnectionPoolDataSource.
+     */
+    public String getDataSourceUrl() {
+        return dataSourceUrl;
+    }
+
+    /**
+     * Returns a name of a JDBC driver used to initialize this pool. Will return null if
+     * the pool was initialized with ConnectionPoolDataSource.
+     */
+    public String getJdbcDriver() {
+        return jdbcDriver;
+    }
+
+    /** Returns a data source password used to initialize this pool. */
+    public String getPassword() {
+        return password;
+    }
+
+    /** Returns a data source user name used to initialize this pool. */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns maximum time in milliseconds a thread would wait for a connection.
+     */
+    public long getMaxQueueWaitTime() {
+        return maxQueueWaitTime;
+    }
+
+    public void setMaxQueueWaitTime(long maxQueueWaitTime) {
+        this.maxQueueWaitTime = maxQueueWaitTime;
+    }
+
+    /**
+     * Returns time in milliseconds after which idle connections are closed. Zero means
+     * that idle connections are never closed.
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Returns SQL query used to validate idle connections on checkout or null if
+     * connections are not validated.
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * Returns current number of connections.
+     */
+    public int getPoolSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of connections that are currently in use by the DataSource
+     * clients.
+     */
+    public int getCurrentlyInUse() {
+        return inUse.get();
+    }
+
+    /**
+     * Returns the number of pooled connections that are currently not used by any
+     * clients.
+     */
+    public int getCurrentlyUnused() {
+        return Math.max(size.get() - inUse.get(), 0);
+    }
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     */
+    public int getWaitingThreads() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the total number of successful connection checkouts.
+     */
+    public long getCheckoutCount() {
+        return checkouts.get();
+    }
+
+    /**
+     * Returns total time in milliseconds that threads spent waiting for connections.
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * Returns the longest time in milliseconds a thread had to wait for a connection.
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return poolDataSource.getLoginTimeout();
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        poolDataSource.setLoginTimeout(seconds);
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return poolDataSource.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        poolDataSource.setLogWriter(out);
+    }
+
+    // JDBC 4 compatibility under Java 1.5
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
+    // JDBC 4 compatibility under Java 1.5
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
+    final class PoolEntry {
+
+        final PooledConnection connection;
+        final AtomicInteger state;
+        final WeakReference<PoolEntry> reference;
+        final ConcurrentPoolManager pool;
+        volatile long lastReturned;
+
+        PoolEntry(PooledConnection connection) {
+            this.connection = connection;
+
+            // new entries are created for immediate use
+            this.state = new AtomicInteger(STATE_IN_USE);
+            this.reference = new WeakReference<PoolEntry>(this);
+            this.pool = ConcurrentPoolManager.this;
+            this.lastReturned = System.currentTimeMillis();
+        }
+
+        boolean claim() {
+            return state.compareAndSet(STATE_IDLE, STATE_IN_USE);
+        }
+
+        boolean release() {
+            lastReturned = System.currentTimeMillis();
+            return state.compareAndSet(STATE_IN_USE, STATE_IDLE);
+        }
+    }
+
+    static class MaintenanceThread extends Thread {
+
+        private volatile boolean shouldDie;
+        private ConcurrentPoolManager pool;
+
+        MaintenanceThread(ConcurrentPoolManager pool) {
+            super.setName("ConcurrentPoolManagerCleanup-" + pool.hashCode());
+            super.setDaemon(true);
+            this.pool = pool;
+        }
+
+        @Override
+        public void run() {
+            long interval = Math.min(MAINTENANCE_INTERVAL, pool.getMaxIdleTime());
+
+            while (!shouldDie) {
+                try {
+                    sleep(interval);
+                }
+                catch (InterruptedException iex) {
+                    // ignore...
+                }
+
+                if (shouldDie) {
+                    break;
+                }
+
+                pool.evictIdleConnections();
+            }
+        }
+
+        /**
+         * Stops the thread.
+         */
+        public void dispose() {
+            shouldDie = true;
+            interrupt();
+        }
+    }
+}
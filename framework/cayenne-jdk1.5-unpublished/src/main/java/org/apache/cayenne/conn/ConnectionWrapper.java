@@ -27,6 +27,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.NClob;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLClientInfoException;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
@@ -107,6 +108,14 @@ public class ConnectionWrapper implements Connection {
         reconnectCount++;
     }
 
+    /**
+     * Returns a statement cache of the pooled connection, or null if statements are not
+     * cached.
+     */
+    private StatementCache statementCache() {
+        return (pooledConnection != null) ? pooledConnection.getStatementCache() : null;
+    }
+
     protected void retire(SQLException exception) {
         // notify all the listeners....
         pooledConnection.connectionErrorNotification(exception);
@@ -251,7 +260,13 @@ public class ConnectionWrapper implements Connection {
 
     public CallableStatement prepareCall(String sql) throws SQLException {
         try {
-            return connection.prepareCall(sql);
+            StatementCache cache = statementCache();
+            return (cache != null) ? cache.prepareCall(
+                    this,
+                    connection,
+                    sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY) : connection.prepareCall(sql);
         }
         catch (SQLException sqlEx) {
 
@@ -266,7 +281,16 @@ public class ConnectionWrapper implements Connection {
             int resultSetType,
             int resultSetConcurrency) throws SQLException {
         try {
-            return connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+            StatementCache cache = statementCache();
+            return (cache != null) ? cache.prepareCall(
+                    this,
+                    connection,
+                    sql,
+                    resultSetType,
+                    resultSetConcurrency) : connection.prepareCall(
+                    sql,
+                    resultSetType,
+                    resultSetConcurrency);
         }
         catch (SQLException sqlEx) {
 
@@ -278,7 +302,13 @@ public class ConnectionWrapper implements Connection {
 
     public PreparedStatement prepareStatement(String sql) throws SQLException {
         try {
-            return connection.prepareStatement(sql);
+            StatementCache cache = statementCache();
+            return (cache != null) ? cache.prepareStatement(
+                    this,
+                    connection,
+                    sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY) : connection.prepareStatement(sql);
         }
         catch (SQLException sqlEx) {
 
@@ -293,7 +323,16 @@ public class ConnectionWrapper implements Connection {
             int resultSetType,
             int resultSetConcurrency) throws SQLException {
         try {
-            return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            StatementCache cache = statementCache();
+            return (cache != null) ? cache.prepareStatement(
+                    this,
+                    connection,
+                    sql,
+                    resultSetType,
+                    resultSetConcurrency) : connection.prepareStatement(
+                    sql,
+                    resultSetType,
+                    resultSetConcurrency);
         }
         catch (SQLException sqlEx) {
 
@@ -43,6 +43,14 @@ public class DataSourceInfo implements Cloneable, Serializable {
     protected int minConnections = 1;
     protected int maxConnections = 1;
 
+    // Concurrent pool parameters
+    protected boolean concurrentPool;
+    protected String validationQuery;
+    protected long maxIdleTime;
+    protected long maxQueueWaitTime = PoolManager.MAX_QUEUE_WAIT;
+
+    protected int statementCacheSize;
+
     // Constants for passwordLocation
     public static final String PASSWORD_LOCATION_CLASSPATH = "classpath";
     public static final String PASSWORD_LOCATION_EXECUTABLE = "executable";
@@ -85,6 +93,16 @@ public class DataSourceInfo implements Cloneable, Serializable {
             return false;
         if (this.maxConnections != dsi.maxConnections)
             return false;
+        if (this.concurrentPool != dsi.concurrentPool)
+            return false;
+        if (!Util.nullSafeEquals(this.validationQuery, dsi.validationQuery))
+            return false;
+        if (this.maxIdleTime != dsi.maxIdleTime)
+            return false;
+        if (this.maxQueueWaitTime != dsi.maxQueueWaitTime)
+            return false;
+        if (this.statementCacheSize != dsi.statementCacheSize)
+            return false;
         if (!Util.nullSafeEquals(this.passwordEncoderClass, dsi.passwordEncoderClass))
             return false;
         if (!Util.nullSafeEquals(this.passwordEncoderKey, dsi.passwordEncoderKey))
@@ -129,6 +147,21 @@ public class DataSourceInfo implements Cloneable, Serializable {
                 .append("\n   max. connections: ")
                 .append(maxConnections);
 
+        if (concurrentPool) {
+            buf
+                    .append("\n   concurrent pool: true")
+                    .append("\n   validation query: ")
+                    .append(validationQuery)
+                    .append("\n   max. idle time: ")
+                    .append(maxIdleTime)
+                    .append("\n   max. queue wait time: ")
+                    .append(maxQueueWaitTime);
+        }
+
+        if (statementCacheSize > 0) {
+            buf.append("\n   statement cache size: ").append(statementCacheSize);
+        }
+
         if (!PlainTextPasswordEncoder.class.getName().equals(passwordEncoderClass)) {
             buf.append("\n   encoder class: ").append(passwordEncoderClass).append(
                     "\n   encoder key: ").append(passwordEncoderKey);
@@ -167,6 +200,89 @@ public class DataSourceInfo implements Cloneable, Serializable {
         return maxConnections;
     }
 
+    /**
+     * Returns true if the connection pool should be created as a
+     * {@link ConcurrentPoolManager} instead of a {@link PoolManager}.
+     * 
+     * @since 3.0
+     */
+    public boolean isConcurrentPool() {
+        return concurrentPool;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setConcurrentPool(boolean concurrentPool) {
+        this.concurrentPool = concurrentPool;
+    }
+
+    /**
+     * Returns an SQL query used by the concurrent pool to validate idle connections.
+     * 
+     * @since 3.0
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * Returns time in milliseconds after which the concurrent pool closes idle
+     * connections. Zero means idle connections are never closed.
+     * 
+     * @since 3.0
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Returns maximum time in milliseconds a thread waits for a pooled connection.
+     * 
+     * @since 3.0
+     */
+    public long getMaxQueueWaitTime() {
+        return maxQueueWaitTime;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setMaxQueueWaitTime(long maxQueueWaitTime) {
+        this.maxQueueWaitTime = maxQueueWaitTime;
+    }
+
+    /**
+     * Returns a maximum number of PreparedStatements cached per pooled connection. Zero
+     * (the default) means statements are not cached.
+     * 
+     * @since 3.0
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
     public void setUserName(String userName) {
         this.userName = userName;
     }
@@ -38,6 +38,7 @@ import javax.sql.PooledConnection;
  */
 public class PoolDataSource implements ConnectionPoolDataSource {
 	private DataSource nonPooledDatasource;
+	private int statementCacheSize;
 
 	/** Creates new PoolDataSource */
 	public PoolDataSource(DataSource nonPooledDatasource) {
@@ -48,6 +49,23 @@ public class PoolDataSource implements ConnectionPoolDataSource {
 		nonPooledDatasource = new DriverDataSource(jdbcDriver, connectionUrl);
 	}
 
+	/**
+	 * Returns a maximum number of PreparedStatements cached per pooled connection.
+	 * Zero means statements are not cached.
+	 * 
+	 * @since 3.0
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * @since 3.0
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
 	public int getLoginTimeout() throws SQLException {
 		return nonPooledDatasource.getLoginTimeout();
 	}
@@ -65,10 +83,18 @@ public class PoolDataSource implements ConnectionPoolDataSource {
 	}
 
 	public PooledConnection getPooledConnection() throws SQLException {
-		return new PooledConnectionImpl(nonPooledDatasource, null, null);
+		return new PooledConnectionImpl(
+				nonPooledDatasource,
+				null,
+				null,
+				statementCacheSize);
 	}
 
 	public PooledConnection getPooledConnection(String user, String password) throws SQLException {
-		return new PooledConnectionImpl(nonPooledDatasource, user, password);
+		return new PooledConnectionImpl(
+				nonPooledDatasource,
+				user,
+				password,
+				statementCacheSize);
 	}
 }
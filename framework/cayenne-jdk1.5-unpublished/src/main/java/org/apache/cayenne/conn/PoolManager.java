@@ -32,6 +32,8 @@ import javax.sql.ConnectionPoolDataSource;
 import javax.sql.DataSource;
 import javax.sql.PooledConnection;
 
+import org.apache.cayenne.instrument.Instrumentation;
+
 /**
  * PoolManager is a pooling DataSource impementation. Internally to obtain connections
  * PoolManager uses either a JDBC driver or another pooling datasource.
@@ -92,6 +94,32 @@ public class PoolManager implements DataSource, ConnectionEventListener {
         init(poolDS, minCons, maxCons, userName, password);
     }
 
+    /**
+     * Creates new PoolManager over a JDBC driver, configured from DataSourceInfo.
+     * 
+     * @since 3.0
+     */
+    public PoolManager(DataSourceInfo info, ConnectionEventLoggingDelegate logger)
+            throws SQLException {
+
+        if (logger != null) {
+            logger.logPoolCreated(info);
+        }
+
+        this.jdbcDriver = info.getJdbcDriver();
+        this.dataSourceUrl = info.getDataSourceUrl();
+        DriverDataSource driverDS = new DriverDataSource(jdbcDriver, dataSourceUrl);
+        driverDS.setLogger(logger);
+        PoolDataSource poolDS = new PoolDataSource(driverDS);
+        poolDS.setStatementCacheSize(info.getStatementCacheSize());
+        init(
+                poolDS,
+                info.getMinConnections(),
+                info.getMaxConnections(),
+                info.getUserName(),
+                info.getPassword());
+    }
+
     /**
      * Creates new PoolManager with the specified policy for connection pooling and a
      * ConnectionPoolDataSource object.
@@ -330,8 +358,25 @@ public class PoolManager implements DataSource, ConnectionEventListener {
         return getConnection(userName, password);
     }
 
-    /** Returns connection from the pool. */
-    public synchronized Connection getConnection(String userName, String password)
+    /**
+     * Returns connection from the pool. If instrumentation is enabled, reports the time
+     * spent obtaining the connection, including waiting for the pool lock and for a
+     * connection to be returned to the pool, under the pool URL.
+     */
+    public Connection getConnection(String userName, String password)
+            throws SQLException {
+
+        if (!Instrumentation.isEnabled()) {
+            return checkoutConnection(userName, password);
+        }
+
+        long t0 = System.nanoTime();
+        Connection connection = checkoutConnection(userName, password);
+        Instrumentation.connectionCheckedOut(dataSourceUrl, System.nanoTime() - t0);
+        return connection;
+    }
+
+    private synchronized Connection checkoutConnection(String userName, String password)
             throws SQLException {
 
         PooledConnection pooledConnection = uncheckPooledConnection(userName, password);
@@ -45,6 +45,7 @@ public class PooledConnectionImpl implements PooledConnection {
     private DataSource connectionSource;
     private String userName;
     private String password;
+    private StatementCache statementCache;
 
     protected PooledConnectionImpl() {
         // TODO: maybe remove synchronization and use
@@ -66,7 +67,27 @@ public class PooledConnectionImpl implements PooledConnection {
 
     }
 
+    /**
+     * Creates new PooledConnection that caches up to <code>statementCacheSize</code>
+     * PreparedStatements. Zero cache size disables statement caching.
+     * 
+     * @since 3.0
+     */
+    public PooledConnectionImpl(DataSource connectionSource, String userName,
+            String password, int statementCacheSize) {
+
+        this(connectionSource, userName, password);
+
+        if (statementCacheSize > 0) {
+            this.statementCache = new StatementCache(statementCacheSize);
+        }
+    }
+
     public void reconnect() throws SQLException {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+
         if (connectionObj != null) {
             try {
                 connectionObj.close();
@@ -105,6 +126,10 @@ public class PooledConnectionImpl implements PooledConnection {
             connectionEventListeners.clear();
         }
 
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+
         if (connectionObj != null) {
             try {
                 connectionObj.close();
@@ -137,6 +162,16 @@ public class PooledConnectionImpl implements PooledConnection {
         return new ConnectionWrapper(connectionObj, this);
     }
 
+    /**
+     * Returns a cache of PreparedStatements open on this connection, or null if
+     * statement caching is disabled.
+     * 
+     * @since 3.0
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
     protected void returnConnectionToThePool() throws SQLException {
         // do not return to pool bad connections
         if (hadErrors)
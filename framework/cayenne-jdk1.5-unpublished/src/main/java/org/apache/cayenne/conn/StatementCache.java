@@ -0,0 +1,453 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.conn;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache of PreparedStatements open on a single pooled connection. Statements
+ * are keyed by SQL text, ResultSet type and concurrency. A statement is removed from
+ * the cache while it is used by the application, and is returned to the cache when the
+ * application closes it. The application never sees the cached statement itself, but a
+ * proxy that intercepts <code>close()</code> and restores statement settings changed by
+ * the application (max rows, fetch size, query timeout, etc.) before the statement is
+ * reused.
+ * <p>
+ * A statement is closed instead of being returned to the cache if it was evicted as the
+ * least recently used, if its execution resulted in an SQLException, if it was modified
+ * in a way that can not be reverted (such as a cursor name), or if the underlying
+ * connection was reconnected or closed since the statement was checked out.
+ * </p>
+ * 
+ * @since 3.0
+ */
+public class StatementCache {
+
+    private static final Map<Method, Method> RESTORABLE_SETTINGS;
+    private static final Collection<String> NON_REUSABLE_SETTINGS;
+
+    static {
+        RESTORABLE_SETTINGS = new HashMap<Method, Method>();
+        NON_REUSABLE_SETTINGS = new ArrayList<String>();
+
+        NON_REUSABLE_SETTINGS.add("setCursorName");
+        NON_REUSABLE_SETTINGS.add("setEscapeProcessing");
+        NON_REUSABLE_SETTINGS.add("setPoolable");
+
+        String[] settings = new String[] {
+                "MaxRows", "FetchSize", "QueryTimeout", "MaxFieldSize", "FetchDirection"
+        };
+
+        try {
+            for (String setting : settings) {
+                RESTORABLE_SETTINGS.put(Statement.class.getMethod(
+                        "set" + setting,
+                        Integer.TYPE), Statement.class.getMethod("get" + setting));
+            }
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unexpected Statement API", e);
+        }
+    }
+
+    protected int maxSize;
+    protected Map<StatementKey, PreparedStatement> statements;
+
+    // incremented every time cached statements are discarded, so that statements
+    // checked out of a previous physical connection are not returned to the cache
+    protected int epoch;
+
+    protected long hitCount;
+    protected long missCount;
+    protected long evictionCount;
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(
+                16,
+                0.75f,
+                true) {
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<StatementKey, PreparedStatement> eldest) {
+
+                if (size() > StatementCache.this.maxSize) {
+                    evictionCount++;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a statement for the SQL, either taking it from the cache or preparing a
+     * new one on the provided connection.
+     */
+    public PreparedStatement prepareStatement(
+            Connection wrapper,
+            Connection connection,
+            String sql,
+            int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        return (PreparedStatement) checkout(
+                wrapper,
+                connection,
+                new StatementKey(sql, resultSetType, resultSetConcurrency, false));
+    }
+
+    /**
+     * Returns a callable statement for the SQL, either taking it from the cache or
+     * preparing a new one on the provided connection.
+     */
+    public CallableStatement prepareCall(
+            Connection wrapper,
+            Connection connection,
+            String sql,
+            int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        return (CallableStatement) checkout(
+                wrapper,
+                connection,
+                new StatementKey(sql, resultSetType, resultSetConcurrency, true));
+    }
+
+    /**
+     * Closes all cached statements. Statements currently used by the application will be
+     * closed when the application closes them.
+     */
+    public void clear() {
+        Collection<PreparedStatement> discarded;
+
+        synchronized (this) {
+            epoch++;
+            discarded = new ArrayList<PreparedStatement>(statements.values());
+            statements.clear();
+        }
+
+        for (PreparedStatement statement : discarded) {
+            closeQuietly(statement);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns a number of idle statements currently in the cache.
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Returns a number of times a statement was reused from the cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns a number of times a statement had to be prepared on the connection.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns a number of statements closed to keep the cache within its maximum size.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    Statement checkout(Connection wrapper, Connection connection, StatementKey key)
+            throws SQLException {
+
+        PreparedStatement statement;
+        int checkoutEpoch;
+
+        synchronized (this) {
+            statement = statements.remove(key);
+            checkoutEpoch = epoch;
+
+            if (statement != null) {
+                hitCount++;
+            }
+            else {
+                missCount++;
+            }
+        }
+
+        if (statement == null) {
+            statement = key.callable ? connection.prepareCall(
+                    key.sql,
+                    key.resultSetType,
+                    key.resultSetConcurrency) : connection.prepareStatement(
+                    key.sql,
+                    key.resultSetType,
+                    key.resultSetConcurrency);
+        }
+
+        CachedStatementHandler handler = new CachedStatementHandler(
+                key,
+                statement,
+                wrapper,
+                checkoutEpoch);
+
+        Class<?> type = key.callable ? CallableStatement.class : PreparedStatement.class;
+        return (Statement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class[] {
+                    type
+                },
+                handler);
+    }
+
+    void release(CachedStatementHandler handler) throws SQLException {
+
+        PreparedStatement statement = handler.statement;
+        boolean reusable = handler.reusable && handler.checkoutEpoch == currentEpoch();
+
+        if (reusable) {
+            try {
+                handler.reset();
+            }
+            catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            synchronized (this) {
+                if (handler.checkoutEpoch == epoch
+                        && maxSize > 0
+                        && !statements.containsKey(handler.key)) {
+                    statements.put(handler.key, statement);
+                    return;
+                }
+            }
+        }
+
+        statement.close();
+    }
+
+    synchronized int currentEpoch() {
+        return epoch;
+    }
+
+    static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        }
+        catch (SQLException e) {
+            // ignore, the statement is discarded anyway
+        }
+    }
+
+    /**
+     * A cache key for a statement.
+     */
+    static final class StatementKey {
+
+        final String sql;
+        final int resultSetType;
+        final int resultSetConcurrency;
+        final boolean callable;
+
+        StatementKey(String sql, int resultSetType, int resultSetConcurrency,
+                boolean callable) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.callable = callable;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (!(object instanceof StatementKey)) {
+                return false;
+            }
+
+            StatementKey key = (StatementKey) object;
+            return resultSetType == key.resultSetType
+                    && resultSetConcurrency == key.resultSetConcurrency
+                    && callable == key.callable
+                    && sql.equals(key.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = sql.hashCode();
+            hash = 31 * hash + resultSetType;
+            hash = 31 * hash + resultSetConcurrency;
+            return callable ? hash + 1 : hash;
+        }
+    }
+
+    /**
+     * A proxy handler for a statement checked out of the cache.
+     */
+    final class CachedStatementHandler implements InvocationHandler {
+
+        final StatementKey key;
+        final PreparedStatement statement;
+        final Connection wrapper;
+        final int checkoutEpoch;
+
+        Map<Method, Object> savedSettings;
+        boolean batched;
+        boolean reusable;
+        boolean closed;
+
+        CachedStatementHandler(StatementKey key, PreparedStatement statement,
+                Connection wrapper, int checkoutEpoch) {
+            this.key = key;
+            this.statement = statement;
+            this.wrapper = wrapper;
+            this.checkoutEpoch = checkoutEpoch;
+            this.reusable = true;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+
+            String name = method.getName();
+            int argCount = args != null ? args.length : 0;
+
+            if (argCount == 0) {
+                if ("close".equals(name)) {
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+                }
+                else if ("isClosed".equals(name)) {
+                    if (closed) {
+                        return Boolean.TRUE;
+                    }
+                }
+                else if ("getConnection".equals(name)) {
+                    return wrapper;
+                }
+                else if ("hashCode".equals(name)) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                }
+                else if ("toString".equals(name)) {
+                    return "Cached " + statement;
+                }
+            }
+            else if (argCount == 1 && "equals".equals(name)) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed.");
+            }
+
+            if (argCount == 0 && "addBatch".equals(name)) {
+                batched = true;
+            }
+            else if (NON_REUSABLE_SETTINGS.contains(name)) {
+                reusable = false;
+            }
+            else if (argCount == 1) {
+                Method getter = RESTORABLE_SETTINGS.get(method);
+                if (getter != null) {
+                    saveSetting(method, getter);
+                }
+            }
+
+            try {
+                return method.invoke(statement, args);
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    // statement state is unknown after an error
+                    reusable = false;
+                }
+
+                throw cause;
+            }
+        }
+
+        void saveSetting(Method setter, Method getter) throws Exception {
+            if (savedSettings == null) {
+                savedSettings = new HashMap<Method, Object>();
+            }
+
+            if (!savedSettings.containsKey(setter)) {
+                try {
+                    savedSettings.put(setter, getter.invoke(statement));
+                }
+                catch (InvocationTargetException e) {
+                    reusable = false;
+                }
+            }
+        }
+
+        /**
+         * Restores statement state before it is returned to the cache.
+         */
+        void reset() throws SQLException {
+            if (savedSettings != null) {
+                for (Map.Entry<Method, Object> entry : savedSettings.entrySet()) {
+                    try {
+                        entry.getKey().invoke(statement, entry.getValue());
+                    }
+                    catch (Exception e) {
+                        throw new SQLException("Error restoring statement settings: "
+                                + e.getMessage());
+                    }
+                }
+            }
+
+            if (batched) {
+                statement.clearBatch();
+            }
+
+            statement.clearParameters();
+            statement.clearWarnings();
+        }
+    }
+}
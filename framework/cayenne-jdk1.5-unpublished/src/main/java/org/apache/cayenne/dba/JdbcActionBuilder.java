@@ -75,6 +75,8 @@ public class JdbcActionBuilder implements SQLActionVisitor {
         boolean runningAsBatch = !useOptimisticLock && adapter.supportsBatchUpdates();
         BatchAction action = new BatchAction(query, adapter, entityResolver);
         action.setBatch(runningAsBatch);
+        action.setMaxBatchSize(adapter.getMaxBatchSize());
+        action.setMultiRowInsert(adapter.supportsMultiRowInsert());
         return action;
     }
 
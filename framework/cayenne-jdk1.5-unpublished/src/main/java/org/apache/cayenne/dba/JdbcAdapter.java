@@ -20,8 +20,10 @@
 package org.apache.cayenne.dba;
 
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,6 +36,7 @@ import org.apache.cayenne.access.jdbc.EJBQLTranslatorFactory;
 import org.apache.cayenne.access.jdbc.JdbcEJBQLTranslatorFactory;
 import org.apache.cayenne.access.trans.QualifierTranslator;
 import org.apache.cayenne.access.trans.QueryAssembler;
+import org.apache.cayenne.access.trans.SelectTranslationCache;
 import org.apache.cayenne.access.types.BigIntegerType;
 import org.apache.cayenne.access.types.BooleanType;
 import org.apache.cayenne.access.types.ByteArrayType;
@@ -68,6 +71,10 @@ public class JdbcAdapter implements DbAdapter {
     protected boolean supportsFkConstraints;
     protected boolean supportsUniqueConstraints;
     protected boolean supportsGeneratedKeys;
+    protected boolean supportsMultiRowInsert;
+    protected int maxBatchSize;
+    protected int statementFetchSize;
+    protected SelectTranslationCache selectTranslationCache;
     protected EJBQLTranslatorFactory ejbqlTranslatorFactory;
 
     protected String identifiersStartQuote;
@@ -101,6 +108,7 @@ public class JdbcAdapter implements DbAdapter {
         this.extendedTypes = new ExtendedTypeMap();
         this.configureExtendedTypes(extendedTypes);
         this.ejbqlTranslatorFactory = createEJBQLTranslatorFactory();
+        this.selectTranslationCache = new SelectTranslationCache();
         initIdentifiersQuotes();
 
     }
@@ -572,6 +580,99 @@ public class JdbcAdapter implements DbAdapter {
         this.supportsBatchUpdates = flag;
     }
 
+    /**
+     * Returns a maximum number of rows sent to the database in a single batch. Larger
+     * batches are split into chunks of this size. Zero (default) means no limit.
+     * 
+     * @since 3.0
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns a default JDBC fetch size for select statements, used for queries that do
+     * not specify their own fetch size. Zero (default) leaves the driver default in
+     * place.
+     * 
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return statementFetchSize;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setStatementFetchSize(int statementFetchSize) {
+        this.statementFetchSize = statementFetchSize;
+    }
+
+    /**
+     * Configures a select statement before execution, to read the result from the
+     * database in chunks of the given size. Fetch size less than or equal to zero means
+     * that the query does not specify one, in which case adapter
+     * {@link #getStatementFetchSize() fetch size} is used. Subclasses may override this
+     * method to enable driver-specific streaming cursors.
+     * 
+     * @since 3.0
+     */
+    public void configureFetchSize(Connection connection, Statement statement, int fetchSize)
+            throws SQLException {
+
+        if (fetchSize <= 0) {
+            fetchSize = statementFetchSize;
+        }
+
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * Returns a cache of SelectQuery translations shared by select actions created by
+     * this adapter. Null means queries are always translated from scratch.
+     * 
+     * @since 3.0
+     */
+    public SelectTranslationCache getSelectTranslationCache() {
+        return selectTranslationCache;
+    }
+
+    /**
+     * Sets a cache of SelectQuery translations. Null disables translation caching.
+     * 
+     * @since 3.0
+     */
+    public void setSelectTranslationCache(SelectTranslationCache selectTranslationCache) {
+        this.selectTranslationCache = selectTranslationCache;
+    }
+
+    /**
+     * Returns true if the target database supports multi-row
+     * <code>INSERT ... VALUES (...), (...)</code> statements, that are used to run
+     * insert batches.
+     * 
+     * @since 3.0
+     */
+    public boolean supportsMultiRowInsert() {
+        return supportsMultiRowInsert;
+    }
+
+    /**
+     * @since 3.0
+     */
+    public void setSupportsMultiRowInsert(boolean flag) {
+        this.supportsMultiRowInsert = flag;
+    }
+
     /**
      * @since 1.2
      */
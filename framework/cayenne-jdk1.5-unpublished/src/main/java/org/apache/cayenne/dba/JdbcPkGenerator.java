@@ -28,9 +28,9 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.DataRow;
@@ -71,7 +71,9 @@ public class JdbcPkGenerator implements PkGenerator {
 
     public static final int DEFAULT_PK_CACHE_SIZE = 20;
 
-    protected Map<String, LongPkRange> pkCache = new HashMap<String, LongPkRange>();
+    protected ConcurrentMap<String, LongPkRange> pkCache = new ConcurrentHashMap<String, LongPkRange>();
+    private ConcurrentMap<String, Object> pkRefillLocks = new ConcurrentHashMap<String, Object>();
+    private final boolean generatePkOverridden = isGeneratePkOverridden();
     protected int pkCacheSize = DEFAULT_PK_CACHE_SIZE;    
    
     public void createAutoPk(DataNode node, List<DbEntity> dbEntities) throws Exception {
@@ -235,46 +237,74 @@ public class JdbcPkGenerator implements PkGenerator {
      */
     public Object generatePk(DataNode node, DbAttribute pk) throws Exception {
 
-        DbEntity entity = (DbEntity) pk.getEntity();
-
         switch (pk.getType()) {
             case Types.BINARY:
             case Types.VARBINARY:
                 return IDUtil.pseudoUniqueSecureByteSequence(pk.getMaxLength());
         }
 
-        DbKeyGenerator pkGenerator = entity.getPrimaryKeyGenerator();
-        long cacheSize;
-        if (pkGenerator != null && pkGenerator.getKeyCacheSize() != null)
-            cacheSize = pkGenerator.getKeyCacheSize().intValue();
-        else
-            cacheSize = pkCacheSize;
+        return toPk(pk, longPks(node, (DbEntity) pk.getEntity(), 1)[0]);
+    }
 
-        long value;
+    /**
+     * Generates a number of unique and non-repeating primary keys for specified PK
+     * attribute. If a subclass overrides {@link #generatePk(DataNode, DbAttribute)},
+     * this method calls it once per key, so that custom key generation is never
+     * bypassed. Otherwise keys are reserved in bulk via
+     * {@link #generatePksFromRanges(DataNode, DbAttribute, int)}.
+     * 
+     * @since 3.0
+     */
+    public List<Object> generatePks(DataNode node, DbAttribute pk, int count)
+            throws Exception {
 
-        // if no caching, always generate fresh
-        if (cacheSize <= 1) {
-            value = longPkFromDatabase(node, entity);
+        if (generatePkOverridden) {
+            List<Object> keys = new ArrayList<Object>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(generatePk(node, pk));
+            }
+
+            return keys;
         }
-        else {
-            synchronized (pkCache) {
-                LongPkRange r = pkCache.get(entity.getName());
 
-                if (r == null) {
-                    // created exhausted LongPkRange
-                    r = new LongPkRange(1l, 0l);
-                    pkCache.put(entity.getName(), r);
-                }
+        return generatePksFromRanges(node, pk, count);
+    }
 
-                if (r.isExhausted()) {
-                    long val = longPkFromDatabase(node, entity);
-                    r.reset(val, val + cacheSize - 1);
+    /**
+     * Generates a number of unique and non-repeating primary keys for specified PK
+     * attribute. Keys are taken from the cached entity key range first, and the missing
+     * keys are reserved via {@link #longPkRangesFromDatabase(DataNode, DbEntity, int)}.
+     * <p>
+     * Keys are taken from a cached range with a compare-and-set, without locking. Cached
+     * ranges are refilled under a per-entity lock, so when multiple threads exhaust a
+     * range at the same time, only one of them goes to the database, and the others wait
+     * and take their keys from the new range.
+     * </p>
+     * 
+     * @since 3.0
+     */
+    protected List<Object> generatePksFromRanges(DataNode node, DbAttribute pk, int count)
+            throws Exception {
+
+        List<Object> keys = new ArrayList<Object>(count);
+
+        switch (pk.getType()) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+                for (int i = 0; i < count; i++) {
+                    keys.add(IDUtil.pseudoUniqueSecureByteSequence(pk.getMaxLength()));
                 }
+                return keys;
+        }
 
-                value = r.getNextPrimaryKey();
-            }
+        for (long value : longPks(node, (DbEntity) pk.getEntity(), count)) {
+            keys.add(toPk(pk, value));
         }
 
+        return keys;
+    }
+
+    private Object toPk(DbAttribute pk, long value) {
         if (pk.getType() == Types.BIGINT) {
             return Long.valueOf(value);
         }
@@ -284,6 +314,72 @@ public class JdbcPkGenerator implements PkGenerator {
         }
     }
 
+    /**
+     * Returns true if the runtime class of this generator overrides
+     * {@link #generatePk(DataNode, DbAttribute)}.
+     */
+    private boolean isGeneratePkOverridden() {
+        try {
+            return getClass()
+                    .getMethod("generatePk", DataNode.class, DbAttribute.class)
+                    .getDeclaringClass() != JdbcPkGenerator.class;
+        }
+        catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    long[] longPks(DataNode node, DbEntity entity, int count) throws Exception {
+
+        int cacheSize = pkCacheSize(entity);
+
+        // if no caching, always generate fresh
+        if (cacheSize <= 1) {
+            long[] keys = longPkRangesFromDatabase(node, entity, count);
+            if (keys.length < count) {
+                throw new CayenneRuntimeException("Not enough keys generated for entity "
+                        + entity.getName());
+            }
+
+            return keys;
+        }
+
+        long[] keys = new long[count];
+        String name = entity.getName();
+
+        LongPkRange cached = pkCache.get(name);
+        int taken = (cached != null) ? cached.take(keys, 0, count) : 0;
+
+        if (taken < count) {
+            synchronized (refillLock(name)) {
+
+                // the range may have been refilled while this thread was waiting
+                LongPkRange current = pkCache.get(name);
+                if (current != null && current != cached) {
+                    taken += current.take(keys, taken, count - taken);
+                }
+
+                if (taken < count) {
+                    int rangeCount = (count - taken + cacheSize - 1) / cacheSize;
+                    LongPkRange range = null;
+                    for (long start : longPkRangesFromDatabase(node, entity, rangeCount)) {
+                        range = new LongPkRange(start, start + cacheSize - 1);
+                        taken += range.take(keys, taken, count - taken);
+                    }
+
+                    if (taken < count) {
+                        throw new CayenneRuntimeException(
+                                "Not enough keys generated for entity " + name);
+                    }
+
+                    pkCache.put(name, range);
+                }
+            }
+        }
+
+        return keys;
+    }
+
     /**
      * @deprecated since 3.0
      */
@@ -295,34 +391,52 @@ public class JdbcPkGenerator implements PkGenerator {
             return binPK;
         }
 
-        DbKeyGenerator pkGenerator = ent.getPrimaryKeyGenerator();
-        int cacheSize;
-        if (pkGenerator != null && pkGenerator.getKeyCacheSize() != null)
-            cacheSize = pkGenerator.getKeyCacheSize().intValue();
-        else
-            cacheSize = pkCacheSize;
+        int cacheSize = pkCacheSize(ent);
 
         // if no caching, always generate fresh
         if (cacheSize <= 1) {
             return Integer.valueOf(pkFromDatabase(node, ent));
         }
 
-        synchronized (pkCache) {
-            LongPkRange r = pkCache.get(ent.getName());
+        long[] key = new long[1];
+        String name = ent.getName();
 
-            if (r == null) {
-                // created exhausted PkRange
-                r = new LongPkRange(1, 0);
-                pkCache.put(ent.getName(), r);
-            }
+        LongPkRange cached = pkCache.get(name);
+        if (cached != null && cached.take(key, 0, 1) > 0) {
+            return key[0];
+        }
+
+        synchronized (refillLock(name)) {
 
-            if (r.isExhausted()) {
-                int val = pkFromDatabase(node, ent);
-                r.reset(val, val + cacheSize - 1);
+            // the range may have been refilled while this thread was waiting
+            LongPkRange current = pkCache.get(name);
+            if (current != null && current != cached && current.take(key, 0, 1) > 0) {
+                return key[0];
             }
 
-            return r.getNextPrimaryKey();
+            int val = pkFromDatabase(node, ent);
+            LongPkRange range = new LongPkRange(val, val + cacheSize - 1);
+            range.take(key, 0, 1);
+            pkCache.put(name, range);
+        }
+
+        return key[0];
+    }
+
+    /**
+     * Returns a lock object that serializes database refills of the entity key range.
+     */
+    private Object refillLock(String entityName) {
+        Object lock = pkRefillLocks.get(entityName);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = pkRefillLocks.putIfAbsent(entityName, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
         }
+
+        return lock;
     }
 
     /**
@@ -403,6 +517,41 @@ public class JdbcPkGenerator implements PkGenerator {
         return observer.getId();
     }
 
+    /**
+     * Reserves a number of primary key ranges, returning the first key of each range.
+     * Each range is as big as the entity {@link #pkCacheSize(DbEntity) key cache size}.
+     * This implementation calls {@link #longPkFromDatabase(DataNode, DbEntity)} once
+     * per range. Subclasses that can reserve multiple ranges in a single database trip
+     * should override it.
+     * 
+     * @since 3.0
+     */
+    protected long[] longPkRangesFromDatabase(DataNode node, DbEntity entity, int count)
+            throws Exception {
+
+        long[] starts = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = longPkFromDatabase(node, entity);
+        }
+
+        return starts;
+    }
+
+    /**
+     * Returns a size of the primary key cache for a given entity, which is either a key
+     * cache size of the entity PK generator, or the default "pkCacheSize".
+     * 
+     * @since 3.0
+     */
+    protected int pkCacheSize(DbEntity entity) {
+        DbKeyGenerator keyGenerator = entity.getPrimaryKeyGenerator();
+        if (keyGenerator != null && keyGenerator.getKeyCacheSize() != null) {
+            return keyGenerator.getKeyCacheSize().intValue();
+        }
+
+        return pkCacheSize;
+    }
+
     /**
      * Returns a size of the entity primary key cache. Default value is 20. If cache size
      * is set to a value less or equals than "one", no primary key caching is done.
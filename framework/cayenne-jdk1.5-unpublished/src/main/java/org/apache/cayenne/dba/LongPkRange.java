@@ -18,34 +18,48 @@
  ****************************************************************/
 package org.apache.cayenne.dba;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * A range of primary keys that can be shared between threads. Keys are taken from the
+ * range with a compare-and-set, without locking.
+ *
  * @since 3.0
  */
 class LongPkRange {
 
-    private long curValue;
-    private long maxValue;
+    private final AtomicLong curValue;
+    private final long maxValue;
 
     LongPkRange(long curValue, long maxValue) {
-        reset(curValue, maxValue);
-    }
-
-    void reset(long curValue, long maxValue) {
-        this.curValue = curValue;
+        this.curValue = new AtomicLong(curValue);
         this.maxValue = maxValue;
     }
 
     boolean isExhausted() {
-        return curValue > maxValue;
+        return curValue.get() > maxValue;
     }
 
-    long getNextPrimaryKey() {
-        // do bound checking
-        if (isExhausted()) {
-            throw new RuntimeException(
-                    "PkRange is exhausted and can not be used anymore.");
-        }
+    /**
+     * Takes up to <code>count</code> keys from the range, storing them in the array
+     * starting at <code>offset</code>. Returns the number of keys taken, which is less
+     * than <code>count</code> if the range got exhausted.
+     */
+    int take(long[] keys, int offset, int count) {
+        while (true) {
+            long value = curValue.get();
+            if (value > maxValue) {
+                return 0;
+            }
+
+            int taken = (int) Math.min(count, maxValue - value + 1);
+            if (curValue.compareAndSet(value, value + taken)) {
+                for (int i = 0; i < taken; i++) {
+                    keys[offset + i] = value + i;
+                }
 
-        return curValue++;
+                return taken;
+            }
+        }
     }
 }
@@ -66,6 +66,7 @@ public class DerbyAdapter extends JdbcAdapter {
     public DerbyAdapter() {
         setSupportsGeneratedKeys(true);
         setSupportsBatchUpdates(true);
+        setSupportsMultiRowInsert(true);
     }
 
     @Override
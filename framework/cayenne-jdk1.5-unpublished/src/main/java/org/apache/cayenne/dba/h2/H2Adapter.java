@@ -26,6 +26,10 @@ import org.apache.cayenne.merge.MergerFactory;
  * @since 3.0
  */
 public class H2Adapter extends JdbcAdapter {
+
+    public H2Adapter() {
+        setSupportsMultiRowInsert(true);
+    }
 	
     @Override
     public MergerFactory mergerFactory() {
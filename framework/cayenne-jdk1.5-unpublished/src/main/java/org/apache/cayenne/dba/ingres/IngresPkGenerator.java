@@ -53,6 +53,24 @@ public class IngresPkGenerator extends OraclePkGenerator {
         super(adapter);
     }
     
+    /**
+     * Reads sequence values one by one, as Ingres has no row generator to read multiple
+     * values in one query.
+     * 
+     * @since 3.0
+     */
+    @Override
+    protected long[] longPkRangesFromDatabase(DataNode node, DbEntity entity, int count)
+            throws Exception {
+
+        long[] starts = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = longPkFromDatabase(node, entity);
+        }
+
+        return starts;
+    }
+
     @Override
     protected long longPkFromDatabase(DataNode node, DbEntity entity) throws Exception {
 
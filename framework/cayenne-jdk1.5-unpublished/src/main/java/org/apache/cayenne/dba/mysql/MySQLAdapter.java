@@ -19,6 +19,9 @@
 
 package org.apache.cayenne.dba.mysql;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -71,6 +74,7 @@ public class MySQLAdapter extends JdbcAdapter {
     final static String MYSQL_QUOTE_SQL_IDENTIFIERS_CHAR_END = "`";
 
     protected String storageEngine;
+    protected boolean streamingResults;
  
     public MySQLAdapter() {
 
@@ -80,6 +84,7 @@ public class MySQLAdapter extends JdbcAdapter {
         setSupportsFkConstraints(true);
         setSupportsUniqueConstraints(true);
         setSupportsGeneratedKeys(true); 
+        setSupportsMultiRowInsert(true);
         initIdentifiersQuotes(); 
     }
  
@@ -342,4 +347,47 @@ public class MySQLAdapter extends JdbcAdapter {
     public void setStorageEngine(String engine) {
         this.storageEngine = engine;
     }
+
+    /**
+     * Returns true if select statements with a positive fetch size should stream the
+     * result row by row. Default is false.
+     * 
+     * @since 3.0
+     */
+    public boolean isStreamingResults() {
+        return streamingResults;
+    }
+
+    /**
+     * Sets whether select statements with a positive fetch size should stream the result
+     * row by row. MySQL Connector/J ignores positive fetch sizes unless "useCursorFetch"
+     * is set on the connection URL, reading the entire result in memory instead, so
+     * streaming is enabled by passing Integer.MIN_VALUE as a fetch size. Note that while
+     * a streaming result is open, no other statements can be executed on the same
+     * connection.
+     * 
+     * @since 3.0
+     */
+    public void setStreamingResults(boolean streamingResults) {
+        this.streamingResults = streamingResults;
+    }
+
+    /**
+     * @since 3.0
+     */
+    @Override
+    public void configureFetchSize(Connection connection, Statement statement, int fetchSize)
+            throws SQLException {
+
+        if (fetchSize <= 0) {
+            fetchSize = statementFetchSize;
+        }
+
+        if (fetchSize > 0 && streamingResults) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+        }
+        else {
+            super.configureFetchSize(connection, statement, fetchSize);
+        }
+    }
 }
@@ -70,6 +70,7 @@ class Oracle8SQLTemplateAction extends SQLTemplateAction {
             // start - code different from super
             if (select) {
 
+                configureFetchSize(connection, statement, queryMetadata);
                 ResultSet resultSet = statement.executeQuery();
                 try {
                     processSelectResult(
@@ -61,6 +61,7 @@ class OracleActionBuilder extends JdbcActionBuilder {
                     getAdapter(),
                     getEntityResolver());
             action.setBatch(runningAsBatch);
+            action.setMaxBatchSize(adapter.getMaxBatchSize());
             return action;
         }
 
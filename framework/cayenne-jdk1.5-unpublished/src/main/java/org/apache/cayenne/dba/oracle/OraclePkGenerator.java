@@ -205,6 +205,80 @@ public class OraclePkGenerator extends JdbcPkGenerator {
 
     }
 
+    /**
+     * Reserves a number of primary key ranges by reading multiple sequence values in a
+     * single query.
+     * 
+     * @since 3.0
+     */
+    @Override
+    protected long[] longPkRangesFromDatabase(DataNode node, DbEntity entity, int count)
+            throws Exception {
+
+        if (count == 1) {
+            return new long[] {
+                longPkFromDatabase(node, entity)
+            };
+        }
+
+        DbKeyGenerator pkGenerator = entity.getPrimaryKeyGenerator();
+        String pkGeneratingSequenceName;
+        if (pkGenerator != null
+                && DbKeyGenerator.ORACLE_TYPE.equals(pkGenerator.getGeneratorType())
+                && pkGenerator.getGeneratorName() != null)
+            pkGeneratingSequenceName = pkGenerator.getGeneratorName();
+        else
+            pkGeneratingSequenceName = sequenceName(entity);
+
+        Connection con = node.getDataSource().getConnection();
+        try {
+            Statement st = con.createStatement();
+            try {
+                String sql = selectNextValsString(pkGeneratingSequenceName, count);
+                QueryLogger.logQuery(sql, Collections.EMPTY_LIST);
+                ResultSet rs = st.executeQuery(sql);
+                try {
+                    long[] starts = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        if (!rs.next()) {
+                            throw new CayenneRuntimeException(
+                                    "Error generating pk for DbEntity "
+                                            + entity.getName());
+                        }
+                        starts[i] = rs.getLong(1);
+                    }
+                    return starts;
+                }
+                finally {
+                    rs.close();
+                }
+            }
+            finally {
+                st.close();
+            }
+        }
+        finally {
+            con.close();
+        }
+    }
+
+    /**
+     * Returns a query that reads <code>count</code> next values of a sequence. Executed
+     * SQL looks like this:
+     * 
+     * <pre>
+     *   SELECT pk_table_name.nextval FROM DUAL CONNECT BY LEVEL &lt;= 5
+     * </pre>
+     * 
+     * @since 3.0
+     */
+    protected String selectNextValsString(String sequenceName, int count) {
+        return "SELECT "
+                + sequenceName
+                + ".nextval FROM DUAL CONNECT BY LEVEL <= "
+                + count;
+    }
+
     /**
      * Generates primary key by calling Oracle sequence corresponding to the
      * <code>dbEntity</code>. Executed SQL looks like this:
@@ -255,6 +329,7 @@ public class OraclePkGenerator extends JdbcPkGenerator {
         }
     }
 
+    @Override
     protected int pkCacheSize(DbEntity entity) {
         // use custom generator if possible
         DbKeyGenerator keyGenerator = entity.getPrimaryKeyGenerator();
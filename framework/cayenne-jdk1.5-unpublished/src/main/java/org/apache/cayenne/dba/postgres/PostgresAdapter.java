@@ -19,6 +19,9 @@
 
 package org.apache.cayenne.dba.postgres;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,6 +29,7 @@ import java.util.Iterator;
 
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.access.DataNode;
+import org.apache.cayenne.access.QueryLogger;
 import org.apache.cayenne.access.trans.QualifierTranslator;
 import org.apache.cayenne.access.trans.QueryAssembler;
 import org.apache.cayenne.access.types.CharType;
@@ -59,6 +63,7 @@ public class PostgresAdapter extends JdbcAdapter {
 
     public PostgresAdapter() {
         setSupportsBatchUpdates(true);
+        setSupportsMultiRowInsert(true);
     }
 
     /**
@@ -72,6 +77,26 @@ public class PostgresAdapter extends JdbcAdapter {
                 .getEntityResolver()));
     }
 
+    /**
+     * Sets statement fetch size. PostgreSQL driver only reads the result via a cursor in
+     * chunks of fetch size if the connection is not in auto-commit mode, otherwise the
+     * entire result is read in memory. Cayenne-managed transactions always disable
+     * auto-commit, so this is only an issue with external transactions, and is reported
+     * to the query log.
+     * 
+     * @since 3.0
+     */
+    @Override
+    public void configureFetchSize(Connection connection, Statement statement, int fetchSize)
+            throws SQLException {
+
+        super.configureFetchSize(connection, statement, fetchSize);
+
+        if (statement.getFetchSize() > 0 && connection.getAutoCommit()) {
+            QueryLogger.log("*** fetch size is ignored by PostgreSQL in auto-commit mode");
+        }
+    }
+
     /**
      * Installs appropriate ExtendedTypes as converters for passing values between JDBC
      * and Java layers.
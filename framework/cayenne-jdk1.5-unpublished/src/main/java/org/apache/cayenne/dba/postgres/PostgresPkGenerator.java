@@ -111,6 +111,25 @@ public class PostgresPkGenerator extends OraclePkGenerator {
 
     }
 
+    /**
+     * Returns a query that reads <code>count</code> next values of a sequence. Executed
+     * SQL looks like this:
+     * 
+     * <pre>
+     *     SELECT nextval('pk_table_name') FROM generate_series(1, 5)
+     * </pre>
+     * 
+     * @since 3.0
+     */
+    @Override
+    protected String selectNextValsString(String sequenceName, int count) {
+        return "SELECT nextval('"
+                + sequenceName
+                + "') FROM generate_series(1, "
+                + count
+                + ")";
+    }
+
     /**
      * Generates primary key by calling Oracle sequence corresponding to the
      * <code>dbEntity</code>. Executed SQL looks like this:
@@ -66,6 +66,7 @@ class SQLiteSQLTemplateAction extends SQLTemplateAction {
             // start - code different from super
             if (select) {
 
+                configureFetchSize(connection, statement, queryMetadata);
                 ResultSet resultSet = statement.executeQuery();
                 try {
                     processSelectResult(
@@ -46,6 +46,7 @@ public class SQLServerActionBuilder extends JdbcActionBuilder {
         boolean runningAsBatch = !useOptimisticLock && adapter.supportsBatchUpdates();
         BatchAction action = new SQLServerBatchAction(query, adapter, entityResolver);
         action.setBatch(runningAsBatch);
+        action.setMaxBatchSize(adapter.getMaxBatchSize());
         return action;
     }
 
@@ -0,0 +1,295 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An EventBridge decorator that buffers outgoing local events and sends them through
+ * the wrapped bridge in batches. Events posted within a batching window are merged by an
+ * {@link EventCoalescer} into a single event per subject. A window is closed when either
+ * the batch interval elapses since the first buffered event, or the number of buffered
+ * events reaches the batch size. Incoming external events are passed through unchanged,
+ * with this bridge set as their source.
+ * 
+ * @since 3.0
+ */
+public class BatchingEventBridge extends EventBridge {
+
+    private static Log logger = LogFactory.getLog(BatchingEventBridge.class);
+
+    public static final long DEFAULT_BATCH_INTERVAL = 100;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    protected EventBridge delegate;
+    protected EventCoalescer coalescer;
+    protected long batchInterval;
+    protected int batchSize;
+
+    // a private sender that never posts any events; used to mute local listeners of the
+    // delegate, so that all local events are routed through the batch
+    private final Object delegateEventSource;
+
+    private final Object pendingLock;
+    private final Object sendLock;
+    private Map<EventSubject, List<CayenneEvent>> pending;
+    private int pendingCount;
+    private ScheduledExecutorService flushTimer;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final AtomicLong bufferedCount;
+    private final AtomicLong sentCount;
+
+    public BatchingEventBridge(EventBridge delegate, EventCoalescer coalescer) {
+        this(delegate, coalescer, DEFAULT_BATCH_INTERVAL, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a BatchingEventBridge wrapping another bridge.
+     * 
+     * @param delegate a bridge used to send and receive external events.
+     * @param coalescer a strategy merging buffered events.
+     * @param batchInterval max time in milliseconds an event can stay in the buffer.
+     * @param batchSize max number of events buffered in a single window.
+     */
+    public BatchingEventBridge(EventBridge delegate, EventCoalescer coalescer,
+            long batchInterval, int batchSize) {
+        super(delegate.getLocalSubjects(), delegate.getExternalSubject());
+
+        if (coalescer == null) {
+            throw new IllegalArgumentException("Null coalescer");
+        }
+
+        if (batchInterval <= 0) {
+            throw new IllegalArgumentException("Batch interval must be positive: "
+                    + batchInterval);
+        }
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: "
+                    + batchSize);
+        }
+
+        this.delegate = delegate;
+        this.eventSerializer = delegate.getEventSerializer();
+        this.coalescer = coalescer;
+        this.batchInterval = batchInterval;
+        this.batchSize = batchSize;
+
+        this.delegateEventSource = new Object();
+        this.pendingLock = new Object();
+        this.sendLock = new Object();
+        this.pending = new LinkedHashMap<EventSubject, List<CayenneEvent>>();
+        this.bufferedCount = new AtomicLong();
+        this.sentCount = new AtomicLong();
+    }
+
+    public EventBridge getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Sets the serializer on this bridge and on the delegate bridge that does the actual
+     * sending.
+     */
+    @Override
+    public void setEventSerializer(EventSerializer eventSerializer) {
+        super.setEventSerializer(eventSerializer);
+        delegate.setEventSerializer(eventSerializer);
+    }
+
+    public EventCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    public long getBatchInterval() {
+        return batchInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the number of local events currently waiting in the buffer.
+     */
+    public int getPendingCount() {
+        synchronized (pendingLock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * Returns the total number of local events that were buffered by this bridge.
+     */
+    public long getBufferedCount() {
+        return bufferedCount.get();
+    }
+
+    /**
+     * Returns the total number of events sent via the delegate bridge.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    @Override
+    protected void startupExternal() throws Exception {
+        synchronized (pendingLock) {
+            flushTimer = Executors
+                    .newSingleThreadScheduledExecutor(new FlushThreadFactory());
+        }
+
+        delegate.startup(eventManager, mode, delegateEventSource, this);
+    }
+
+    @Override
+    protected void shutdownExternal() throws Exception {
+
+        ScheduledExecutorService timer;
+        synchronized (pendingLock) {
+            timer = flushTimer;
+            flushTimer = null;
+        }
+
+        try {
+            flush();
+        }
+        finally {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+
+            delegate.shutdown();
+        }
+    }
+
+    @Override
+    protected void sendExternalEvent(CayenneEvent localEvent) throws Exception {
+
+        if (!coalescer.canCoalesce(localEvent)) {
+            // preserve event order
+            flush();
+            send(localEvent);
+            return;
+        }
+
+        boolean flushNow;
+
+        synchronized (pendingLock) {
+            EventSubject subject = localEvent.getSubject();
+            List<CayenneEvent> events = pending.get(subject);
+            if (events == null) {
+                events = new ArrayList<CayenneEvent>();
+                pending.put(subject, events);
+            }
+
+            events.add(localEvent);
+            pendingCount++;
+            bufferedCount.incrementAndGet();
+
+            flushNow = pendingCount >= batchSize;
+            if (!flushNow && scheduledFlush == null && flushTimer != null) {
+                scheduledFlush = flushTimer.schedule(
+                        new FlushTask(),
+                        batchInterval,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Merges and sends all buffered events without waiting for the batch window to
+     * close.
+     */
+    public void flush() throws Exception {
+
+        // hold the send lock while taking the batch, so that concurrent flushes do not
+        // reorder events
+        synchronized (sendLock) {
+
+            Map<EventSubject, List<CayenneEvent>> batch;
+            synchronized (pendingLock) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+
+                if (pendingCount == 0) {
+                    return;
+                }
+
+                batch = pending;
+                pending = new LinkedHashMap<EventSubject, List<CayenneEvent>>();
+                pendingCount = 0;
+            }
+
+            for (Map.Entry<EventSubject, List<CayenneEvent>> entry : batch.entrySet()) {
+                CayenneEvent merged = coalescer.coalesce(entry.getValue());
+                if (merged != null) {
+                    merged.setSubject(entry.getKey());
+                    send(merged);
+                }
+            }
+        }
+    }
+
+    private void send(CayenneEvent event) throws Exception {
+        delegate.sendExternalEvent(event);
+        sentCount.incrementAndGet();
+    }
+
+    final class FlushTask implements Runnable {
+
+        public void run() {
+            try {
+                flush();
+            }
+            catch (Exception ex) {
+                logger.warn("Error sending batched events.", ex);
+            }
+        }
+    }
+
+    final class FlushThreadFactory implements ThreadFactory {
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "BatchingEventBridge-" + externalSubject);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
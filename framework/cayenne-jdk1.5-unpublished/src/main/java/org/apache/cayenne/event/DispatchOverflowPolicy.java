@@ -0,0 +1,46 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+/**
+ * Defines how EventManager handles non-blocking events posted when its dispatch queue is
+ * full.
+ * 
+ * @since 3.0
+ */
+public enum DispatchOverflowPolicy {
+
+    /**
+     * Posting thread is blocked until there is space in the queue.
+     */
+    BLOCK,
+
+    /**
+     * Event that doesn't fit in the queue is discarded.
+     */
+    DROP,
+
+    /**
+     * Event that doesn't fit in the queue replaces an event still waiting in the queue
+     * that has the same subject and sender. If there's no such event, posting thread is
+     * blocked like with {@link #BLOCK} policy.
+     */
+    COALESCE
+}
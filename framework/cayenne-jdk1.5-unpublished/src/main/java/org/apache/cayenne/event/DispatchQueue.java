@@ -22,11 +22,10 @@ package org.apache.cayenne.event;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.cayenne.event.EventManager.Dispatch;
 import org.apache.cayenne.util.Invocation;
@@ -34,27 +33,35 @@ import org.apache.cayenne.util.Invocation;
 /**
  * Stores a set of Invocation objects, organizing them by sender. Listeners have an option
  * to receive events for a particular sender or to receive all events. EventManager
- * creates one DispatchQueue per EventSubject. DispatchQueue is thread-safe - all methods
- * that read/modify internal collections are synchronized.
+ * creates one DispatchQueue per EventSubject. DispatchQueue is thread-safe. Invocation
+ * sets are copy-on-write, so events are dispatched without holding any locks, and
+ * listeners can be (un)registered during event processing.
  * 
  * @since 1.1
  */
 class DispatchQueue {
 
-    private Set<Invocation> subjectInvocations = new HashSet<Invocation>();
+    private Collection<Invocation> subjectInvocations = new CopyOnWriteArraySet<Invocation>();
+
+    // guarded by "this"
     private Map<Object, Collection<Invocation>> invocationsBySender = new WeakHashMap<Object, Collection<Invocation>>();
 
     /**
      * Dispatches event to all listeners in the queue that are registered for this event
      * and sender.
      */
-    synchronized void dispatchEvent(Dispatch dispatch) {
+    void dispatchEvent(Dispatch dispatch) {
         // dispatch to "any sender" listeners
         dispatchEvent(subjectInvocations, dispatch);
 
         // dispatch to the given sender listeners
         Object sender = dispatch.getSender();
-        dispatchEvent(invocationsForSender(sender, false), dispatch);
+        Collection<Invocation> senderInvocations;
+        synchronized (this) {
+            senderInvocations = invocationsForSender(sender, false);
+        }
+
+        dispatchEvent(senderInvocations, dispatch);
     }
 
     synchronized void addInvocation(Invocation invocation, Object sender) {
@@ -71,14 +78,20 @@ class DispatchQueue {
         // result in a memory leak per CAY-770. This seemed to happen when lots of
         // invocations got registered, but no events were dispatched (hence the stale
         // invocation removal during dispatch did not happen)
-        Iterator<Invocation> it = invocations.iterator();
-        while (it.hasNext()) {
-            Invocation i = it.next();
+        List<Invocation> stale = null;
+        for (Invocation i : invocations) {
             if (i.getTarget() == null) {
-                it.remove();
+                if (stale == null) {
+                    stale = new ArrayList<Invocation>();
+                }
+                stale.add(i);
             }
         }
 
+        if (stale != null) {
+            invocations.removeAll(stale);
+        }
+
         invocations.add(invocation);
     }
 
@@ -99,14 +112,7 @@ class DispatchQueue {
                 continue;
             }
 
-            Iterator<Invocation> it = senderInvocations.iterator();
-            while (it.hasNext()) {
-                Invocation invocation = it.next();
-                if (invocation.getTarget() == listener) {
-                    it.remove();
-                    didRemove = true;
-                }
-            }
+            didRemove |= removeInvocations(senderInvocations, listener);
         }
 
         return didRemove;
@@ -115,7 +121,7 @@ class DispatchQueue {
     private Collection<Invocation> invocationsForSender(Object sender, boolean create) {
         Collection<Invocation> senderInvocations = invocationsBySender.get(sender);
         if (create && senderInvocations == null) {
-            senderInvocations = new HashSet<Invocation>();
+            senderInvocations = new CopyOnWriteArraySet<Invocation>();
             invocationsBySender.put(sender, senderInvocations);
         }
 
@@ -128,18 +134,17 @@ class DispatchQueue {
             return false;
         }
 
-        boolean didRemove = false;
-
-        Iterator<Invocation> invocationsIt = invocations.iterator();
-        while (invocationsIt.hasNext()) {
-            Invocation invocation = invocationsIt.next();
+        List<Invocation> removed = null;
+        for (Invocation invocation : invocations) {
             if (invocation.getTarget() == listener) {
-                invocationsIt.remove();
-                didRemove = true;
+                if (removed == null) {
+                    removed = new ArrayList<Invocation>();
+                }
+                removed.add(invocation);
             }
         }
 
-        return didRemove;
+        return removed != null && invocations.removeAll(removed);
     }
 
     // dispatches event to a list of listeners
@@ -148,9 +153,9 @@ class DispatchQueue {
             return;
         }
 
-        // iterate over copy of the collection as there is a chance a caller would want to
-        // (un)register another listener during event processing
-        for (Invocation invocation : new ArrayList<Invocation>(invocations)) {
+        // copy-on-write collection iterator is not affected by the listeners
+        // (un)registering other listeners during event processing
+        for (Invocation invocation : invocations) {
             // fire invocation, detect if anything went wrong (e.g. GC'ed invocation
             // targets)
             if (!dispatch.fire(invocation)) {
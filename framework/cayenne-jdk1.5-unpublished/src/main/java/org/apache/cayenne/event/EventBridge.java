@@ -67,6 +67,11 @@ public abstract class EventBridge implements EventListener {
 
     protected Object externalEventSource;
 
+    /**
+     * @since 3.0
+     */
+    protected EventSerializer eventSerializer;
+
     // keeps all listeners so that they are not deallocated
     Collection<SubjectListener> listeners;
 
@@ -139,6 +144,26 @@ public abstract class EventBridge implements EventListener {
         return eventManager;
     }
 
+    /**
+     * Returns a serializer used to convert events to bytes sent over the wire, or null
+     * if the bridge sends events as serialized Java objects.
+     * 
+     * @since 3.0
+     */
+    public EventSerializer getEventSerializer() {
+        return eventSerializer;
+    }
+
+    /**
+     * Sets a serializer used to convert events to bytes sent over the wire. Bridges
+     * connected to the same external subject must use compatible serializers.
+     * 
+     * @since 3.0
+     */
+    public void setEventSerializer(EventSerializer eventSerializer) {
+        this.eventSerializer = eventSerializer;
+    }
+
     /**
      * Returns an object used as a source of local events posted in response to remote
      * events. If externalEventSource wasn't setup during bridge startup (or if the bridge
@@ -0,0 +1,44 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.util.List;
+
+/**
+ * A strategy used by {@link BatchingEventBridge} to merge a number of events posted
+ * within a single batching window into one event.
+ * 
+ * @since 3.0
+ */
+public interface EventCoalescer {
+
+    /**
+     * Returns true if the event can be buffered and later merged with other events.
+     * Events that can not be coalesced are sent right away.
+     */
+    boolean canCoalesce(CayenneEvent event);
+
+    /**
+     * Merges a list of events, all posted to the same subject, into a single event.
+     * Events are passed in the order they were posted. May return null if the merged
+     * event carries no changes and does not need to be sent.
+     */
+    CayenneEvent coalesce(List<CayenneEvent> events);
+}
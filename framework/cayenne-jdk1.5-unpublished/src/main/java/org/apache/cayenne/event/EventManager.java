@@ -19,13 +19,20 @@
 
 package org.apache.cayenne.event;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventObject;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.cayenne.CayenneRuntimeException;
 import org.apache.cayenne.util.Invocation;
@@ -34,7 +41,14 @@ import org.apache.cayenne.util.Invocation;
  * This class acts as bridge between an Object that wants to inform others about its
  * current state or a change thereof (Publisher) and a list of objects interested in the
  * Subject (Listeners).
- * 
+ * <p>
+ * Non-blocking events are dispatched by a pool of threads from a concurrent queue. The
+ * queue can be bounded, in which case a {@link DispatchOverflowPolicy} defines what
+ * happens to the events posted when the queue is full. Subject listeners are looked up
+ * without locking in a copy-on-write registry. EventManager keeps counters of posted,
+ * dispatched, dropped and coalesced events, as well as the queue wait time of the
+ * dispatched events.
+ * </p>
  */
 public class EventManager {
 
@@ -42,13 +56,39 @@ public class EventManager {
 
     public static final int DEFAULT_DISPATCH_THREAD_COUNT = 5;
 
-    // keeps weak references to subjects
-    protected Map<EventSubject, DispatchQueue> subjects;
-    protected List<Dispatch> eventQueue;
+    /**
+     * @since 3.0
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = Integer.MAX_VALUE;
+
+    // copy-on-write registry keyed by subject name, keeping weak references to subjects
+    protected volatile Map<String, SubjectEntry> subjects;
+    protected BlockingQueue<Dispatch> eventQueue;
     protected boolean singleThread;
     protected volatile boolean stopped;
     List<DispatchThread> dispatchThreads;
 
+    /**
+     * @since 3.0
+     */
+    protected int queueCapacity;
+
+    /**
+     * @since 3.0
+     */
+    protected DispatchOverflowPolicy overflowPolicy;
+
+    // queued dispatches that can be coalesced; only used with COALESCE policy
+    private ConcurrentMap<DispatchKey, Dispatch> pendingDispatches;
+    private final Object subjectsLock = new Object();
+
+    private AtomicLong postedCount;
+    private AtomicLong dispatchedCount;
+    private AtomicLong droppedCount;
+    private AtomicLong coalescedCount;
+    private AtomicLong totalLatencyNanos;
+    private AtomicLong maxLatencyNanos;
+
     /**
      * Returns the shared EventManager. It is created on demand on the first call to this
      * method. Cayenne internally doesn't use default EventManager. Instead Configuration
@@ -82,11 +122,44 @@ public class EventManager {
      * less.
      */
     public EventManager(int dispatchThreadCount) {
-        this.subjects = Collections
-                .synchronizedMap(new WeakHashMap<EventSubject, DispatchQueue>());
-        this.eventQueue = Collections.synchronizedList(new LinkedList<Dispatch>());
+        this(dispatchThreadCount, DEFAULT_QUEUE_CAPACITY, DispatchOverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates an EventManager starting the specified number of threads for multithreaded
+     * dispatching, with the queue of non-blocking events limited to the specified
+     * capacity.
+     * 
+     * @since 3.0
+     */
+    public EventManager(int dispatchThreadCount, int queueCapacity,
+            DispatchOverflowPolicy overflowPolicy) {
+
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+        }
+
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Null overflow policy");
+        }
+
+        this.subjects = Collections.emptyMap();
+        this.eventQueue = new LinkedBlockingQueue<Dispatch>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
         this.singleThread = dispatchThreadCount <= 0;
 
+        if (overflowPolicy == DispatchOverflowPolicy.COALESCE) {
+            this.pendingDispatches = new ConcurrentHashMap<DispatchKey, Dispatch>();
+        }
+
+        this.postedCount = new AtomicLong();
+        this.dispatchedCount = new AtomicLong();
+        this.droppedCount = new AtomicLong();
+        this.coalescedCount = new AtomicLong();
+        this.totalLatencyNanos = new AtomicLong();
+        this.maxLatencyNanos = new AtomicLong();
+
         if (!singleThread) {
             dispatchThreads = new ArrayList<DispatchThread>(dispatchThreadCount);
 
@@ -123,9 +196,92 @@ public class EventManager {
      * @since 1.1
      */
     public List<Dispatch> getEventQueue() {
-        synchronized (eventQueue) {
-            return new ArrayList<Dispatch>(eventQueue);
-        }
+        return new ArrayList<Dispatch>(eventQueue);
+    }
+
+    /**
+     * Returns the maximum number of non-blocking events that can be queued.
+     * 
+     * @since 3.0
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns a policy applied to events posted when the queue is full.
+     * 
+     * @since 3.0
+     */
+    public DispatchOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the current number of queued non-blocking events.
+     * 
+     * @since 3.0
+     */
+    public int getQueueDepth() {
+        return eventQueue.size();
+    }
+
+    /**
+     * Returns the total number of non-blocking events posted to the queue, including
+     * the ones that were later dropped or coalesced.
+     * 
+     * @since 3.0
+     */
+    public long getPostedCount() {
+        return postedCount.get();
+    }
+
+    /**
+     * Returns the total number of non-blocking events taken from the queue and
+     * dispatched.
+     * 
+     * @since 3.0
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     * 
+     * @since 3.0
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of events that replaced a queued event with the same subject
+     * and sender because the queue was full.
+     * 
+     * @since 3.0
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the total time in milliseconds the dispatched events spent waiting in the
+     * queue.
+     * 
+     * @since 3.0
+     */
+    public long getTotalDispatchLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get());
+    }
+
+    /**
+     * Returns the longest time in milliseconds an event spent waiting in the queue.
+     * 
+     * @since 3.0
+     */
+    public long getMaxDispatchLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
     }
 
     /**
@@ -257,11 +413,9 @@ public class EventManager {
 
         boolean didRemove = false;
 
-        synchronized (subjects) {
-            if (!subjects.isEmpty()) {
-                for (EventSubject subject : subjects.keySet()) {
-                    didRemove |= this.removeListener(listener, subject);
-                }
+        for (SubjectEntry entry : subjects.values()) {
+            if (entry.subject.get() != null) {
+                didRemove |= entry.queue.removeInvocations(listener, null);
             }
         }
 
@@ -273,8 +427,11 @@ public class EventManager {
      */
     public boolean removeAllListeners(EventSubject subject) {
         if (subject != null) {
-            synchronized (subjects) {
-                return subjects.remove(subject) != null;
+            synchronized (subjectsLock) {
+                Map<String, SubjectEntry> copy = copySubjects();
+                SubjectEntry removed = copy.remove(subject.getSubjectName());
+                this.subjects = copy;
+                return removed != null && removed.subject.get() != null;
             }
         }
 
@@ -347,9 +504,120 @@ public class EventManager {
         }
 
         // add dispatch to the queue and return
-        synchronized (eventQueue) {
-            eventQueue.add(new Dispatch(event, subject));
-            eventQueue.notifyAll();
+        enqueue(new Dispatch(event, subject));
+    }
+
+    /**
+     * Adds a dispatch to the queue, applying overflow policy if the queue is full.
+     */
+    void enqueue(Dispatch dispatch) {
+        postedCount.incrementAndGet();
+        dispatch.queuedAt = System.nanoTime();
+
+        if (offer(dispatch)) {
+            return;
+        }
+
+        if (overflowPolicy == DispatchOverflowPolicy.DROP) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        if (overflowPolicy == DispatchOverflowPolicy.COALESCE) {
+            DispatchKey key = new DispatchKey(dispatch);
+            Dispatch pending = pendingDispatches.get(key);
+            if (pending != null) {
+                if (pending.replaceEventArgument(dispatch.eventArgument)) {
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+
+                // already taken from the queue
+                pendingDispatches.remove(key, pending);
+            }
+        }
+
+        // dispatch threads must not block waiting for themselves to free the queue, so
+        // the event is dispatched in the current thread instead
+        if (Thread.currentThread() instanceof DispatchThread
+                && ((DispatchThread) Thread.currentThread()).getManager() == this) {
+            dispatched(dispatch);
+            dispatch.fire();
+            return;
+        }
+
+        registerPending(dispatch);
+        try {
+            while (!stopped) {
+                if (eventQueue.offer(dispatch, 1, TimeUnit.SECONDS)) {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        unregisterPending(dispatch);
+        droppedCount.incrementAndGet();
+    }
+
+    private boolean offer(Dispatch dispatch) {
+
+        // must register before the dispatch becomes visible to the dispatch threads
+        Dispatch previous = registerPending(dispatch);
+
+        if (eventQueue.offer(dispatch)) {
+            return true;
+        }
+
+        // restore the previously queued dispatch so that it can be coalesced
+        if (previous != null) {
+            pendingDispatches.replace(new DispatchKey(dispatch), dispatch, previous);
+        }
+        else {
+            unregisterPending(dispatch);
+        }
+
+        return false;
+    }
+
+    private Dispatch registerPending(Dispatch dispatch) {
+        return pendingDispatches != null ? pendingDispatches.put(
+                new DispatchKey(dispatch),
+                dispatch) : null;
+    }
+
+    private void unregisterPending(Dispatch dispatch) {
+        if (pendingDispatches != null) {
+            pendingDispatches.remove(new DispatchKey(dispatch), dispatch);
+        }
+    }
+
+    /**
+     * Takes a dispatch out of the queue, returning false if it was already taken.
+     */
+    boolean take(Dispatch dispatch) {
+        if (!dispatch.take()) {
+            return false;
+        }
+
+        unregisterPending(dispatch);
+        dispatched(dispatch);
+        return true;
+    }
+
+    private void dispatched(Dispatch dispatch) {
+        dispatchedCount.incrementAndGet();
+
+        long latency = System.nanoTime() - dispatch.queuedAt;
+        totalLatencyNanos.addAndGet(latency);
+
+        long max;
+        while ((max = maxLatencyNanos.get()) < latency) {
+            if (maxLatencyNanos.compareAndSet(max, latency)) {
+                break;
+            }
         }
     }
 
@@ -362,21 +630,99 @@ public class EventManager {
 
     // returns a subject's mapping from senders to registered listener invocations
     private DispatchQueue dispatchQueueForSubject(EventSubject subject, boolean create) {
-        synchronized (subjects) {
-            DispatchQueue listenersStore = subjects.get(subject);
-            if (create && listenersStore == null) {
-                listenersStore = new DispatchQueue();
-                subjects.put(subject, listenersStore);
+
+        // lock-free lookup
+        SubjectEntry entry = subjects.get(subject.getSubjectName());
+        if (entry != null && entry.subject.get() != null) {
+            return entry.queue;
+        }
+
+        if (!create) {
+            return null;
+        }
+
+        synchronized (subjectsLock) {
+            entry = subjects.get(subject.getSubjectName());
+            if (entry != null && entry.subject.get() != null) {
+                return entry.queue;
+            }
+
+            entry = new SubjectEntry(subject);
+            Map<String, SubjectEntry> copy = copySubjects();
+            copy.put(subject.getSubjectName(), entry);
+            this.subjects = copy;
+            return entry.queue;
+        }
+    }
+
+    // copies the subjects registry, skipping the subjects that were garbage collected
+    private Map<String, SubjectEntry> copySubjects() {
+        Map<String, SubjectEntry> copy = new HashMap<String, SubjectEntry>(subjects);
+
+        Iterator<SubjectEntry> it = copy.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().subject.get() == null) {
+                it.remove();
             }
-            return listenersStore;
+        }
+
+        return copy;
+    }
+
+    // a subject registry entry that doesn't prevent the subject from being GC'ed
+    static final class SubjectEntry {
+
+        final WeakReference<EventSubject> subject;
+        final DispatchQueue queue;
+
+        SubjectEntry(EventSubject subject) {
+            this.subject = new WeakReference<EventSubject>(subject);
+            this.queue = new DispatchQueue();
+        }
+    }
+
+    // identifies queued dispatches that can be coalesced
+    static final class DispatchKey {
+
+        final EventSubject subject;
+        final Object sender;
+        final Object target;
+
+        DispatchKey(Dispatch dispatch) {
+            this.subject = dispatch.subject;
+            this.sender = dispatch.getSender();
+            this.target = (dispatch instanceof InvocationDispatch)
+                    ? ((InvocationDispatch) dispatch).target
+                    : null;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof DispatchKey)) {
+                return false;
+            }
+
+            DispatchKey key = (DispatchKey) object;
+            return sender == key.sender && target == key.target
+                    && subject.equals(key.subject);
+        }
+
+        @Override
+        public int hashCode() {
+            return subject.hashCode()
+                    + 31
+                    * System.identityHashCode(sender)
+                    + System.identityHashCode(target);
         }
     }
 
     // represents a posted event
     class Dispatch {
 
-        EventObject[] eventArgument;
+        volatile EventObject[] eventArgument;
         EventSubject subject;
+        long queuedAt;
+        private boolean taken;
 
         Dispatch(EventObject event, EventSubject subject) {
             this(new EventObject[] {
@@ -393,6 +739,24 @@ public class EventManager {
             return eventArgument[0].getSource();
         }
 
+        synchronized boolean take() {
+            if (taken) {
+                return false;
+            }
+
+            taken = true;
+            return true;
+        }
+
+        synchronized boolean replaceEventArgument(EventObject[] eventArgument) {
+            if (taken) {
+                return false;
+            }
+
+            this.eventArgument = eventArgument;
+            return true;
+        }
+
         void fire() {
             EventManager.this.dispatchEvent(Dispatch.this);
         }
@@ -406,14 +770,7 @@ public class EventManager {
                 }
 
                 // inject single invocation dispatch into the queue
-                synchronized (eventQueue) {
-                    eventQueue.add(new InvocationDispatch(
-                            eventArgument,
-                            subject,
-                            invocation));
-                    eventQueue.notifyAll();
-                }
-
+                enqueue(new InvocationDispatch(eventArgument, subject, invocation));
                 return true;
             }
             else {
@@ -458,6 +815,10 @@ public class EventManager {
             setDaemon(true);
         }
 
+        EventManager getManager() {
+            return EventManager.this;
+        }
+
         @Override
         public void run() {
             while (!stopped) {
@@ -466,23 +827,15 @@ public class EventManager {
                 // is empty, just wait
                 Dispatch dispatch = null;
 
-                synchronized (EventManager.this.eventQueue) {
-                    if (EventManager.this.eventQueue.size() > 0) {
-                        dispatch = EventManager.this.eventQueue.remove(0);
-                    }
-                    else {
-                        try {
-                            // wake up occasionally to check whether EM has been stopped
-                            EventManager.this.eventQueue.wait(3 * 60 * 1000);
-                        }
-                        catch (InterruptedException e) {
-                            // ignore interrupts...
-                        }
-                    }
+                try {
+                    // wake up occasionally to check whether EM has been stopped
+                    dispatch = eventQueue.poll(3 * 60 * 1000, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e) {
+                    // ignore interrupts...
                 }
 
-                // dispatch outside of synchronized block
-                if (!stopped && dispatch != null) {
+                if (!stopped && dispatch != null && take(dispatch)) {
                     // this try/catch is needed to prevent DispatchThread
                     // from dying on dispatch errors
                     try {
@@ -0,0 +1,44 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.io.IOException;
+
+/**
+ * Converts CayenneEvents to a byte array suitable for sending over the wire and back.
+ * EventBridges configured with a serializer send serialized bytes instead of event
+ * objects. All peers connected to the same external subject must use compatible
+ * serializers.
+ * 
+ * @since 3.0
+ */
+public interface EventSerializer {
+
+    /**
+     * Converts an event to a byte array.
+     */
+    byte[] serialize(CayenneEvent event) throws IOException;
+
+    /**
+     * Restores an event from a byte array. Returns null if the bytes do not represent a
+     * supported event.
+     */
+    CayenneEvent deserialize(byte[] bytes) throws IOException;
+}
@@ -64,7 +64,21 @@ public class EventSubject implements Serializable {
             throw new IllegalArgumentException("Subject name must not be null or empty.");
         }
 
-        String fullSubjectName = subjectOwner.getName() + "/" + subjectName;
+        return getSubject(subjectOwner.getName() + "/" + subjectName);
+    }
+
+    /**
+     * Returns an event subject identified by a fully qualified name in the form returned
+     * by {@link #getSubjectName()}. Used to restore subjects of events received from
+     * other VMs.
+     * 
+     * @since 3.0
+     */
+    public static EventSubject getSubject(String fullSubjectName) {
+        if ((fullSubjectName == null) || (fullSubjectName.length() == 0)) {
+            throw new IllegalArgumentException("Subject name must not be null or empty.");
+        }
+
         EventSubject newSubject = _registeredSubjects.get(fullSubjectName);
         if (newSubject == null) {
             newSubject = new EventSubject(fullSubjectName);
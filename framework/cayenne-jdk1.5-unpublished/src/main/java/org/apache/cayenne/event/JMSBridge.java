@@ -241,19 +241,24 @@ public class JMSBridge extends EventBridge implements MessageListener {
 
     /**
      * Converts CayenneEvent to a serializable object that will be sent via JMS. Default
-     * implementation simply returns the event, but subclasses can customize this
-     * behavior.
+     * implementation returns a byte array produced by the EventSerializer if one is set,
+     * or the event itself otherwise. Subclasses can customize this behavior.
      */
     protected Serializable eventToMessageObject(CayenneEvent event) throws Exception {
-        return event;
+        return (eventSerializer != null) ? eventSerializer.serialize(event) : event;
     }
 
     /**
      * Converts a Serializable instance to CayenneEvent. Returns null if the object is not
-     * supported. Default implementation simply tries to cast the object to CayenneEvent,
-     * but subclasses can customize this behavior.
+     * supported. Default implementation decodes byte arrays with the EventSerializer if
+     * one is set, otherwise tries to cast the object to CayenneEvent. Subclasses can
+     * customize this behavior.
      */
     protected CayenneEvent messageObjectToEvent(Serializable object) throws Exception {
+        if (eventSerializer != null && object instanceof byte[]) {
+            return eventSerializer.deserialize((byte[]) object);
+        }
+
         return (object instanceof CayenneEvent) ? (CayenneEvent) object : null;
     }
 }
@@ -0,0 +1,136 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An EventBridge that connects bridges within the same VM. Every event is converted to
+ * bytes and delivered to all other started LoopbackBridges with the same external
+ * subject, which restore it from the bytes. So while no network is involved, events go
+ * through the same serialization steps as with a real transport, which makes this bridge
+ * suitable for testing remote notifications and EventSerializers. If no
+ * {@link EventSerializer} is set, Java serialization is used.
+ * 
+ * @since 3.0
+ */
+public class LoopbackBridge extends EventBridge {
+
+    static final Map<String, Collection<LoopbackBridge>> channels = new ConcurrentHashMap<String, Collection<LoopbackBridge>>();
+
+    protected EventSerializer defaultSerializer;
+
+    private final AtomicLong sentMessages;
+    private final AtomicLong sentBytes;
+
+    public LoopbackBridge(EventSubject localSubject, String externalSubject) {
+        this(Collections.singleton(localSubject), externalSubject);
+    }
+
+    public LoopbackBridge(Collection<EventSubject> localSubjects, String externalSubject) {
+        super(localSubjects, externalSubject);
+        this.defaultSerializer = new JavaEventSerializer();
+        this.sentMessages = new AtomicLong();
+        this.sentBytes = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of messages sent by this bridge.
+     */
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    /**
+     * Returns the total size in bytes of the messages sent by this bridge.
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    @Override
+    protected void startupExternal() throws Exception {
+        Collection<LoopbackBridge> channel;
+        synchronized (channels) {
+            channel = channels.get(externalSubject);
+            if (channel == null) {
+                channel = new CopyOnWriteArraySet<LoopbackBridge>();
+                channels.put(externalSubject, channel);
+            }
+        }
+
+        channel.add(this);
+    }
+
+    @Override
+    protected void shutdownExternal() throws Exception {
+        synchronized (channels) {
+            Collection<LoopbackBridge> channel = channels.get(externalSubject);
+            if (channel != null) {
+                channel.remove(this);
+                if (channel.isEmpty()) {
+                    channels.remove(externalSubject);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void sendExternalEvent(CayenneEvent localEvent) throws Exception {
+        byte[] message = getSerializer().serialize(localEvent);
+        sentMessages.incrementAndGet();
+        sentBytes.addAndGet(message.length);
+
+        Collection<LoopbackBridge> channel = channels.get(externalSubject);
+        if (channel != null) {
+            Iterator<LoopbackBridge> it = channel.iterator();
+            while (it.hasNext()) {
+                LoopbackBridge bridge = it.next();
+
+                // discard messages from self
+                if (bridge != this) {
+                    bridge.receive(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores an event from a message sent by another bridge and posts it locally.
+     */
+    protected void receive(byte[] message) throws Exception {
+        if (receivesExternalEvents() && isRunning()) {
+            CayenneEvent event = getSerializer().deserialize(message);
+            if (event != null) {
+                onExternalEvent(event);
+            }
+        }
+    }
+
+    EventSerializer getSerializer() {
+        return eventSerializer != null ? eventSerializer : defaultSerializer;
+    }
+}
@@ -222,7 +222,8 @@ public class XMPPBridge extends EventBridge {
     protected void sendExternalEvent(CayenneEvent localEvent) throws Exception {
 
         Message message = groupChat.createMessage();
-        message.setBody(serializeToString(localEvent));
+        message.setBody(eventSerializer != null ? encodeToString(eventSerializer
+                .serialize(localEvent)) : serializeToString(localEvent));
 
         // set thread to our session handle to be able to discard messages from self
         message.setThread(sessionHandle);
@@ -246,7 +247,9 @@ public class XMPPBridge extends EventBridge {
                     String payload = message.getBody();
 
                     try {
-                        Object event = deserializeFromString(payload);
+                        Object event = eventSerializer != null
+                                ? decodeFromString(payload)
+                                : deserializeFromString(payload);
                         if (event instanceof CayenneEvent) {
                             onExternalEvent((CayenneEvent) event);
                         }
@@ -259,6 +262,25 @@ public class XMPPBridge extends EventBridge {
         }
     }
 
+    /**
+     * Decodes the String (assuming it is using Base64 encoding), and then restores an
+     * event from the bytes using the EventSerializer.
+     */
+    CayenneEvent decodeFromString(String string) throws Exception {
+        if (Util.isEmptyString(string)) {
+            return null;
+        }
+
+        return eventSerializer.deserialize(Base64Codec.decodeBase64(string.getBytes()));
+    }
+
+    /**
+     * Encodes serialized event bytes using Base64 encoding.
+     */
+    static String encodeToString(byte[] bytes) {
+        return new String(Base64Codec.encodeBase64(bytes));
+    }
+
     /**
      * Decodes the String (assuming it is using Base64 encoding), and then deserializes
      * object from the byte array.
@@ -0,0 +1,95 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+
+package org.apache.cayenne.exp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.cayenne.util.ConversionUtil;
+
+/**
+ * An expression compiled for repeated in-memory evaluation. Compilation resolves
+ * expression paths and constant operands once, so evaluating a compiled expression
+ * against many objects doesn't have to parse path strings or look up properties for
+ * each object. Evaluation results are the same as those of the original expression.
+ * 
+ * @since 3.0
+ * @see Expression#compile()
+ */
+public abstract class CompiledExpression {
+
+    protected Expression expression;
+
+    protected CompiledExpression(Expression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Returns the expression that was compiled.
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Calculates expression value with object as a context for path expressions.
+     */
+    public abstract Object evaluate(Object o);
+
+    /**
+     * Calculates expression boolean value with object as a context for path expressions.
+     */
+    public boolean match(Object o) {
+        return ConversionUtil.toBoolean(evaluate(o));
+    }
+
+    /**
+     * Returns a list of objects that match the expression.
+     */
+    public <T> List<T> filterObjects(List<T> objects) {
+        if (objects == null || objects.size() == 0) {
+            return Collections.EMPTY_LIST;
+        }
+
+        return (List<T>) filter(objects, new LinkedList<T>());
+    }
+
+    /**
+     * Adds objects matching this expression from the source collection to the target
+     * collection.
+     */
+    public <T> Collection<?> filter(Collection<T> source, Collection<T> target) {
+        for (T o : source) {
+            if (match(o)) {
+                target.add(o);
+            }
+        }
+
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -31,8 +31,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.cayenne.exp.parser.ASTScalar;
+import org.apache.cayenne.exp.parser.ExpressionCompiler;
 import org.apache.cayenne.exp.parser.ExpressionParser;
 import org.apache.cayenne.exp.parser.ParseException;
+import org.apache.cayenne.reflect.ClassDescriptor;
 import org.apache.cayenne.util.ConversionUtil;
 import org.apache.cayenne.util.Util;
 import org.apache.cayenne.util.XMLEncoder;
@@ -121,12 +123,20 @@ public abstract class Expression implements Serializable, XMLSerializable {
 
     /**
      * Parses string, converting it to Expression. If string does not represent a
-     * semantically correct expression, an ExpressionException is thrown.
+     * semantically correct expression, an ExpressionException is thrown. Parsed
+     * expressions are cached in the {@link ExpressionCache#getSharedCache() shared
+     * cache}, so each call returns a new copy of the cached expression.
      * 
      * @since 1.1
      */
-    // TODO: cache expression strings, since this operation is pretty slow
     public static Expression fromString(String expressionString) {
+        return ExpressionCache.getSharedCache().getExpression(expressionString);
+    }
+
+    /**
+     * Parses string, bypassing the cache.
+     */
+    static Expression parse(String expressionString) {
         if (expressionString == null) {
             throw new NullPointerException("Null expression string.");
         }
@@ -367,6 +377,28 @@ public abstract class Expression implements Serializable, XMLSerializable {
         return ConversionUtil.toBoolean(evaluate(o));
     }
 
+    /**
+     * Compiles this expression for repeated in-memory evaluation. Compiled expression
+     * resolves paths and converts constants once, instead of doing it for every
+     * evaluated object.
+     * 
+     * @since 3.0
+     */
+    public CompiledExpression compile() {
+        return new ExpressionCompiler().compile(this);
+    }
+
+    /**
+     * Compiles this expression for repeated in-memory evaluation against objects
+     * described by a given descriptor. Paths starting at the descriptor's object class
+     * are bound to the descriptor properties.
+     * 
+     * @since 3.0
+     */
+    public CompiledExpression compile(ClassDescriptor descriptor) {
+        return new ExpressionCompiler().compile(this, descriptor);
+    }
+
     /**
      * Returns a list of objects that match the expression.
      */
@@ -385,13 +417,7 @@ public abstract class Expression implements Serializable, XMLSerializable {
      * @since 1.1
      */
     public <T> Collection<?> filter(Collection<T> source, Collection<T> target) {
-        for (T o : source) {
-            if (match(o)) {
-                target.add(o);
-            }
-        }
-
-        return target;
+        return compile().filter(source, target);
     }
 
     /**
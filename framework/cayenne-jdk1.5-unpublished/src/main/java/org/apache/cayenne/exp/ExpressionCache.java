@@ -0,0 +1,216 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+
+package org.apache.cayenne.exp;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed expressions keyed by expression string. Cached expressions
+ * are used as immutable templates and are never returned to the caller directly.
+ * Instead each lookup returns a copy of the template, or an instance with the template
+ * parameters bound to the provided values. Lookups do not acquire any locks. When the
+ * cache grows over its maximum size, arbitrary entries are evicted.
+ * 
+ * @since 3.0
+ */
+public class ExpressionCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final ExpressionCache sharedCache = new ExpressionCache();
+
+    protected ConcurrentMap<String, Template> templates;
+    protected int maxSize;
+
+    protected AtomicLong hitCount;
+    protected AtomicLong missCount;
+
+    /**
+     * Returns a cache used by {@link Expression#fromString(String)}.
+     */
+    public static ExpressionCache getSharedCache() {
+        return sharedCache;
+    }
+
+    public ExpressionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ExpressionCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.templates = new ConcurrentHashMap<String, Template>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets maximum number of cached expressions. Zero or negative value disables caching.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Returns a number of cached expressions.
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Removes all cached expressions.
+     */
+    public void clear() {
+        templates.clear();
+    }
+
+    /**
+     * Returns a number of times a cached expression was reused.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns a number of times an expression had to be parsed.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns a new expression for the expression string, parsing the string only if
+     * it is not cached yet.
+     */
+    public Expression getExpression(String expressionString) {
+        Template template = getTemplate(expressionString);
+        return template != null ? template.expression.deepCopy() : null;
+    }
+
+    /**
+     * Returns a new expression for the expression string with named parameters
+     * substituted with the values from the map. Same as
+     * <code>getExpression(expressionString).expWithParameters(parameters, pruneMissing)</code>,
+     * only the cached expression is copied once instead of twice.
+     */
+    public Expression getExpression(
+            String expressionString,
+            Map<String, ?> parameters,
+            boolean pruneMissing) {
+        Template template = getTemplate(expressionString);
+        if (template == null) {
+            return null;
+        }
+
+        return template.parameterized ? template.expression.expWithParameters(
+                parameters,
+                pruneMissing) : template.expression.deepCopy();
+    }
+
+    Template getTemplate(String expressionString) {
+        if (expressionString == null) {
+            throw new NullPointerException("Null expression string.");
+        }
+
+        Template template = templates.get(expressionString);
+        if (template != null) {
+            hitCount.incrementAndGet();
+            return template;
+        }
+
+        missCount.incrementAndGet();
+
+        Expression expression = Expression.parse(expressionString);
+        if (expression == null) {
+            return null;
+        }
+
+        template = new Template(expression);
+        if (maxSize > 0) {
+            Template existing = templates.putIfAbsent(expressionString, template);
+            if (existing != null) {
+                return existing;
+            }
+
+            evict();
+        }
+
+        return template;
+    }
+
+    private void evict() {
+        int overflow = templates.size() - Math.max(maxSize, 0);
+        if (overflow > 0) {
+            Iterator<String> it = templates.keySet().iterator();
+            while (overflow-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * A parsed expression along with the information collected from it at the parse
+     * time.
+     */
+    static final class Template {
+
+        final Expression expression;
+        final boolean parameterized;
+
+        Template(Expression expression) {
+            this.expression = expression;
+            this.parameterized = hasParameters(expression);
+        }
+
+        private static boolean hasParameters(Expression expression) {
+            int len = expression.getOperandCount();
+            for (int i = 0; i < len; i++) {
+                Object operand = expression.getOperand(i);
+                if (operand instanceof ExpressionParameter) {
+                    return true;
+                }
+                else if (operand instanceof Expression
+                        && hasParameters((Expression) operand)) {
+                    return true;
+                }
+                else if (operand instanceof Object[]) {
+                    for (Object value : (Object[]) operand) {
+                        if (value instanceof ExpressionParameter) {
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -59,31 +59,38 @@ public class ASTEqual extends ConditionNode {
 
         Object o1 = evaluateChild(0, o);
         Object o2 = evaluateChild(1, o);
+        return evaluateEquals(o1, o2) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /**
+     * Compares two evaluated operands for equality.
+     * 
+     * @since 3.0
+     */
+    static boolean evaluateEquals(Object o1, Object o2) {
 
         // TODO: maybe we need a comparison "strategy" here, instead of
         // a switch of all possible cases? ... there were other requests for
         // more relaxed type-unsafe comparison (e.g. numbers to strings)
 
         if (o1 == null && o2 == null) {
-            return Boolean.TRUE;
+            return true;
         }
         else if (o1 != null) {
             // BigDecimals must be compared using compareTo (
             // see CAY-280 and BigDecimal.equals JavaDoc)
             if (o1 instanceof BigDecimal) {
                 if (o2 instanceof BigDecimal) {
-                    return ((BigDecimal) o1).compareTo((BigDecimal) o2) == 0
-                            ? Boolean.TRUE
-                            : Boolean.FALSE;
+                    return ((BigDecimal) o1).compareTo((BigDecimal) o2) == 0;
                 }
 
-                return Boolean.FALSE;
+                return false;
             }
 
-            return o1.equals(o2) ? Boolean.TRUE : Boolean.FALSE;
+            return o1.equals(o2);
         }
         else {
-            return Boolean.FALSE;
+            return false;
         }
     }
 
@@ -0,0 +1,760 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.exp.parser;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import org.apache.cayenne.CayenneDataObject;
+import org.apache.cayenne.DataObject;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.Persistent;
+import org.apache.cayenne.exp.CompiledExpression;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.exp.ExpressionException;
+import org.apache.cayenne.map.Entity;
+import org.apache.cayenne.reflect.ArcProperty;
+import org.apache.cayenne.reflect.ClassDescriptor;
+import org.apache.cayenne.reflect.Property;
+import org.apache.cayenne.reflect.PropertyUtils;
+import org.apache.cayenne.reflect.ToManyProperty;
+import org.apache.cayenne.reflect.UnresolvablePathException;
+import org.apache.cayenne.util.ConversionUtil;
+import org.apache.cayenne.util.Util;
+
+/**
+ * Compiles expressions into trees of evaluators specialized for each node type. Object
+ * paths are split into segments once, and if a {@link ClassDescriptor} of the root
+ * objects is known, bound to the descriptor properties, so that reading a persistent
+ * property doesn't involve JavaBeans introspection. Constant operands are converted
+ * once, and large IN lists are turned into hash sets. Node types that don't have a
+ * specialized evaluator (e.g. arithmetic or DB paths) are evaluated by the original
+ * expression node.
+ * 
+ * @since 3.0
+ */
+public class ExpressionCompiler {
+
+    /**
+     * IN lists longer than this are matched using a HashSet.
+     */
+    static final int IN_SET_THRESHOLD = 8;
+
+    /**
+     * Compiles an expression for evaluation with objects of any type.
+     */
+    public CompiledExpression compile(Expression expression) {
+        return compile(expression, null);
+    }
+
+    /**
+     * Compiles an expression for evaluation with objects described by a given
+     * descriptor. Objects of other types can still be evaluated, although without the
+     * benefit of the precompiled property access.
+     */
+    public CompiledExpression compile(Expression expression, ClassDescriptor descriptor) {
+        if (expression == null) {
+            throw new NullPointerException("Null expression");
+        }
+
+        return new CompiledNode(expression, compileNode(expression, descriptor));
+    }
+
+    Evaluator compileNode(Expression node, ClassDescriptor descriptor) {
+
+        if (!(node instanceof SimpleNode)) {
+            return new ExpressionEvaluator(node);
+        }
+
+        SimpleNode simpleNode = (SimpleNode) node;
+        int len = simpleNode.jjtGetNumChildren();
+
+        if (node instanceof ASTObjPath) {
+            return new PathEvaluator((ASTObjPath) node, descriptor);
+        }
+        else if (node instanceof ASTScalar) {
+            return new ConstantEvaluator(((ASTScalar) node).getValue());
+        }
+        else if (node instanceof ASTList) {
+            return new ConstantEvaluator(((ASTList) node).values);
+        }
+        else if (node instanceof ASTTrue) {
+            return ConstantEvaluator.TRUE;
+        }
+        else if (node instanceof ASTFalse) {
+            return ConstantEvaluator.FALSE;
+        }
+        else if (node instanceof ASTAnd || node instanceof ASTOr) {
+            if (len == 0) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            return new JunctionEvaluator(
+                    compileChildren(simpleNode, descriptor),
+                    node instanceof ASTOr);
+        }
+        else if (node instanceof ASTNot) {
+            if (len == 0) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            return new NotEvaluator(compileChild(simpleNode, 0, descriptor));
+        }
+        else if (node instanceof ASTEqual || node instanceof ASTNotEqual) {
+            if (len != 2) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            return new EqualEvaluator(
+                    compileChild(simpleNode, 0, descriptor),
+                    compileChild(simpleNode, 1, descriptor),
+                    node instanceof ASTNotEqual);
+        }
+        else if (node instanceof ASTLess
+                || node instanceof ASTLessOrEqual
+                || node instanceof ASTGreater
+                || node instanceof ASTGreaterOrEqual) {
+            if (len != 2) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            Evaluator left = compileChild(simpleNode, 0, descriptor);
+            Evaluator right = compileChild(simpleNode, 1, descriptor);
+            if (!left.isComparable() || !right.isComparable()) {
+                return new ExpressionEvaluator(node);
+            }
+
+            return new ComparisonEvaluator(left, right, node.getType());
+        }
+        else if (node instanceof ASTBetween || node instanceof ASTNotBetween) {
+            if (len != 3) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            Evaluator value = compileChild(simpleNode, 0, descriptor);
+            Evaluator lower = compileChild(simpleNode, 1, descriptor);
+            Evaluator upper = compileChild(simpleNode, 2, descriptor);
+            if (!value.isComparable() || !lower.isComparable() || !upper.isComparable()) {
+                return new ExpressionEvaluator(node);
+            }
+
+            return new BetweenEvaluator(
+                    value,
+                    lower,
+                    upper,
+                    node instanceof ASTNotBetween);
+        }
+        else if (node instanceof ASTIn || node instanceof ASTNotIn) {
+            if (len != 2) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            return new InEvaluator(
+                    compileChild(simpleNode, 0, descriptor),
+                    compileChild(simpleNode, 1, descriptor),
+                    node instanceof ASTNotIn);
+        }
+        else if (node instanceof PatternMatchNode) {
+            if (len != 2) {
+                return ConstantEvaluator.FALSE;
+            }
+
+            return new PatternMatchEvaluator(
+                    (PatternMatchNode) node,
+                    compileChild(simpleNode, 0, descriptor),
+                    node instanceof ASTNotLike || node instanceof ASTNotLikeIgnoreCase);
+        }
+
+        return new ExpressionEvaluator(node);
+    }
+
+    private Evaluator compileChild(SimpleNode node, int index, ClassDescriptor descriptor) {
+        return compileNode((Expression) node.jjtGetChild(index), descriptor);
+    }
+
+    private Evaluator[] compileChildren(SimpleNode node, ClassDescriptor descriptor) {
+        Evaluator[] evaluators = new Evaluator[node.jjtGetNumChildren()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = compileChild(node, i, descriptor);
+        }
+        return evaluators;
+    }
+
+    /**
+     * A root of a compiled evaluator tree.
+     */
+    static final class CompiledNode extends CompiledExpression {
+
+        private final Evaluator evaluator;
+
+        CompiledNode(Expression expression, Evaluator evaluator) {
+            super(expression);
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public Object evaluate(Object o) {
+            try {
+                return evaluator.evaluate(o);
+            }
+            catch (Throwable th) {
+                throw evaluationException(th);
+            }
+        }
+
+        @Override
+        public boolean match(Object o) {
+            try {
+                return evaluator.match(o);
+            }
+            catch (Throwable th) {
+                throw evaluationException(th);
+            }
+        }
+
+        private ExpressionException evaluationException(Throwable th) {
+            String string = expression.toString();
+            return new ExpressionException(
+                    "Error evaluating expression '" + string + "'",
+                    string,
+                    Util.unwindException(th));
+        }
+    }
+
+    /**
+     * A compiled expression node.
+     */
+    static abstract class Evaluator {
+
+        abstract Object evaluate(Object o) throws Exception;
+
+        boolean match(Object o) throws Exception {
+            return ConversionUtil.toBoolean(evaluate(o));
+        }
+
+        /**
+         * Returns whether this evaluator can be used as a comparison operand. Returns
+         * false for constants that can't be converted to Comparable.
+         */
+        boolean isComparable() {
+            return true;
+        }
+
+        Comparable<Object> evaluateComparable(Object o) throws Exception {
+            return ConversionUtil.toComparable(evaluate(o));
+        }
+    }
+
+    static abstract class ConditionEvaluator extends Evaluator {
+
+        @Override
+        final Object evaluate(Object o) throws Exception {
+            return match(o) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        abstract boolean match(Object o) throws Exception;
+    }
+
+    static final class ExpressionEvaluator extends Evaluator {
+
+        private final Expression expression;
+
+        ExpressionEvaluator(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        Object evaluate(Object o) throws Exception {
+            return expression.evaluate(o);
+        }
+    }
+
+    static final class ConstantEvaluator extends Evaluator {
+
+        static final ConstantEvaluator TRUE = new ConstantEvaluator(Boolean.TRUE);
+        static final ConstantEvaluator FALSE = new ConstantEvaluator(Boolean.FALSE);
+
+        private final Object value;
+        private final boolean booleanValue;
+        private Comparable<Object> comparableValue;
+        private boolean comparable;
+
+        ConstantEvaluator(Object value) {
+            this.value = value;
+            this.booleanValue = ConversionUtil.toBoolean(value);
+
+            try {
+                this.comparableValue = ConversionUtil.toComparable(value);
+                this.comparable = true;
+            }
+            catch (ClassCastException e) {
+                // will be evaluated by the original expression, so that the error is
+                // reported when evaluating, not when compiling
+                this.comparable = false;
+            }
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        @Override
+        Object evaluate(Object o) {
+            return value;
+        }
+
+        @Override
+        boolean match(Object o) {
+            return booleanValue;
+        }
+
+        @Override
+        boolean isComparable() {
+            return comparable;
+        }
+
+        @Override
+        Comparable<Object> evaluateComparable(Object o) {
+            return comparableValue;
+        }
+    }
+
+    static final class JunctionEvaluator extends ConditionEvaluator {
+
+        private final Evaluator[] operands;
+        private final boolean or;
+
+        JunctionEvaluator(Evaluator[] operands, boolean or) {
+            this.operands = operands;
+            this.or = or;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            for (Evaluator operand : operands) {
+                if (operand.match(o) == or) {
+                    return or;
+                }
+            }
+
+            return !or;
+        }
+    }
+
+    static final class NotEvaluator extends ConditionEvaluator {
+
+        private final Evaluator operand;
+
+        NotEvaluator(Evaluator operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            return !operand.match(o);
+        }
+    }
+
+    static final class EqualEvaluator extends ConditionEvaluator {
+
+        private final Evaluator left;
+        private final Evaluator right;
+        private final boolean negated;
+
+        EqualEvaluator(Evaluator left, Evaluator right, boolean negated) {
+            this.left = left;
+            this.right = right;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            Object o1 = left.evaluate(o);
+            Object o2 = right.evaluate(o);
+
+            // must match ASTEqual and ASTNotEqual, which are not exact opposites of
+            // each other
+            return negated ? !Util.nullSafeEquals(o1, o2) : ASTEqual.evaluateEquals(
+                    o1,
+                    o2);
+        }
+    }
+
+    static final class ComparisonEvaluator extends ConditionEvaluator {
+
+        private final Evaluator left;
+        private final Evaluator right;
+        private final int type;
+
+        ComparisonEvaluator(Evaluator left, Evaluator right, int type) {
+            this.left = left;
+            this.right = right;
+            this.type = type;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            Comparable<Object> c1 = left.evaluateComparable(o);
+            if (c1 == null) {
+                return false;
+            }
+
+            Comparable<Object> c2 = right.evaluateComparable(o);
+            if (c2 == null) {
+                return false;
+            }
+
+            int result = c1.compareTo(c2);
+            switch (type) {
+                case Expression.LESS_THAN:
+                    return result < 0;
+                case Expression.LESS_THAN_EQUAL_TO:
+                    return result <= 0;
+                case Expression.GREATER_THAN:
+                    return result > 0;
+                default:
+                    return result >= 0;
+            }
+        }
+    }
+
+    static final class BetweenEvaluator extends ConditionEvaluator {
+
+        private final Evaluator value;
+        private final Evaluator lower;
+        private final Evaluator upper;
+        private final boolean negated;
+
+        BetweenEvaluator(Evaluator value, Evaluator lower, Evaluator upper,
+                boolean negated) {
+            this.value = value;
+            this.lower = lower;
+            this.upper = upper;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            Comparable<Object> c1 = value.evaluateComparable(o);
+            if (c1 == null) {
+                return false;
+            }
+
+            Comparable<Object> c2 = lower.evaluateComparable(o);
+            if (c2 == null) {
+                return false;
+            }
+
+            Comparable<Object> c3 = upper.evaluateComparable(o);
+            if (c3 == null) {
+                return false;
+            }
+
+            boolean between = c1.compareTo(c2) >= 0 && c1.compareTo(c3) <= 0;
+            return between != negated;
+        }
+    }
+
+    static final class InEvaluator extends ConditionEvaluator {
+
+        private final Evaluator value;
+        private final Evaluator list;
+        private final Set<Object> set;
+        private final boolean negated;
+
+        InEvaluator(Evaluator value, Evaluator list, boolean negated) {
+            this.value = value;
+            this.list = list;
+            this.negated = negated;
+
+            Object values = (list instanceof ConstantEvaluator)
+                    ? ((ConstantEvaluator) list).getValue()
+                    : null;
+            if (values instanceof Object[] && ((Object[]) values).length > IN_SET_THRESHOLD) {
+                this.set = new HashSet<Object>(Arrays.asList((Object[]) values));
+            }
+            else {
+                this.set = null;
+            }
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            Object o1 = value.evaluate(o);
+            if (o1 == null) {
+                return false;
+            }
+
+            if (set != null) {
+                return set.contains(o1) != negated;
+            }
+
+            Object[] objects = (Object[]) list.evaluate(o);
+            if (objects == null) {
+                return false;
+            }
+
+            for (Object object : objects) {
+                if (o1.equals(object)) {
+                    return !negated;
+                }
+            }
+
+            return negated;
+        }
+    }
+
+    static final class PatternMatchEvaluator extends ConditionEvaluator {
+
+        private final PatternMatchNode node;
+        private final Evaluator operand;
+        private final boolean negated;
+
+        PatternMatchEvaluator(PatternMatchNode node, Evaluator operand, boolean negated) {
+            this.node = node;
+            this.operand = operand;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean match(Object o) throws Exception {
+            String s1 = ConversionUtil.toString(operand.evaluate(o));
+            if (s1 == null) {
+                return false;
+            }
+
+            return node.matchPattern(s1) != negated;
+        }
+    }
+
+    /**
+     * Evaluates an object path, resolving each path segment either via a descriptor
+     * property bound at compile time, or via JavaBeans introspection cached per object
+     * class.
+     */
+    static final class PathEvaluator extends Evaluator {
+
+        private final ASTObjPath node;
+        private final String path;
+        private final PathSegment[] segments;
+
+        PathEvaluator(ASTObjPath node, ClassDescriptor descriptor) {
+            this.node = node;
+            this.path = node.getPath();
+
+            if (path == null
+                    || path.length() == 0
+                    || path.indexOf(Entity.OUTER_JOIN_INDICATOR) >= 0) {
+                this.segments = null;
+                return;
+            }
+
+            StringTokenizer tokens = new StringTokenizer(path, Entity.PATH_SEPARATOR);
+            List<PathSegment> segments = new ArrayList<PathSegment>();
+            int offset = 0;
+            while (tokens.hasMoreTokens()) {
+                String name = tokens.nextToken();
+
+                Property property = null;
+                if (descriptor != null) {
+                    property = descriptor.getProperty(name);
+                }
+
+                segments.add(new PathSegment(
+                        name,
+                        path.substring(offset),
+                        property,
+                        descriptor));
+                offset += name.length() + 1;
+
+                // only bind the following segments if this one points to a single
+                // object
+                descriptor = (property instanceof ArcProperty && !(property instanceof ToManyProperty))
+                        ? ((ArcProperty) property).getTargetDescriptor()
+                        : null;
+            }
+
+            this.segments = segments.isEmpty() ? null : segments
+                    .toArray(new PathSegment[segments.size()]);
+        }
+
+        @Override
+        Object evaluate(Object o) throws Exception {
+            if (segments == null || o instanceof Entity) {
+                return node.evaluateNode(o);
+            }
+            else if (o instanceof CayenneDataObject) {
+                return readDataObjectPath((CayenneDataObject) o, 0);
+            }
+            else if (o instanceof DataObject) {
+                return ((DataObject) o).readNestedProperty(path);
+            }
+            else {
+                return readBeanPath(o);
+            }
+        }
+
+        /**
+         * Follows CayenneDataObject.readNestedProperty(..) semantics.
+         */
+        private Object readDataObjectPath(CayenneDataObject object, int index) {
+            Object value = object.readNestedProperty(segments[index].name);
+
+            if (index == segments.length - 1) {
+                return value;
+            }
+
+            if (value == null) {
+                return null;
+            }
+            else if (value instanceof CayenneDataObject) {
+                return readDataObjectPath((CayenneDataObject) value, index + 1);
+            }
+            else if (value instanceof Collection) {
+                // collection in the middle of the path
+                Collection<Object> result = value instanceof List
+                        ? new ArrayList<Object>()
+                        : new HashSet<Object>();
+                for (Object item : (Collection<?>) value) {
+                    if (item instanceof CayenneDataObject) {
+                        Object rest = readDataObjectPath(
+                                (CayenneDataObject) item,
+                                index + 1);
+                        if (rest instanceof Collection) {
+                            result.addAll((Collection<?>) rest);
+                        }
+                        else {
+                            result.add(rest);
+                        }
+                    }
+                }
+                return result;
+            }
+            else {
+                return PropertyUtils.getProperty(value, segments[index + 1].tail);
+            }
+        }
+
+        /**
+         * Follows PropertyUtils.getProperty(..) semantics.
+         */
+        private Object readBeanPath(Object object) throws Exception {
+            Object value = object;
+            for (PathSegment segment : segments) {
+                if (value == null) {
+                    throw new UnresolvablePathException(
+                            "Null value in the middle of the path, failed on "
+                                    + path
+                                    + " from "
+                                    + object);
+                }
+
+                value = segment.readBeanProperty(value);
+            }
+
+            return value;
+        }
+    }
+
+    static final class PathSegment {
+
+        final String name;
+        final String tail;
+        private final Property property;
+        private final Class<?> propertyOwner;
+        private final boolean lazyFaulting;
+
+        // a single-entry cache of the last seen object class and its read method
+        private volatile ReadMethod readMethod;
+
+        PathSegment(String name, String tail, Property property,
+                ClassDescriptor descriptor) {
+            this.name = name;
+            this.tail = tail;
+            this.property = property;
+            this.propertyOwner = property != null ? descriptor.getObjectClass() : null;
+            this.lazyFaulting = property instanceof ArcProperty;
+        }
+
+        Object readBeanProperty(Object object) throws Exception {
+
+            if (property != null && propertyOwner.isInstance(object)) {
+
+                // do what enhanced getters do before reading the field
+                if (object instanceof Persistent) {
+                    Persistent persistent = (Persistent) object;
+                    ObjectContext context = persistent.getObjectContext();
+                    if (context != null) {
+                        context.prepareForAccess(persistent, name, lazyFaulting);
+                    }
+                }
+
+                return property.readProperty(object);
+            }
+
+            ReadMethod readMethod = this.readMethod;
+            if (readMethod == null || readMethod.type != object.getClass()) {
+                readMethod = new ReadMethod(object.getClass(), name);
+                this.readMethod = readMethod;
+            }
+
+            // no readable bean property, e.g. a Map key or an error; let PropertyUtils
+            // sort it out
+            if (readMethod.method == null) {
+                return PropertyUtils.getProperty(object, name);
+            }
+
+            return readMethod.method.invoke(object, (Object[]) null);
+        }
+    }
+
+    static final class ReadMethod {
+
+        final Class<?> type;
+        final Method method;
+
+        ReadMethod(Class<?> type, String propertyName) throws Exception {
+            this.type = type;
+
+            Method method = null;
+
+            // bean info is cached by introspector
+            BeanInfo info = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                if (propertyName.equals(descriptor.getName())) {
+                    method = descriptor.getReadMethod();
+                    break;
+                }
+            }
+
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.instrument;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power of two buckets. Besides the latency, each
+ * recorded event can carry a value, such as a row count or a batch size, that is summed
+ * up. Percentiles are approximated by the upper bound of the bucket they fall into, so
+ * they are accurate within a factor of two.
+ * 
+ * @since 3.0
+ */
+public class Histogram {
+
+    static final int BUCKETS = 64;
+
+    protected AtomicLongArray buckets;
+    protected AtomicLong count;
+    protected AtomicLong totalNanos;
+    protected AtomicLong maxNanos;
+    protected AtomicLong totalValue;
+    protected AtomicLong maxValue;
+
+    public Histogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+        this.totalValue = new AtomicLong();
+        this.maxValue = new AtomicLong();
+    }
+
+    /**
+     * Records an event that took a given number of nanoseconds.
+     */
+    public void record(long nanos, long value) {
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        totalValue.addAndGet(value);
+        updateMax(maxNanos, nanos);
+        updateMax(maxValue, value);
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while ((current = max.get()) < value) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = this.count.get();
+        return count > 0 ? totalNanos.get() / count : 0;
+    }
+
+    /**
+     * Returns a sum of values recorded with the events.
+     */
+    public long getTotalValue() {
+        return totalValue.get();
+    }
+
+    /**
+     * Returns the largest value recorded with an event.
+     */
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Returns an approximate latency under which a given fraction of events completed.
+     * 
+     * @param fraction a number between 0 and 1, e.g. 0.99 for the 99th percentile.
+     */
+    public long getPercentileNanos(double fraction) {
+        long count = this.count.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+        }
+
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns event counts per bucket. Bucket <code>i</code> holds events that took
+     * less than <code>2^i</code> nanoseconds, but no less than <code>2^(i-1)</code>.
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        totalValue.set(0);
+        maxValue.set(0);
+    }
+}
@@ -0,0 +1,219 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.instrument;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A default in-memory {@link InstrumentationListener} that aggregates events into
+ * {@link Histogram} instances. Queries and batches are aggregated per SQL string, and
+ * connection checkouts per data source. To keep memory bounded, once the number of
+ * distinct SQL strings reaches the maximum, further queries are aggregated under
+ * {@link #OTHER_QUERIES}. Typical usage:
+ * 
+ * <pre>
+ * HistogramRegistry registry = new HistogramRegistry();
+ * Instrumentation.addListener(registry);
+ * ...
+ * Histogram h = registry.getQueryHistograms().get(sql);
+ * </pre>
+ * 
+ * @since 3.0
+ */
+public class HistogramRegistry implements InstrumentationListener {
+
+    public static final int DEFAULT_MAX_QUERIES = 1000;
+
+    /**
+     * A key of the histogram aggregating queries over the maximum number of distinct SQL
+     * strings.
+     */
+    public static final String OTHER_QUERIES = "<other>";
+
+    protected int maxQueries;
+
+    protected ConcurrentMap<String, Histogram> queries;
+    protected ConcurrentMap<String, Histogram> batches;
+    protected ConcurrentMap<String, Histogram> connections;
+    protected Histogram commits;
+    protected Histogram rollbacks;
+    protected ConcurrentMap<String, CacheStatistics> caches;
+
+    public HistogramRegistry() {
+        this(DEFAULT_MAX_QUERIES);
+    }
+
+    public HistogramRegistry(int maxQueries) {
+        this.maxQueries = maxQueries;
+        this.queries = new ConcurrentHashMap<String, Histogram>();
+        this.batches = new ConcurrentHashMap<String, Histogram>();
+        this.connections = new ConcurrentHashMap<String, Histogram>();
+        this.commits = new Histogram();
+        this.rollbacks = new Histogram();
+        this.caches = new ConcurrentHashMap<String, CacheStatistics>();
+    }
+
+    public void queryExecuted(String sql, int rowCount, long nanos) {
+        histogram(queries, sql, true).record(nanos, rowCount);
+    }
+
+    public void batchExecuted(String sql, int batchSize, long nanos) {
+        histogram(batches, sql, true).record(nanos, batchSize);
+    }
+
+    public void connectionCheckedOut(String dataSourceName, long waitNanos) {
+        histogram(connections, dataSourceName, false).record(waitNanos, 1);
+    }
+
+    public void transactionFinished(boolean committed, long nanos) {
+        (committed ? commits : rollbacks).record(nanos, 1);
+    }
+
+    public void cacheAccessed(String cacheName, boolean hit) {
+        if (cacheName == null) {
+            cacheName = "";
+        }
+
+        CacheStatistics statistics = caches.get(cacheName);
+        if (statistics == null) {
+            statistics = new CacheStatistics();
+            CacheStatistics existing = caches.putIfAbsent(cacheName, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+
+        statistics.record(hit);
+    }
+
+    private Histogram histogram(
+            ConcurrentMap<String, Histogram> histograms,
+            String key,
+            boolean bounded) {
+
+        if (key == null) {
+            key = "";
+        }
+
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+
+            if (bounded && histograms.size() >= maxQueries) {
+                key = OTHER_QUERIES;
+                histogram = histograms.get(key);
+                if (histogram != null) {
+                    return histogram;
+                }
+            }
+
+            histogram = new Histogram();
+            Histogram existing = histograms.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Returns select query histograms keyed by SQL string. Histogram values are row
+     * counts.
+     */
+    public Map<String, Histogram> getQueryHistograms() {
+        return Collections.unmodifiableMap(queries);
+    }
+
+    /**
+     * Returns batch histograms keyed by SQL string. Histogram values are batch sizes.
+     */
+    public Map<String, Histogram> getBatchHistograms() {
+        return Collections.unmodifiableMap(batches);
+    }
+
+    /**
+     * Returns connection checkout wait histograms keyed by DataNode name or connection
+     * pool URL.
+     */
+    public Map<String, Histogram> getConnectionHistograms() {
+        return Collections.unmodifiableMap(connections);
+    }
+
+    public Histogram getCommitHistogram() {
+        return commits;
+    }
+
+    public Histogram getRollbackHistogram() {
+        return rollbacks;
+    }
+
+    /**
+     * Returns cache statistics keyed by cache name.
+     */
+    public Map<String, CacheStatistics> getCacheStatistics() {
+        return Collections.unmodifiableMap(caches);
+    }
+
+    /**
+     * Resets all collected statistics.
+     */
+    public void clear() {
+        queries.clear();
+        batches.clear();
+        connections.clear();
+        commits.clear();
+        rollbacks.clear();
+        caches.clear();
+    }
+
+    /**
+     * Hit and miss counters of a single cache.
+     */
+    public static class CacheStatistics {
+
+        protected AtomicLong hitCount = new AtomicLong();
+        protected AtomicLong missCount = new AtomicLong();
+
+        void record(boolean hit) {
+            (hit ? hitCount : missCount).incrementAndGet();
+        }
+
+        public long getHitCount() {
+            return hitCount.get();
+        }
+
+        public long getMissCount() {
+            return missCount.get();
+        }
+
+        /**
+         * Returns a fraction of lookups that were cache hits, or zero if there were no
+         * lookups.
+         */
+        public double getHitRatio() {
+            long hits = hitCount.get();
+            long total = hits + missCount.get();
+            return total > 0 ? (double) hits / total : 0d;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.instrument;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A static registry of {@link InstrumentationListener} instances, dispatching
+ * instrumentation events to them. Instrumented code is expected to check
+ * {@link #isEnabled()} before collecting event data, so that there's no overhead beyond
+ * a volatile read when no listeners are registered. Dispatching itself does not allocate
+ * any objects. Exceptions thrown by the listeners are logged and ignored.
+ * 
+ * @since 3.0
+ */
+public final class Instrumentation {
+
+    /**
+     * A cache name used for the shared (DataDomain) query cache events.
+     */
+    public static final String SHARED_QUERY_CACHE = "SharedQueryCache";
+
+    /**
+     * A cache name used for the local (ObjectContext) query cache events.
+     */
+    public static final String LOCAL_QUERY_CACHE = "LocalQueryCache";
+
+    private static final Log logger = LogFactory.getLog(Instrumentation.class);
+
+    private static final InstrumentationListener[] NO_LISTENERS = new InstrumentationListener[0];
+
+    // copy-on-write array, so that dispatching doesn't need to lock
+    private static volatile InstrumentationListener[] listeners = NO_LISTENERS;
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Returns true if there's at least one registered listener.
+     */
+    public static boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    public static synchronized void addListener(InstrumentationListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("Null listener");
+        }
+
+        InstrumentationListener[] newListeners = new InstrumentationListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    public static synchronized void removeListener(InstrumentationListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                InstrumentationListener[] newListeners = new InstrumentationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length
+                        - i);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    public static synchronized void removeAllListeners() {
+        listeners = NO_LISTENERS;
+    }
+
+    public static void queryExecuted(String sql, int rowCount, long nanos) {
+        for (InstrumentationListener listener : listeners) {
+            try {
+                listener.queryExecuted(sql, rowCount, nanos);
+            }
+            catch (Throwable th) {
+                listenerFailed(listener, th);
+            }
+        }
+    }
+
+    public static void batchExecuted(String sql, int batchSize, long nanos) {
+        for (InstrumentationListener listener : listeners) {
+            try {
+                listener.batchExecuted(sql, batchSize, nanos);
+            }
+            catch (Throwable th) {
+                listenerFailed(listener, th);
+            }
+        }
+    }
+
+    public static void connectionCheckedOut(String dataSourceName, long waitNanos) {
+        for (InstrumentationListener listener : listeners) {
+            try {
+                listener.connectionCheckedOut(dataSourceName, waitNanos);
+            }
+            catch (Throwable th) {
+                listenerFailed(listener, th);
+            }
+        }
+    }
+
+    public static void transactionFinished(boolean committed, long nanos) {
+        for (InstrumentationListener listener : listeners) {
+            try {
+                listener.transactionFinished(committed, nanos);
+            }
+            catch (Throwable th) {
+                listenerFailed(listener, th);
+            }
+        }
+    }
+
+    public static void cacheAccessed(String cacheName, boolean hit) {
+        for (InstrumentationListener listener : listeners) {
+            try {
+                listener.cacheAccessed(cacheName, hit);
+            }
+            catch (Throwable th) {
+                listenerFailed(listener, th);
+            }
+        }
+    }
+
+    private static void listenerFailed(InstrumentationListener listener, Throwable th) {
+        logger.warn("Instrumentation listener failed: " + listener, th);
+    }
+}
@@ -0,0 +1,75 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.instrument;
+
+/**
+ * A listener notified of timed events in the Cayenne access stack, such as query
+ * execution, connection checkout and transaction completion. Listeners are registered
+ * with {@link Instrumentation}. Callback methods are invoked synchronously from the
+ * thread doing the work, and take only primitives and preexisting strings, so the
+ * listeners should be fast and thread-safe, and should not throw.
+ * 
+ * @since 3.0
+ */
+public interface InstrumentationListener {
+
+    /**
+     * Invoked after a select query is executed and its result is read.
+     * 
+     * @param sql SQL string of the query, used as a query fingerprint.
+     * @param rowCount a number of rows read.
+     * @param nanos time spent executing the query and reading the result.
+     */
+    void queryExecuted(String sql, int rowCount, long nanos);
+
+    /**
+     * Invoked after a batch of modifying statements is executed.
+     * 
+     * @param sql SQL string of the batch, used as a query fingerprint.
+     * @param batchSize a number of statements in the batch.
+     * @param nanos time spent executing the batch.
+     */
+    void batchExecuted(String sql, int batchSize, long nanos);
+
+    /**
+     * Invoked after a connection is obtained from a DataSource.
+     * 
+     * @param dataSourceName a name of the DataNode or the connection pool URL.
+     * @param waitNanos time spent waiting for the connection.
+     */
+    void connectionCheckedOut(String dataSourceName, long waitNanos);
+
+    /**
+     * Invoked after a transaction is committed or rolled back.
+     * 
+     * @param committed true if the transaction was committed, false if it was rolled
+     *            back.
+     * @param nanos time since the transaction start.
+     */
+    void transactionFinished(boolean committed, long nanos);
+
+    /**
+     * Invoked on every lookup in a cache.
+     * 
+     * @param cacheName cache name, such as {@link Instrumentation#SHARED_QUERY_CACHE} or a
+     *            name of a DataRowStore.
+     * @param hit whether the cache had a requested entry.
+     */
+    void cacheAccessed(String cacheName, boolean hit);
+}
@@ -52,6 +52,13 @@ import org.apache.commons.logging.LogFactory;
  * <p>
  * EntityResolver is thread-safe.
  * </p>
+ * <p>
+ * By default lookup caches are rebuilt lazily whenever a lookup fails, so that
+ * changes to the underlying DataMaps are picked up automatically. Runtime stacks with
+ * static mapping can call {@link #freeze()} to precompute all lookup indexes into an
+ * immutable structure that is read without synchronization, and where a failed lookup
+ * is final.
+ * </p>
  * 
  * @since 1.1
  */
@@ -83,6 +90,9 @@ public class EntityResolver implements MappingNamespace, Serializable {
 
     protected EntityListenerFactory entityListenerFactory;
 
+    // non-null if the resolver is frozen; replaced as a whole on mapping changes
+    private transient volatile EntityResolverIndex frozenIndex;
+
     /**
      * Creates new EntityResolver.
      */
@@ -202,6 +212,30 @@ public class EntityResolver implements MappingNamespace, Serializable {
                 "Could not come up with a unique relationship name");
     }
 
+    /**
+     * Switches the resolver to a "frozen" mode, precomputing entity, class, inheritance,
+     * query and ClassDescriptor indexes into an immutable structure. Lookups in frozen
+     * mode require no synchronization and do not try to rebuild the cache when an
+     * object is not found, so this mode is intended for runtime stacks whose mapping
+     * does not change. Adding or removing DataMaps or calling {@link #clearCache()} on
+     * a frozen resolver rebuilds the index. Modifications made directly to the
+     * DataMaps require an explicit {@link #clearCache()} call to become visible.
+     * 
+     * @since 3.0
+     */
+    public synchronized void freeze() {
+        this.frozenIndex = new EntityResolverIndex(this);
+    }
+
+    /**
+     * Returns true if the resolver was switched to a frozen mode via {@link #freeze()}.
+     * 
+     * @since 3.0
+     */
+    public boolean isFrozen() {
+        return frozenIndex != null;
+    }
+
     /**
      * Compiles internal callback registry.
      */
@@ -383,6 +417,33 @@ public class EntityResolver implements MappingNamespace, Serializable {
         return c;
     }
 
+    /**
+     * Returns all ObjEntities mapped to a given DbEntity.
+     * 
+     * @since 3.0
+     */
+    public Collection<ObjEntity> getMappedEntities(DbEntity dbEntity) {
+        if (dbEntity == null) {
+            return Collections.EMPTY_LIST;
+        }
+
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            Collection<ObjEntity> mapped = index.objEntitiesByDbEntity.get(dbEntity
+                    .getName());
+            return mapped != null ? mapped : Collections.EMPTY_LIST;
+        }
+
+        Collection<ObjEntity> result = new ArrayList<ObjEntity>();
+        for (ObjEntity entity : getObjEntities()) {
+            if (entity.getDbEntity() == dbEntity) {
+                result.add(entity);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * @since 3.0
      */
@@ -445,6 +506,11 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * @since 3.0
      */
     public Embeddable getEmbeddable(String className) {
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.embeddables.get(className);
+        }
+
         Embeddable result = embeddableCache.get(className);
 
         if (result == null) {
@@ -461,6 +527,11 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * @since 3.0
      */
     public SQLResult getResult(String name) {
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.results.get(name);
+        }
+
         SQLResult result = resultsCache.get(name);
 
         if (result == null) {
@@ -479,12 +550,22 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * 
      * @since 1.2
      */
-    public synchronized ClassDescriptor getClassDescriptor(String entityName) {
+    public ClassDescriptor getClassDescriptor(String entityName) {
         if (entityName == null) {
             throw new IllegalArgumentException("Null entityName");
         }
 
-        return getClassDescriptorMap().getDescriptor(entityName);
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            ClassDescriptor descriptor = index.classDescriptors.get(entityName);
+            if (descriptor != null) {
+                return descriptor;
+            }
+        }
+
+        synchronized (this) {
+            return getClassDescriptorMap().getDescriptor(entityName);
+        }
     }
 
     public synchronized void addDataMap(DataMap map) {
@@ -509,6 +590,10 @@ public class EntityResolver implements MappingNamespace, Serializable {
         resultsCache.clear();
         embeddableCache.clear();
         clientEntityResolver = null;
+
+        if (frozenIndex != null) {
+            frozenIndex = new EntityResolverIndex(this);
+        }
     }
 
     /**
@@ -566,6 +651,16 @@ public class EntityResolver implements MappingNamespace, Serializable {
                 procedureCache.put(proc.getName(), proc);
             }
 
+            // index embeddables
+            for (Embeddable embeddable : map.getEmbeddables()) {
+                embeddableCache.put(embeddable.getClassName(), embeddable);
+            }
+
+            // index result set mappings
+            for (SQLResult result : map.getResults()) {
+                resultsCache.put(result.getName(), result);
+            }
+
             // index queries
             for (Query query : map.getQueries()) {
                 String name = query.getName();
@@ -657,7 +752,7 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * @deprecated since 3.0 - lookup DbEntity via ObjEntity instead.
      */
     @Deprecated
-    public synchronized DbEntity lookupDbEntity(Class<?> aClass) {
+    public DbEntity lookupDbEntity(Class<?> aClass) {
         ObjEntity oe = lookupObjEntity(aClass);
         return oe != null ? oe.getDbEntity() : null;
     }
@@ -670,7 +765,7 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * @deprecated since 3.0 - lookup DbEntity via ObjEntity instead.
      */
     @Deprecated
-    public synchronized DbEntity lookupDbEntity(Persistent dataObject) {
+    public DbEntity lookupDbEntity(Persistent dataObject) {
         return lookupDbEntity(dataObject.getClass());
     }
 
@@ -681,6 +776,11 @@ public class EntityResolver implements MappingNamespace, Serializable {
      */
     public EntityInheritanceTree lookupInheritanceTree(ObjEntity entity) {
 
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.inheritanceTrees.get(entity.getName());
+        }
+
         EntityInheritanceTree tree = entityInheritanceCache.get(entity.getName());
 
         if (tree == null) {
@@ -703,12 +803,20 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * 
      * @return the required ObjEntity or null if there is none that matches the specifier
      */
-    public synchronized ObjEntity lookupObjEntity(Class<?> aClass) {
+    public ObjEntity lookupObjEntity(Class<?> aClass) {
         if (!indexedByClass) {
             throw new CayenneRuntimeException("Class index is disabled.");
         }
 
-        return _lookupObjEntity(classKey(aClass.getName()));
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            String className = aClass.getName();
+            return checkDuplicate(index.objEntitiesByClassName.get(className), className);
+        }
+
+        synchronized (this) {
+            return _lookupObjEntity(classKey(aClass.getName()));
+        }
     }
 
     /**
@@ -717,7 +825,7 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * 
      * @return the required ObjEntity, or null if none matches the specifier
      */
-    public synchronized ObjEntity lookupObjEntity(Object object) {
+    public ObjEntity lookupObjEntity(Object object) {
         if (object instanceof ObjEntity) {
             return (ObjEntity) object;
         }
@@ -725,7 +833,7 @@ public class EntityResolver implements MappingNamespace, Serializable {
         if (object instanceof Persistent) {
             ObjectId id = ((Persistent) object).getObjectId();
             if (id != null) {
-                return _lookupObjEntity(id.getEntityName());
+                return lookupObjEntity(id.getEntityName());
             }
         }
         else if (object instanceof Class) {
@@ -743,8 +851,14 @@ public class EntityResolver implements MappingNamespace, Serializable {
      * @deprecated since 3.0 - use getObjEntity() instead.
      */
     @Deprecated
-    public synchronized ObjEntity lookupObjEntity(String entityName) {
-        return _lookupObjEntity(entityName);
+    public ObjEntity lookupObjEntity(String entityName) {
+        if (frozenIndex != null) {
+            return _lookupObjEntity(entityName);
+        }
+
+        synchronized (this) {
+            return _lookupObjEntity(entityName);
+        }
     }
 
     public Procedure lookupProcedure(Query q) {
@@ -753,6 +867,11 @@ public class EntityResolver implements MappingNamespace, Serializable {
 
     public Procedure lookupProcedure(String procedureName) {
 
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.procedures.get(procedureName);
+        }
+
         Procedure result = procedureCache.get(procedureName);
         if (result == null) {
             // reconstruct cache just in case some of the datamaps
@@ -767,16 +886,23 @@ public class EntityResolver implements MappingNamespace, Serializable {
     /**
      * Returns a named query or null if no query exists for a given name.
      */
-    public synchronized Query lookupQuery(String name) {
-        Query result = queryCache.get(name);
+    public Query lookupQuery(String name) {
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.queries.get(name);
+        }
 
-        if (result == null) {
-            // reconstruct cache just in case some of the datamaps
-            // have changed and now contain the required information
-            constructCache();
-            result = queryCache.get(name);
+        synchronized (this) {
+            Query result = queryCache.get(name);
+
+            if (result == null) {
+                // reconstruct cache just in case some of the datamaps
+                // have changed and now contain the required information
+                constructCache();
+                result = queryCache.get(name);
+            }
+            return result;
         }
-        return result;
     }
 
     public synchronized void removeDataMap(DataMap map) {
@@ -789,8 +915,12 @@ public class EntityResolver implements MappingNamespace, Serializable {
         return indexedByClass;
     }
 
-    public void setIndexedByClass(boolean b) {
+    public synchronized void setIndexedByClass(boolean b) {
         indexedByClass = b;
+
+        if (frozenIndex != null) {
+            frozenIndex = new EntityResolverIndex(this);
+        }
     }
 
     /**
@@ -818,6 +948,11 @@ public class EntityResolver implements MappingNamespace, Serializable {
             return (DbEntity) object;
         }
 
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.dbEntities.get(object);
+        }
+
         Object result = dbEntityCache.get(object);
         if (result == null) {
             // reconstruct cache just in case some of the datamaps
@@ -846,7 +981,12 @@ public class EntityResolver implements MappingNamespace, Serializable {
      */
     protected ObjEntity _lookupObjEntity(String key) {
 
-        Object result = objEntityCache.get(key);
+        EntityResolverIndex index = frozenIndex;
+        if (index != null) {
+            return index.objEntities.get(key);
+        }
+
+        ObjEntity result = objEntityCache.get(key);
         if (result == null) {
             // reconstruct cache just in case some of the datamaps
             // have changed and now contain the required information
@@ -854,13 +994,17 @@ public class EntityResolver implements MappingNamespace, Serializable {
             result = objEntityCache.get(key);
         }
 
+        return checkDuplicate(result, key);
+    }
+
+    private ObjEntity checkDuplicate(ObjEntity result, String key) {
         if (result == DUPLICATE_MARKER) {
             throw new CayenneRuntimeException(
                     "Can't perform lookup. There is more than one ObjEntity mapped to "
                             + key);
         }
 
-        return (ObjEntity) result;
+        return result;
     }
 
     /**
@@ -0,0 +1,201 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.query.Query;
+import org.apache.cayenne.reflect.ClassDescriptor;
+import org.apache.cayenne.reflect.ClassDescriptorMap;
+
+/**
+ * An immutable snapshot of all EntityResolver lookup indexes, used by a frozen
+ * {@link EntityResolver}. Since the index is complete, a failed lookup is final and
+ * never triggers a cache rebuild. All maps are built in the constructor and never
+ * modified afterwards, so the index can be read by multiple threads without locking.
+ *
+ * @since 3.0
+ */
+final class EntityResolverIndex {
+
+    final Map<String, DbEntity> dbEntities;
+    final Map<String, ObjEntity> objEntities;
+    final Map<String, ObjEntity> objEntitiesByClassName;
+    final Map<String, Collection<ObjEntity>> objEntitiesByDbEntity;
+    final Map<String, EntityInheritanceTree> inheritanceTrees;
+    final Map<String, Procedure> procedures;
+    final Map<String, Query> queries;
+    final Map<String, Embeddable> embeddables;
+    final Map<String, SQLResult> results;
+    final Map<String, ClassDescriptor> classDescriptors;
+
+    EntityResolverIndex(EntityResolver resolver) {
+
+        Map<String, DbEntity> dbEntities = new HashMap<String, DbEntity>();
+        Map<String, ObjEntity> objEntities = new HashMap<String, ObjEntity>();
+        Map<String, ObjEntity> objEntitiesByClassName = new HashMap<String, ObjEntity>();
+        Map<String, Collection<ObjEntity>> objEntitiesByDbEntity = new HashMap<String, Collection<ObjEntity>>();
+        Map<String, Procedure> procedures = new HashMap<String, Procedure>();
+        Map<String, Query> queries = new HashMap<String, Query>();
+        Map<String, Embeddable> embeddables = new HashMap<String, Embeddable>();
+        Map<String, SQLResult> results = new HashMap<String, SQLResult>();
+
+        // DbEntities must be indexed before ObjEntities, as ObjEntity.getDbEntity()
+        // resolves via namespace
+        for (DataMap map : resolver.maps) {
+            for (DbEntity entity : map.getDbEntities()) {
+                dbEntities.put(entity.getName(), entity);
+            }
+        }
+
+        for (DataMap map : resolver.maps) {
+
+            for (ObjEntity entity : map.getObjEntities()) {
+                objEntities.put(entity.getName(), entity);
+
+                if (resolver.indexedByClass) {
+                    String className = entity.getJavaClassName();
+                    if (className != null) {
+
+                        // same as EntityResolver: entities sharing a class can't be
+                        // looked up by class
+                        if (objEntitiesByClassName.containsKey(className)) {
+                            objEntitiesByClassName.put(
+                                    className,
+                                    EntityResolver.DUPLICATE_MARKER);
+                        }
+                        else {
+                            objEntitiesByClassName.put(className, entity);
+                        }
+                    }
+                }
+
+                String dbEntityName = entity.getDbEntityName();
+                if (dbEntityName != null) {
+                    Collection<ObjEntity> mapped = objEntitiesByDbEntity
+                            .get(dbEntityName);
+                    if (mapped == null) {
+                        mapped = new ArrayList<ObjEntity>(2);
+                        objEntitiesByDbEntity.put(dbEntityName, mapped);
+                    }
+
+                    mapped.add(entity);
+                }
+            }
+
+            for (Procedure procedure : map.getProcedures()) {
+                procedures.put(procedure.getName(), procedure);
+            }
+
+            for (Query query : map.getQueries()) {
+                Query existing = queries.put(query.getName(), query);
+                if (existing != null && existing != query) {
+                    throw new CayenneRuntimeException("More than one Query for name"
+                            + query.getName());
+                }
+            }
+
+            for (Embeddable embeddable : map.getEmbeddables()) {
+                embeddables.put(embeddable.getClassName(), embeddable);
+            }
+
+            for (SQLResult result : map.getResults()) {
+                results.put(result.getName(), result);
+            }
+        }
+
+        for (Map.Entry<String, Collection<ObjEntity>> entry : objEntitiesByDbEntity
+                .entrySet()) {
+            entry.setValue(Collections.unmodifiableCollection(entry.getValue()));
+        }
+
+        this.dbEntities = Collections.unmodifiableMap(dbEntities);
+        this.objEntities = Collections.unmodifiableMap(objEntities);
+        this.objEntitiesByClassName = Collections.unmodifiableMap(objEntitiesByClassName);
+        this.objEntitiesByDbEntity = Collections.unmodifiableMap(objEntitiesByDbEntity);
+        this.procedures = Collections.unmodifiableMap(procedures);
+        this.queries = Collections.unmodifiableMap(queries);
+        this.embeddables = Collections.unmodifiableMap(embeddables);
+        this.results = Collections.unmodifiableMap(results);
+        this.inheritanceTrees = Collections.unmodifiableMap(indexInheritance(objEntities));
+        this.classDescriptors = Collections.unmodifiableMap(indexDescriptors(
+                resolver.getClassDescriptorMap(),
+                objEntities));
+    }
+
+    /**
+     * Builds inheritance trees for all entities that have subentities. Trivial trees
+     * are not stored, as EntityResolver never returns them.
+     */
+    private Map<String, EntityInheritanceTree> indexInheritance(
+            Map<String, ObjEntity> objEntities) {
+
+        Map<String, EntityInheritanceTree> trees = new HashMap<String, EntityInheritanceTree>();
+
+        for (ObjEntity entity : objEntities.values()) {
+            trees.put(entity.getName(), new EntityInheritanceTree(entity));
+        }
+
+        for (ObjEntity entity : objEntities.values()) {
+            String superEntityName = entity.getSuperEntityName();
+            if (superEntityName != null) {
+                EntityInheritanceTree superNode = trees.get(superEntityName);
+
+                if (superNode != null) {
+                    superNode.addChildNode(trees.get(entity.getName()));
+                }
+                else {
+                    EntityResolver.logger.warn("No super entity mapping for '"
+                            + superEntityName
+                            + "'");
+                }
+            }
+        }
+
+        Map<String, EntityInheritanceTree> nonTrivial = new HashMap<String, EntityInheritanceTree>();
+        for (EntityInheritanceTree tree : trees.values()) {
+
+            // qualifiers are otherwise translated lazily on first query
+            tree.getDbQualifier();
+
+            if (tree.getChildrenCount() > 0) {
+                nonTrivial.put(tree.getEntity().getName(), tree);
+            }
+        }
+
+        return nonTrivial;
+    }
+
+    private Map<String, ClassDescriptor> indexDescriptors(
+            ClassDescriptorMap descriptorMap,
+            Map<String, ObjEntity> objEntities) {
+
+        Map<String, ClassDescriptor> descriptors = new HashMap<String, ClassDescriptor>();
+        for (String entityName : objEntities.keySet()) {
+            descriptors.put(entityName, descriptorMap.getDescriptor(entityName));
+        }
+
+        return descriptors;
+    }
+}
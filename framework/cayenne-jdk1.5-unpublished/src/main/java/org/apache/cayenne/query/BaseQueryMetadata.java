@@ -49,6 +49,7 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
     int fetchOffset = QueryMetadata.FETCH_OFFSET_DEFAULT;
 
     int pageSize = QueryMetadata.PAGE_SIZE_DEFAULT;
+    int statementFetchSize = QueryMetadata.STATEMENT_FETCH_SIZE_DEFAULT;
     boolean fetchingDataRows = QueryMetadata.FETCHING_DATA_ROWS_DEFAULT;
     QueryCacheStrategy cacheStrategy = QueryCacheStrategy.getDefaultStrategy();
 
@@ -76,6 +77,7 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
         this.fetchingDataRows = info.isFetchingDataRows();
         this.fetchLimit = info.getFetchLimit();
         this.pageSize = info.getPageSize();
+        this.statementFetchSize = info.getStatementFetchSize();
         this.cacheStrategy = info.getCacheStrategy();
         this.cacheKey = info.getCacheKey();
         this.resultSetMapping = info.getResultSetMapping();
@@ -164,6 +166,8 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
         Object fetchOffset = properties.get(QueryMetadata.FETCH_OFFSET_PROPERTY);
         Object fetchLimit = properties.get(QueryMetadata.FETCH_LIMIT_PROPERTY);
         Object pageSize = properties.get(QueryMetadata.PAGE_SIZE_PROPERTY);
+        Object statementFetchSize = properties
+                .get(QueryMetadata.STATEMENT_FETCH_SIZE_PROPERTY);
         Object fetchingDataRows = properties
                 .get(QueryMetadata.FETCHING_DATA_ROWS_PROPERTY);
 
@@ -185,6 +189,10 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
                 ? Integer.parseInt(pageSize.toString())
                 : QueryMetadata.PAGE_SIZE_DEFAULT;
 
+        this.statementFetchSize = (statementFetchSize != null) ? Integer
+                .parseInt(statementFetchSize.toString())
+                : QueryMetadata.STATEMENT_FETCH_SIZE_DEFAULT;
+
         this.fetchingDataRows = (fetchingDataRows != null)
                 ? "true".equalsIgnoreCase(fetchingDataRows.toString())
                 : QueryMetadata.FETCHING_DATA_ROWS_DEFAULT;
@@ -231,6 +239,12 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
             encoder.printProperty(QueryMetadata.PAGE_SIZE_PROPERTY, pageSize);
         }
 
+        if (statementFetchSize != QueryMetadata.STATEMENT_FETCH_SIZE_DEFAULT) {
+            encoder.printProperty(
+                    QueryMetadata.STATEMENT_FETCH_SIZE_PROPERTY,
+                    statementFetchSize);
+        }
+
         if (cacheStrategy != null
                 && QueryCacheStrategy.getDefaultStrategy() != cacheStrategy) {
             encoder.printProperty(QueryMetadata.CACHE_STRATEGY_PROPERTY, cacheStrategy
@@ -427,6 +441,13 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
         return pageSize;
     }
 
+    /**
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return statementFetchSize;
+    }
+
     public Query getOrginatingQuery() {
         return null;
     }
@@ -474,6 +495,13 @@ class BaseQueryMetadata implements QueryMetadata, XMLSerializable, Serializable
         pageSize = i;
     }
 
+    /**
+     * @since 3.0
+     */
+    void setStatementFetchSize(int i) {
+        statementFetchSize = i;
+    }
+
     /**
      * Adds a joint prefetch.
      * 
@@ -129,6 +129,13 @@ class DefaultQueryMetadata implements QueryMetadata {
         return QueryMetadata.PAGE_SIZE_DEFAULT;
     }
 
+    /**
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return QueryMetadata.STATEMENT_FETCH_SIZE_DEFAULT;
+    }
+
     public int getFetchOffset() {
         return -1;
     }
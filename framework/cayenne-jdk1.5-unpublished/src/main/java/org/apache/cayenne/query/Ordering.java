@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import org.apache.cayenne.exp.CompiledExpression;
 import org.apache.cayenne.exp.Expression;
 import org.apache.cayenne.exp.ExpressionException;
 import org.apache.cayenne.util.ConversionUtil;
@@ -55,6 +56,7 @@ public class Ordering implements Comparator<Object>, Serializable, XMLSerializab
 
     protected String sortSpecString;
     protected transient Expression sortSpec;
+    protected transient CompiledExpression compiledSortSpec;
     protected boolean ascending;
     protected boolean caseInsensitive;
     protected boolean pathExceptionSuppressed = false;
@@ -102,6 +104,7 @@ public class Ordering implements Comparator<Object>, Serializable, XMLSerializab
         if (!Util.nullSafeEquals(this.sortSpecString, sortSpecString)) {
             this.sortSpecString = sortSpecString;
             this.sortSpec = null;
+            this.compiledSortSpec = null;
         }
     }
      
@@ -195,9 +198,21 @@ public class Ordering implements Comparator<Object>, Serializable, XMLSerializab
      */
     public void setSortSpec(Expression sortSpec) {
         this.sortSpec = sortSpec;
+        this.compiledSortSpec = null;
         this.sortSpecString = (sortSpec != null) ? sortSpec.toString() : null;
     }
 
+    /**
+     * Returns the sort expression compiled for in-memory evaluation.
+     */
+    private CompiledExpression getCompiledSortSpec() {
+        if (compiledSortSpec == null) {
+            compiledSortSpec = getSortSpec().compile();
+        }
+
+        return compiledSortSpec;
+    }
+
     /**
      * Orders the given list of objects according to the ordering that this object
      * specifies. List is modified in-place.
@@ -213,7 +228,7 @@ public class Ordering implements Comparator<Object>, Serializable, XMLSerializab
      * expression.
      */
     public int compare(Object o1, Object o2) {
-        Expression exp = getSortSpec();
+        CompiledExpression exp = getCompiledSortSpec();
 		Object value1 = null;
 		Object value2 = null;
 		try {
@@ -42,6 +42,15 @@ public class PrefetchTreeNode implements Serializable, XMLSerializable {
     public static final int JOINT_PREFETCH_SEMANTICS = 1;
     public static final int DISJOINT_PREFETCH_SEMANTICS = 2;
 
+    /**
+     * A variety of disjoint prefetch that instead of rerunning the parent query
+     * qualifier, fetches related objects using the keys of the already fetched parent
+     * rows, splitting large key sets into multiple queries.
+     * 
+     * @since 3.0
+     */
+    public static final int DISJOINT_BY_ID_PREFETCH_SEMANTICS = 3;
+
     protected String name;
     protected boolean phantom;
     protected int semantics;
@@ -152,7 +161,8 @@ public class PrefetchTreeNode implements Serializable, XMLSerializable {
 
     /**
      * Traverses the tree depth-first, invoking callback methods of the processor when
-     * passing through the nodes.
+     * passing through the nodes. Nodes with "disjoint by id" semantics are passed to
+     * 'startDisjointPrefetch'.
      */
     public void traverse(PrefetchProcessor processor) {
 
@@ -161,7 +171,7 @@ public class PrefetchTreeNode implements Serializable, XMLSerializable {
         if (isPhantom()) {
             result = processor.startPhantomPrefetch(this);
         }
-        else if (isDisjointPrefetch()) {
+        else if (isDisjointPrefetch() || isDisjointByIdPrefetch()) {
             result = processor.startDisjointPrefetch(this);
         }
         else if (isJointPrefetch()) {
@@ -344,6 +354,13 @@ public class PrefetchTreeNode implements Serializable, XMLSerializable {
         return semantics == DISJOINT_PREFETCH_SEMANTICS;
     }
 
+    /**
+     * @since 3.0
+     */
+    public boolean isDisjointByIdPrefetch() {
+        return semantics == DISJOINT_BY_ID_PREFETCH_SEMANTICS;
+    }
+
     // **** custom serialization that supports serializing subtrees...
 
     // implementing 'readResolve' instead of 'readObject' so that this would work with
@@ -376,7 +393,12 @@ public class PrefetchTreeNode implements Serializable, XMLSerializable {
         }
 
         public boolean startDisjointPrefetch(PrefetchTreeNode node) {
-            encoder.print("<prefetch type=\"disjoint\">");
+            if (node.isDisjointByIdPrefetch()) {
+                encoder.print("<prefetch type=\"disjointById\">");
+            }
+            else {
+                encoder.print("<prefetch type=\"disjoint\">");
+            }
             encoder.print(node.getPath());
             encoder.println("</prefetch>");
             return true;
@@ -110,6 +110,22 @@ public interface QueryMetadata {
      */
     public static final int PAGE_SIZE_DEFAULT = 0;
 
+    /**
+     * Defines the name of the property for the query {@link #getStatementFetchSize()
+     * statement fetch size}.
+     * 
+     * @since 3.0
+     */
+    public static final String STATEMENT_FETCH_SIZE_PROPERTY = "cayenne.GenericSelectQuery.statementFetchSize";
+
+    /**
+     * Defines default query statement fetch size, which is zero, meaning that the JDBC
+     * driver default or the DbAdapter fetch size is used.
+     * 
+     * @since 3.0
+     */
+    public static final int STATEMENT_FETCH_SIZE_DEFAULT = 0;
+
     public static final String FETCHING_DATA_ROWS_PROPERTY = "cayenne.GenericSelectQuery.fetchingDataRows";
 
     public static final boolean FETCHING_DATA_ROWS_DEFAULT = false;
@@ -240,6 +256,15 @@ public interface QueryMetadata {
      */
     int getPageSize();
 
+    /**
+     * Returns a JDBC fetch size hint for the statement executing this query, i.e. the
+     * number of rows the driver should read from the database in one round trip. If the
+     * value returned is less than or equal to zero, the DbAdapter default is used.
+     * 
+     * @since 3.0
+     */
+    int getStatementFetchSize();
+
     /**
      * Specifies a start of a range when fetching a subset of records.
      * 
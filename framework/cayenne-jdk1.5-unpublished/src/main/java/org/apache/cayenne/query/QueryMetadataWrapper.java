@@ -164,6 +164,13 @@ class QueryMetadataWrapper implements QueryMetadata {
         return n != null ? n.intValue() : 0;
     }
 
+    /**
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return info.getStatementFetchSize();
+    }
+
     public int getFetchOffset() {
         return info.getFetchOffset();
     }
@@ -392,6 +392,23 @@ public class SQLTemplate extends AbstractQuery implements ParameterizedQuery,
         metaData.setPageSize(pageSize);
     }
 
+    /**
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return metaData.getStatementFetchSize();
+    }
+
+    /**
+     * Sets a JDBC fetch size hint for the statement executing this query. Zero (default)
+     * means that the DbAdapter fetch size is used.
+     * 
+     * @since 3.0
+     */
+    public void setStatementFetchSize(int size) {
+        metaData.setStatementFetchSize(size);
+    }
+
     public void setFetchingDataRows(boolean flag) {
         metaData.setFetchingDataRows(flag);
     }
@@ -639,6 +639,28 @@ public class SelectQuery extends QualifiedQuery implements ParameterizedQuery,
         metaData.setPageSize(pageSize);
     }
 
+    /**
+     * Returns a JDBC fetch size hint for the statement executing this query. Zero
+     * (default) means that the DbAdapter fetch size is used.
+     * 
+     * @since 3.0
+     */
+    public int getStatementFetchSize() {
+        return metaData.getStatementFetchSize();
+    }
+
+    /**
+     * Sets a JDBC fetch size hint for the statement executing this query, i.e. the number
+     * of rows the driver should read from the database in one round trip. Large
+     * iterated queries should set it to a positive value, as many drivers otherwise read
+     * the entire result in memory.
+     * 
+     * @since 3.0
+     */
+    public void setStatementFetchSize(int size) {
+        metaData.setStatementFetchSize(size);
+    }
+
     /**
      * Returns true if objects fetched via this query should be fully resolved according
      * to the inheritance hierarchy.
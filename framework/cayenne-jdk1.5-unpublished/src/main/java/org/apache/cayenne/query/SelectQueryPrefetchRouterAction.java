@@ -67,6 +67,12 @@ class SelectQueryPrefetchRouterAction implements PrefetchProcessor {
             return true;
         }
 
+        // "disjoint by id" prefetches are fetched after the parent rows are available,
+        // unless there are no parent rows to take the keys from
+        if (node.isDisjointByIdPrefetch() && isFetchableById(node)) {
+            return true;
+        }
+
         String prefetchPath = node.getPath();
 
         // find last relationship
@@ -122,6 +128,24 @@ class SelectQueryPrefetchRouterAction implements PrefetchProcessor {
         return true;
     }
 
+    /**
+     * Returns whether the parent of a "disjoint by id" node is fetched as a separate
+     * result set that can be used as a source of the keys.
+     */
+    boolean isFetchableById(PrefetchTreeNode node) {
+        PrefetchTreeNode parent = node.getParent();
+
+        if (parent == query.getPrefetchTree()) {
+            return true;
+        }
+
+        if (parent.isPhantom() || parent.isJointPrefetch()) {
+            return false;
+        }
+
+        return !parent.isDisjointByIdPrefetch() || isFetchableById(parent);
+    }
+
     public boolean startJointPrefetch(PrefetchTreeNode node) {
         // simply pass through
         return true;
@@ -0,0 +1,252 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates lifecycle callback classes at runtime, so that callback methods are invoked
+ * with a plain INVOKEVIRTUAL instruction instead of reflection. A generated class is a
+ * subclass of {@link GeneratedCallback}, placed in the package of the class declaring
+ * the callback method and defined in the ClassLoader of that class. If a class can't be
+ * generated for a given method (e.g. a private method), the original reflection-based
+ * callback is used.
+ *
+ * @since 3.0
+ */
+class CallbackGenerator {
+
+    private static final Log logger = LogFactory.getLog(CallbackGenerator.class);
+
+    static final String CLASS_NAME_SEPARATOR = "$$Callback$";
+
+    private static final String SUPERCLASS_NAME = Type
+            .getInternalName(GeneratedCallback.class);
+    private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/String;)V";
+
+    /**
+     * Returns a callback with generated bytecode that invokes the same method as the
+     * reflection-based callback, or the reflection callback itself if generation is not
+     * possible.
+     */
+    AbstractCallback createCallback(AbstractCallback callback) {
+
+        Method method;
+        Object listener;
+
+        if (callback instanceof CallbackOnEntity) {
+            method = ((CallbackOnEntity) callback).callbackMethod;
+            listener = null;
+        }
+        else if (callback instanceof CallbackOnListener) {
+            method = ((CallbackOnListener) callback).callbackMethod;
+            listener = ((CallbackOnListener) callback).listener;
+        }
+        else {
+            return callback;
+        }
+
+        if (!canGenerate(method)) {
+            return callback;
+        }
+
+        try {
+            Class<?> callbackClass = callbackClass(method);
+            Constructor<?> constructor = callbackClass.getConstructor(
+                    Object.class,
+                    String.class);
+            return (AbstractCallback) constructor.newInstance(listener, method.getName());
+        }
+        catch (Throwable th) {
+            logger.debug("Failed to generate callback for method '"
+                    + method.getDeclaringClass().getName()
+                    + "."
+                    + method.getName()
+                    + "', will use reflection", th);
+            return callback;
+        }
+    }
+
+    /**
+     * Returns whether a generated class in the declaring class package would be allowed
+     * by the JVM to invoke the method.
+     */
+    protected boolean canGenerate(Method method) {
+        if (Modifier.isPrivate(method.getModifiers())) {
+            return false;
+        }
+
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass.getClassLoader() == null || declaringClass.isInterface()) {
+            return false;
+        }
+
+        for (Class<?> parameter : method.getParameterTypes()) {
+            if (!isAccessible(parameter, declaringClass)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isAccessible(Class<?> type, Class<?> fromClass) {
+        if (type.isPrimitive() || type.isArray()) {
+            return false;
+        }
+
+        if (Modifier.isPublic(type.getModifiers())) {
+            return true;
+        }
+
+        return type.getClassLoader() == fromClass.getClassLoader()
+                && packageName(type).equals(packageName(fromClass));
+    }
+
+    private static String packageName(Class<?> type) {
+        String name = type.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : "";
+    }
+
+    /**
+     * Loads a previously generated callback class for the method, generating and
+     * defining it if it does not exist yet.
+     */
+    protected synchronized Class<?> callbackClass(Method method) throws Exception {
+        Class<?> declaringClass = method.getDeclaringClass();
+        ClassLoader loader = declaringClass.getClassLoader();
+
+        // listener methods may be overloaded by the entity argument type
+        StringBuilder className = new StringBuilder(declaringClass.getName())
+                .append(CLASS_NAME_SEPARATOR)
+                .append(method.getName());
+        for (Class<?> parameter : method.getParameterTypes()) {
+            className.append('$').append(parameter.getName().replace('.', '_'));
+        }
+
+        String name = className.toString();
+
+        try {
+            return Class.forName(name, true, loader);
+        }
+        catch (ClassNotFoundException e) {
+            // not generated yet...
+        }
+
+        byte[] bytes = generateClass(name.replace('.', '/'), method);
+
+        try {
+            return (Class<?>) FieldAccessorGenerator.defineClassMethod().invoke(
+                    loader,
+                    name,
+                    bytes,
+                    0,
+                    bytes.length,
+                    declaringClass.getProtectionDomain());
+        }
+        catch (Exception e) {
+            // another generator instance may have defined the class concurrently
+            try {
+                return Class.forName(name, true, loader);
+            }
+            catch (ClassNotFoundException cnfe) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Generates bytecode of a callback class for a given method. Methods with no
+     * parameters are invoked on the entity, methods with a single parameter are invoked
+     * on the listener.
+     */
+    protected byte[] generateClass(String internalName, Method method) {
+        String owner = Type.getInternalName(method.getDeclaringClass());
+        Class<?>[] parameters = method.getParameterTypes();
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_5,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+                internalName,
+                null,
+                SUPERCLASS_NAME,
+                null);
+
+        MethodVisitor mv = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "<init>",
+                CONSTRUCTOR_DESCRIPTOR,
+                null,
+                null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(
+                Opcodes.INVOKESPECIAL,
+                SUPERCLASS_NAME,
+                "<init>",
+                CONSTRUCTOR_DESCRIPTOR);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = writer.visitMethod(Opcodes.ACC_PROTECTED, "invoke", "("
+                + OBJECT_DESCRIPTOR
+                + ")V", null, null);
+        mv.visitCode();
+
+        if (parameters.length == 0) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        }
+        else {
+            String parameter = Type.getInternalName(parameters[0]);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "listener", OBJECT_DESCRIPTOR);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, parameter);
+        }
+
+        mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                owner,
+                method.getName(),
+                Type.getMethodDescriptor(method));
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
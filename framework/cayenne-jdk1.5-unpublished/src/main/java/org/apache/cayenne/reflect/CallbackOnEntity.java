@@ -33,7 +33,7 @@ import org.apache.cayenne.util.Util;
  */
 class CallbackOnEntity extends AbstractCallback {
 
-    private Method callbackMethod;
+    Method callbackMethod;
 
     CallbackOnEntity(Class<?> objectClass, String methodName)
             throws IllegalArgumentException {
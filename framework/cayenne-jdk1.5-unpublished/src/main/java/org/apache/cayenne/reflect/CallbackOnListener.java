@@ -33,8 +33,8 @@ import org.apache.cayenne.util.Util;
  */
 class CallbackOnListener extends AbstractCallback {
 
-    private Method callbackMethod;
-    private Object listener;
+    Method callbackMethod;
+    Object listener;
 
     CallbackOnListener(Object listener, String methodName)
             throws IllegalArgumentException {
@@ -0,0 +1,320 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates field accessor classes at runtime, so that persistent properties are read
+ * and written with plain GETFIELD/PUTFIELD instructions instead of reflection. A
+ * generated class is a subclass of {@link GeneratedFieldAccessor}, placed in the package
+ * of the class declaring the field and defined in the ClassLoader of that class. If a
+ * class can't be generated for a given field (e.g. a private or final field, a class
+ * loaded by the bootstrap loader, or a restrictive security manager), the original
+ * reflection-based accessor is used.
+ * 
+ * @since 3.0
+ */
+public class FieldAccessorGenerator {
+
+    private static final Log logger = LogFactory.getLog(FieldAccessorGenerator.class);
+
+    static final String CLASS_NAME_SEPARATOR = "$$FieldAccessor$";
+
+    private static final String SUPERCLASS_NAME = Type
+            .getInternalName(GeneratedFieldAccessor.class);
+    private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/Object;)V";
+
+    private static Method defineClassMethod;
+
+    /**
+     * Returns an accessor with generated bytecode that reads and writes the same field
+     * as the reflection-based accessor, or the reflection accessor itself if generation
+     * is not possible.
+     */
+    public Accessor createAccessor(FieldAccessor fieldAccessor) {
+        Field field = fieldAccessor.field;
+
+        if (!canGenerate(field)) {
+            return fieldAccessor;
+        }
+
+        try {
+            Class<?> accessorClass = accessorClass(field);
+            Constructor<?> constructor = accessorClass.getConstructor(
+                    String.class,
+                    Object.class);
+            return (Accessor) constructor.newInstance(
+                    fieldAccessor.getName(),
+                    fieldAccessor.nullValue);
+        }
+        catch (Throwable th) {
+            logger.debug("Failed to generate accessor for field '"
+                    + field.getDeclaringClass().getName()
+                    + "."
+                    + field.getName()
+                    + "', will use reflection", th);
+            return fieldAccessor;
+        }
+    }
+
+    /**
+     * Returns whether a generated class in the declaring class package would be allowed
+     * by the JVM to access the field.
+     */
+    protected boolean canGenerate(Field field) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isPrivate(modifiers)
+                || Modifier.isFinal(modifiers)
+                || Modifier.isStatic(modifiers)) {
+            return false;
+        }
+
+        Class<?> declaringClass = field.getDeclaringClass();
+        if (declaringClass.getClassLoader() == null) {
+            return false;
+        }
+
+        return isAccessible(field.getType(), declaringClass);
+    }
+
+    private boolean isAccessible(Class<?> type, Class<?> fromClass) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+
+        if (type.isPrimitive() || Modifier.isPublic(type.getModifiers())) {
+            return true;
+        }
+
+        return type.getClassLoader() == fromClass.getClassLoader()
+                && packageName(type).equals(packageName(fromClass));
+    }
+
+    private static String packageName(Class<?> type) {
+        String name = type.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : "";
+    }
+
+    /**
+     * Loads a previously generated accessor class for the field, generating and
+     * defining it if it does not exist yet.
+     */
+    protected synchronized Class<?> accessorClass(Field field) throws Exception {
+        Class<?> declaringClass = field.getDeclaringClass();
+        ClassLoader loader = declaringClass.getClassLoader();
+        String className = declaringClass.getName()
+                + CLASS_NAME_SEPARATOR
+                + field.getName();
+
+        try {
+            return Class.forName(className, true, loader);
+        }
+        catch (ClassNotFoundException e) {
+            // not generated yet...
+        }
+
+        byte[] bytes = generateClass(className.replace('.', '/'), field);
+
+        try {
+            return (Class<?>) defineClassMethod().invoke(
+                    loader,
+                    className,
+                    bytes,
+                    0,
+                    bytes.length,
+                    declaringClass.getProtectionDomain());
+        }
+        catch (Exception e) {
+            // another generator instance may have defined the class concurrently
+            try {
+                return Class.forName(className, true, loader);
+            }
+            catch (ClassNotFoundException cnfe) {
+                throw e;
+            }
+        }
+    }
+
+    static synchronized Method defineClassMethod() throws Exception {
+        if (defineClassMethod == null) {
+            Method method = ClassLoader.class.getDeclaredMethod(
+                    "defineClass",
+                    String.class,
+                    byte[].class,
+                    Integer.TYPE,
+                    Integer.TYPE,
+                    ProtectionDomain.class);
+            method.setAccessible(true);
+            defineClassMethod = method;
+        }
+
+        return defineClassMethod;
+    }
+
+    /**
+     * Generates bytecode of an accessor class for a given field.
+     */
+    protected byte[] generateClass(String internalName, Field field) {
+        String owner = Type.getInternalName(field.getDeclaringClass());
+        Type fieldType = Type.getType(field.getType());
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_5,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+                internalName,
+                null,
+                SUPERCLASS_NAME,
+                null);
+
+        MethodVisitor mv = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "<init>",
+                CONSTRUCTOR_DESCRIPTOR,
+                null,
+                null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(
+                Opcodes.INVOKESPECIAL,
+                SUPERCLASS_NAME,
+                "<init>",
+                CONSTRUCTOR_DESCRIPTOR);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = writer.visitMethod(Opcodes.ACC_PROTECTED, "get", "("
+                + OBJECT_DESCRIPTOR
+                + ")"
+                + OBJECT_DESCRIPTOR, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        mv.visitFieldInsn(
+                Opcodes.GETFIELD,
+                owner,
+                field.getName(),
+                fieldType.getDescriptor());
+        box(mv, fieldType);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = writer.visitMethod(Opcodes.ACC_PROTECTED, "set", "("
+                + OBJECT_DESCRIPTOR
+                + OBJECT_DESCRIPTOR
+                + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        unbox(mv, fieldType);
+        mv.visitFieldInsn(
+                Opcodes.PUTFIELD,
+                owner,
+                field.getName(),
+                fieldType.getDescriptor());
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf", "("
+                    + type.getDescriptor()
+                    + ")L"
+                    + wrapper
+                    + ";");
+        }
+    }
+
+    private void unbox(MethodVisitor mv, Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.CHAR:
+                // no widening conversions for these two, so cast to the exact wrapper
+                String wrapper = wrapperName(type);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName()
+                        + "Value", "()"
+                        + type.getDescriptor());
+                break;
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+            case Type.LONG:
+            case Type.FLOAT:
+            case Type.DOUBLE:
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Number");
+                mv.visitMethodInsn(
+                        Opcodes.INVOKEVIRTUAL,
+                        "java/lang/Number",
+                        type.getClassName() + "Value",
+                        "()" + type.getDescriptor());
+                break;
+            default:
+                mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+        }
+    }
+
+    private String wrapperName(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return "java/lang/Boolean";
+            case Type.CHAR:
+                return "java/lang/Character";
+            case Type.BYTE:
+                return "java/lang/Byte";
+            case Type.SHORT:
+                return "java/lang/Short";
+            case Type.INT:
+                return "java/lang/Integer";
+            case Type.LONG:
+                return "java/lang/Long";
+            case Type.FLOAT:
+                return "java/lang/Float";
+            case Type.DOUBLE:
+                return "java/lang/Double";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+import org.apache.cayenne.CayenneRuntimeException;
+
+/**
+ * A superclass of lifecycle callbacks generated at runtime by {@link CallbackGenerator}.
+ * Subclasses invoke the callback method directly in the bytecode, so no reflection is
+ * involved in callback dispatch.
+ *
+ * @since 3.0
+ */
+public abstract class GeneratedCallback extends AbstractCallback {
+
+    protected Object listener;
+    protected String methodName;
+
+    /**
+     * Creates a callback. Listener is null for callback methods declared on the entity
+     * itself.
+     */
+    protected GeneratedCallback(Object listener, String methodName) {
+        this.listener = listener;
+        this.methodName = methodName;
+    }
+
+    @Override
+    void performCallback(Object entity) {
+        try {
+            invoke(entity);
+        }
+        catch (Exception e) {
+            String message = listener != null
+                    ? "Error invoking entity listener callback method "
+                    : "Error invoking entity callback method ";
+            throw new CayenneRuntimeException(message + methodName, e);
+        }
+    }
+
+    /**
+     * Invokes the callback method on the entity, or on the listener passing it the
+     * entity.
+     */
+    protected abstract void invoke(Object entity);
+}
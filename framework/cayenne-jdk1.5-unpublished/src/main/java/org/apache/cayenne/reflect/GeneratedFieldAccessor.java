@@ -0,0 +1,82 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+/**
+ * A superclass of field accessors generated at runtime by
+ * {@link FieldAccessorGenerator}. Subclasses read and write the field directly in the
+ * bytecode, so no reflection is involved in property access.
+ * 
+ * @since 3.0
+ */
+public abstract class GeneratedFieldAccessor implements Accessor {
+
+    protected String propertyName;
+    protected Object nullValue;
+
+    protected GeneratedFieldAccessor(String propertyName, Object nullValue) {
+        this.propertyName = propertyName;
+        this.nullValue = nullValue;
+    }
+
+    public String getName() {
+        return propertyName;
+    }
+
+    public Object getValue(Object object) throws PropertyException {
+        try {
+            return get(object);
+        }
+        catch (Throwable th) {
+            throw new PropertyException(
+                    "Error reading field: " + propertyName,
+                    this,
+                    object,
+                    th);
+        }
+    }
+
+    public void setValue(Object object, Object newValue) throws PropertyException {
+        // this will take care of primitives.
+        if (newValue == null) {
+            newValue = this.nullValue;
+        }
+
+        try {
+            set(object, newValue);
+        }
+        catch (Throwable th) {
+            throw new PropertyException(
+                    "Error writing field: " + propertyName,
+                    this,
+                    object,
+                    th);
+        }
+    }
+
+    /**
+     * Reads the field value, boxing it if the field is a primitive.
+     */
+    protected abstract Object get(Object object);
+
+    /**
+     * Writes the field value, unboxing it if the field is a primitive.
+     */
+    protected abstract void set(Object object, Object value);
+}
@@ -21,8 +21,13 @@ package org.apache.cayenne.reflect;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cayenne.Persistent;
 import org.apache.cayenne.map.EntityResolver;
@@ -39,10 +44,36 @@ class LifecycleCallbackEventHandler {
     private Map<String, Collection<AbstractCallback>> listeners;
     private Collection<AbstractCallback> defaultListeners;
 
+    // flattened callbacks for each entity, including default and superclass listeners
+    private Map<String, CallbackChain> chains;
+
+    // incremented on every listener change, so that chains compiled concurrently with a
+    // change are not cached
+    private AtomicInteger version;
+
+    private CallbackGenerator generator;
+    private Map<AbstractCallback, AbstractCallback> generatedCallbacks;
+
     LifecycleCallbackEventHandler(EntityResolver resolver) {
         this.resolver = resolver;
         this.listeners = new HashMap<String, Collection<AbstractCallback>>();
         this.defaultListeners = new ArrayList<AbstractCallback>();
+        this.chains = new ConcurrentHashMap<String, CallbackChain>();
+        this.version = new AtomicInteger();
+        this.generatedCallbacks = new IdentityHashMap<AbstractCallback, AbstractCallback>();
+    }
+
+    /**
+     * Sets a generator used to replace reflection-based callbacks with generated ones.
+     * Null generator disables bytecode generation.
+     */
+    void setCallbackGenerator(CallbackGenerator generator) {
+        synchronized (generatedCallbacks) {
+            this.generator = generator;
+            generatedCallbacks.clear();
+        }
+
+        invalidateChains();
     }
 
     private boolean excludingDefaultListeners(String entityName) {
@@ -65,6 +96,12 @@ class LifecycleCallbackEventHandler {
     void clear() {
         listeners.clear();
         defaultListeners.clear();
+        invalidateChains();
+    }
+
+    private void invalidateChains() {
+        version.incrementAndGet();
+        chains.clear();
     }
 
     /**
@@ -81,6 +118,7 @@ class LifecycleCallbackEventHandler {
      */
     private void addDefaultCallback(AbstractCallback callback) {
         defaultListeners.add(callback);
+        invalidateChains();
     }
 
     /**
@@ -115,29 +153,30 @@ class LifecycleCallbackEventHandler {
         }
 
         entityListeners.add(callback);
+        invalidateChains();
     }
 
     /**
      * Invokes callbacks for a given entity object.
      */
     void performCallbacks(Persistent object) {
-
-        // default listeners are invoked first
-        if (!defaultListeners.isEmpty()
-                && !excludingDefaultListeners(object.getObjectId().getEntityName())) {
-            for (final AbstractCallback listener : defaultListeners) {
-                listener.performCallback(object);
-            }
+        if (isEmpty()) {
+            return;
         }
 
-        // apply per-entity listeners
-        performCallbacks(object, object.getClass());
+        for (AbstractCallback callback : callbacks(object)) {
+            callback.performCallback(object);
+        }
     }
 
     /**
      * Invokes callbacks for a collection of entity objects.
      */
     void performCallbacks(Collection objects) {
+        if (isEmpty()) {
+            return;
+        }
+
         Iterator it = objects.iterator();
 
         while (it.hasNext()) {
@@ -157,29 +196,93 @@ class LifecycleCallbackEventHandler {
     }
 
     /**
-     * Invokes callbacks for the class hierarchy, starting from the most generic
-     * superclass.
+     * Returns callbacks to invoke for a given object in the invocation order, compiling
+     * and caching them on first access.
      */
-    private void performCallbacks(Persistent object, Class callbackEntityClass) {
+    private AbstractCallback[] callbacks(Persistent object) {
+        String entityName = object.getObjectId().getEntityName();
+        Class<?> objectClass = object.getClass();
 
-        if (callbackEntityClass == null || Object.class.equals(callbackEntityClass)) {
-            return;
+        int currentVersion = version.get();
+        CallbackChain chain = chains.get(entityName);
+
+        // normally entity class never changes, still must check it to be safe
+        if (chain == null
+                || chain.objectClass != objectClass
+                || chain.version != currentVersion) {
+            chain = new CallbackChain(objectClass, currentVersion, compileCallbacks(
+                    entityName,
+                    objectClass));
+
+            // don't cache a chain that may have missed a listener change
+            if (version.get() == currentVersion) {
+                chains.put(entityName, chain);
+            }
         }
 
-        // recursively perform super callbacks first
-        if (!excludingSuperclassListeners(object.getObjectId().getEntityName())) {
-            performCallbacks(object, callbackEntityClass.getSuperclass());
+        return chain.callbacks;
+    }
+
+    private AbstractCallback[] compileCallbacks(String entityName, Class<?> objectClass) {
+        List<AbstractCallback> callbacks = new ArrayList<AbstractCallback>();
+
+        // default listeners are invoked first
+        if (!defaultListeners.isEmpty() && !excludingDefaultListeners(entityName)) {
+            callbacks.addAll(defaultListeners);
         }
 
-        // perform callbacks on provided class
-        String key = callbackEntityClass.getName();
-        Collection<AbstractCallback> entityListeners = listeners.get(key);
+        // per-entity listeners are invoked starting from the most generic superclass
+        LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+        Class<?> callbackEntityClass = objectClass;
+        while (callbackEntityClass != null
+                && !Object.class.equals(callbackEntityClass)) {
+            hierarchy.addFirst(callbackEntityClass);
+
+            if (excludingSuperclassListeners(entityName)) {
+                break;
+            }
+
+            callbackEntityClass = callbackEntityClass.getSuperclass();
+        }
 
-        if (entityListeners != null) {
-            for (final AbstractCallback listener : entityListeners) {
-                listener.performCallback(object);
+        for (Class<?> entityClass : hierarchy) {
+            Collection<AbstractCallback> entityListeners = listeners.get(entityClass
+                    .getName());
+            if (entityListeners != null) {
+                callbacks.addAll(entityListeners);
             }
         }
+
+        AbstractCallback[] compiled = callbacks.toArray(new AbstractCallback[callbacks
+                .size()]);
+
+        synchronized (generatedCallbacks) {
+            if (generator != null) {
+                for (int i = 0; i < compiled.length; i++) {
+                    AbstractCallback generated = generatedCallbacks.get(compiled[i]);
+                    if (generated == null) {
+                        generated = generator.createCallback(compiled[i]);
+                        generatedCallbacks.put(compiled[i], generated);
+                    }
+
+                    compiled[i] = generated;
+                }
+            }
+        }
+
+        return compiled;
     }
 
+    static final class CallbackChain {
+
+        final Class<?> objectClass;
+        final int version;
+        final AbstractCallback[] callbacks;
+
+        CallbackChain(Class<?> objectClass, int version, AbstractCallback[] callbacks) {
+            this.objectClass = objectClass;
+            this.version = version;
+            this.callbacks = callbacks;
+        }
+    }
 }
@@ -34,6 +34,7 @@ import org.apache.cayenne.map.LifecycleEvent;
 public class LifecycleCallbackRegistry {
 
     private LifecycleCallbackEventHandler[] eventCallbacks;
+    private CallbackGenerator callbackGenerator;
 
     /**
      * Creates an empty callback registry.
@@ -45,6 +46,33 @@ public class LifecycleCallbackRegistry {
         }
     }
 
+    /**
+     * Returns true if this registry generates bytecode to invoke callback methods instead
+     * of using reflection. False by default.
+     */
+    public boolean isGeneratingCallbacks() {
+        return callbackGenerator != null;
+    }
+
+    /**
+     * Sets whether this registry should generate bytecode to invoke callback methods
+     * instead of using reflection. Generated callbacks speed up commits and fetches of
+     * entities with lifecycle callbacks. Methods that can not be invoked from generated
+     * code (e.g. private methods) are still invoked via reflection. Affects both already
+     * registered and future listeners.
+     */
+    public void setGeneratingCallbacks(boolean generatingCallbacks) {
+        if (generatingCallbacks != isGeneratingCallbacks()) {
+            this.callbackGenerator = generatingCallbacks
+                    ? new CallbackGenerator()
+                    : null;
+
+            for (LifecycleCallbackEventHandler eventCallback : eventCallbacks) {
+                eventCallback.setCallbackGenerator(callbackGenerator);
+            }
+        }
+    }
+
     /**
      * Removes all listeners for all event types.
      */
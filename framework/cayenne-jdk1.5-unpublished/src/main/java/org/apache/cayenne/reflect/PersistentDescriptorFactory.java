@@ -43,11 +43,34 @@ import org.apache.cayenne.map.Relationship;
 public abstract class PersistentDescriptorFactory implements ClassDescriptorFactory {
 
     protected ClassDescriptorMap descriptorMap;
+    protected FieldAccessorGenerator accessorGenerator;
 
     public PersistentDescriptorFactory(ClassDescriptorMap descriptorMap) {
         this.descriptorMap = descriptorMap;
     }
 
+    /**
+     * Returns true if this factory generates bytecode for field accessors instead of
+     * using reflection. False by default.
+     */
+    public boolean isGeneratingAccessors() {
+        return accessorGenerator != null;
+    }
+
+    /**
+     * Sets whether this factory should generate bytecode for field accessors instead of
+     * using reflection. Generated accessors speed up object hydration on large fetches.
+     * Fields that can not be accessed from generated code (e.g. private fields) are still
+     * accessed via reflection. Only affects descriptors created after this call.
+     */
+    public void setGeneratingAccessors(boolean generatingAccessors) {
+        if (generatingAccessors != isGeneratingAccessors()) {
+            this.accessorGenerator = generatingAccessors
+                    ? new FieldAccessorGenerator()
+                    : null;
+        }
+    }
+
     public ClassDescriptor getDescriptor(String entityName) {
         ObjEntity entity = descriptorMap.getResolver().getObjEntity(entityName);
         if (entity == null) {
@@ -352,7 +375,7 @@ public abstract class PersistentDescriptorFactory implements ClassDescriptorFact
             PersistentDescriptor descriptor,
             String propertyName,
             Class<?> propertyType) throws PropertyException {
-        return new FieldAccessor(descriptor.getObjectClass(), propertyName, propertyType);
+        return createFieldAccessor(descriptor.getObjectClass(), propertyName, propertyType);
     }
 
     /**
@@ -377,7 +400,21 @@ public abstract class PersistentDescriptorFactory implements ClassDescriptorFact
             EmbeddableDescriptor descriptor,
             String propertyName,
             Class<?> propertyType) {
-        return new FieldAccessor(descriptor.getObjectClass(), propertyName, propertyType);
+        return createFieldAccessor(descriptor.getObjectClass(), propertyName, propertyType);
+    }
+
+    /**
+     * Creates a field accessor, generating its bytecode if this factory is configured to
+     * do so.
+     */
+    protected Accessor createFieldAccessor(
+            Class<?> objectClass,
+            String propertyName,
+            Class<?> propertyType) {
+        FieldAccessor accessor = new FieldAccessor(objectClass, propertyName, propertyType);
+        return accessorGenerator != null
+                ? accessorGenerator.createAccessor(accessor)
+                : accessor;
     }
 
     /**
@@ -128,6 +128,10 @@ class IncrementalQuery implements Query {
                 return metadata.getPageSize();
             }
 
+            public int getStatementFetchSize() {
+                return metadata.getStatementFetchSize();
+            }
+
             public PrefetchTreeNode getPrefetchTree() {
                 return metadata.getPrefetchTree();
             }
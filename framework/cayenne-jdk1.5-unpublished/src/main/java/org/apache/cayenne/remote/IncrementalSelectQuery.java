@@ -132,6 +132,10 @@ class IncrementalSelectQuery extends SelectQuery {
                 return metadata.getPageSize();
             }
 
+            public int getStatementFetchSize() {
+                return metadata.getStatementFetchSize();
+            }
+
             public PrefetchTreeNode getPrefetchTree() {
                 return metadata.getPrefetchTree();
             }
@@ -263,6 +267,11 @@ class IncrementalSelectQuery extends SelectQuery {
         return query.getPageSize();
     }
 
+    @Override
+    public int getStatementFetchSize() {
+        return query.getStatementFetchSize();
+    }
+
     @Override
     public PrefetchTreeNode getPrefetchTree() {
         return query.getPrefetchTree();
@@ -384,6 +393,11 @@ class IncrementalSelectQuery extends SelectQuery {
         query.setPageSize(pageSize);
     }
 
+    @Override
+    public void setStatementFetchSize(int size) {
+        query.setStatementFetchSize(size);
+    }
+
     @Override
     public void setPrefetchTree(PrefetchTreeNode prefetchTree) {
         query.setPrefetchTree(prefetchTree);
@@ -111,6 +111,10 @@ class RangeQuery implements Query {
                 return 0;
             }
 
+            public int getStatementFetchSize() {
+                return originatingMetadata.getStatementFetchSize();
+            }
+
             /**
              * @deprecated since 3.0 in favor of 'getCacheStrategy'.
              */
@@ -0,0 +1,299 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Encodes single values as a type tag followed by a compact binary representation.
+ * Common JDBC value types are written as primitives, with integral numbers and lengths
+ * using a variable length encoding. Any other value is written using Java serialization
+ * and must be serializable.
+ * 
+ * @since 3.0
+ */
+public final class BinaryValueCodec {
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte INTEGER = 2;
+    static final byte LONG = 3;
+    static final byte SHORT = 4;
+    static final byte BYTE = 5;
+    static final byte BOOLEAN = 6;
+    static final byte DOUBLE = 7;
+    static final byte FLOAT = 8;
+    static final byte BIG_DECIMAL = 9;
+    static final byte BIG_INTEGER = 10;
+    static final byte DATE = 11;
+    static final byte SQL_DATE = 12;
+    static final byte SQL_TIME = 13;
+    static final byte SQL_TIMESTAMP = 14;
+    static final byte BYTES = 15;
+    static final byte CHARACTER = 16;
+    static final byte SERIALIZED = 100;
+
+    private BinaryValueCodec() {
+    }
+
+    /**
+     * Writes a type tag followed by the value.
+     */
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof String) {
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            writeVarLong(out, zigZag(((Integer) value).intValue()));
+        }
+        else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag(((Long) value).longValue()));
+        }
+        else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort(((Short) value).shortValue());
+        }
+        else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte(((Byte) value).byteValue());
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        }
+        else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        }
+        else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat(((Float) value).floatValue());
+        }
+        else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeByte(BIG_DECIMAL);
+            writeVarLong(out, zigZag(decimal.scale()));
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+        }
+        else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        }
+        else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        }
+        else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar(((Character) value).charValue());
+        }
+        // check exact classes for dates, as subclasses may carry extra state
+        else if (value.getClass() == java.sql.Timestamp.class) {
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            out.writeByte(SQL_TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        }
+        else if (value.getClass() == java.sql.Date.class) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        }
+        else if (value.getClass() == java.sql.Time.class) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((java.util.Date) value).getTime());
+        }
+        else if (value.getClass() == java.util.Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        }
+        else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+            objectOut.writeObject(value);
+            objectOut.close();
+            writeBytes(out, bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Reads a value previously written by {@link #writeValue(DataOutput, Object)}.
+     */
+    public static Object readValue(DataInput in) throws IOException,
+            ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return Integer.valueOf((int) unZigZag(readVarLong(in)));
+            case LONG:
+                return Long.valueOf(unZigZag(readVarLong(in)));
+            case SHORT:
+                return Short.valueOf(in.readShort());
+            case BYTE:
+                return Byte.valueOf(in.readByte());
+            case BOOLEAN:
+                return Boolean.valueOf(in.readBoolean());
+            case DOUBLE:
+                return new Double(in.readDouble());
+            case FLOAT:
+                return new Float(in.readFloat());
+            case BIG_DECIMAL:
+                int scale = (int) unZigZag(readVarLong(in));
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case BYTES:
+                return readBytes(in);
+            case CHARACTER:
+                return Character.valueOf(in.readChar());
+            case SQL_TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case SQL_TIME:
+                return new java.sql.Time(in.readLong());
+            case DATE:
+                return new java.util.Date(in.readLong());
+            case SERIALIZED:
+                ObjectInputStream objectIn = new ObjectInputStream(
+                        new ByteArrayInputStream(readBytes(in)));
+                try {
+                    return objectIn.readObject();
+                }
+                finally {
+                    objectIn.close();
+                }
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutput out, String string) throws IOException {
+        out.writeByte(STRING);
+
+        // writeUTF is limited to 64K of encoded data, so long strings are written as
+        // chars
+        if (string.length() < 16384) {
+            out.writeBoolean(true);
+            out.writeUTF(string);
+        }
+        else {
+            out.writeBoolean(false);
+            out.writeInt(string.length());
+            out.writeChars(string);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+
+        char[] chars = new char[in.readInt()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a non-negative int using 7 bits per byte, so that small values take a
+     * single byte.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+
+        writeVarLong(out, value);
+    }
+
+    /**
+     * Reads an int written by {@link #writeVarInt(DataOutput, int)}.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Malformed int value: " + value);
+        }
+
+        return (int) value;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed variable length value");
+    }
+
+    // maps signed values to unsigned, so that small negative numbers stay small
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.cayenne.Persistent;
 import org.apache.cayenne.QueryResponse;
 import org.apache.cayenne.cache.QueryCache;
 import org.apache.cayenne.cache.QueryCacheEntryFactory;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.query.ObjectIdQuery;
 import org.apache.cayenne.query.Query;
 import org.apache.cayenne.query.QueryCacheStrategy;
@@ -289,6 +290,10 @@ public abstract class ObjectContextQueryAction {
         if (cache) {
             List cachedResults = queryCache.get(metadata, factory);
 
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.cacheAccessed(Instrumentation.LOCAL_QUERY_CACHE, response == null);
+            }
+
             // response may already be initialized by the factory above ... it is null if
             // there was a preexisting cache entry
             if (response == null) {
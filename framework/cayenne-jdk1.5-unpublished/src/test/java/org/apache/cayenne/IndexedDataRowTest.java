@@ -0,0 +1,218 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.util.Util;
+
+/**
+ */
+public class IndexedDataRowTest extends TestCase {
+
+    private IndexedDataRow.ColumnIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        index = new IndexedDataRow.ColumnIndex(new String[] {
+                "A", "B", "C"
+        });
+    }
+
+    private IndexedDataRow createRow(Object a, Object b, Object c) {
+        return new IndexedDataRow(index, new Object[] {
+                a, b, c
+        });
+    }
+
+    public void testIsIndexable() {
+        assertTrue(IndexedDataRow.ColumnIndex.isIndexable(new String[] {
+                "A", "B"
+        }));
+        assertFalse(IndexedDataRow.ColumnIndex.isIndexable(new String[] {
+                "A", "A"
+        }));
+    }
+
+    public void testMapContract() {
+        IndexedDataRow row = createRow("a", null, new Integer(3));
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("A", "a");
+        map.put("B", null);
+        map.put("C", new Integer(3));
+
+        assertEquals(3, row.size());
+        assertEquals(map, row);
+        assertEquals(row, map);
+        assertEquals(map.hashCode(), row.hashCode());
+        assertEquals(map.keySet(), row.keySet());
+        assertEquals(map.entrySet(), row.entrySet());
+
+        assertTrue(row.containsKey("B"));
+        assertNull(row.get("B"));
+        assertTrue(row.containsValue(new Integer(3)));
+        assertFalse(row.containsKey("X"));
+    }
+
+    public void testPutRemove() {
+        IndexedDataRow row = new IndexedDataRow(index);
+        assertTrue(row.isEmpty());
+        assertFalse(row.containsKey("A"));
+
+        assertNull(row.put("A", "a"));
+        assertEquals("a", row.put("A", "b"));
+        assertEquals(1, row.size());
+
+        // non-indexed key
+        assertNull(row.put("X", "x"));
+        assertEquals(2, row.size());
+        assertEquals("x", row.get("X"));
+
+        assertEquals("b", row.remove("A"));
+        assertEquals("x", row.remove("X"));
+        assertTrue(row.isEmpty());
+
+        row.put("C", "c");
+        row.clear();
+        assertTrue(row.isEmpty());
+        assertNull(row.get("C"));
+    }
+
+    public void testMapDefaultMethods() {
+        IndexedDataRow row = createRow("a", null, null);
+        row.remove("C");
+
+        assertNull(row.getOrDefault("B", "x"));
+        assertEquals("x", row.getOrDefault("C", "x"));
+        assertEquals("x", row.getOrDefault("X", "x"));
+
+        assertEquals("a", row.putIfAbsent("A", "a1"));
+        assertNull(row.putIfAbsent("B", "b"));
+        assertNull(row.putIfAbsent("C", "c"));
+        assertEquals("b", row.get("B"));
+        assertEquals("c", row.get("C"));
+
+        assertNull(row.replace("X", "x"));
+        assertFalse(row.containsKey("X"));
+        assertEquals("a", row.replace("A", "a1"));
+        assertFalse(row.replace("A", "a", "a2"));
+        assertTrue(row.replace("A", "a1", "a2"));
+        assertEquals("a2", row.get("A"));
+
+        assertFalse(row.remove("B", "x"));
+        assertTrue(row.remove("B", "b"));
+        assertFalse(row.containsKey("B"));
+        assertEquals(2, row.size());
+    }
+
+    public void testIteratorRemove() {
+        IndexedDataRow row = createRow("a", "b", "c");
+        row.put("X", "x");
+
+        Iterator<String> it = row.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if ("B".equals(key) || "X".equals(key)) {
+                it.remove();
+            }
+        }
+
+        assertEquals(2, row.size());
+        assertFalse(row.containsKey("B"));
+        assertFalse(row.containsKey("X"));
+    }
+
+    public void testEntrySetValue() {
+        IndexedDataRow row = createRow("a", "b", "c");
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            entry.setValue(entry.getKey().toLowerCase() + "1");
+        }
+
+        assertEquals("a1", row.get("A"));
+        assertEquals("c1", row.get("C"));
+    }
+
+    public void testCreateDiff() {
+        IndexedDataRow r1 = createRow("a", "b", "c");
+        IndexedDataRow r2 = createRow("a", "x", null);
+
+        DataRow diff = r1.createDiff(r2);
+        assertNotNull(diff);
+        assertEquals(2, diff.size());
+        assertEquals("x", diff.get("B"));
+        assertTrue(diff.containsKey("C"));
+        assertNull(diff.get("C"));
+
+        assertNull(r1.createDiff(createRow("a", "b", "c")));
+
+        // diff with a regular DataRow must produce the same result
+        DataRow plain = new DataRow(r2);
+        assertEquals(diff, r1.createDiff(plain));
+    }
+
+    public void testApplyDiff() {
+        IndexedDataRow r1 = createRow("a", "b", "c");
+        IndexedDataRow r2 = createRow("a", "x", null);
+
+        DataRow merged = r1.applyDiff(r1.createDiff(r2));
+        assertEquals(r2, merged);
+        assertNotSame(r1, merged);
+        assertEquals("b", r1.get("B"));
+
+        DataRow plainDiff = new DataRow(2);
+        plainDiff.put("B", "y");
+        plainDiff.put("X", "z");
+        merged = r1.applyDiff(plainDiff);
+        assertEquals("y", merged.get("B"));
+        assertEquals("z", merged.get("X"));
+        assertEquals(4, merged.size());
+    }
+
+    public void testEqualsCompatibleIndex() {
+        IndexedDataRow.ColumnIndex index2 = new IndexedDataRow.ColumnIndex(new String[] {
+                "A", "B", "C"
+        });
+
+        IndexedDataRow r1 = createRow("a", null, "c");
+        IndexedDataRow r2 = new IndexedDataRow(index2, new Object[] {
+                "a", null, "c"
+        });
+
+        assertEquals(r1, r2);
+
+        r2.remove("B");
+        assertFalse(r1.equals(r2));
+    }
+
+    public void testSerialization() throws Exception {
+        IndexedDataRow row = createRow("a", "b", "c");
+        row.setReplacesVersion(5);
+
+        DataRow clone = (DataRow) Util.cloneViaSerialization(row);
+        assertEquals(row, clone);
+        assertEquals(row.getVersion(), clone.getVersion());
+        assertEquals(5, clone.getReplacesVersion());
+    }
+}
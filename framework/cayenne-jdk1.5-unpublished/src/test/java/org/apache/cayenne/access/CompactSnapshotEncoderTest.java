@@ -0,0 +1,155 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.DataRow;
+
+/**
+ */
+public class CompactSnapshotEncoderTest extends TestCase {
+
+    public void testEncodeDecode() {
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        timestamp.setNanos(123456789);
+
+        DataRow row = new DataRow(10);
+        row.put("A", "abc");
+        row.put("B", new Integer(5));
+        row.put("C", new Long(Long.MAX_VALUE));
+        row.put("D", new BigDecimal("12345.6789"));
+        row.put("E", null);
+        row.put("F", timestamp);
+        row.put("G", new java.sql.Date(0));
+        row.put("H", Boolean.TRUE);
+        row.put("I", new BigInteger("123456789012345678901234567890"));
+        row.put("J", Locale.CANADA);
+        row.setReplacesVersion(7);
+        row.setEntityName("Artist");
+
+        CompactSnapshotEncoder encoder = new CompactSnapshotEncoder();
+        DataRow decoded = encoder.decode(encoder.encode(row));
+
+        assertEquals(row, decoded);
+        assertEquals(row.getVersion(), decoded.getVersion());
+        assertEquals(7, decoded.getReplacesVersion());
+        assertEquals("Artist", decoded.getEntityName());
+        assertEquals(timestamp.getNanos(), ((Timestamp) decoded.get("F")).getNanos());
+    }
+
+    public void testConcurrentColumnSets() throws Exception {
+        final CompactSnapshotEncoder encoder = new CompactSnapshotEncoder();
+        final List<Throwable> errors = Collections
+                .synchronizedList(new ArrayList<Throwable>());
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        // register new column sets while other threads decode theirs
+                        for (int j = 0; j < 50; j++) {
+                            DataRow row = new DataRow(2);
+                            row.put("COLUMN_" + j, new Integer(j));
+
+                            assertEquals(row, encoder.decode(encoder.encode(row)));
+                        }
+                    }
+                    catch (Throwable th) {
+                        errors.add(th);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(errors.toString(), 0, errors.size());
+        assertEquals(50, encoder.getColumnSetCount());
+    }
+
+    public void testEncodeDecodeBytes() {
+        DataRow row = new DataRow(2);
+        row.put("A", new byte[] {
+                1, 2, 3
+        });
+
+        CompactSnapshotEncoder encoder = new CompactSnapshotEncoder();
+        DataRow decoded = encoder.decode(encoder.encode(row));
+        assertTrue(Arrays.equals((byte[]) row.get("A"), (byte[]) decoded.get("A")));
+    }
+
+    public void testEncodeLongString() {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < 70000; i++) {
+            buffer.append((char) ('a' + i % 26));
+        }
+
+        DataRow row = new DataRow(2);
+        row.put("A", buffer.toString());
+
+        CompactSnapshotEncoder encoder = new CompactSnapshotEncoder();
+        assertEquals(row, encoder.decode(encoder.encode(row)));
+    }
+
+    public void testColumnSetsShared() {
+        CompactSnapshotEncoder encoder = new CompactSnapshotEncoder();
+
+        DataRow r1 = new DataRow(2);
+        r1.put("A", "x");
+        r1.put("B", "y");
+
+        DataRow r2 = new DataRow(2);
+        r2.put("B", "z");
+        r2.put("A", "w");
+
+        DataRow r3 = new DataRow(2);
+        r3.put("A", "x");
+
+        encoder.encode(r1);
+        encoder.encode(r2);
+        assertEquals(1, encoder.getColumnSetCount());
+
+        encoder.encode(r3);
+        assertEquals(2, encoder.getColumnSetCount());
+    }
+
+    public void testEncodeNotSerializable() {
+        DataRow row = new DataRow(2);
+        row.put("A", new Object());
+
+        assertNull(new CompactSnapshotEncoder().encode(row));
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.cayenne.access;
 
+import org.apache.cayenne.query.SelectQuery;
 import org.apache.cayenne.testdo.db1.CrossdbM1E1;
 import org.apache.cayenne.testdo.db2.CrossdbM2E1;
 import org.apache.cayenne.testdo.db2.CrossdbM2E2;
@@ -64,4 +65,75 @@ public class DataContextCrossDBTest extends MultiNodeCase {
         o3.setToM1E1(o1);
         context.commitChanges();
     }
+
+    public void testParallelFlush() {
+
+        DataDomain domain = getDomain();
+        boolean parallelFlush = domain.isParallelFlush();
+        domain.setParallelFlush(true);
+
+        try {
+            DataContext context = createDataContext();
+
+            CrossdbM1E1 o1 = context.newObject(CrossdbM1E1.class);
+            o1.setName("o1");
+
+            CrossdbM2E1 o2 = context.newObject(CrossdbM2E1.class);
+            o2.setName("o2");
+
+            CrossdbM2E2 o3 = context.newObject(CrossdbM2E2.class);
+            o3.setName("o3");
+            o3.setToM1E1(o1);
+            o3.setToM2E1(o2);
+            context.commitChanges();
+
+            DataContext context2 = createDataContext();
+            assertEquals(1, context2
+                    .performQuery(new SelectQuery(CrossdbM1E1.class))
+                    .size());
+            assertEquals(1, context2
+                    .performQuery(new SelectQuery(CrossdbM2E1.class))
+                    .size());
+            assertEquals(1, context2
+                    .performQuery(new SelectQuery(CrossdbM2E2.class))
+                    .size());
+        }
+        finally {
+            domain.setParallelFlush(parallelFlush);
+        }
+    }
+
+    public void testParallelFlushImplicitTransaction() {
+
+        DataDomain domain = getDomain();
+        boolean parallelFlush = domain.isParallelFlush();
+        domain.setParallelFlush(true);
+
+        try {
+            DataContext context = createDataContext();
+
+            // each commit flushes to both nodes within a transaction that is begun
+            // implicitly by the first connection added from the flush threads
+            for (int i = 0; i < 10; i++) {
+                CrossdbM1E1 o1 = context.newObject(CrossdbM1E1.class);
+                o1.setName("o1_" + i);
+
+                CrossdbM2E1 o2 = context.newObject(CrossdbM2E1.class);
+                o2.setName("o2_" + i);
+
+                context.commitChanges();
+            }
+
+            DataContext context2 = createDataContext();
+            assertEquals(10, context2
+                    .performQuery(new SelectQuery(CrossdbM1E1.class))
+                    .size());
+            assertEquals(10, context2
+                    .performQuery(new SelectQuery(CrossdbM2E1.class))
+                    .size());
+        }
+        finally {
+            domain.setParallelFlush(parallelFlush);
+        }
+    }
 }
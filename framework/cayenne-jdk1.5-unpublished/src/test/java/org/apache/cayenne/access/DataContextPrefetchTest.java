@@ -33,6 +33,7 @@ import org.apache.art.PaintingInfo;
 import org.apache.cayenne.CayenneDataObject;
 import org.apache.cayenne.DataObject;
 import org.apache.cayenne.DataObjectUtils;
+import org.apache.cayenne.Fault;
 import org.apache.cayenne.PersistenceState;
 import org.apache.cayenne.ValueHolder;
 import org.apache.cayenne.exp.Expression;
@@ -581,4 +582,133 @@ public class DataContextPrefetchTest extends DataContextCase {
             unblockQueries();
         }
     }
+
+    public void testPrefetchToManyDisjointById() throws Exception {
+        createTestData("testPaintings");
+
+        SelectQuery q = new SelectQuery(Artist.class, ExpressionFactory.likeExp(
+                Artist.ARTIST_NAME_PROPERTY,
+                "artist1%"));
+        q.addPrefetch(Artist.PAINTING_ARRAY_PROPERTY).setSemantics(
+                PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+        q.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.ASC);
+
+        List artists = context.performQuery(q);
+
+        blockQueries();
+        try {
+            // artist1, artist10 .. artist19
+            assertEquals(11, artists.size());
+
+            for (int i = 0; i < artists.size(); i++) {
+                Artist a = (Artist) artists.get(i);
+                List toMany = (List) a.readPropertyDirectly("paintingArray");
+                assertNotNull(toMany);
+                assertFalse(((ValueHolder) toMany).isFault());
+                assertEquals(1, toMany.size());
+
+                Painting p = (Painting) toMany.get(0);
+                assertEquals(PersistenceState.COMMITTED, p.getPersistenceState());
+                assertEquals("P_" + a.getArtistName(), p.getPaintingTitle());
+                assertSame(a, p.getToArtist());
+            }
+        }
+        finally {
+            unblockQueries();
+        }
+    }
+
+    public void testPrefetchToOneDisjointById() throws Exception {
+        createTestData("testPaintingInfos");
+
+        SelectQuery q = new SelectQuery(Painting.class);
+        q.addPrefetch(Painting.TO_ARTIST_PROPERTY).setSemantics(
+                PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+        q.addPrefetch(Painting.TO_PAINTING_INFO_PROPERTY).setSemantics(
+                PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+        q.addOrdering(Painting.PAINTING_TITLE_PROPERTY, Ordering.ASC);
+
+        List paintings = context.performQuery(q);
+
+        blockQueries();
+        try {
+            assertFalse(paintings.isEmpty());
+
+            for (int i = 0; i < paintings.size(); i++) {
+                Painting p = (Painting) paintings.get(i);
+                // to-one is resolved from the ObjectStore without a query
+                Artist a = p.getToArtist();
+                assertNotNull(a);
+                assertEquals(PersistenceState.COMMITTED, a.getPersistenceState());
+
+                // to-one may be null, but should still be resolved
+                Object info = p.readPropertyDirectly(Painting.TO_PAINTING_INFO_PROPERTY);
+                if (info != null) {
+                    assertEquals(
+                            PersistenceState.COMMITTED,
+                            ((PaintingInfo) info).getPersistenceState());
+                }
+            }
+
+            Painting p2 = (Painting) paintings.get(1);
+            Object info2 = p2.readPropertyDirectly(Painting.TO_PAINTING_INFO_PROPERTY);
+            assertTrue(info2 instanceof PaintingInfo);
+        }
+        finally {
+            unblockQueries();
+        }
+    }
+
+    public void testPrefetchMultiStepDisjointById() throws Exception {
+        createTestData("testPaintingInfos");
+
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(Artist.PAINTING_ARRAY_PROPERTY).setSemantics(
+                PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+        q.addPrefetch(
+                Artist.PAINTING_ARRAY_PROPERTY + "." + Painting.TO_PAINTING_INFO_PROPERTY)
+                .setSemantics(PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+
+        List artists = context.performQuery(q);
+
+        blockQueries();
+        try {
+            assertFalse(artists.isEmpty());
+
+            int infos = 0;
+            for (int i = 0; i < artists.size(); i++) {
+                Artist a = (Artist) artists.get(i);
+                List toMany = (List) a.readPropertyDirectly("paintingArray");
+                assertFalse(((ValueHolder) toMany).isFault());
+
+                for (int j = 0; j < toMany.size(); j++) {
+                    Painting p = (Painting) toMany.get(j);
+                    Object info = p
+                            .readPropertyDirectly(Painting.TO_PAINTING_INFO_PROPERTY);
+                    assertFalse(info instanceof Fault);
+                    if (info != null) {
+                        infos++;
+                    }
+                }
+            }
+
+            assertTrue(infos > 0);
+        }
+        finally {
+            unblockQueries();
+        }
+    }
+
+    public void testPrefetchDisjointByIdUnderPhantomNode() throws Exception {
+        createTestData("testPaintingInfos");
+
+        // parent node is not fetched, so "disjoint by id" falls back to regular disjoint
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(
+                Artist.PAINTING_ARRAY_PROPERTY + "." + Painting.TO_PAINTING_INFO_PROPERTY)
+                .setSemantics(PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+
+        List artists = context.performQuery(q);
+        assertFalse(artists.isEmpty());
+    }
 }
@@ -36,6 +36,7 @@ import org.apache.cayenne.DataRow;
 import org.apache.cayenne.Fault;
 import org.apache.cayenne.ObjectId;
 import org.apache.cayenne.PersistenceState;
+import org.apache.cayenne.ValueHolder;
 import org.apache.cayenne.conn.PoolManager;
 import org.apache.cayenne.exp.Expression;
 import org.apache.cayenne.exp.ExpressionFactory;
@@ -470,6 +471,125 @@ public class DataContextTest extends DataContextCase {
         }
     }
 
+    public void testPerformIteratedObjectQuery() throws Exception {
+        createTestData("testPaintings");
+
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(Artist.PAINTING_ARRAY_PROPERTY);
+        q.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.ASC);
+
+        ObjectResultIterator it = context.performIteratedObjectQuery(q, 10);
+
+        try {
+            int count = 0;
+            while (it.hasNextRow()) {
+                Artist artist = (Artist) it.nextRow();
+                assertEquals(PersistenceState.COMMITTED, artist.getPersistenceState());
+
+                // prefetched per batch
+                Object paintings = artist.readPropertyDirectly("paintingArray");
+                assertTrue(paintings instanceof ValueHolder);
+                assertFalse(((ValueHolder) paintings).isFault());
+                assertEquals(1, ((List) paintings).size());
+                count++;
+            }
+
+            assertEquals(DataContextTest.artistCount, count);
+        }
+        finally {
+            it.close();
+        }
+    }
+
+    public void testPerformIteratedObjectQueryEvicting() throws Exception {
+        createTestData("testPaintings");
+
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(Artist.PAINTING_ARRAY_PROPERTY);
+
+        ObjectResultIterator it = context.performIteratedObjectQuery(q, 10);
+        it.setEvictingObjects(true);
+
+        Artist first = null;
+        Artist modified = null;
+        int maxRegistered = 0;
+
+        try {
+            int count = 0;
+            while (it.hasNextRow()) {
+                Artist artist = (Artist) it.nextRow();
+                if (first == null) {
+                    first = artist;
+                }
+                else if (modified == null) {
+                    modified = artist;
+                    modified.setArtistName("modified");
+                }
+
+                maxRegistered = Math.max(maxRegistered, context
+                        .getObjectStore()
+                        .registeredObjectsCount());
+                count++;
+            }
+
+            assertEquals(DataContextTest.artistCount, count);
+        }
+        finally {
+            it.close();
+        }
+
+        // a batch of artists and their paintings, plus the modified artist
+        assertTrue("Too many objects: " + maxRegistered, maxRegistered <= 21);
+
+        assertEquals(PersistenceState.TRANSIENT, first.getPersistenceState());
+        assertEquals(PersistenceState.MODIFIED, modified.getPersistenceState());
+        assertSame(modified, context.getObjectStore().getNode(modified.getObjectId()));
+    }
+
+    public void testPerformIteratedObjectQueryAllRows() throws Exception {
+        createTestData("testPaintings");
+
+        ObjectResultIterator it = context.performIteratedObjectQuery(new SelectQuery(
+                Artist.class), 7);
+        it.setEvictingObjects(true);
+
+        try {
+            assertTrue(it.hasNextRow());
+            assertEquals(7, it.nextBatch().size());
+
+            List artists = it.allRows();
+            assertEquals(DataContextTest.artistCount - 7, artists.size());
+
+            Artist artist = (Artist) artists.get(0);
+            assertEquals(PersistenceState.COMMITTED, artist.getPersistenceState());
+        }
+        finally {
+            it.close();
+        }
+    }
+
+    public void testPerformIteratedObjectQueryFetchOffset() throws Exception {
+        createTestData("testPaintings");
+
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(Artist.PAINTING_ARRAY_PROPERTY);
+        q.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.ASC);
+        q.setFetchOffset(5);
+
+        List<?> expected = context.performQuery(q);
+        assertEquals(DataContextTest.artistCount - 5, expected.size());
+
+        ObjectResultIterator it = context.performIteratedObjectQuery(q, 10);
+
+        try {
+            List<?> artists = it.allRows();
+            assertEquals(expected, artists);
+        }
+        finally {
+            it.close();
+        }
+    }
+
     public void changeMaxConnections(int delta) {
         DataNode node = context
                 .getParentDataDomain()
@@ -26,8 +26,14 @@ import java.util.Map;
 import org.apache.art.Artist;
 import org.apache.cayenne.DataRow;
 import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.access.event.SnapshotEventCoalescer;
+import org.apache.cayenne.event.BatchingEventBridge;
 import org.apache.cayenne.event.EventManager;
+import org.apache.cayenne.event.LoopbackBridgeFactory;
+import org.apache.cayenne.event.MockEventBridge;
+import org.apache.cayenne.event.MockEventBridgeFactory;
 import org.apache.cayenne.unit.CayenneCase;
+import org.apache.cayenne.unit.util.ThreadedTestHelper;
 
 /**
  */
@@ -57,6 +63,77 @@ public class DataRowStoreTest extends CayenneCase {
                 .isNotifyingRemoteListeners());
     }
 
+    public void testRemoteNotificationBatching() {
+        Map props = new HashMap();
+        props.put(DataRowStore.REMOTE_NOTIFICATION_PROPERTY, "true");
+        props.put(DataRowStore.EVENT_BRIDGE_FACTORY_PROPERTY, MockEventBridgeFactory.class
+                .getName());
+        props.put(DataRowStore.REMOTE_NOTIFICATION_BATCH_INTERVAL_PROPERTY, "50");
+        props.put(DataRowStore.REMOTE_NOTIFICATION_BATCH_SIZE_PROPERTY, "10");
+
+        DataRowStore cache = new DataRowStore("cacheXYZ", props, new EventManager());
+        try {
+            assertTrue(cache.remoteNotificationsHandler instanceof BatchingEventBridge);
+
+            BatchingEventBridge bridge = (BatchingEventBridge) cache.remoteNotificationsHandler;
+            assertTrue(bridge.getDelegate() instanceof MockEventBridge);
+            assertTrue(bridge.getCoalescer() instanceof SnapshotEventCoalescer);
+            assertEquals(50, bridge.getBatchInterval());
+            assertEquals(10, bridge.getBatchSize());
+            assertTrue(bridge.isRunning());
+        }
+        finally {
+            cache.shutdown();
+        }
+    }
+
+    public void testRemoteInvalidation() throws Exception {
+        Map props = new HashMap();
+        props.put(DataRowStore.REMOTE_NOTIFICATION_PROPERTY, "true");
+        props.put(DataRowStore.EVENT_BRIDGE_FACTORY_PROPERTY, LoopbackBridgeFactory.class
+                .getName());
+
+        DataRowStore cache1 = new DataRowStore("cacheXYZ", props, new EventManager(2));
+        final DataRowStore cache2 = new DataRowStore(
+                "cacheXYZ",
+                props,
+                new EventManager(2));
+
+        try {
+            final ObjectId key1 = new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 1);
+            Map diff1 = new HashMap();
+            diff1.put(key1, new DataRow(1));
+
+            cache2.processSnapshotChanges(
+                    this,
+                    diff1,
+                    Collections.EMPTY_LIST,
+                    Collections.EMPTY_LIST,
+                    Collections.EMPTY_LIST);
+            assertNotNull(cache2.getCachedSnapshot(key1));
+
+            cache1.processSnapshotChanges(
+                    this,
+                    Collections.EMPTY_MAP,
+                    Collections.EMPTY_LIST,
+                    Collections.singletonList(key1),
+                    Collections.EMPTY_LIST);
+
+            ThreadedTestHelper helper = new ThreadedTestHelper() {
+
+                @Override
+                protected void assertResult() throws Exception {
+                    assertNull(cache2.getCachedSnapshot(key1));
+                }
+            };
+            helper.assertWithTimeout(5000);
+        }
+        finally {
+            cache1.shutdown();
+            cache2.shutdown();
+        }
+    }
+
     public void testNotifyingRemoteListeners() {
         DataRowStore cache = new DataRowStore(
                 "cacheXYZ",
@@ -122,4 +199,26 @@ public class DataRowStoreTest extends CayenneCase {
         assertNotNull(cache.getCachedSnapshot(key3));
         assertNull(cache.getCachedSnapshot(key1));
     }
+
+    public void testExpiration() throws Exception {
+        Map props = new HashMap();
+        props.put(DataRowStore.SNAPSHOT_EXPIRATION_PROPERTY, String.valueOf(1));
+
+        DataRowStore cache = new DataRowStore("cacheXYZ", props, new EventManager());
+
+        ObjectId key1 = new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 1);
+        Map diff1 = new HashMap();
+        diff1.put(key1, new DataRow(1));
+
+        cache.processSnapshotChanges(
+                this,
+                diff1,
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST,
+                Collections.EMPTY_LIST);
+        assertNotNull(cache.getCachedSnapshot(key1));
+
+        Thread.sleep(1100);
+        assertNull(cache.getCachedSnapshot(key1));
+    }
 }
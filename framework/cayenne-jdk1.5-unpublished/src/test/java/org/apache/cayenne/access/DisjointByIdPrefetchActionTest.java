@@ -0,0 +1,118 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.art.Artist;
+import org.apache.art.Painting;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.map.ObjEntity;
+import org.apache.cayenne.query.PrefetchSelectQuery;
+import org.apache.cayenne.query.PrefetchTreeNode;
+import org.apache.cayenne.unit.CayenneCase;
+
+public class DisjointByIdPrefetchActionTest extends CayenneCase {
+
+    private DataRow row(String column, Object value) {
+        DataRow row = new DataRow(2);
+        row.put(column, value);
+        return row;
+    }
+
+    public void testCreateQueriesToOne() {
+        ObjEntity painting = getDomain().getEntityResolver().lookupObjEntity(
+                Painting.class);
+
+        PrefetchTreeNode tree = new PrefetchTreeNode();
+        PrefetchTreeNode node = tree.addPath(Painting.TO_ARTIST_PROPERTY);
+
+        List<DataRow> rows = new ArrayList<DataRow>();
+        rows.add(row("ARTIST_ID", 1));
+        rows.add(row("ARTIST_ID", 2));
+        rows.add(row("ARTIST_ID", null));
+        rows.add(row("ARTIST_ID", 2));
+        rows.add(row("ARTIST_ID", 3));
+
+        DisjointByIdPrefetchAction action = new DisjointByIdPrefetchAction(
+                painting,
+                null);
+        List<PrefetchSelectQuery> queries = action.createQueries(node, rows);
+        assertEquals(1, queries.size());
+
+        PrefetchSelectQuery query = queries.get(0);
+        assertEquals(Painting.TO_ARTIST_PROPERTY, query.getPrefetchPath());
+        assertNotNull(query.getPrefetchTree());
+        assertTrue(query.getResultPaths().isEmpty());
+
+        // nulls and duplicates must be excluded
+        Expression expected = ExpressionFactory.inDbExp("ARTIST_ID", 1, 2, 3);
+        assertEquals(expected, query.getQualifier());
+    }
+
+    public void testCreateQueriesChunked() {
+        ObjEntity artist = getDomain().getEntityResolver().lookupObjEntity(
+                Artist.class);
+
+        PrefetchTreeNode tree = new PrefetchTreeNode();
+        PrefetchTreeNode node = tree.addPath(Artist.PAINTING_ARRAY_PROPERTY);
+
+        List<DataRow> rows = new ArrayList<DataRow>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(row("ARTIST_ID", i));
+        }
+
+        DisjointByIdPrefetchAction action = new DisjointByIdPrefetchAction(artist, null);
+        action.setMaxKeysPerQuery(2);
+
+        List<PrefetchSelectQuery> queries = action.createQueries(node, rows);
+        assertEquals(3, queries.size());
+        assertEquals(
+                ExpressionFactory.inDbExp("ARTIST_ID", 0, 1),
+                queries.get(0).getQualifier());
+        assertEquals(
+                ExpressionFactory.inDbExp("ARTIST_ID", 4),
+                queries.get(2).getQualifier());
+
+        assertTrue(action.createQueries(node, new ArrayList<DataRow>()).isEmpty());
+    }
+
+    public void testCreateQueriesFlattened() {
+        ObjEntity artist = getDomain().getEntityResolver().lookupObjEntity(
+                Artist.class);
+
+        PrefetchTreeNode tree = new PrefetchTreeNode();
+        PrefetchTreeNode node = tree.addPath(Artist.GROUP_ARRAY_PROPERTY);
+
+        List<DataRow> rows = new ArrayList<DataRow>();
+        rows.add(row("ARTIST_ID", 7));
+
+        DisjointByIdPrefetchAction action = new DisjointByIdPrefetchAction(artist, null);
+        List<PrefetchSelectQuery> queries = action.createQueries(node, rows);
+        assertEquals(1, queries.size());
+
+        PrefetchSelectQuery query = queries.get(0);
+        assertEquals(1, query.getResultPaths().size());
+        assertEquals(ExpressionFactory.inDbExp("artistGroupArray.ARTIST_ID", 7)
+                .toString(), query.getQualifier().toString());
+    }
+}
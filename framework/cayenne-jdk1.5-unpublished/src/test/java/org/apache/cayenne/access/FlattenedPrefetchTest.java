@@ -85,6 +85,48 @@ public class FlattenedPrefetchTest extends CayenneCase {
         }
     }
 
+    public void testManyToManyDisjointById() throws Exception {
+
+        createTestData("testPrefetch1");
+
+        SelectQuery q = new SelectQuery(Artist.class);
+        q.addPrefetch(Artist.GROUP_ARRAY_PROPERTY).setSemantics(
+                PrefetchTreeNode.DISJOINT_BY_ID_PREFETCH_SEMANTICS);
+
+        DataContext context = createDataContext();
+
+        List objects = context.performQuery(q);
+
+        blockQueries();
+        try {
+
+            assertEquals(3, objects.size());
+
+            Iterator it = objects.iterator();
+            while (it.hasNext()) {
+                Artist a = (Artist) it.next();
+                List list = a.getGroupArray();
+
+                assertNotNull(list);
+                assertFalse("artist's groups not resolved: " + a, ((ValueHolder) list).isFault());
+                assertTrue(list.size() > 0);
+
+                Iterator children = list.iterator();
+                while (children.hasNext()) {
+                    ArtGroup g = (ArtGroup) children.next();
+                    assertEquals(PersistenceState.COMMITTED, g.getPersistenceState());
+                }
+
+                // assert no duplicates
+                Set s = new HashSet(list);
+                assertEquals(s.size(), list.size());
+            }
+        }
+        finally {
+            unblockQueries();
+        }
+    }
+
     public void testMultiPrefetch() throws Exception {
         createTestData("testPrefetch2");
 
@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.art.Artist;
 import org.apache.art.Gallery;
@@ -30,8 +32,13 @@ import org.apache.art.Painting;
 import org.apache.cayenne.DataObject;
 import org.apache.cayenne.DataObjectUtils;
 import org.apache.cayenne.DataRow;
+import org.apache.cayenne.MockDataChannel;
 import org.apache.cayenne.MockDataObject;
+import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.PersistenceState;
+import org.apache.cayenne.graph.CompoundDiff;
+import org.apache.cayenne.graph.GraphDiff;
 import org.apache.cayenne.unit.CayenneCase;
 
 /**
@@ -167,4 +174,77 @@ public class ObjectStoreTest extends CayenneCase {
                 .getObjectId());
         assertNotNull(newP.getToGallery());
     }
+
+    public void testReadDuringCommit() throws Exception {
+
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final CountDownLatch syncCanFinish = new CountDownLatch(1);
+
+        MockDataChannel channel = new MockDataChannel(new CompoundDiff()) {
+
+            @Override
+            public GraphDiff onSync(
+                    ObjectContext originatingContext,
+                    GraphDiff changes,
+                    int syncType) {
+
+                syncStarted.countDown();
+                try {
+                    syncCanFinish.await();
+                }
+                catch (InterruptedException e) {
+                    fail("Interrupted");
+                }
+
+                return super.onSync(originatingContext, changes, syncType);
+            }
+        };
+        channel.setEntityResolver(getDomain().getEntityResolver());
+
+        final DataContext context = new DataContext(channel, new ObjectStore());
+        final Artist artist = context.newObject(Artist.class);
+        artist.setArtistName("A1");
+
+        Thread commitThread = new Thread() {
+
+            @Override
+            public void run() {
+                context.commitChanges();
+            }
+        };
+
+        Thread writeThread = new Thread() {
+
+            @Override
+            public void run() {
+                artist.setArtistName("A2");
+            }
+        };
+
+        try {
+            commitThread.start();
+            assertTrue(syncStarted.await(5, TimeUnit.SECONDS));
+
+            // reads must not be blocked by the commit in progress
+            assertSame(artist, context.getObjectStore().getNode(artist.getObjectId()));
+            assertEquals(1, context.getObjectStore().registeredNodes().size());
+
+            // ... while the writes must wait for the commit to finish
+            writeThread.start();
+            writeThread.join(200);
+            assertTrue(writeThread.isAlive());
+        }
+        finally {
+            syncCanFinish.countDown();
+        }
+
+        commitThread.join(5000);
+        writeThread.join(5000);
+        assertFalse(commitThread.isAlive());
+        assertFalse(writeThread.isAlive());
+
+        // the change made during the commit must not be lost
+        assertEquals(PersistenceState.MODIFIED, artist.getPersistenceState());
+        assertTrue(context.hasChanges());
+    }
 }
@@ -0,0 +1,99 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.DataRow;
+
+public class PrimitiveIdListTest extends TestCase {
+
+    public void testCompact() {
+        List<Object> longs = new ArrayList<Object>(Arrays.asList(new Object[] {
+                new DataRow(2), Long.valueOf(5), Long.valueOf(6)
+        }));
+        assertTrue(PrimitiveIdList.compact(longs) instanceof PrimitiveIdList);
+        assertEquals(longs, PrimitiveIdList.compact(longs));
+
+        List<Object> ints = new ArrayList<Object>(Arrays.asList(new Object[] {
+                Integer.valueOf(5), Integer.valueOf(6)
+        }));
+        List<Object> compactInts = PrimitiveIdList.compact(ints);
+        assertTrue(compactInts instanceof PrimitiveIdList);
+        assertEquals(Integer.valueOf(6), compactInts.get(1));
+
+        List<Object> mixed = new ArrayList<Object>(Arrays.asList(new Object[] {
+                Integer.valueOf(5), Long.valueOf(6)
+        }));
+        assertSame(mixed, PrimitiveIdList.compact(mixed));
+
+        List<Object> strings = new ArrayList<Object>(Arrays.asList(new Object[] {
+            "a"
+        }));
+        assertSame(strings, PrimitiveIdList.compact(strings));
+    }
+
+    public void testListContract() {
+        PrimitiveIdList list = new PrimitiveIdList(false, 2);
+        List<Object> expected = new ArrayList<Object>();
+
+        for (int i = 0; i < 25; i++) {
+            list.add(Long.valueOf(i));
+            expected.add(Long.valueOf(i));
+        }
+
+        DataRow row = new DataRow(2);
+        assertEquals(Long.valueOf(3), list.set(3, row));
+        expected.set(3, row);
+
+        list.add(0, null);
+        expected.add(0, null);
+
+        list.add(10, "x");
+        expected.add(10, "x");
+
+        assertEquals(Long.valueOf(14), list.remove(16));
+        expected.remove(16);
+
+        assertEquals(expected, list);
+        assertEquals(expected.size(), list.size());
+        assertNull(list.get(0));
+        assertSame(row, list.get(4));
+
+        // replacing an object with an id
+        list.set(4, Long.valueOf(100));
+        assertEquals(Long.valueOf(100), list.get(4));
+
+        try {
+            list.get(list.size());
+            fail("Index out of bounds must be checked");
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+}
@@ -0,0 +1,127 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+
+/**
+ */
+public class SegmentedSnapshotCacheTest extends TestCase {
+
+    public void testSegmentCount() {
+        assertEquals(1, new SegmentedSnapshotCache(10, 0, 16).getSegmentCount());
+        assertEquals(1, new SegmentedSnapshotCache(10000, 0, 1).getSegmentCount());
+        assertEquals(16, new SegmentedSnapshotCache(10000, 0, 16).getSegmentCount());
+        assertEquals(2, new SegmentedSnapshotCache(
+                SegmentedSnapshotCache.MIN_SEGMENT_CAPACITY * 3,
+                0,
+                16).getSegmentCount());
+    }
+
+    public void testMaxSize() {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(1000, 0, 16);
+        assertEquals(1000, cache.maxSize());
+
+        for (int i = 0; i < 5000; i++) {
+            cache.put(new ObjectId("E", "ID", i), new DataRow(1));
+        }
+
+        assertTrue(cache.size() <= 1000);
+        assertTrue(cache.size() > 0);
+    }
+
+    public void testLRU() {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(2, 0, 16);
+
+        ObjectId id1 = new ObjectId("E", "ID", 1);
+        ObjectId id2 = new ObjectId("E", "ID", 2);
+        ObjectId id3 = new ObjectId("E", "ID", 3);
+
+        cache.put(id1, new DataRow(1));
+        cache.put(id2, new DataRow(1));
+
+        // touch the first entry, so that the second one becomes eldest
+        assertNotNull(cache.get(id1));
+
+        cache.put(id3, new DataRow(1));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(id1));
+        assertNull(cache.get(id2));
+        assertNotNull(cache.get(id3));
+    }
+
+    public void testPutRemove() {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(100, 0, 16);
+
+        ObjectId id = new ObjectId("E", "ID", 1);
+        DataRow r1 = new DataRow(1);
+        DataRow r2 = new DataRow(1);
+
+        assertNull(cache.put(id, r1));
+        assertSame(r1, cache.put(id, r2));
+        assertSame(r2, cache.get(id));
+        assertSame(r2, cache.remove(id));
+        assertNull(cache.get(id));
+        assertEquals(0, cache.size());
+    }
+
+    public void testExpiration() throws Exception {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(100, 50, 16);
+
+        ObjectId id = new ObjectId("E", "ID", 1);
+        cache.put(id, new DataRow(1));
+        assertNotNull(cache.get(id));
+
+        Thread.sleep(100);
+        assertNull(cache.get(id));
+        assertEquals(0, cache.size());
+    }
+
+    public void testNoExpiration() {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(100, 0, 16);
+        SegmentedSnapshotCache.CacheEntry entry = new SegmentedSnapshotCache.CacheEntry(
+                new DataRow(1),
+                0);
+        assertFalse(cache.isExpired(entry, System.currentTimeMillis()));
+    }
+
+    public void testCompactStorage() {
+        SegmentedSnapshotCache cache = new SegmentedSnapshotCache(
+                100,
+                0,
+                16,
+                new CompactSnapshotEncoder());
+
+        ObjectId id = new ObjectId("E", "ID", 1);
+        DataRow row = new DataRow(2);
+        row.put("ID", new Integer(1));
+        row.put("NAME", "abc");
+
+        assertNull(cache.put(id, row));
+
+        DataRow cached = cache.get(id);
+        assertNotSame(row, cached);
+        assertEquals(row, cached);
+        assertEquals(row.getVersion(), cached.getVersion());
+    }
+}
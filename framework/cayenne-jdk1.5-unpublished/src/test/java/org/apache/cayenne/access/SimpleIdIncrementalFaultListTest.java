@@ -216,6 +216,104 @@ public class SimpleIdIncrementalFaultListTest extends CayenneCase {
         assertTrue((list.elements.get(list.size() - 1)) instanceof Artist);
     }
 
+    public void testBucketSize() {
+        assertEquals(1, SimpleIdIncrementalFaultList.bucketSize(1, 100));
+        assertEquals(8, SimpleIdIncrementalFaultList.bucketSize(5, 100));
+        assertEquals(64, SimpleIdIncrementalFaultList.bucketSize(64, 100));
+        assertEquals(100, SimpleIdIncrementalFaultList.bucketSize(65, 100));
+        assertEquals(150, SimpleIdIncrementalFaultList.bucketSize(150, 100));
+    }
+
+    public void testMaxFetchSize() throws Exception {
+        prepareList(6);
+        list.setMaxFetchSize(4);
+
+        list.resolveInterval(0, 7);
+        assertEquals(DataContextTest.artistCount - 7, list.getUnfetchedObjects());
+        for (int i = 0; i < 7; i++) {
+            assertTrue(list.elements.get(i) instanceof Artist);
+        }
+
+        list.resolveAll();
+        assertEquals(0, list.getUnfetchedObjects());
+    }
+
+    public void testPageLoadingExecutor() throws Exception {
+        prepareList(6);
+
+        final List<Runnable> tasks = new java.util.ArrayList<Runnable>();
+        list.setPageLoadingExecutor(new java.util.concurrent.Executor() {
+
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        Artist a0 = (Artist) list.get(0);
+        assertEquals("artist1", a0.getArtistName());
+        assertEquals(1, tasks.size());
+
+        // run the next page load, that must be used instead of fetching the page
+        tasks.get(0).run();
+        assertTrue(list.elements.get(6) instanceof Long);
+
+        Artist a6 = (Artist) list.get(6);
+        assertEquals("artist7", a6.getArtistName());
+        assertSame(a6, list.get(6));
+        assertEquals(DataContextTest.artistCount - 12, list.getUnfetchedObjects());
+        assertEquals(2, tasks.size());
+
+        // next page is skipped and loaded on demand
+        Artist a19 = (Artist) list.get(19);
+        assertEquals("artist20", a19.getArtistName());
+
+        Iterator<?> it = list.iterator();
+        while (it.hasNext()) {
+            assertTrue(it.next() instanceof Artist);
+        }
+        assertEquals(0, list.getUnfetchedObjects());
+    }
+
+    public void testPageLoadingExecutorThread() throws Exception {
+        prepareList(6);
+
+        final Thread callerThread = Thread.currentThread();
+        final List<Thread> contextThreads = new java.util.ArrayList<Thread>();
+        list.dataContext.setDelegate(new MockDataContextDelegate() {
+
+            @Override
+            public Query willPerformQuery(DataContext context, Query query) {
+                synchronized (contextThreads) {
+                    contextThreads.add(Thread.currentThread());
+                }
+                return query;
+            }
+        });
+
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors
+                .newSingleThreadExecutor();
+        list.setPageLoadingExecutor(executor);
+
+        try {
+            for (int i = 0; i < list.size(); i++) {
+                Artist a = (Artist) list.get(i);
+                assertEquals("artist" + (i + 1), a.getArtistName());
+                assertSame(list.dataContext, a.getObjectContext());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, list.getUnfetchedObjects());
+
+        synchronized (contextThreads) {
+            for (Thread thread : contextThreads) {
+                assertSame(callerThread, thread);
+            }
+        }
+    }
+
     public void testGet1() throws Exception {
         prepareList(6);
         assertTrue(list.elements.get(0) instanceof Long);
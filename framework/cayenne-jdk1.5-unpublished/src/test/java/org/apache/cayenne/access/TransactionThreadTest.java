@@ -20,12 +20,18 @@
 package org.apache.cayenne.access;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.art.Artist;
 import org.apache.cayenne.query.SQLTemplate;
 import org.apache.cayenne.query.SelectQuery;
 import org.apache.cayenne.unit.CayenneCase;
 
+import com.mockrunner.mock.jdbc.MockConnection;
+
 public class TransactionThreadTest extends CayenneCase {
 
     public void testThreadConnectionReuseOnSelect() throws Exception {
@@ -87,6 +93,45 @@ public class TransactionThreadTest extends CayenneCase {
                 .size());
     }
 
+    public void testConcurrentImplicitBegin() throws Exception {
+
+        for (int run = 0; run < 20; run++) {
+
+            // no explicit begin, just like DataDomain.runInTransaction
+            final Transaction t = Transaction.internalTransaction(null);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Throwable> errors = Collections
+                    .synchronizedList(new ArrayList<Throwable>());
+
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                final String name = "node" + i;
+                threads[i] = new Thread() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            t.addConnection(name, new MockConnection());
+                        }
+                        catch (Throwable th) {
+                            errors.add(th);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(errors.toString(), 0, errors.size());
+            assertEquals(Transaction.STATUS_ACTIVE, t.getStatus());
+        }
+    }
+
     class Delegate implements TransactionDelegate {
 
         int connectionCount;
@@ -0,0 +1,117 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.event.CayenneEvent;
+
+/**
+ */
+public class SnapshotEventCoalescerTest extends TestCase {
+
+    private ObjectId id(int pk) {
+        return new ObjectId("Artist", "ARTIST_ID", pk);
+    }
+
+    private SnapshotEvent modified(ObjectId id, String column, Object value) {
+        DataRow diff = new DataRow(1);
+        diff.put(column, value);
+
+        Map diffs = new HashMap();
+        diffs.put(id, diff);
+        return new SnapshotEvent(this, this, diffs, null, null, null);
+    }
+
+    public void testCoalesceSingle() {
+        SnapshotEvent event = modified(id(1), "A", "a");
+
+        List<CayenneEvent> events = new ArrayList<CayenneEvent>();
+        events.add(event);
+        assertSame(event, new SnapshotEventCoalescer().coalesce(events));
+    }
+
+    public void testCoalesceModifications() {
+        SnapshotEvent e1 = modified(id(1), "A", "a");
+        SnapshotEvent e2 = modified(id(1), "A", "b");
+        SnapshotEvent e3 = modified(id(1), "B", "c");
+        SnapshotEvent e4 = modified(id(2), "A", "d");
+
+        List<CayenneEvent> events = new ArrayList<CayenneEvent>();
+        events.add(e1);
+        events.add(e2);
+        events.add(e3);
+        events.add(e4);
+
+        SnapshotEvent merged = (SnapshotEvent) new SnapshotEventCoalescer()
+                .coalesce(events);
+        Map diffs = merged.getModifiedDiffs();
+        assertEquals(2, diffs.size());
+
+        Map diff1 = (Map) diffs.get(id(1));
+        assertEquals(2, diff1.size());
+        assertEquals("b", diff1.get("A"));
+        assertEquals("c", diff1.get("B"));
+
+        // original diffs must stay intact
+        assertEquals("a", ((Map) e1.getModifiedDiffs().get(id(1))).get("A"));
+        assertEquals(1, ((Map) e2.getModifiedDiffs().get(id(1))).size());
+    }
+
+    public void testCoalesceDeletedInvalidated() {
+        List<CayenneEvent> events = new ArrayList<CayenneEvent>();
+        events.add(modified(id(1), "A", "a"));
+        events.add(modified(id(2), "A", "a"));
+        events.add(new SnapshotEvent(
+                this,
+                this,
+                null,
+                Collections.singleton(id(1)),
+                Collections.singleton(id(2)),
+                Collections.singleton(id(3))));
+        events.add(modified(id(2), "A", "b"));
+        events.add(new SnapshotEvent(
+                this,
+                this,
+                null,
+                Collections.singleton(id(3)),
+                Collections.singleton(id(1)),
+                null));
+
+        SnapshotEvent merged = (SnapshotEvent) new SnapshotEventCoalescer()
+                .coalesce(events);
+
+        assertTrue(merged.getModifiedDiffs().isEmpty());
+        assertEquals(2, merged.getDeletedIds().size());
+        assertTrue(merged.getDeletedIds().contains(id(1)));
+        assertTrue(merged.getDeletedIds().contains(id(3)));
+        assertEquals(Collections.singletonList(id(2)), new ArrayList(merged
+                .getInvalidatedIds()));
+        assertTrue(merged.getIndirectlyModifiedIds().isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.event;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.art.Artist;
+import org.apache.art.Painting;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.event.CayenneEvent;
+import org.apache.cayenne.event.EventSubject;
+import org.apache.cayenne.event.JavaEventSerializer;
+import org.apache.cayenne.map.EntityResolver;
+import org.apache.cayenne.unit.CayenneCase;
+
+/**
+ */
+public class SnapshotEventSerializerTest extends CayenneCase {
+
+    private SnapshotEvent createEvent(int size) {
+        Map diffs = new HashMap();
+        Collection deleted = new ArrayList();
+        Collection invalidated = new ArrayList();
+        Collection related = new ArrayList();
+
+        for (int i = 0; i < size; i++) {
+            DataRow diff = new DataRow(3);
+            diff.put("PAINTING_TITLE", "title" + i);
+            diff.put("ESTIMATED_PRICE", new BigDecimal("1000.25"));
+            diff.put("ARTIST_ID", Integer.valueOf(i));
+            diffs.put(new ObjectId("Painting", Painting.PAINTING_ID_PK_COLUMN, i), diff);
+
+            deleted.add(new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 1000 + i));
+            invalidated.add(new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 2000 + i));
+            related.add(new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, i));
+        }
+
+        SnapshotEvent event = new SnapshotEvent(
+                this,
+                this,
+                diffs,
+                deleted,
+                invalidated,
+                related);
+        event.setSubject(EventSubject.getSubject(getClass(), "test"));
+        return event;
+    }
+
+    public void testRoundTrip() throws Exception {
+        SnapshotEventSerializer serializer = new SnapshotEventSerializer(getDomain()
+                .getEntityResolver());
+
+        SnapshotEvent event = createEvent(3);
+        SnapshotEvent restored = (SnapshotEvent) serializer.deserialize(serializer
+                .serialize(event));
+
+        assertEquals(event.getSubject(), restored.getSubject());
+        assertEquals(event.getTimestamp(), restored.getTimestamp());
+        assertEquals(event.getModifiedDiffs(), restored.getModifiedDiffs());
+        assertEquals(event.getDeletedIds(), restored.getDeletedIds());
+        assertEquals(event.getInvalidatedIds(), restored.getInvalidatedIds());
+        assertEquals(event.getIndirectlyModifiedIds(), restored
+                .getIndirectlyModifiedIds());
+    }
+
+    public void testUnmappedNamesAndTempIds() throws Exception {
+        SnapshotEventSerializer serializer = new SnapshotEventSerializer(getDomain()
+                .getEntityResolver());
+
+        Map idMap = new HashMap();
+        idMap.put("K1", "a");
+        idMap.put("K2", Long.valueOf(5));
+
+        DataRow diff = new DataRow(2);
+        diff.put("UNMAPPED_COLUMN", "x");
+        diff.put("ARTIST_NAME", null);
+
+        Map diffs = new HashMap();
+        diffs.put(new ObjectId("UnmappedEntity", idMap), diff);
+
+        Collection deleted = new ArrayList();
+        deleted.add(new ObjectId("Artist"));
+
+        SnapshotEvent event = new SnapshotEvent(this, this, diffs, deleted, null, null);
+        SnapshotEvent restored = (SnapshotEvent) serializer.deserialize(serializer
+                .serialize(event));
+
+        assertEquals(diffs, restored.getModifiedDiffs());
+        assertEquals(deleted, restored.getDeletedIds());
+        assertNull(restored.getSubject());
+    }
+
+    public void testNonSnapshotEvent() throws Exception {
+        SnapshotEventSerializer serializer = new SnapshotEventSerializer(getDomain()
+                .getEntityResolver());
+
+        Map info = new HashMap();
+        info.put("key", "value");
+
+        CayenneEvent event = new CayenneEvent(this, this, info);
+        CayenneEvent restored = serializer.deserialize(serializer.serialize(event));
+        assertEquals(info, restored.getInfo());
+    }
+
+    public void testMappingMismatch() throws Exception {
+        SnapshotEventSerializer serializer = new SnapshotEventSerializer(getDomain()
+                .getEntityResolver());
+        SnapshotEventSerializer otherSerializer = new SnapshotEventSerializer(
+                new EntityResolver());
+
+        byte[] bytes = serializer.serialize(createEvent(1));
+        try {
+            otherSerializer.deserialize(bytes);
+            fail("Must have failed on mapping mismatch");
+        }
+        catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testPayloadSize() throws Exception {
+        SnapshotEventSerializer serializer = new SnapshotEventSerializer(getDomain()
+                .getEntityResolver());
+        JavaEventSerializer javaSerializer = new JavaEventSerializer();
+
+        // most of the mixed event payload are unique string and decimal values
+        SnapshotEvent event = createEvent(50);
+        int compact = serializer.serialize(event).length;
+        int java = javaSerializer.serialize(event).length;
+        assertTrue(
+                "Unexpected payload size: " + compact + " vs. " + java,
+                compact * 5 < java);
+
+        Collection invalidated = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            invalidated.add(new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, i));
+        }
+
+        event = new SnapshotEvent(this, this, null, null, invalidated, null);
+        compact = serializer.serialize(event).length;
+        java = javaSerializer.serialize(event).length;
+        assertTrue(
+                "Unexpected payload size: " + compact + " vs. " + java,
+                compact * 10 < java);
+    }
+}
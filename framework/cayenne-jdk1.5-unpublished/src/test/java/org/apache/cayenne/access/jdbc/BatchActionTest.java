@@ -19,12 +19,18 @@
 
 package org.apache.cayenne.access.jdbc;
 
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.art.Artist;
 import org.apache.art.GeneratedColumnTestEntity;
+import org.apache.cayenne.access.MockOperationObserver;
 import org.apache.cayenne.dba.DbAdapter;
 import org.apache.cayenne.dba.JdbcAdapter;
 import org.apache.cayenne.map.EntityResolver;
 import org.apache.cayenne.query.InsertBatchQuery;
+import org.apache.cayenne.query.SelectQuery;
 import org.apache.cayenne.unit.CayenneCase;
 
 /**
@@ -61,6 +67,67 @@ public class BatchActionTest extends CayenneCase {
         assertFalse(new BatchAction(batch2, adapter, resolver).hasGeneratedKeys());
     }
 
+    public void testRunAsBatchInChunks() throws Exception {
+        deleteTestData();
+
+        EntityResolver resolver = getDomain().getEntityResolver();
+        InsertBatchQuery batch = new InsertBatchQuery(resolver.lookupObjEntity(
+                Artist.class).getDbEntity(), 5);
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            row.put("ARTIST_ID", new Long(100 + i));
+            row.put("ARTIST_NAME", "artist" + i);
+            batch.add(row);
+        }
+
+        BatchAction action = new BatchAction(batch, getAccessStackAdapter()
+                .getAdapter(), resolver);
+        action.setBatch(true);
+        action.setMaxBatchSize(2);
+
+        MockOperationObserver observer = new MockOperationObserver();
+        Connection c = getConnection();
+        try {
+            action.performAction(c, observer);
+
+            if (!c.getAutoCommit()) {
+                c.commit();
+            }
+        }
+        finally {
+            c.close();
+        }
+
+        // all chunk results must be reported together
+        int[] counts = observer.countsForQuery(batch);
+        assertNotNull(counts);
+        assertEquals(5, counts.length);
+        assertEquals(5, createDataContext()
+                .performQuery(new SelectQuery(Artist.class))
+                .size());
+    }
+
+    public void testMultiRowInsertSize() throws Exception {
+        EntityResolver resolver = getDomain().getEntityResolver();
+        InsertBatchQuery batch = new InsertBatchQuery(resolver.lookupObjEntity(
+                Artist.class).getDbEntity(), 5);
+        BatchAction action = new BatchAction(batch, buildAdapter(false), resolver);
+
+        assertEquals(BatchAction.DEFAULT_MULTI_ROW_INSERT_SIZE, action
+                .getMultiRowInsertSize(3));
+
+        action.setMaxBatchSize(10);
+        assertEquals(10, action.getMultiRowInsertSize(3));
+
+        // parameter limit
+        assertEquals(
+                BatchAction.MAX_MULTI_ROW_INSERT_PARAMETERS / 500,
+                action.getMultiRowInsertSize(500));
+        assertEquals(1, action.getMultiRowInsertSize(
+                BatchAction.MAX_MULTI_ROW_INSERT_PARAMETERS + 1));
+    }
+
     DbAdapter buildAdapter(boolean supportGeneratedKeys) {
         JdbcAdapter adapter = new JdbcAdapter();
         adapter.setSupportsGeneratedKeys(supportGeneratedKeys);
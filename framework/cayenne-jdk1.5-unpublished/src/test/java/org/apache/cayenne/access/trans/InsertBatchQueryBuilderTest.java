@@ -54,6 +54,21 @@ public class InsertBatchQueryBuilderTest extends LockingCase {
                 + " (DESCRIPTION, LOCKING_TEST_ID, NAME) VALUES (?, ?, ?)", generatedSql);
     }
 
+    public void testCreateSqlStringMultiRow() throws Exception {
+        DbEntity entity = getDomain().getEntityResolver().lookupObjEntity(
+                SimpleLockingTestEntity.class).getDbEntity();
+
+        InsertBatchQuery insertQuery = new InsertBatchQuery(entity, 2);
+        InsertBatchQueryBuilder builder = new InsertBatchQueryBuilder(new JdbcAdapter());
+        assertEquals(3, builder.getColumnCount(insertQuery));
+
+        String generatedSql = builder.createSqlString(insertQuery, 2);
+        assertEquals("INSERT INTO "
+                + entity.getName()
+                + " (DESCRIPTION, LOCKING_TEST_ID, NAME) VALUES (?, ?, ?), (?, ?, ?)",
+                generatedSql);
+    }
+
     public void testCreateSqlStringWithIdentifiersQuote() throws Exception {
         DbEntity entity = getDomain().getEntityResolver().lookupObjEntity(
                 SimpleLockingTestEntity.class).getDbEntity();
@@ -0,0 +1,198 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.access.trans;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.art.Artist;
+import org.apache.art.Painting;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.access.DataContext;
+import org.apache.cayenne.dba.JdbcAdapter;
+import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.query.Ordering;
+import org.apache.cayenne.query.SelectQuery;
+import org.apache.cayenne.unit.CayenneCase;
+
+public class SelectTranslationCacheTest extends CayenneCase {
+
+    private SelectTranslationCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cache = new SelectTranslationCache();
+    }
+
+    private SelectTranslator translate(SelectQuery query) throws Exception {
+        SelectTranslator translator = new SelectTranslator();
+        translator.setQuery(query);
+        translator.setAdapter(getNode().getAdapter());
+        translator.setEntityResolver(getNode().getEntityResolver());
+        translator.setTranslationCache(cache);
+        translator.createSqlString();
+        return translator;
+    }
+
+    private String translateUncached(SelectQuery query) throws Exception {
+        SelectTranslator translator = new SelectTranslator();
+        translator.setQuery(query);
+        translator.setAdapter(getNode().getAdapter());
+        translator.setEntityResolver(getNode().getEntityResolver());
+        return translator.createSqlString();
+    }
+
+    public void testReuse() throws Exception {
+        SelectQuery q1 = new SelectQuery(Artist.class, ExpressionFactory.likeExp(
+                "artistName",
+                "a%"));
+        q1.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.ASC);
+
+        SelectQuery q2 = new SelectQuery(Artist.class, ExpressionFactory.likeExp(
+                "artistName",
+                "b%"));
+        q2.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.ASC);
+
+        SelectTranslator t1 = translate(q1);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        SelectTranslator t2 = translate(q2);
+        assertEquals(1, cache.getHitCount());
+
+        assertEquals(translateUncached(q2), t2.createSqlString());
+        assertEquals(Arrays.asList("b%"), t2.values);
+        assertEquals(t1.attributes, t2.attributes);
+        assertEquals(t1.getResultColumns().length, t2.getResultColumns().length);
+        assertEquals(t1.isSuppressingDistinct(), t2.isSuppressingDistinct());
+    }
+
+    public void testDifferentShapes() throws Exception {
+        translate(new SelectQuery(Artist.class, ExpressionFactory.matchExp(
+                "artistName",
+                "a")));
+
+        // null is translated as IS NULL
+        SelectTranslator t2 = translate(new SelectQuery(
+                Artist.class,
+                ExpressionFactory.matchExp("artistName", null)));
+        assertEquals(0, cache.getHitCount());
+        assertTrue(t2.values.isEmpty());
+
+        // IN lists of different size
+        translate(new SelectQuery(Artist.class, ExpressionFactory.inExp(
+                "artistName",
+                Arrays.asList("a", "b"))));
+        SelectTranslator t4 = translate(new SelectQuery(
+                Artist.class,
+                ExpressionFactory.inExp("artistName", Arrays.asList("a", "b", "c"))));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, t4.values.size());
+
+        SelectTranslator t5 = translate(new SelectQuery(
+                Artist.class,
+                ExpressionFactory.inExp("artistName", Arrays.asList("x", "y", "z"))));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(Arrays.asList("x", "y", "z"), t5.values);
+
+        // different ordering
+        SelectQuery q6 = new SelectQuery(Artist.class, ExpressionFactory.matchExp(
+                "artistName",
+                "b"));
+        q6.addOrdering(Artist.ARTIST_NAME_PROPERTY, Ordering.DESC);
+        translate(q6);
+
+        // different limit
+        SelectQuery q7 = new SelectQuery(Artist.class, ExpressionFactory.matchExp(
+                "artistName",
+                "b"));
+        q7.setFetchLimit(5);
+        translate(q7);
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(6, cache.size());
+    }
+
+    public void testMaxSize() throws Exception {
+        cache = new SelectTranslationCache(2);
+
+        for (int i = 1; i <= 5; i++) {
+            SelectQuery query = new SelectQuery(Artist.class, ExpressionFactory.matchExp(
+                    "artistName",
+                    "a"));
+            query.setFetchLimit(i);
+            translate(query);
+            assertTrue(cache.size() <= 2);
+        }
+
+        assertEquals(5, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    public void testObjectMatchNotCached() throws Exception {
+        ObjectId id1 = new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 5);
+        ObjectId id2 = new ObjectId("Artist", Artist.ARTIST_ID_PK_COLUMN, 6);
+
+        SelectTranslator t1 = translate(new SelectQuery(
+                Painting.class,
+                ExpressionFactory.matchExp(Painting.TO_ARTIST_PROPERTY, id1)));
+        SelectTranslator t2 = translate(new SelectQuery(
+                Painting.class,
+                ExpressionFactory.matchExp(Painting.TO_ARTIST_PROPERTY, id2)));
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(5, ((Number) t1.values.get(0)).intValue());
+        assertEquals(6, ((Number) t2.values.get(0)).intValue());
+    }
+
+    public void testSelect() throws Exception {
+        deleteTestData();
+
+        DataContext context = createDataContext();
+        for (int i = 0; i < 3; i++) {
+            Artist a = context.newObject(Artist.class);
+            a.setArtistName("artist" + i);
+        }
+        context.commitChanges();
+
+        JdbcAdapter adapter = (JdbcAdapter) getNode().getAdapter();
+        SelectTranslationCache oldCache = adapter.getSelectTranslationCache();
+        adapter.setSelectTranslationCache(cache);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                SelectQuery query = new SelectQuery(
+                        Artist.class,
+                        ExpressionFactory.matchExp(Artist.ARTIST_NAME_PROPERTY, "artist"
+                                + i));
+                List<?> artists = context.performQuery(query);
+                assertEquals(1, artists.size());
+                assertEquals("artist" + i, ((Artist) artists.get(0)).getArtistName());
+            }
+
+            assertEquals(2, cache.getHitCount());
+        }
+        finally {
+            adapter.setSelectTranslationCache(oldCache);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.query.MockQueryMetadata;
+import org.apache.cayenne.query.QueryMetadata;
+import org.apache.cayenne.util.Util;
+
+public class ConcurrentQueryCacheTest extends TestCase {
+
+    private QueryMetadata metadata(final String key, final String... groups) {
+        return new MockQueryMetadata() {
+
+            @Override
+            public String getCacheKey() {
+                return key;
+            }
+
+            @Override
+            public String[] getCacheGroups() {
+                return groups.length > 0 ? groups : null;
+            }
+        };
+    }
+
+    private List<Object> list(Object value) {
+        List<Object> list = new ArrayList<Object>();
+        list.add(value);
+        return list;
+    }
+
+    public void testPutGet() {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache();
+        assertNull(cache.get(metadata("a")));
+
+        List<Object> a = list("a");
+        cache.put(metadata("a"), a);
+        assertSame(a, cache.get(metadata("a")));
+        assertEquals(1, cache.size());
+
+        List<Object> a1 = list("a1");
+        cache.put(metadata("a"), a1);
+        assertSame(a1, cache.get(metadata("a")));
+        assertEquals(1, cache.size());
+
+        cache.remove("a");
+        assertNull(cache.get(metadata("a")));
+        assertEquals(0, cache.size());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testRemoveGroup() {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache();
+        cache.put(metadata("a", "g1"), list("a"));
+        cache.put(metadata("b", "g1", "g2"), list("b"));
+        cache.put(metadata("c", "g2"), list("c"));
+        cache.put(metadata("d"), list("d"));
+
+        cache.removeGroup("g1");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(metadata("a")));
+        assertNull(cache.get(metadata("b")));
+        assertNotNull(cache.get(metadata("c")));
+        assertNotNull(cache.get(metadata("d")));
+
+        // replaced entry must not be indexed by the old groups
+        cache.put(metadata("c", "g3"), list("c1"));
+        cache.removeGroup("g2");
+        assertNotNull(cache.get(metadata("c")));
+
+        cache.removeGroup("g3");
+        assertNull(cache.get(metadata("c")));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    public void testExpiration() throws Exception {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache(10, 50);
+        cache.setGroupPolicy("g1", 10, 0);
+
+        cache.put(metadata("a"), list("a"));
+        cache.put(metadata("b", "g1"), list("b"));
+        assertEquals(50, cache.getExpiration(null));
+        assertEquals(0, cache.getExpiration("g1"));
+
+        Thread.sleep(100);
+        assertNull(cache.get(metadata("a")));
+        assertNotNull(cache.get(metadata("b")));
+        assertEquals(1, cache.size());
+    }
+
+    public void testSizeEviction() {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache(3);
+        cache.setGroupPolicy("g1", 1, 0);
+
+        cache.put(metadata("a"), list("a"));
+        cache.put(metadata("b"), list("b"));
+        cache.put(metadata("c"), list("c"));
+
+        // accessed entry gets a second chance
+        assertNotNull(cache.get(metadata("a")));
+
+        cache.put(metadata("d"), list("d"));
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get(metadata("a")));
+        assertNull(cache.get(metadata("b")));
+
+        // group policy is independent of the default one
+        cache.put(metadata("x", "g1"), list("x"));
+        cache.put(metadata("y", "g1"), list("y"));
+        assertNull(cache.get(metadata("x")));
+        assertNotNull(cache.get(metadata("y")));
+        assertEquals(4, cache.size());
+    }
+
+    public void testSingleFlightLoading() throws Exception {
+        final ConcurrentQueryCache cache = new ConcurrentQueryCache();
+        final AtomicInteger factoryCalls = new AtomicInteger();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch loadReleased = new CountDownLatch(1);
+
+        final QueryCacheEntryFactory factory = new QueryCacheEntryFactory() {
+
+            public Object createObject() {
+                factoryCalls.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    loadReleased.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    fail("Interrupted");
+                }
+                return list("loaded");
+            }
+        };
+
+        int threadCount = 5;
+        final List[] results = new List[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    results[index] = cache.get(metadata("a"), factory);
+                }
+            };
+        }
+
+        threads[0].start();
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < threadCount; i++) {
+            threads[i].start();
+        }
+
+        // let the waiting threads reach the cache
+        Thread.sleep(100);
+        loadReleased.countDown();
+
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(1, factoryCalls.get());
+        assertEquals(1, cache.getLoadCount());
+        for (List result : results) {
+            assertSame(results[0], result);
+        }
+        assertSame(results[0], cache.get(metadata("a")));
+    }
+
+    public void testInvalidationDuringLoading() {
+        final ConcurrentQueryCache cache = new ConcurrentQueryCache();
+
+        List result = cache.get(metadata("a", "g1"), new QueryCacheEntryFactory() {
+
+            public Object createObject() {
+                cache.removeGroup("g1");
+                return list("stale");
+            }
+        });
+
+        assertEquals(list("stale"), result);
+        assertNull(cache.get(metadata("a")));
+    }
+
+    public void testUnrelatedInvalidationDuringLoading() {
+        final ConcurrentQueryCache cache = new ConcurrentQueryCache();
+        cache.put(metadata("b", "g2"), list("b"));
+
+        List result = cache.get(metadata("a", "g1"), new QueryCacheEntryFactory() {
+
+            public Object createObject() {
+                cache.remove("b");
+                cache.removeGroup("g2");
+                return list("a");
+            }
+        });
+
+        assertEquals(list("a"), result);
+        assertSame(result, cache.get(metadata("a")));
+    }
+
+    public void testInvalidationRacingLoad() throws Exception {
+        final ConcurrentQueryCache cache = new ConcurrentQueryCache();
+
+        for (int run = 0; run < 50; run++) {
+            final CountDownLatch loadStarted = new CountDownLatch(1);
+            final CountDownLatch invalidated = new CountDownLatch(1);
+
+            Thread loader = new Thread() {
+
+                @Override
+                public void run() {
+                    cache.get(metadata("a", "g1"), new QueryCacheEntryFactory() {
+
+                        public Object createObject() {
+                            loadStarted.countDown();
+                            try {
+                                invalidated.await(5, TimeUnit.SECONDS);
+                            }
+                            catch (InterruptedException e) {
+                                fail("Interrupted");
+                            }
+                            return list("stale");
+                        }
+                    });
+                }
+            };
+
+            loader.start();
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+            // invalidate while the loaded result is being stored by the loader thread
+            invalidated.countDown();
+            cache.removeGroup("g1");
+
+            loader.join(5000);
+
+            assertNull(cache.get(metadata("a")));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    public void testLoadingFailure() {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache();
+
+        try {
+            cache.get(metadata("a"), new QueryCacheEntryFactory() {
+
+                public Object createObject() {
+                    throw new IllegalStateException("test");
+                }
+            });
+            fail("Exception expected");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("test", e.getMessage());
+        }
+
+        // subsequent loading must succeed
+        List result = cache.get(metadata("a"), new QueryCacheEntryFactory() {
+
+            public Object createObject() {
+                return list("a");
+            }
+        });
+        assertEquals(list("a"), result);
+    }
+
+    public void testSerializability() throws Exception {
+        ConcurrentQueryCache cache = new ConcurrentQueryCache(5);
+        cache.put(metadata("key", "g1"), new ArrayList<Object>());
+
+        ConcurrentQueryCache deserialized = (ConcurrentQueryCache) Util
+                .cloneViaSerialization(cache);
+        assertEquals(1, deserialized.size());
+
+        deserialized.removeGroup("g1");
+        assertEquals(0, deserialized.size());
+    }
+
+    public void testFactory() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ConcurrentQueryCacheFactory.CACHE_SIZE_PROPERTY, "7");
+        properties.put(ConcurrentQueryCacheFactory.EXPIRATION_PROPERTY, "3");
+        properties.put("cayenne.ConcurrentQueryCacheFactory.group.g1.cacheSize", "5");
+        properties.put("cayenne.ConcurrentQueryCacheFactory.group.g2.expiration", "1");
+
+        ConcurrentQueryCache cache = (ConcurrentQueryCache) new ConcurrentQueryCacheFactory()
+                .getQueryCache(properties);
+
+        assertEquals(7, cache.getMaxSize(null));
+        assertEquals(3000, cache.getExpiration(null));
+        assertEquals(5, cache.getMaxSize("g1"));
+        assertEquals(3000, cache.getExpiration("g1"));
+        assertEquals(7, cache.getMaxSize("g2"));
+        assertEquals(1000, cache.getExpiration("g2"));
+        assertEquals(7, cache.getMaxSize("g3"));
+    }
+}
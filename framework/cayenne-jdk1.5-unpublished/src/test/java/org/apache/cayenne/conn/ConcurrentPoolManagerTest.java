@@ -0,0 +1,187 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.conn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.cayenne.unit.CayenneCase;
+
+public class ConcurrentPoolManagerTest extends CayenneCase {
+
+    private ConcurrentPoolManager createPool(int min, int max, long maxQueueWait)
+            throws Exception {
+        DataSourceInfo dsi = getConnectionInfo().cloneInfo();
+        dsi.setMinConnections(min);
+        dsi.setMaxConnections(max);
+        dsi.setMaxQueueWaitTime(maxQueueWait);
+        dsi.setConcurrentPool(true);
+        return new ConcurrentPoolManager(dsi, null);
+    }
+
+    public void testConfiguration() throws Exception {
+        DataSourceInfo dsi = getConnectionInfo();
+        ConcurrentPoolManager pm = createPool(0, 3, 1000);
+        try {
+            assertEquals(dsi.getDataSourceUrl(), pm.getDataSourceUrl());
+            assertEquals(dsi.getJdbcDriver(), pm.getJdbcDriver());
+            assertEquals(0, pm.getMinConnections());
+            assertEquals(3, pm.getMaxConnections());
+            assertEquals(1000, pm.getMaxQueueWaitTime());
+            assertEquals(0, pm.getPoolSize());
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+
+    public void testPooling() throws Exception {
+        ConcurrentPoolManager pm = createPool(2, 3, 1000);
+
+        try {
+            assertEquals(0, pm.getCurrentlyInUse());
+            assertEquals(2, pm.getCurrentlyUnused());
+
+            Connection c1 = pm.getConnection();
+            assertEquals(1, pm.getCurrentlyInUse());
+            assertEquals(1, pm.getCurrentlyUnused());
+
+            Connection c2 = pm.getConnection();
+            assertEquals(2, pm.getCurrentlyInUse());
+            assertEquals(0, pm.getCurrentlyUnused());
+
+            Connection c3 = pm.getConnection();
+            assertEquals(3, pm.getCurrentlyInUse());
+            assertEquals(3, pm.getPoolSize());
+
+            c1.close();
+            c2.close();
+            c3.close();
+            assertEquals(0, pm.getCurrentlyInUse());
+            assertEquals(3, pm.getCurrentlyUnused());
+            assertEquals(3, pm.getCheckoutCount());
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+
+    public void testWaitTimeout() throws Exception {
+        ConcurrentPoolManager pm = createPool(1, 1, 100);
+
+        try {
+            Connection c1 = pm.getConnection();
+
+            try {
+                pm.getConnection();
+                fail("Pool is exhausted, connection request must time out.");
+            }
+            catch (SQLException e) {
+                // expected
+            }
+
+            assertEquals(0, pm.getWaitingThreads());
+            c1.close();
+
+            Connection c2 = pm.getConnection();
+            assertEquals(1, pm.getCurrentlyInUse());
+            c2.close();
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+
+    public void testHandoffToWaitingThread() throws Exception {
+        final ConcurrentPoolManager pm = createPool(1, 1, 10000);
+
+        try {
+            Connection c1 = pm.getConnection();
+
+            final Connection[] acquired = new Connection[1];
+            Thread waiter = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        acquired[0] = pm.getConnection();
+                    }
+                    catch (SQLException e) {
+                        // leave null
+                    }
+                }
+            };
+
+            waiter.start();
+
+            // wait for the thread to block on the pool
+            for (int i = 0; i < 100 && pm.getWaitingThreads() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, pm.getWaitingThreads());
+
+            c1.close();
+            waiter.join(5000);
+
+            assertNotNull(acquired[0]);
+            assertEquals(1, pm.getCurrentlyInUse());
+            assertEquals(0, pm.getWaitingThreads());
+            assertTrue(pm.getMaxWaitTime() >= 0);
+
+            acquired[0].close();
+            assertEquals(0, pm.getCurrentlyInUse());
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+
+    public void testEvictIdleConnections() throws Exception {
+        DataSourceInfo dsi = getConnectionInfo().cloneInfo();
+        dsi.setMinConnections(1);
+        dsi.setMaxConnections(3);
+        dsi.setMaxIdleTime(1);
+
+        ConcurrentPoolManager pm = new ConcurrentPoolManager(dsi, null) {
+
+            @Override
+            protected void startMaintenanceThread() {
+            }
+        };
+
+        try {
+            Connection c1 = pm.getConnection();
+            Connection c2 = pm.getConnection();
+            Connection c3 = pm.getConnection();
+            c1.close();
+            c2.close();
+            c3.close();
+            assertEquals(3, pm.getPoolSize());
+
+            Thread.sleep(20);
+            assertEquals(2, pm.evictIdleConnections());
+            assertEquals(1, pm.getPoolSize());
+            assertEquals(1, pm.getCurrentlyUnused());
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+}
@@ -21,6 +21,9 @@ package org.apache.cayenne.conn;
 
 import java.sql.Connection;
 
+import org.apache.cayenne.instrument.Histogram;
+import org.apache.cayenne.instrument.HistogramRegistry;
+import org.apache.cayenne.instrument.Instrumentation;
 import org.apache.cayenne.unit.CayenneCase;
 
 public class PoolManagerTest extends CayenneCase {
@@ -111,4 +114,32 @@ public class PoolManagerTest extends CayenneCase {
         }
 
     }
+
+    public void testInstrumentation() throws Exception {
+        DataSourceInfo dsi = getConnectionInfo();
+        PoolManager pm =
+            new PoolManager(
+                dsi.getJdbcDriver(),
+                dsi.getDataSourceUrl(),
+                1,
+                1,
+                dsi.getUserName(),
+                dsi.getPassword());
+
+        HistogramRegistry registry = new HistogramRegistry();
+        Instrumentation.addListener(registry);
+        try {
+            pm.getConnection().close();
+            pm.getConnection().close();
+
+            Histogram checkouts = registry.getConnectionHistograms().get(
+                    dsi.getDataSourceUrl());
+            assertNotNull(checkouts);
+            assertEquals(2, checkouts.getCount());
+        }
+        finally {
+            Instrumentation.removeListener(registry);
+            pm.dispose();
+        }
+    }
 }
@@ -0,0 +1,303 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.conn;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.cayenne.unit.CayenneCase;
+
+public class StatementCacheTest extends CayenneCase {
+
+    static final String SQL1 = "SELECT ARTIST_ID FROM ARTIST WHERE ARTIST_ID = ?";
+    static final String SQL2 = "SELECT ARTIST_NAME FROM ARTIST WHERE ARTIST_ID = ?";
+    static final String SQL3 = "SELECT DATE_OF_BIRTH FROM ARTIST WHERE ARTIST_ID = ?";
+
+    private PooledConnectionImpl createPooledConnection(int statementCacheSize)
+            throws Exception {
+        DataSourceInfo dsi = getConnectionInfo();
+        DriverDataSource driverDS = new DriverDataSource(dsi.getJdbcDriver(), dsi
+                .getDataSourceUrl());
+        return new PooledConnectionImpl(
+                driverDS,
+                dsi.getUserName(),
+                dsi.getPassword(),
+                statementCacheSize);
+    }
+
+    public void testDisabled() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(0);
+        assertNull(pooled.getStatementCache());
+
+        try {
+            Connection c = pooled.getConnection();
+            PreparedStatement st = c.prepareStatement(SQL1);
+            assertFalse(st.getConnection() instanceof ConnectionWrapper);
+            st.close();
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testReuse() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+        assertNotNull(cache);
+        assertEquals(2, cache.getMaxSize());
+
+        try {
+            Connection c = pooled.getConnection();
+
+            PreparedStatement st1 = c.prepareStatement(SQL1);
+            assertSame(c, st1.getConnection());
+            st1.setInt(1, 1);
+            st1.executeQuery().close();
+            st1.close();
+            assertTrue(st1.isClosed());
+            assertEquals(0, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.size());
+
+            try {
+                st1.executeQuery();
+                fail("Closed statement must not be usable");
+            }
+            catch (SQLException e) {
+                // expected
+            }
+
+            // closing twice is a noop
+            st1.close();
+            assertEquals(1, cache.size());
+
+            PreparedStatement st2 = c.prepareStatement(SQL1);
+            assertEquals(1, cache.getHitCount());
+            assertEquals(0, cache.size());
+
+            // the same SQL checked out while the cached statement is in use
+            PreparedStatement st3 = c.prepareStatement(SQL1);
+            assertEquals(2, cache.getMissCount());
+
+            st2.setInt(1, 1);
+            st2.executeQuery().close();
+            st2.close();
+            st3.close();
+            assertEquals(1, cache.size());
+            c.close();
+
+            // statements survive returning connection to the pool
+            c = pooled.getConnection();
+            c.prepareStatement(SQL1).close();
+            assertEquals(2, cache.getHitCount());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    public void testResultSetOptions() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(5);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+            c.prepareStatement(SQL1).close();
+            c.prepareStatement(
+                    SQL1,
+                    java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE,
+                    java.sql.ResultSet.CONCUR_READ_ONLY).close();
+            assertEquals(2, cache.size());
+            assertEquals(0, cache.getHitCount());
+
+            c.prepareStatement(
+                    SQL1,
+                    java.sql.ResultSet.TYPE_FORWARD_ONLY,
+                    java.sql.ResultSet.CONCUR_READ_ONLY).close();
+            assertEquals(1, cache.getHitCount());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testEviction() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+            c.prepareStatement(SQL1).close();
+            c.prepareStatement(SQL2).close();
+
+            // touch SQL1, so that SQL2 becomes the least recently used
+            c.prepareStatement(SQL1).close();
+            c.prepareStatement(SQL3).close();
+
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictionCount());
+
+            c.prepareStatement(SQL1).close();
+            assertEquals(2, cache.getHitCount());
+            c.prepareStatement(SQL2).close();
+            assertEquals(2, cache.getHitCount());
+            assertEquals(2, cache.getEvictionCount());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testRestoreSettings() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+
+            PreparedStatement st = c.prepareStatement(SQL1);
+            int maxRows = st.getMaxRows();
+            int fetchSize = st.getFetchSize();
+
+            st.setMaxRows(maxRows + 5);
+            st.setFetchSize(fetchSize + 10);
+            st.close();
+
+            st = c.prepareStatement(SQL1);
+            assertEquals(1, cache.getHitCount());
+            assertEquals(maxRows, st.getMaxRows());
+            assertEquals(fetchSize, st.getFetchSize());
+
+            // statements with a cursor name can not be reused
+            st.setCursorName("C1");
+            st.close();
+            assertEquals(0, cache.size());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testErrorDiscardsStatement() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+            PreparedStatement st = c.prepareStatement(SQL1);
+
+            try {
+                // parameter is not a number
+                st.setString(1, "abc");
+                st.executeQuery();
+                fail("Must have failed with invalid parameter");
+            }
+            catch (SQLException e) {
+                // expected
+            }
+
+            st.close();
+            assertEquals(0, cache.size());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testReconnect() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+            c.prepareStatement(SQL1).close();
+            PreparedStatement st = c.prepareStatement(SQL2);
+            assertEquals(1, cache.size());
+
+            pooled.reconnect();
+            assertEquals(0, cache.size());
+
+            // statement of the old connection must not be cached
+            st.close();
+            assertEquals(0, cache.size());
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testPrepareCall() throws Exception {
+        PooledConnectionImpl pooled = createPooledConnection(2);
+        StatementCache cache = pooled.getStatementCache();
+
+        try {
+            Connection c = pooled.getConnection();
+
+            CallableStatement call;
+            try {
+                call = c.prepareCall("{call cayenne_tst_select_proc(?, ?)}");
+            }
+            catch (SQLException e) {
+                // stored procedures are not supported by the test database
+                c.close();
+                return;
+            }
+
+            call.close();
+            assertEquals(1, cache.size());
+
+            // callable and plain statements with the same SQL are cached separately
+            c.prepareStatement("{call cayenne_tst_select_proc(?, ?)}").close();
+            assertEquals(0, cache.getHitCount());
+            c.close();
+        }
+        finally {
+            pooled.close();
+        }
+    }
+
+    public void testPoolConfiguration() throws Exception {
+        DataSourceInfo dsi = getConnectionInfo().cloneInfo();
+        dsi.setStatementCacheSize(3);
+
+        PoolManager pm = new PoolManager(dsi, null);
+        try {
+            PooledConnectionImpl pooled = (PooledConnectionImpl) pm.newPooledConnection(
+                    dsi.getUserName(),
+                    dsi.getPassword());
+            assertNotNull(pooled.getStatementCache());
+            assertEquals(3, pooled.getStatementCache().getMaxSize());
+            pooled.close();
+        }
+        finally {
+            pm.dispose();
+        }
+    }
+}
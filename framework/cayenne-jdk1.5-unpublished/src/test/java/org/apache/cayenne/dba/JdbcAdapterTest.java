@@ -29,6 +29,9 @@ import org.apache.cayenne.map.DbKeyGenerator;
 import org.apache.cayenne.unit.CayenneCase;
 import org.apache.cayenne.unit.MySQLStackAdapter;
 
+import com.mockrunner.mock.jdbc.MockConnection;
+import com.mockrunner.mock.jdbc.MockStatement;
+
 public class JdbcAdapterTest extends CayenneCase {
 
     protected JdbcAdapter adapter;
@@ -52,6 +55,28 @@ public class JdbcAdapterTest extends CayenneCase {
         assertEquals(1, types.length);
         assertEquals(TypesMapping.getSqlNameByType(type), types[0]);
     }
+
+    public void testConfigureFetchSize() throws Exception {
+        MockConnection connection = new MockConnection();
+
+        MockStatement s1 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s1, 0);
+        assertEquals(0, s1.getFetchSize());
+
+        MockStatement s2 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s2, 50);
+        assertEquals(50, s2.getFetchSize());
+
+        adapter.setStatementFetchSize(20);
+
+        MockStatement s3 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s3, 0);
+        assertEquals(20, s3.getFetchSize());
+
+        MockStatement s4 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s4, 50);
+        assertEquals(50, s4.getFetchSize());
+    }
     
     public void testCreateTableQuoteSqlIdentifiers() {
          
@@ -0,0 +1,88 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.dba;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class LongPkRangeTest extends TestCase {
+
+    public void testExhausted() throws Exception {
+        assertTrue(new LongPkRange(1, 0).isExhausted());
+        assertFalse(new LongPkRange(0, 1).isExhausted());
+    }
+
+    public void testTake() throws Exception {
+        LongPkRange range = new LongPkRange(5, 9);
+
+        long[] keys = new long[4];
+        assertEquals(2, range.take(keys, 0, 2));
+        assertEquals(5, keys[0]);
+        assertEquals(6, keys[1]);
+        assertFalse(range.isExhausted());
+
+        assertEquals(2, range.take(keys, 2, 2));
+        assertEquals(7, keys[2]);
+        assertEquals(8, keys[3]);
+
+        keys = new long[3];
+        assertEquals(1, range.take(keys, 0, 3));
+        assertEquals(9, keys[0]);
+        assertTrue(range.isExhausted());
+
+        assertEquals(0, range.take(keys, 0, 3));
+    }
+
+    public void testTakeConcurrent() throws Exception {
+        final LongPkRange range = new LongPkRange(0, 9999);
+        final long[][] keys = new long[4][2500];
+
+        Thread[] threads = new Thread[keys.length];
+        for (int i = 0; i < threads.length; i++) {
+            final long[] threadKeys = keys[i];
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < threadKeys.length; j++) {
+                        range.take(threadKeys, j, 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(range.isExhausted());
+
+        Set<Long> unique = new HashSet<Long>();
+        for (long[] threadKeys : keys) {
+            for (long key : threadKeys) {
+                unique.add(key);
+            }
+        }
+
+        assertEquals(10000, unique.size());
+    }
+}
@@ -20,9 +20,13 @@
 package org.apache.cayenne.dba;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.cayenne.access.DataNode;
+import org.apache.cayenne.map.DbAttribute;
 import org.apache.cayenne.map.DbEntity;
 import org.apache.cayenne.unit.CayenneCase;
 
@@ -72,6 +76,120 @@ public class PkGeneratorTest extends CayenneCase {
         }
     }
 
+    public void testGeneratePks() throws Exception {
+        if (!(pkGen instanceof JdbcPkGenerator)) {
+            return;
+        }
+
+        JdbcPkGenerator jdbcPkGen = (JdbcPkGenerator) pkGen;
+        DbAttribute pk = paintEnt.getPrimaryKeys().iterator().next();
+
+        int testSize = jdbcPkGen.getPkCacheSize() * 3 + 5;
+
+        // start in the middle of a cached range
+        Object first = jdbcPkGen.generatePk(node, pk);
+        List<Object> pks = jdbcPkGen.generatePks(node, pk, testSize);
+        assertEquals(testSize, pks.size());
+
+        Set<Object> unique = new HashSet<Object>(pks);
+        unique.add(first);
+        assertEquals(testSize + 1, unique.size());
+
+        if (getAccessStackAdapter().supportsBatchPK()) {
+            Number last = (Number) first;
+            for (Object next : pks) {
+                assertEquals(last.intValue() + 1, ((Number) next).intValue());
+                last = (Number) next;
+            }
+        }
+    }
+
+    public void testGeneratePksCustomGeneratePk() throws Exception {
+        DbAttribute pk = paintEnt.getPrimaryKeys().iterator().next();
+
+        JdbcPkGenerator customPkGen = new JdbcPkGenerator((JdbcAdapter) null) {
+
+            int nextKey = 1;
+
+            @Override
+            public Object generatePk(DataNode node, DbAttribute pk) throws Exception {
+                return Integer.valueOf(nextKey++);
+            }
+        };
+
+        // a subclass customizing single key generation must not be bypassed
+        List<Object> pks = customPkGen.generatePks(node, pk, 3);
+        assertEquals(3, pks.size());
+        assertEquals(Integer.valueOf(1), pks.get(0));
+        assertEquals(Integer.valueOf(2), pks.get(1));
+        assertEquals(Integer.valueOf(3), pks.get(2));
+    }
+
+    public void testGeneratePkConcurrently() throws Exception {
+        if (!(pkGen instanceof JdbcPkGenerator)) {
+            return;
+        }
+
+        final JdbcPkGenerator jdbcPkGen = (JdbcPkGenerator) pkGen;
+        final DbAttribute pk = paintEnt.getPrimaryKeys().iterator().next();
+
+        int oldCacheSize = jdbcPkGen.getPkCacheSize();
+
+        // a small cache forces threads to exhaust and refill the range concurrently
+        jdbcPkGen.setPkCacheSize(2);
+        jdbcPkGen.reset();
+
+        try {
+            final int threadCount = 8;
+            final int keysPerThread = 25;
+
+            final List<Object> pks = Collections.synchronizedList(new ArrayList<Object>());
+            final List<Throwable> errors = Collections
+                    .synchronizedList(new ArrayList<Throwable>());
+
+            Thread[] threads = new Thread[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                threads[i] = new Thread() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < keysPerThread; j++) {
+                                if (j % 5 == 0) {
+                                    pks.addAll(jdbcPkGen.generatePks(node, pk, 3));
+                                }
+                                else {
+                                    pks.add(jdbcPkGen.generatePk(node, pk));
+                                }
+                            }
+                        }
+                        catch (Throwable th) {
+                            errors.add(th);
+                        }
+                    }
+                };
+            }
+
+            for (Thread thread : threads) {
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(errors.toString(), 0, errors.size());
+
+            int expected = threadCount * (keysPerThread + (keysPerThread / 5) * 2);
+            assertEquals(expected, pks.size());
+            assertEquals(expected, new HashSet<Object>(pks).size());
+        }
+        finally {
+            jdbcPkGen.setPkCacheSize(oldCacheSize);
+            jdbcPkGen.reset();
+        }
+    }
+
     /**
      * @deprecated since 3.0
      */
@@ -24,6 +24,9 @@ import junit.framework.TestCase;
 import org.apache.cayenne.map.DbAttribute;
 import org.apache.cayenne.map.DbEntity;
 
+import com.mockrunner.mock.jdbc.MockConnection;
+import com.mockrunner.mock.jdbc.MockStatement;
+
 public class MySQLAdapterTest extends TestCase {
 
     public void testCreateTableAppendPKClause() {
@@ -54,4 +57,23 @@ public class MySQLAdapterTest extends TestCase {
         assertTrue(b2.indexOf("PK2") > 0);
         assertTrue(b2.indexOf("PK1") > b2.indexOf("PK2"));
     }
+
+    public void testConfigureFetchSizeStreaming() throws Exception {
+        MySQLAdapter adapter = new MySQLAdapter();
+        MockConnection connection = new MockConnection();
+
+        MockStatement s1 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s1, 50);
+        assertEquals(50, s1.getFetchSize());
+
+        adapter.setStreamingResults(true);
+
+        MockStatement s2 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s2, 0);
+        assertEquals(0, s2.getFetchSize());
+
+        MockStatement s3 = new MockStatement(connection);
+        adapter.configureFetchSize(connection, s3, 50);
+        assertEquals(Integer.MIN_VALUE, s3.getFetchSize());
+    }
 }
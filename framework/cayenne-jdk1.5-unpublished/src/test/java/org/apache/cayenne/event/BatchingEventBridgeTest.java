@@ -0,0 +1,236 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.unit.util.ThreadedTestHelper;
+
+/**
+ */
+public class BatchingEventBridgeTest extends TestCase {
+
+    public void testConstructor() {
+        EventSubject local = EventSubject.getSubject(
+                BatchingEventBridgeTest.class,
+                "testConstructor");
+        RecordingBridge delegate = new RecordingBridge(local, "external");
+        BatchingEventBridge bridge = new BatchingEventBridge(
+                delegate,
+                new CountingCoalescer());
+
+        assertSame(delegate, bridge.getDelegate());
+        assertEquals("external", bridge.getExternalSubject());
+        assertEquals(Collections.singleton(local), bridge.getLocalSubjects());
+        assertEquals(BatchingEventBridge.DEFAULT_BATCH_INTERVAL, bridge
+                .getBatchInterval());
+        assertEquals(BatchingEventBridge.DEFAULT_BATCH_SIZE, bridge.getBatchSize());
+    }
+
+    public void testBatchSize() throws Exception {
+        EventSubject local = EventSubject.getSubject(
+                BatchingEventBridgeTest.class,
+                "testBatchSize");
+        RecordingBridge delegate = new RecordingBridge(local, "external");
+
+        // long interval, so that only the size can close the window
+        BatchingEventBridge bridge = new BatchingEventBridge(
+                delegate,
+                new CountingCoalescer(),
+                60000,
+                3);
+
+        bridge.startup(new EventManager(0), EventBridge.RECEIVE_EXTERNAL);
+        try {
+            for (int i = 0; i < 7; i++) {
+                CayenneEvent event = new CayenneEvent(this);
+                event.setSubject(local);
+                bridge.sendExternalEvent(event);
+            }
+
+            assertEquals(2, delegate.sent.size());
+            assertEquals(3, ((CountEvent) delegate.sent.get(0)).count);
+            assertEquals(local, delegate.sent.get(0).getSubject());
+            assertEquals(1, bridge.getPendingCount());
+            assertEquals(7, bridge.getBufferedCount());
+
+            bridge.flush();
+            assertEquals(3, delegate.sent.size());
+            assertEquals(1, ((CountEvent) delegate.sent.get(2)).count);
+            assertEquals(0, bridge.getPendingCount());
+            assertEquals(3, bridge.getSentCount());
+        }
+        finally {
+            bridge.shutdown();
+        }
+    }
+
+    public void testBatchInterval() throws Exception {
+        EventSubject local = EventSubject.getSubject(
+                BatchingEventBridgeTest.class,
+                "testBatchInterval");
+        final RecordingBridge delegate = new RecordingBridge(local, "external");
+        BatchingEventBridge bridge = new BatchingEventBridge(
+                delegate,
+                new CountingCoalescer(),
+                50,
+                1000);
+
+        EventManager manager = new EventManager(2);
+        bridge.startup(manager, EventBridge.RECEIVE_LOCAL_EXTERNAL);
+        try {
+            for (int i = 0; i < 5; i++) {
+                manager.postEvent(new CayenneEvent(this), local);
+            }
+
+            ThreadedTestHelper helper = new ThreadedTestHelper() {
+
+                @Override
+                protected void assertResult() throws Exception {
+                    int count = 0;
+                    for (CayenneEvent event : delegate.getSent()) {
+                        count += ((CountEvent) event).count;
+                    }
+                    assertEquals(5, count);
+                }
+            };
+            helper.assertWithTimeout(5000);
+
+            // 5 events must not take more than a few windows
+            assertTrue(delegate.getSent().size() < 5);
+        }
+        finally {
+            bridge.shutdown();
+        }
+
+        assertEquals(1, delegate.shutdownCalls);
+    }
+
+    public void testShutdownFlushes() throws Exception {
+        EventSubject local = EventSubject.getSubject(
+                BatchingEventBridgeTest.class,
+                "testShutdownFlushes");
+        RecordingBridge delegate = new RecordingBridge(local, "external");
+        BatchingEventBridge bridge = new BatchingEventBridge(
+                delegate,
+                new CountingCoalescer(),
+                60000,
+                1000);
+
+        bridge.startup(new EventManager(0), EventBridge.RECEIVE_EXTERNAL);
+
+        CayenneEvent event = new CayenneEvent(this);
+        event.setSubject(local);
+        bridge.sendExternalEvent(event);
+        assertEquals(0, delegate.sent.size());
+
+        bridge.shutdown();
+        assertEquals(1, delegate.sent.size());
+    }
+
+    public void testExternalEventSource() throws Exception {
+        EventSubject local = EventSubject.getSubject(
+                BatchingEventBridgeTest.class,
+                "testExternalEventSource");
+        RecordingBridge delegate = new RecordingBridge(local, "external");
+        BatchingEventBridge bridge = new BatchingEventBridge(
+                delegate,
+                new CountingCoalescer());
+
+        EventManager manager = new EventManager(0);
+        bridge.startup(manager, EventBridge.RECEIVE_EXTERNAL);
+        try {
+            RecordingListener listener = new RecordingListener();
+            manager.addListener(listener, "onEvent", CayenneEvent.class, local);
+
+            CayenneEvent event = new CayenneEvent(this);
+            event.setSubject(local);
+            delegate.onExternalEvent(event);
+
+            assertSame(bridge, event.getSource());
+            assertSame(event, listener.lastEvent);
+        }
+        finally {
+            bridge.shutdown();
+        }
+    }
+
+    public static class RecordingListener {
+
+        CayenneEvent lastEvent;
+
+        public void onEvent(CayenneEvent event) {
+            lastEvent = event;
+        }
+    }
+
+    static class CountEvent extends CayenneEvent {
+
+        int count;
+
+        CountEvent(Object source, int count) {
+            super(source);
+            this.count = count;
+        }
+    }
+
+    static class CountingCoalescer implements EventCoalescer {
+
+        public boolean canCoalesce(CayenneEvent event) {
+            return true;
+        }
+
+        public CayenneEvent coalesce(List<CayenneEvent> events) {
+            return new CountEvent(this, events.size());
+        }
+    }
+
+    static class RecordingBridge extends EventBridge {
+
+        List<CayenneEvent> sent = new ArrayList<CayenneEvent>();
+        int shutdownCalls;
+
+        RecordingBridge(EventSubject localSubject, String externalSubject) {
+            super(localSubject, externalSubject);
+        }
+
+        synchronized List<CayenneEvent> getSent() {
+            return new ArrayList<CayenneEvent>(sent);
+        }
+
+        @Override
+        protected synchronized void sendExternalEvent(CayenneEvent event) {
+            sent.add(event);
+        }
+
+        @Override
+        protected void startupExternal() throws Exception {
+        }
+
+        @Override
+        protected void shutdownExternal() throws Exception {
+            shutdownCalls++;
+        }
+    }
+}
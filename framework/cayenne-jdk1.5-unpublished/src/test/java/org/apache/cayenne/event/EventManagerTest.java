@@ -19,8 +19,12 @@
 
 package org.apache.cayenne.event;
 
+import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
@@ -386,6 +390,74 @@ public class EventManagerTest extends TestCase implements EventListener {
         Assert.assertFalse(_eventManager.removeListener(this));
     }
 
+    public void testOverflowDrop() throws Exception {
+        EventManager manager = new EventManager(1, 1, DispatchOverflowPolicy.DROP);
+        try {
+            EventSubject subject = EventSubject.getSubject(this.getClass(), "XXX");
+            BlockingListener listener = new BlockingListener();
+            manager.addNonBlockingListener(
+                    listener,
+                    "processEvent",
+                    CayenneEvent.class,
+                    subject);
+
+            CayenneEvent e1 = new CayenneEvent(this);
+            CayenneEvent e2 = new CayenneEvent(this);
+            CayenneEvent e3 = new CayenneEvent(this);
+
+            // first event is blocked in the listener, second is queued, third is dropped
+            manager.postEvent(e1, subject);
+            assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+            manager.postEvent(e2, subject);
+            manager.postEvent(e3, subject);
+
+            assertEquals(1, manager.getDroppedCount());
+            assertEquals(1, manager.getQueueDepth());
+
+            listener.release.countDown();
+            listener.assertEvents(e1, e2);
+            assertEquals(0, manager.getQueueDepth());
+            assertEquals(2, manager.getDispatchedCount());
+            assertEquals(3, manager.getPostedCount());
+        }
+        finally {
+            manager.shutdown();
+        }
+    }
+
+    public void testOverflowCoalesce() throws Exception {
+        EventManager manager = new EventManager(1, 1, DispatchOverflowPolicy.COALESCE);
+        try {
+            EventSubject subject = EventSubject.getSubject(this.getClass(), "XXX");
+            BlockingListener listener = new BlockingListener();
+            manager.addNonBlockingListener(
+                    listener,
+                    "processEvent",
+                    CayenneEvent.class,
+                    subject);
+
+            CayenneEvent e1 = new CayenneEvent(this);
+            CayenneEvent e2 = new CayenneEvent(this);
+            CayenneEvent e3 = new CayenneEvent(this);
+
+            // first event is blocked in the listener, second is queued, third replaces
+            // the second
+            manager.postEvent(e1, subject);
+            assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+            manager.postEvent(e2, subject);
+            manager.postEvent(e3, subject);
+
+            assertEquals(1, manager.getCoalescedCount());
+            assertEquals(0, manager.getDroppedCount());
+
+            listener.release.countDown();
+            listener.assertEvents(e1, e3);
+        }
+        finally {
+            manager.shutdown();
+        }
+    }
+
     // notification method
     public void seeNotification(CayenneEvent event) {
         _numberOfReceivedEvents++;
@@ -428,3 +500,35 @@ class MyCayenneEvent extends CayenneEvent {
         super(l);
     }
 }
+
+class BlockingListener {
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Object> events = new ArrayList<Object>();
+
+    public void processEvent(CayenneEvent event) throws InterruptedException {
+        synchronized (events) {
+            events.add(event);
+        }
+
+        started.countDown();
+        release.await(5, TimeUnit.SECONDS);
+    }
+
+    void assertEvents(final Object... expected) throws Exception {
+        ThreadedTestHelper helper = new ThreadedTestHelper() {
+
+            @Override
+            protected void assertResult() throws Exception {
+                synchronized (events) {
+                    Assert.assertEquals(expected.length, events.size());
+                    for (int i = 0; i < expected.length; i++) {
+                        Assert.assertSame(expected[i], events.get(i));
+                    }
+                }
+            }
+        };
+        helper.assertWithTimeout(5000);
+    }
+}
@@ -0,0 +1,86 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+
+package org.apache.cayenne.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class LoopbackBridgeTest extends TestCase {
+
+    public void testSendReceive() throws Exception {
+        EventSubject local = EventSubject.getSubject(
+                LoopbackBridgeTest.class,
+                "testSendReceive");
+
+        LoopbackBridge bridge1 = new LoopbackBridge(local, "loopbackTest");
+        LoopbackBridge bridge2 = new LoopbackBridge(local, "loopbackTest");
+        bridge2.setEventSerializer(new JavaEventSerializer());
+
+        EventManager manager1 = new EventManager(0);
+        EventManager manager2 = new EventManager(0);
+
+        bridge1.startup(manager1, EventBridge.RECEIVE_EXTERNAL);
+        bridge2.startup(manager2, EventBridge.RECEIVE_EXTERNAL);
+
+        try {
+            RecordingListener listener1 = new RecordingListener();
+            RecordingListener listener2 = new RecordingListener();
+            manager1.addListener(listener1, "onEvent", CayenneEvent.class, local);
+            manager2.addListener(listener2, "onEvent", CayenneEvent.class, local);
+
+            Map info = new HashMap();
+            info.put("key", "value");
+
+            CayenneEvent event = new CayenneEvent(this, this, info);
+            event.setSubject(local);
+            bridge1.sendExternalEvent(event);
+
+            // must not deliver to self
+            assertNull(listener1.lastEvent);
+
+            assertNotNull(listener2.lastEvent);
+            assertNotSame(event, listener2.lastEvent);
+            assertEquals(info, listener2.lastEvent.getInfo());
+            assertSame(bridge2, listener2.lastEvent.getSource());
+
+            assertEquals(1, bridge1.getSentMessages());
+            assertTrue(bridge1.getSentBytes() > 0);
+        }
+        finally {
+            bridge1.shutdown();
+            bridge2.shutdown();
+        }
+
+        assertFalse(LoopbackBridge.channels.containsKey("loopbackTest"));
+    }
+
+    public static class RecordingListener {
+
+        CayenneEvent lastEvent;
+
+        public void onEvent(CayenneEvent event) {
+            lastEvent = event;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.exp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class ExpressionCacheTest extends TestCase {
+
+    public void testGetExpression() {
+        ExpressionCache cache = new ExpressionCache();
+
+        Expression e1 = cache.getExpression("a = 1 and b like 'x%'");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        Expression e2 = cache.getExpression("a = 1 and b like 'x%'");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // each lookup must return a separate copy
+        assertNotSame(e1, e2);
+        assertEquals(e1, e2);
+        assertNotSame(e1.getOperand(0), e2.getOperand(0));
+
+        // modifying a returned expression must not affect the cache
+        e1.setOperand(0, Expression.fromString("c = 2"));
+        assertEquals(e2, cache.getExpression("a = 1 and b like 'x%'"));
+    }
+
+    public void testGetExpressionWithParameters() {
+        ExpressionCache cache = new ExpressionCache();
+
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("a", "x");
+        Expression e1 = cache.getExpression("a = $a and b = $b", parameters, true);
+        assertEquals(Expression.parse("a = $a and b = $b").expWithParameters(
+                parameters,
+                true), e1);
+
+        parameters.put("b", new Integer(5));
+        Expression e2 = cache.getExpression("a = $a and b = $b", parameters, true);
+        assertEquals(Expression.parse("a = $a and b = $b").expWithParameters(
+                parameters,
+                true), e2);
+
+        try {
+            cache.getExpression("a = $a and c = $c", parameters, false);
+            fail("Missing parameter must have failed");
+        }
+        catch (ExpressionException e) {
+            // expected
+        }
+
+        // no parameters
+        Expression e3 = cache.getExpression("a = 1", Collections.EMPTY_MAP, false);
+        assertEquals(Expression.fromString("a = 1"), e3);
+        assertNotSame(e3, cache.getExpression("a = 1", Collections.EMPTY_MAP, false));
+    }
+
+    public void testMaxSize() {
+        ExpressionCache cache = new ExpressionCache(2);
+        cache.getExpression("a = 1");
+        cache.getExpression("a = 2");
+        cache.getExpression("a = 3");
+        assertEquals(2, cache.size());
+
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.size());
+        assertNotNull(cache.getExpression("a = 4"));
+        assertEquals(0, cache.size());
+    }
+
+    public void testInvalidExpression() {
+        ExpressionCache cache = new ExpressionCache();
+
+        try {
+            cache.getExpression("a = ");
+            fail("Invalid expression must have failed");
+        }
+        catch (ExpressionException e) {
+            // expected
+        }
+
+        assertEquals(0, cache.size());
+    }
+}
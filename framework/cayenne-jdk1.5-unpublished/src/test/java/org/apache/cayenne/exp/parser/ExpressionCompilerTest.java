@@ -0,0 +1,164 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.exp.parser;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.art.Artist;
+import org.apache.art.Painting;
+import org.apache.cayenne.access.DataContext;
+import org.apache.cayenne.exp.CompiledExpression;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.exp.ExpressionException;
+import org.apache.cayenne.reflect.ClassDescriptor;
+import org.apache.cayenne.reflect.UnresolvablePathException;
+import org.apache.cayenne.unit.CayenneCase;
+import org.apache.cayenne.unit.util.TestBean;
+
+public class ExpressionCompilerTest extends CayenneCase {
+
+    public void testCompileJavaBean() throws Exception {
+        List<TestBean> beans = new ArrayList<TestBean>();
+        for (int i = 0; i < 20; i++) {
+            TestBean bean = new TestBean("s" + i, i);
+            bean.setInteger(i % 3 == 0 ? null : new Integer(i));
+            bean.setRelatedBean(new TestBean("r" + i, i * 2));
+            beans.add(bean);
+        }
+
+        String[] expressions = new String[] {
+                "property2 = 5", "property2 != 5", "property2 < 5", "property2 <= 5",
+                "property2 > 5", "property2 >= 5", "string = 's7'", "string like 's1%'",
+                "string likeIgnoreCase 'S1%'", "string not like 's1%'",
+                "property2 between 3 and 6", "property2 not between 3 and 6",
+                "property2 in (1, 3, 5)",
+                "property2 in (1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11)",
+                "property2 not in (1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11)",
+                "integer = null", "integer > 4 and relatedBean.property2 < 20",
+                "not (property2 = 1 or relatedBean.string = 'r2')",
+                "property2 + 1 = 4"
+        };
+
+        for (String expression : expressions) {
+            Expression e = Expression.fromString(expression);
+            CompiledExpression compiled = e.compile();
+
+            for (TestBean bean : beans) {
+                assertEquals(expression, e.match(bean), compiled.match(bean));
+                assertEquals(expression, e.evaluate(bean), compiled.evaluate(bean));
+            }
+        }
+    }
+
+    public void testEvaluatePathJavaBean() throws Exception {
+        TestBean bean = new TestBean("a", 1);
+        bean.setRelatedBean(new TestBean("b", 2));
+
+        assertEquals("a", Expression.fromString("string").compile().evaluate(bean));
+        assertEquals(new Integer(2), Expression
+                .fromString("relatedBean.property2")
+                .compile()
+                .evaluate(bean));
+
+        // same compiled path with beans of different classes
+        CompiledExpression path = Expression.fromString("string").compile();
+        assertEquals("a", path.evaluate(bean));
+        assertEquals("x", path.evaluate(new TestBean("x", 0) {
+        }));
+    }
+
+    public void testEvaluatePathNullInTheMiddle() throws Exception {
+        CompiledExpression path = Expression
+                .fromString("relatedBean.string")
+                .compile();
+
+        try {
+            path.evaluate(new TestBean());
+            fail("Null in the middle of the path must have failed");
+        }
+        catch (ExpressionException e) {
+            assertTrue(e.getCause() instanceof UnresolvablePathException);
+        }
+    }
+
+    public void testEvaluatePathDataObject() throws Exception {
+        DataContext context = createDataContext();
+
+        Artist a1 = context.newObject(Artist.class);
+        a1.setArtistName("a1");
+        Painting p1 = context.newObject(Painting.class);
+        p1.setPaintingTitle("p1");
+        p1.setToArtist(a1);
+        Painting p2 = context.newObject(Painting.class);
+        p2.setPaintingTitle("p2");
+        p2.setToArtist(a1);
+
+        assertEquals("a1", Expression
+                .fromString("toArtist.artistName")
+                .compile()
+                .evaluate(p1));
+
+        // collection in the middle of the path
+        Object titles = Expression
+                .fromString("paintingArray.paintingTitle")
+                .compile()
+                .evaluate(a1);
+        assertTrue(titles instanceof List);
+        assertEquals(2, ((List<?>) titles).size());
+        assertTrue(((List<?>) titles).containsAll(Arrays.asList("p1", "p2")));
+    }
+
+    public void testCompileWithDescriptor() throws Exception {
+        ClassDescriptor descriptor = getDomain().getEntityResolver().getClassDescriptor(
+                "Painting");
+
+        Artist a1 = new Artist();
+        a1.setArtistName("a1");
+        Painting p1 = new Painting();
+        p1.setEstimatedPrice(new BigDecimal("2.00"));
+        p1.setToArtist(a1);
+
+        Painting p2 = new Painting();
+        p2.setEstimatedPrice(new BigDecimal("3"));
+
+        CompiledExpression e = Expression.fromString(
+                "estimatedPrice = 2.0b or toArtist.artistName = 'a2'").compile(descriptor);
+        assertTrue(e.match(p1));
+        assertFalse(e.match(p2));
+
+        List<Painting> filtered = e.filterObjects(Arrays.asList(p1, p2));
+        assertEquals(1, filtered.size());
+        assertSame(p1, filtered.get(0));
+    }
+
+    public void testEvaluateException() throws Exception {
+        CompiledExpression e = Expression.fromString("noSuchProperty = 1").compile();
+
+        try {
+            e.match(new TestBean());
+            fail("Invalid property must have failed");
+        }
+        catch (ExpressionException ex) {
+            assertEquals("noSuchProperty = 1", ex.getExpressionString());
+        }
+    }
+}
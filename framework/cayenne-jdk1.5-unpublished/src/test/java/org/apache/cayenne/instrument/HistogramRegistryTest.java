@@ -0,0 +1,131 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.instrument;
+
+import junit.framework.TestCase;
+
+public class HistogramRegistryTest extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        Instrumentation.removeAllListeners();
+    }
+
+    public void testHistogramBuckets() {
+        Histogram histogram = new Histogram();
+        histogram.record(0, 0);
+        histogram.record(1, 1);
+        histogram.record(1000, 5);
+
+        long[] buckets = histogram.getBucketCounts();
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[10]);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(1001, histogram.getTotalNanos());
+        assertEquals(1000, histogram.getMaxNanos());
+        assertEquals(6, histogram.getTotalValue());
+        assertEquals(5, histogram.getMaxValue());
+
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(0.5));
+    }
+
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100, 0);
+        }
+        histogram.record(100000, 0);
+
+        assertEquals(127, histogram.getPercentileNanos(0.5));
+        assertEquals(127, histogram.getPercentileNanos(0.99));
+        assertEquals(131071, histogram.getPercentileNanos(1.0));
+    }
+
+    public void testQueries() {
+        HistogramRegistry registry = new HistogramRegistry(2);
+        registry.queryExecuted("SELECT 1", 1, 10);
+        registry.queryExecuted("SELECT 1", 3, 20);
+        registry.queryExecuted("SELECT 2", 1, 10);
+        registry.queryExecuted("SELECT 3", 1, 10);
+        registry.queryExecuted("SELECT 4", 1, 10);
+
+        assertEquals(3, registry.getQueryHistograms().size());
+
+        Histogram select1 = registry.getQueryHistograms().get("SELECT 1");
+        assertEquals(2, select1.getCount());
+        assertEquals(4, select1.getTotalValue());
+
+        Histogram other = registry.getQueryHistograms().get(
+                HistogramRegistry.OTHER_QUERIES);
+        assertNotNull(other);
+        assertEquals(2, other.getCount());
+
+        registry.clear();
+        assertTrue(registry.getQueryHistograms().isEmpty());
+    }
+
+    public void testTransactions() {
+        HistogramRegistry registry = new HistogramRegistry();
+        registry.transactionFinished(true, 100);
+        registry.transactionFinished(true, 200);
+        registry.transactionFinished(false, 300);
+
+        assertEquals(2, registry.getCommitHistogram().getCount());
+        assertEquals(1, registry.getRollbackHistogram().getCount());
+    }
+
+    public void testCacheStatistics() {
+        HistogramRegistry registry = new HistogramRegistry();
+        registry.cacheAccessed("c1", true);
+        registry.cacheAccessed("c1", true);
+        registry.cacheAccessed("c1", true);
+        registry.cacheAccessed("c1", false);
+
+        HistogramRegistry.CacheStatistics stats = registry.getCacheStatistics().get(
+                "c1");
+        assertEquals(3, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0.75d, stats.getHitRatio(), 0.0001d);
+    }
+
+    public void testDispatch() {
+        assertFalse(Instrumentation.isEnabled());
+
+        HistogramRegistry registry = new HistogramRegistry();
+        Instrumentation.addListener(registry);
+        assertTrue(Instrumentation.isEnabled());
+
+        Instrumentation.queryExecuted("SELECT 1", 1, 10);
+        Instrumentation.batchExecuted("INSERT", 5, 10);
+        Instrumentation.connectionCheckedOut("node", 10);
+        assertEquals(1, registry.getQueryHistograms().get("SELECT 1").getCount());
+        assertEquals(5, registry.getBatchHistograms().get("INSERT").getTotalValue());
+        assertEquals(1, registry.getConnectionHistograms().get("node").getCount());
+
+        Instrumentation.removeListener(registry);
+        assertFalse(Instrumentation.isEnabled());
+
+        Instrumentation.queryExecuted("SELECT 1", 1, 10);
+        assertEquals(1, registry.getQueryHistograms().get("SELECT 1").getCount());
+    }
+}
@@ -90,4 +90,16 @@ public class EntityResolverInheritanceTest extends PeopleCase {
         assertEquals(2, tree.getChildrenCount());
         assertSame(super1, tree.getEntity());
     }
+
+    public void testLookupTreeFrozen() throws Exception {
+        resolver.freeze();
+
+        EntityInheritanceTree tree = resolver.lookupInheritanceTree(getAbstractPerson());
+        assertNotNull(tree);
+        assertEquals(2, tree.getChildrenCount());
+        assertSame(getAbstractPerson(), tree.getEntity());
+
+        assertEquals(1, resolver.lookupInheritanceTree(getEmployee()).getChildrenCount());
+        assertNull(resolver.lookupInheritanceTree(getManager()));
+    }
 }
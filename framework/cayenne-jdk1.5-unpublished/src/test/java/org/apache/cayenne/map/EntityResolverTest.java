@@ -236,6 +236,96 @@ public class EntityResolverTest extends CayenneCase {
         assertSame(q2, resolver.getQuery("query2"));
     }
 
+    public void testFreeze() {
+        DataMap m1 = new DataMap();
+        DbEntity de1 = new DbEntity("TEST1");
+        m1.addDbEntity(de1);
+        ObjEntity oe1 = new ObjEntity("test1");
+        oe1.setClassName(Object.class.getName());
+        oe1.setDbEntityName("TEST1");
+        m1.addObjEntity(oe1);
+        Query q = new MockQuery("query1");
+        m1.addQuery(q);
+
+        EntityResolver resolver = new EntityResolver(Collections.singleton(m1));
+        assertFalse(resolver.isFrozen());
+
+        resolver.freeze();
+        assertTrue(resolver.isFrozen());
+        assertSame(oe1, resolver.getObjEntity("test1"));
+        assertSame(oe1, resolver.lookupObjEntity(Object.class));
+        assertSame(de1, resolver.getDbEntity("TEST1"));
+        assertSame(q, resolver.getQuery("query1"));
+        assertNull(resolver.lookupObjEntity(String.class));
+        assertNotNull(resolver.getClassDescriptor("test1"));
+
+        // frozen resolver must not pick up direct DataMap changes until cache is
+        // cleared
+        ObjEntity oe2 = new ObjEntity("test2");
+        oe2.setClassName(String.class.getName());
+        m1.addObjEntity(oe2);
+        assertNull(resolver.lookupObjEntity(String.class));
+
+        resolver.clearCache();
+        assertTrue(resolver.isFrozen());
+        assertSame(oe2, resolver.lookupObjEntity(String.class));
+
+        // adding a map refreshes the index
+        DataMap m2 = new DataMap();
+        ObjEntity oe3 = new ObjEntity("test3");
+        oe3.setClassName(Integer.class.getName());
+        m2.addObjEntity(oe3);
+        resolver.addDataMap(m2);
+        assertSame(oe3, resolver.lookupObjEntity(Integer.class));
+    }
+
+    public void testFreezeLookupDuplicates() {
+        AccessStack stack = CayenneResources
+                .getResources()
+                .getAccessStack("GenericStack");
+
+        DataMap generic = stack.getDataDomain().getMap("generic");
+        EntityResolver resolver = new EntityResolver(Collections.singleton(generic));
+        resolver.freeze();
+
+        assertNotNull(resolver.getObjEntity("Generic1"));
+        assertNull(resolver.lookupObjEntity(Object.class));
+
+        try {
+            resolver.lookupObjEntity(CayenneDataObject.class);
+            fail("two entities mapped to the same class... resolver must have thrown.");
+        }
+        catch (CayenneRuntimeException e) {
+            // expected
+        }
+    }
+
+    public void testGetMappedEntities() {
+        DataMap m1 = new DataMap();
+        DbEntity de1 = new DbEntity("TEST1");
+        m1.addDbEntity(de1);
+        DbEntity de2 = new DbEntity("TEST2");
+        m1.addDbEntity(de2);
+
+        ObjEntity oe1 = new ObjEntity("test1");
+        oe1.setDbEntityName("TEST1");
+        m1.addObjEntity(oe1);
+        ObjEntity oe2 = new ObjEntity("test2");
+        oe2.setDbEntityName("TEST1");
+        m1.addObjEntity(oe2);
+
+        EntityResolver resolver = new EntityResolver(Collections.singleton(m1));
+        assertEquals(2, resolver.getMappedEntities(de1).size());
+        assertTrue(resolver.getMappedEntities(de2).isEmpty());
+
+        resolver.freeze();
+        Collection<ObjEntity> mapped = resolver.getMappedEntities(de1);
+        assertEquals(2, mapped.size());
+        assertTrue(mapped.contains(oe1));
+        assertTrue(mapped.contains(oe2));
+        assertTrue(resolver.getMappedEntities(de2).isEmpty());
+    }
+
     private void assertIsArtistDbEntity(DbEntity ae) {
         assertNotNull(ae);
         assertEquals(ae, getDbEntity("ARTIST"));
@@ -71,6 +71,9 @@ public class SelectQueryBuilderTest extends TestCase {
         assertTrue(query instanceof SelectQuery);
         assertEquals(5, ((SelectQuery) query).getFetchLimit());
 
+        builder.addProperty(QueryMetadata.STATEMENT_FETCH_SIZE_PROPERTY, "1000");
+        assertEquals(1000, ((SelectQuery) builder.getQuery()).getStatementFetchSize());
+
         // TODO: test other properties...
     }
 
@@ -92,6 +92,10 @@ public class MockQueryMetadata implements QueryMetadata {
     public int getPageSize() {
         return 0;
     }
+
+    public int getStatementFetchSize() {
+        return 0;
+    }
     
     public int getFetchOffset() {
         return -1;
@@ -0,0 +1,111 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+import junit.framework.TestCase;
+
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.access.MockCallingBackListener;
+import org.apache.cayenne.map.MockCallingBackEntity;
+
+public class CallbackGeneratorTest extends TestCase {
+
+    public void testCreateCallbackOnEntity() {
+        CallbackGenerator generator = new CallbackGenerator();
+        AbstractCallback callback = generator.createCallback(new CallbackOnEntity(
+                MockCallingBackEntity.class,
+                "publicCallback"));
+
+        assertTrue(callback instanceof GeneratedCallback);
+
+        MockCallingBackEntity e = new MockCallingBackEntity();
+        callback.performCallback(e);
+        assertTrue(e.publicCallbackInvoked);
+
+        // second callback for the same method must reuse the generated class
+        AbstractCallback callback2 = new CallbackGenerator()
+                .createCallback(new CallbackOnEntity(
+                        MockCallingBackEntity.class,
+                        "publicCallback"));
+        assertSame(callback.getClass(), callback2.getClass());
+    }
+
+    public void testCreateCallbackOnEntityNonPublic() {
+        CallbackGenerator generator = new CallbackGenerator();
+
+        AbstractCallback protectedCallback = generator
+                .createCallback(new CallbackOnEntity(
+                        MockCallingBackEntity.class,
+                        "protectedCallback"));
+        assertTrue(protectedCallback instanceof GeneratedCallback);
+
+        AbstractCallback defaultCallback = generator.createCallback(new CallbackOnEntity(
+                MockCallingBackEntity.class,
+                "defaultCallback"));
+        assertTrue(defaultCallback instanceof GeneratedCallback);
+
+        MockCallingBackEntity e = new MockCallingBackEntity();
+        protectedCallback.performCallback(e);
+        defaultCallback.performCallback(e);
+        assertTrue(e.protectedCallbackInvoked);
+        assertTrue(e.defaultCallbackInvoked);
+    }
+
+    public void testCreateCallbackOnEntityPrivate() {
+        CallbackOnEntity reflectionCallback = new CallbackOnEntity(
+                MockCallingBackEntity.class,
+                "privateCallback");
+        AbstractCallback callback = new CallbackGenerator()
+                .createCallback(reflectionCallback);
+
+        // private methods can't be invoked from a generated class
+        assertSame(reflectionCallback, callback);
+    }
+
+    public void testCreateCallbackOnListener() {
+        MockCallingBackListener listener = new MockCallingBackListener();
+        AbstractCallback callback = new CallbackGenerator()
+                .createCallback(new CallbackOnListener(
+                        listener,
+                        "publicCallback",
+                        MockCallingBackEntity.class));
+
+        assertTrue(callback instanceof GeneratedCallback);
+
+        MockCallingBackEntity e = new MockCallingBackEntity();
+        callback.performCallback(e);
+        assertFalse(e.publicCallbackInvoked);
+        assertSame(e, listener.getPublicCalledbackEntity());
+    }
+
+    public void testCallbackException() {
+        AbstractCallback callback = new CallbackGenerator()
+                .createCallback(new CallbackOnEntity(
+                        MockCallingBackEntity.class,
+                        "publicCallback"));
+
+        try {
+            callback.performCallback(new Object());
+            fail("Invalid entity class must have caused an exception");
+        }
+        catch (CayenneRuntimeException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*****************************************************************
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ****************************************************************/
+package org.apache.cayenne.reflect;
+
+import junit.framework.TestCase;
+
+public class FieldAccessorGeneratorTest extends TestCase {
+
+    public void testCreateAccessor() {
+        FieldAccessorGenerator generator = new FieldAccessorGenerator();
+        Accessor accessor = generator.createAccessor(new FieldAccessor(
+                TestFields.class,
+                "stringField",
+                String.class));
+
+        assertTrue(accessor instanceof GeneratedFieldAccessor);
+        assertEquals("stringField", accessor.getName());
+
+        TestFields object = new TestFields();
+        accessor.setValue(object, "aaa");
+        assertEquals("aaa", object.stringField);
+        assertEquals("aaa", accessor.getValue(object));
+
+        // second accessor for the same field must reuse the generated class
+        Accessor accessor2 = new FieldAccessorGenerator()
+                .createAccessor(new FieldAccessor(
+                        TestFields.class,
+                        "stringField",
+                        String.class));
+        assertSame(accessor.getClass(), accessor2.getClass());
+    }
+
+    public void testSetValueArray() {
+        FieldAccessorGenerator generator = new FieldAccessorGenerator();
+        TestFields object = new TestFields();
+
+        byte[] bytes = new byte[] {
+                1, 2, 3
+        };
+        generator.createAccessor(
+                new FieldAccessor(TestFields.class, "byteArrayField", byte[].class))
+                .setValue(object, bytes);
+        assertSame(bytes, object.byteArrayField);
+
+        String[] strings = new String[] {
+                "a", "b"
+        };
+        generator.createAccessor(
+                new FieldAccessor(TestFields.class, "stringArrayField", String[].class))
+                .setValue(object, strings);
+        assertSame(strings, object.stringArrayField);
+    }
+
+    public void testSetValuePrimitive() {
+        FieldAccessorGenerator generator = new FieldAccessorGenerator();
+        TestFields object = new TestFields();
+
+        Accessor intAccessor = generator.createAccessor(new FieldAccessor(
+                TestFields.class,
+                "intField",
+                Integer.TYPE));
+        intAccessor.setValue(object, new Integer(6));
+        assertEquals(6, object.intField);
+        assertEquals(new Integer(6), intAccessor.getValue(object));
+
+        // write null
+        intAccessor.setValue(object, null);
+        assertEquals(0, object.intField);
+
+        // widening conversion
+        Accessor longAccessor = generator.createAccessor(new FieldAccessor(
+                TestFields.class,
+                "longField",
+                Long.TYPE));
+        longAccessor.setValue(object, new Integer(7));
+        assertEquals(7l, object.longField);
+        assertEquals(new Long(7), longAccessor.getValue(object));
+
+        Accessor booleanAccessor = generator.createAccessor(new FieldAccessor(
+                TestFields.class,
+                "booleanField",
+                Boolean.TYPE));
+        booleanAccessor.setValue(object, Boolean.TRUE);
+        assertTrue(object.booleanField);
+        assertEquals(Boolean.TRUE, booleanAccessor.getValue(object));
+    }
+
+    public void testSetValueWrongType() {
+        Accessor accessor = new FieldAccessorGenerator()
+                .createAccessor(new FieldAccessor(
+                        TestFields.class,
+                        "stringField",
+                        String.class));
+
+        try {
+            accessor.setValue(new TestFields(), new Integer(5));
+            fail("Invalid value type must have failed");
+        }
+        catch (PropertyException e) {
+            // expected
+        }
+    }
+
+    public void testCreateAccessorPrivateField() {
+        FieldAccessor fieldAccessor = new FieldAccessor(
+                TestFields.class,
+                "privateField",
+                String.class);
+        assertSame(fieldAccessor, new FieldAccessorGenerator()
+                .createAccessor(fieldAccessor));
+    }
+}
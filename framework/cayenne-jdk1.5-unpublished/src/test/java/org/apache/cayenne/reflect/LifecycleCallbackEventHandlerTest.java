@@ -115,6 +115,91 @@ public class LifecycleCallbackEventHandlerTest extends TestCase {
         assertEquals("c2Callback", c.callbacks.get(1));
     }
 
+    public void testAddListenerAfterCallbacks() {
+
+        LifecycleCallbackEventHandler map = new LifecycleCallbackEventHandler(
+                new EntityResolver());
+        map.addListener(C2.class, "c2Callback");
+
+        C2 c = new C2();
+        c.setObjectId(new ObjectId("bogus"));
+
+        map.performCallbacks(c);
+        assertEquals(1, c.callbacks.size());
+
+        // adding a listener must reset cached callbacks
+        map.addListener(C1.class, "c1Callback");
+        c.callbacks.clear();
+        map.performCallbacks(c);
+        assertEquals(2, c.callbacks.size());
+        assertEquals("c1Callback", c.callbacks.get(0));
+        assertEquals("c2Callback", c.callbacks.get(1));
+    }
+
+    public void testAddListenerWhileCompilingCallbacks() {
+
+        final LifecycleCallbackEventHandler map = new LifecycleCallbackEventHandler(
+                new EntityResolver());
+        map.addListener(C2.class, "c2Callback");
+
+        // simulate a listener registered by another thread while the chain is compiled
+        map.setCallbackGenerator(new CallbackGenerator() {
+
+            boolean listenerAdded;
+
+            @Override
+            AbstractCallback createCallback(AbstractCallback callback) {
+                if (!listenerAdded) {
+                    listenerAdded = true;
+                    map.addListener(C1.class, "c1Callback");
+                }
+
+                return callback;
+            }
+        });
+
+        C2 c = new C2();
+        c.setObjectId(new ObjectId("bogus"));
+
+        map.performCallbacks(c);
+        assertEquals(1, c.callbacks.size());
+
+        // the chain compiled before the change must not be cached
+        c.callbacks.clear();
+        map.performCallbacks(c);
+        assertEquals(2, c.callbacks.size());
+        assertEquals("c1Callback", c.callbacks.get(0));
+        assertEquals("c2Callback", c.callbacks.get(1));
+    }
+
+    public void testGeneratedCallbacks() {
+
+        LifecycleCallbackEventHandler map = new LifecycleCallbackEventHandler(
+                new EntityResolver());
+        map.setCallbackGenerator(new CallbackGenerator());
+        map.addListener(C2.class, "c2Callback");
+        map.addListener(C1.class, "c1Callback");
+
+        L1 l1 = new L1();
+        map.addDefaultListener(l1, "callback");
+
+        C2 c2 = new C2();
+        c2.setObjectId(new ObjectId("bogus"));
+
+        map.performCallbacks(c2);
+        assertEquals(1, l1.entities.size());
+        assertEquals(2, c2.callbacks.size());
+        assertEquals("c1Callback", c2.callbacks.get(0));
+        assertEquals("c2Callback", c2.callbacks.get(1));
+
+        // overridden superclass callback must be dispatched to the subclass
+        C4 c4 = new C4();
+        c4.setObjectId(new ObjectId("bogus4"));
+        map.performCallbacks(c4);
+        assertEquals(1, c4.callbacks.size());
+        assertEquals("c4Callback", c4.callbacks.get(0));
+    }
+
     static class C1 extends PersistentObject {
 
         protected List callbacks = new ArrayList();
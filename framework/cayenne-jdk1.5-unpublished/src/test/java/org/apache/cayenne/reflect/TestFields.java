@@ -25,5 +25,8 @@ public class TestFields {
     protected int intField;
     protected byte[] byteArrayField;
     protected String[] stringArrayField;
+    protected long longField;
+    protected boolean booleanField;
+    private String privateField;
 
 }
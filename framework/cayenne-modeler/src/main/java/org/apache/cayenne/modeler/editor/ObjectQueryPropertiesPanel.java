@@ -70,6 +70,8 @@ public class ObjectQueryPropertiesPanel extends SelectPropertiesPanel {
         builder.add(fetchLimit.getComponent(), cc.xy(3, 11));
         builder.addLabel("Page Size:", cc.xy(1, 13));
         builder.add(pageSize.getComponent(), cc.xy(3, 13));
+        builder.addLabel("Statement Fetch Size:", cc.xy(1, 15));
+        builder.add(statementFetchSize.getComponent(), cc.xy(3, 15));
 
         this.setLayout(new BorderLayout());
         this.add(builder.getPanel(), BorderLayout.CENTER);
@@ -229,14 +229,16 @@ public class SQLTemplateMainTab extends JPanel {
 
             PanelBuilder builder = super.createPanelBuilder();
 
-            RowSpec[] extraRows = RowSpec.decodeSpecs("3dlu, p");
+            RowSpec[] extraRows = RowSpec.decodeSpecs("3dlu, p, 3dlu, p");
             for (RowSpec extraRow : extraRows) {
                 builder.appendRow(extraRow);
             }
 
             CellConstraints cc = new CellConstraints();
-            builder.addLabel("Row Label Case:", cc.xy(1, 15));
-            builder.add(labelCase, cc.xywh(3, 15, 5, 1));
+            builder.addLabel("Statement Fetch Size:", cc.xy(1, 15));
+            builder.add(statementFetchSize.getComponent(), cc.xywh(3, 15, 3, 1));
+            builder.addLabel("Row Label Case:", cc.xy(1, 17));
+            builder.add(labelCase, cc.xywh(3, 17, 5, 1));
 
             return builder;
         }
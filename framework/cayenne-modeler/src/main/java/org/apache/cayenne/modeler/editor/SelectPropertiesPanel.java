@@ -75,6 +75,7 @@ public abstract class SelectPropertiesPanel extends JPanel {
     protected TextAdapter fetchOffset;
     protected TextAdapter fetchLimit;
     protected TextAdapter pageSize;
+    protected TextAdapter statementFetchSize;
     protected JComboBox cacheStrategy;
 
     protected ProjectController mediator;
@@ -107,6 +108,13 @@ public abstract class SelectPropertiesPanel extends JPanel {
             }
         };
 
+        statementFetchSize = new TextAdapter(new JTextField(7)) {
+
+            protected void updateModel(String text) {
+                setStatementFetchSize(text);
+            }
+        };
+
         cacheStrategy = CayenneWidgetFactory.createComboBox();
         cacheStrategy.setRenderer(new CacheStrategyRenderer());
     }
@@ -141,6 +149,9 @@ public abstract class SelectPropertiesPanel extends JPanel {
         fetchOffset.setText(String.valueOf(query.getMetaData(resolver).getFetchOffset()));
         fetchLimit.setText(String.valueOf(query.getMetaData(resolver).getFetchLimit()));
         pageSize.setText(String.valueOf(query.getMetaData(resolver).getPageSize()));
+        statementFetchSize.setText(String.valueOf(query
+                .getMetaData(resolver)
+                .getStatementFetchSize()));
     }
     
     void setFetchOffset(String string) {
@@ -191,6 +202,23 @@ public abstract class SelectPropertiesPanel extends JPanel {
         }
     }
 
+    void setStatementFetchSize(String string) {
+        string = (string == null) ? "" : string.trim();
+
+        if (string.length() == 0) {
+            setQueryProperty("statementFetchSize", ZERO);
+        }
+        else {
+            try {
+                setQueryProperty("statementFetchSize", new Integer(string));
+            }
+            catch (NumberFormatException nfex) {
+                throw new ValidationException("Statement fetch size must be an integer: "
+                        + string);
+            }
+        }
+    }
+
     Query getQuery() {
         return mediator.getCurrentQuery();
     }